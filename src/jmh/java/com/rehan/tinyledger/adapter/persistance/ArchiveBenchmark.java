@@ -0,0 +1,108 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionQuery;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Reads served by the cold tier next to the same reads of entries still in memory, on an account whose
+// history is archived up to its last 16 chunks. Setup prints the heap held before and after archiving and
+// the archive's size.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArchiveBenchmark {
+    private static final String ACCOUNT = "bench";
+    private static final int HOT = 16 * 1024;
+
+    @Param({"100000", "1000000"})
+    public int ledgerSize;
+
+    private Path directory;
+    private InMemoryLedgerRepository repository;
+    private UUID[] ids;
+    private int archived;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("archive-benchmark");
+        repository = new InMemoryLedgerRepository(
+                new ArchiveProperties(directory, Duration.ofDays(365), Duration.ofDays(1), 64, 8));
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        ids = new UUID[ledgerSize];
+        for (int i = 0; i < ledgerSize; i++) {
+            ids[i] = repository.save(new Transaction(UUID.randomUUID(), ACCOUNT,
+                    i % 4 == 3 ? TransactionType.WITHDRAWAL : TransactionType.DEPOSIT, Money.of("1.00"),
+                    "Payment " + i % 100, start.plusSeconds(i))).id();
+        }
+        long before = usedHeap();
+        long started = System.nanoTime();
+        archived = (int) repository.archive(start.plusSeconds(ledgerSize - HOT));
+        long elapsed = System.nanoTime() - started;
+        long bytes = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.toList()) {
+                bytes += Files.size(path);
+            }
+        }
+        System.out.printf("%nArchived %d of %d entries in %d ms into %d KiB; heap held %d MiB before, %d MiB after%n",
+                archived, ledgerSize, TimeUnit.NANOSECONDS.toMillis(elapsed), bytes >> 10, before >> 20, usedHeap() >> 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        repository.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public Optional<Transaction> findArchivedById() {
+        return repository.findById(ids[ThreadLocalRandom.current().nextInt(archived)]);
+    }
+
+    @Benchmark
+    public Optional<Transaction> findHotById() {
+        return repository.findById(ids[archived + ThreadLocalRandom.current().nextInt(ledgerSize - archived)]);
+    }
+
+    @Benchmark
+    public List<Transaction> pageArchived() {
+        UUID after = ids[ThreadLocalRandom.current().nextInt(archived - 100)];
+        return repository.findPage(ACCOUNT, new TransactionQuery(null, after, null, null, 100));
+    }
+
+    @Benchmark
+    public List<Transaction> pageHot() {
+        UUID after = ids[archived + ThreadLocalRandom.current().nextInt(ledgerSize - archived - 100)];
+        return repository.findPage(ACCOUNT, new TransactionQuery(null, after, null, null, 100));
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,75 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionFilter;
+import com.rehan.tinyledger.core.domain.TransactionQuery;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Filtered history pages from the secondary indexes, against filtering the full history the way clients
+// had to before. One in ten transactions is a withdrawal, amounts run from 0.01 to 50.00 and descriptions
+// name one of 1000 merchants.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilteredHistoryBenchmark {
+    private static final String ACCOUNT = "bench";
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final TransactionQuery WITHDRAWALS = query(TransactionFilter.of(TransactionType.WITHDRAWAL, null, null, null));
+    private static final TransactionQuery LARGE_WITHDRAWALS = query(
+            TransactionFilter.of(TransactionType.WITHDRAWAL, Money.of("49.00"), null, null));
+    private static final TransactionQuery MERCHANT = query(TransactionFilter.of(null, null, null, "merchant-42"));
+
+    @Param({"100000", "1000000"})
+    public int ledgerSize;
+
+    private InMemoryLedgerRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new InMemoryLedgerRepository();
+        for (int i = 0; i < ledgerSize; i++) {
+            TransactionType type = i % 10 == 0 ? TransactionType.WITHDRAWAL : TransactionType.DEPOSIT;
+            repository.save(new Transaction(UUID.randomUUID(), ACCOUNT, type, new Money(1 + i % 5000),
+                    "Card payment merchant-" + (i % 1000), START.plusSeconds(i)));
+        }
+        // The index is built by the first filtered query; measure the queries after that.
+        repository.findPage(ACCOUNT, WITHDRAWALS);
+    }
+
+    @Benchmark
+    public List<Transaction> withdrawals() {
+        return repository.findPage(ACCOUNT, WITHDRAWALS);
+    }
+
+    @Benchmark
+    public List<Transaction> largeWithdrawals() {
+        return repository.findPage(ACCOUNT, LARGE_WITHDRAWALS);
+    }
+
+    @Benchmark
+    public List<Transaction> merchant() {
+        return repository.findPage(ACCOUNT, MERCHANT);
+    }
+
+    @Benchmark
+    public List<Transaction> largeWithdrawalsByScan() {
+        return repository.findAll(ACCOUNT).stream()
+                .filter(LARGE_WITHDRAWALS.filter()::matches)
+                .limit(TransactionQuery.DEFAULT_LIMIT)
+                .toList();
+    }
+
+    private static TransactionQuery query(TransactionFilter filter) {
+        return new TransactionQuery(null, null, null, null, TransactionQuery.DEFAULT_LIMIT, filter);
+    }
+}
@@ -0,0 +1,87 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import com.rehan.tinyledger.core.domain.ChainHash;
+import com.rehan.tinyledger.core.domain.ChainProof;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.MessageDigest;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// What the hash chain adds to an append (one entry hash) next to a whole save, and proving one entry
+// against its checkpoint next to rehashing the account's history, which is what checking it would take
+// without checkpoints.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashChainBenchmark {
+    private static final String ACCOUNT = "bench";
+    private static final Money AMOUNT = Money.of("1.00");
+
+    @Param({"100000", "1000000"})
+    public int ledgerSize;
+
+    private InMemoryLedgerRepository repository;
+    private Transaction[] entries;
+    private MessageDigest digest;
+    private byte[] previous;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new InMemoryLedgerRepository();
+        entries = new Transaction[ledgerSize];
+        for (int i = 0; i < ledgerSize; i++) {
+            entries[i] = repository.save(Transaction.create(ACCOUNT, TransactionType.DEPOSIT, AMOUNT, "Deposit " + i));
+        }
+        digest = ChainHash.digest();
+        previous = ChainHash.genesis();
+        // Builds the checkpoint trees, as the first proof of each block would.
+        repository.checkpoints(ACCOUNT);
+    }
+
+    @Benchmark
+    public byte[] hashEntry() {
+        return ChainHash.entry(digest, previous, ledgerSize + 1L, entries[0]);
+    }
+
+    // Into a repository emptied every iteration, so the save does not also measure an ever-growing heap.
+    @Benchmark
+    public Transaction save(Appends appends) {
+        return appends.repository.save(Transaction.create(ACCOUNT, TransactionType.DEPOSIT, AMOUNT, "Deposit"));
+    }
+
+    @Benchmark
+    public ChainProof proveEntry() {
+        long sequence = ThreadLocalRandom.current().nextInt(ledgerSize) + 1L;
+        return repository.proof(ACCOUNT, sequence, sequence);
+    }
+
+    @Benchmark
+    public boolean proveAndVerifyEntry() {
+        return proveEntry().verify();
+    }
+
+    @State(Scope.Benchmark)
+    public static class Appends {
+        private InMemoryLedgerRepository repository;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            repository = new InMemoryLedgerRepository();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5)
+    public int rehashAccount() {
+        return HashChain.of(ledgerSize, offset -> entries[offset]).size();
+    }
+}
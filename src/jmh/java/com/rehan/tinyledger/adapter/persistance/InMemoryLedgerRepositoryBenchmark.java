@@ -0,0 +1,66 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionQuery;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InMemoryLedgerRepositoryBenchmark {
+    private static final String ACCOUNT = "bench";
+    private static final Money AMOUNT = Money.of("1.00");
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int ledgerSize;
+
+    private InMemoryLedgerRepository repository;
+    private UUID[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new InMemoryLedgerRepository();
+        ids = new UUID[ledgerSize];
+        for (int i = 0; i < ledgerSize; i++) {
+            ids[i] = repository.save(Transaction.create(ACCOUNT, TransactionType.DEPOSIT, AMOUNT, "Deposit " + i)).id();
+        }
+    }
+
+    @Benchmark
+    public Transaction save() {
+        return repository.save(Transaction.create(ACCOUNT, TransactionType.DEPOSIT, AMOUNT, "Deposit"));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Transaction save4Threads() {
+        return save();
+    }
+
+    @Benchmark
+    public List<Transaction> findAll() {
+        return repository.findAll(ACCOUNT);
+    }
+
+    @Benchmark
+    public List<Transaction> findPageFromCursor() {
+        UUID cursor = ids[ThreadLocalRandom.current().nextInt(ledgerSize)];
+        return repository.findPage(ACCOUNT, new TransactionQuery(cursor, null, null, null, TransactionQuery.DEFAULT_LIMIT));
+    }
+
+    @Benchmark
+    public Optional<Transaction> findById() {
+        return repository.findById(ids[ThreadLocalRandom.current().nextInt(ledgerSize)]);
+    }
+}
@@ -0,0 +1,73 @@
+package com.rehan.tinyledger.adapter.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rehan.tinyledger.adapter.persistance.InMemoryLedgerRepository;
+import com.rehan.tinyledger.core.domain.BalanceResponse;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionQuery;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import com.rehan.tinyledger.core.service.FeedProperties;
+import com.rehan.tinyledger.core.service.LedgerService;
+import com.rehan.tinyledger.core.service.LedgerServiceImpl;
+import com.rehan.tinyledger.core.service.TransactionFeed;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// The JSON body of the latest 100 transactions and of the balance: loaded and serialized on every call, as
+// without the read cache, against a cache hit between writes.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadCacheBenchmark {
+    private static final String ACCOUNT = "bench";
+    private static final TransactionQuery LATEST = TransactionQuery.latest(TransactionQuery.DEFAULT_LIMIT);
+
+    private LedgerService ledgerService;
+    private ReadCache cache;
+    private ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryLedgerRepository repository = new InMemoryLedgerRepository();
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < 100_000; i++) {
+            repository.save(new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.DEPOSIT, Money.of("1.00"),
+                    "Deposit " + i, start.plusSeconds(i)));
+        }
+        TransactionFeed feed = new TransactionFeed(new FeedProperties(1024, Duration.ofSeconds(15)));
+        ledgerService = new LedgerServiceImpl(repository);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        cache = new ReadCache(new ReadCacheProperties(10_000, DataSize.ofMegabytes(32)), feed, objectMapper);
+    }
+
+    @Benchmark
+    public byte[] latestPageUncached() throws Exception {
+        return objectMapper.writeValueAsBytes(ledgerService.getTransactionHistory(ACCOUNT, LATEST));
+    }
+
+    @Benchmark
+    public byte[] latestPageCached() {
+        return cache.latestPage(ACCOUNT, LATEST.limit(), () -> ledgerService.getTransactionHistory(ACCOUNT, LATEST));
+    }
+
+    @Benchmark
+    public byte[] balanceUncached() throws Exception {
+        return objectMapper.writeValueAsBytes(new BalanceResponse(
+                ledgerService.getBalance(ACCOUNT).toBigDecimal()));
+    }
+
+    @Benchmark
+    public byte[] balanceCached() {
+        return cache.balance(ACCOUNT, ledgerService.getBalance(ACCOUNT));
+    }
+}
@@ -0,0 +1,54 @@
+package com.rehan.tinyledger.adapter.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionRequest;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// JSON (de)serialization the controller does per request, with the same ObjectMapper setup Spring Boot uses.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionJsonBenchmark {
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private Transaction transaction;
+    private List<Transaction> page;
+    private byte[] request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        transaction = Transaction.create("bench", TransactionType.DEPOSIT, Money.of("125.50"), "Salary");
+        page = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            page.add(Transaction.create("bench", TransactionType.DEPOSIT, Money.of("1.00"), "Deposit " + i));
+        }
+        request = objectMapper.writeValueAsBytes(
+                new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("125.50"), "Salary"));
+    }
+
+    @Benchmark
+    public byte[] serializeTransaction() throws Exception {
+        return objectMapper.writeValueAsBytes(transaction);
+    }
+
+    @Benchmark
+    public byte[] serializeHistoryPage() throws Exception {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public TransactionRequest deserializeRequest() throws Exception {
+        return objectMapper.readValue(request, TransactionRequest.class);
+    }
+}
@@ -0,0 +1,118 @@
+package com.rehan.tinyledger.adapter.web;
+
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionRequest;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The body work of a request through the JSON and the binary converter, as the controller runs them:
+// reading a TransactionRequest, writing the Transaction it returns and writing a 100 transaction history page.
+// The setup prints the bytes each format puts on the wire.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+    private static final Type PAGE = new ParameterizedTypeReference<List<Transaction>>() {
+    }.getType();
+
+    @Param({"json", "binary"})
+    public String format;
+
+    private GenericHttpMessageConverter<Object> converter;
+    private MediaType mediaType;
+    private Transaction transaction;
+    private List<Transaction> page;
+    private byte[] request;
+    private final Output output = new Output();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        converter = format.equals("json")
+                ? new MappingJackson2HttpMessageConverter(Jackson2ObjectMapperBuilder.json().build())
+                : new BinaryMessageConverter();
+        mediaType = format.equals("json") ? MediaType.APPLICATION_JSON : BinaryMessageConverter.MEDIA_TYPE;
+        transaction = Transaction.create("bench", TransactionType.DEPOSIT, Money.of("125.50"), "Salary");
+        page = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            page.add(Transaction.create("bench", TransactionType.DEPOSIT, Money.of("1.00"), "Deposit " + i));
+        }
+        TransactionRequest body = new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("125.50"), "Salary");
+        if (format.equals("json")) {
+            converter.write(body, TransactionRequest.class, mediaType, output);
+            request = output.bytes.toByteArray();
+        } else {
+            request = BinaryMessageConverter.encode(body);
+        }
+        System.out.printf("%n%s bytes: request %d, transaction %d, page of 100 %d%n", format, request.length,
+                writeTransaction(), writeHistoryPage());
+    }
+
+    @Benchmark
+    public Object readRequest() throws IOException {
+        return converter.read(TransactionRequest.class, null, new Input(request));
+    }
+
+    @Benchmark
+    public int writeTransaction() throws IOException {
+        output.bytes.reset();
+        converter.write(transaction, Transaction.class, mediaType, output);
+        return output.bytes.size();
+    }
+
+    @Benchmark
+    public int writeHistoryPage() throws IOException {
+        output.bytes.reset();
+        converter.write(page, PAGE, mediaType, output);
+        return output.bytes.size();
+    }
+
+    private static final class Output implements HttpOutputMessage {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 * 1024);
+        private final HttpHeaders headers = new HttpHeaders();
+
+        @Override
+        public OutputStream getBody() {
+            return bytes;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+
+    private record Input(byte[] body) implements HttpInputMessage {
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return HttpHeaders.EMPTY;
+        }
+    }
+}
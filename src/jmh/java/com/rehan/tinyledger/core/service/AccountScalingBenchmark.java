@@ -0,0 +1,81 @@
+package com.rehan.tinyledger.core.service;
+
+import com.rehan.tinyledger.adapter.persistance.InMemoryLedgerRepository;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionRequest;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// A deposit then a withdrawal on an account of the benchmark thread's own, so no two threads ever touch
+// the same balance or log. The direct service should scale with threads here; the sequenced one stays
+// bound by its single writer.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountScalingBenchmark {
+    private static final TransactionRequest DEPOSIT =
+            new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("2.00"), "Deposit");
+    private static final TransactionRequest WITHDRAWAL =
+            new TransactionRequest(TransactionType.WITHDRAWAL, new BigDecimal("1.00"), "Withdrawal");
+
+    @Param({"direct", "sequenced"})
+    public String service;
+
+    private LedgerService ledgerService;
+    private final AtomicInteger nextAccount = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Account {
+        String id;
+
+        @Setup(Level.Trial)
+        public void setUp(AccountScalingBenchmark benchmark) {
+            id = "acc-" + benchmark.nextAccount.getAndIncrement();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryLedgerRepository repository = new InMemoryLedgerRepository();
+        ledgerService = service.equals("sequenced")
+                ? new SequencedLedgerService(repository, new SequencerProperties(65536, 1024))
+                : new LedgerServiceImpl(repository);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (ledgerService instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Transaction ownAccount1Thread(Account account) {
+        return depositThenWithdraw(account);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Transaction ownAccount4Threads(Account account) {
+        return depositThenWithdraw(account);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Transaction ownAccount16Threads(Account account) {
+        return depositThenWithdraw(account);
+    }
+
+    private Transaction depositThenWithdraw(Account account) {
+        ledgerService.recordTransaction(account.id, DEPOSIT);
+        return ledgerService.recordTransaction(account.id, WITHDRAWAL);
+    }
+}
@@ -0,0 +1,50 @@
+package com.rehan.tinyledger.core.service;
+
+import com.rehan.tinyledger.adapter.persistance.InMemoryLedgerRepository;
+import com.rehan.tinyledger.core.domain.AuditReport;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// A full audit of 1M entries over 64 accounts, on one thread against every processor, with and without
+// segment checksums.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuditBenchmark {
+    private static final int ACCOUNTS = 64;
+    private static final int ENTRIES = 1_000_000;
+
+    // 0 uses every available processor.
+    @Param({"1", "0"})
+    public int parallelism;
+
+    @Param({"false", "true"})
+    public boolean checksums;
+
+    private LedgerAuditor auditor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryLedgerRepository repository = new InMemoryLedgerRepository();
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < ENTRIES; i++) {
+            repository.save(new Transaction(UUID.randomUUID(), "account-" + i % ACCOUNTS, TransactionType.DEPOSIT,
+                    Money.of("1.00"), "Deposit " + i, start.plusSeconds(i)));
+        }
+        auditor = new LedgerAuditor(repository, new AuditProperties(65536, parallelism, 1000));
+    }
+
+    @Benchmark
+    public AuditReport audit() {
+        return auditor.audit(checksums);
+    }
+}
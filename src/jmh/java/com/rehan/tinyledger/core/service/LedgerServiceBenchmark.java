@@ -0,0 +1,131 @@
+package com.rehan.tinyledger.core.service;
+
+import com.rehan.tinyledger.adapter.persistance.InMemoryLedgerRepository;
+import com.rehan.tinyledger.core.domain.Granularity;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.PeriodSummary;
+import com.rehan.tinyledger.core.domain.SummaryQuery;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionQuery;
+import com.rehan.tinyledger.core.domain.TransactionRequest;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Service hot paths against an in-memory ledger pre-filled with `ledgerSize` entries, for both the direct
+// (CAS per request) and the sequenced (single-writer ring buffer) service. Recording benchmarks keep
+// appending, so the ledger grows by however many operations an iteration manages. The pre-filled entries
+// are a second apart, so the rollup benchmarks see realistic minute, hour and day buckets.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LedgerServiceBenchmark {
+    private static final String ACCOUNT = "bench";
+    private static final TransactionRequest DEPOSIT =
+            new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("10.00"), "Deposit");
+    private static final TransactionRequest WITHDRAWAL =
+            new TransactionRequest(TransactionType.WITHDRAWAL, new BigDecimal("5.00"), "Withdrawal");
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final SummaryQuery LAST_30_DAYS = new SummaryQuery(Granularity.DAY, null, null, 30);
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int ledgerSize;
+
+    @Param({"direct", "sequenced"})
+    public String service;
+
+    private LedgerService ledgerService;
+    private LocalDateTime midpoint;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryLedgerRepository repository = new InMemoryLedgerRepository();
+        Money amount = Money.of("100.00");
+        for (int i = 0; i < ledgerSize; i++) {
+            repository.save(new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.DEPOSIT, amount,
+                    "Deposit " + i, START.plusSeconds(i)));
+        }
+        midpoint = START.plusSeconds(ledgerSize / 2).plusNanos(500_000_000);
+        ledgerService = service.equals("sequenced")
+                ? new SequencedLedgerService(repository, new SequencerProperties(65536, 1024))
+                : new LedgerServiceImpl(repository);
+        ledgerService.getBalance(ACCOUNT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (ledgerService instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    @Benchmark
+    public Transaction recordDeposit() {
+        return ledgerService.recordTransaction(ACCOUNT, DEPOSIT);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Transaction mixedWorkload1Thread() {
+        return mixed();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Transaction mixedWorkload4Threads() {
+        return mixed();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Transaction mixedWorkload16Threads() {
+        return mixed();
+    }
+
+    @Benchmark
+    public Money getBalance() {
+        return ledgerService.getBalance(ACCOUNT);
+    }
+
+    // Recomputes the balance from the whole history and compares it with the running total.
+    @Benchmark
+    public boolean verifyBalance() {
+        return ledgerService.verifyBalance(ACCOUNT);
+    }
+
+    // Rollups up to the minute, then a scan of that minute's entries; compare with verifyBalance's full pass.
+    @Benchmark
+    public Money getBalanceAsOf() {
+        return ledgerService.getBalanceAsOf(ACCOUNT, midpoint);
+    }
+
+    @Benchmark
+    public List<PeriodSummary> getDailySummary() {
+        return ledgerService.getSummary(ACCOUNT, LAST_30_DAYS);
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionHistoryPage() {
+        return ledgerService.getTransactionHistory(ACCOUNT, TransactionQuery.latest(TransactionQuery.DEFAULT_LIMIT));
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionHistory() {
+        return ledgerService.getTransactionHistory(ACCOUNT);
+    }
+
+    // Two deposits for every withdrawal, so the balance never runs dry.
+    private Transaction mixed() {
+        return ledgerService.recordTransaction(ACCOUNT,
+                ThreadLocalRandom.current().nextInt(3) == 0 ? WITHDRAWAL : DEPOSIT);
+    }
+}
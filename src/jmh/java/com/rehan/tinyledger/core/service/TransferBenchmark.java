@@ -0,0 +1,80 @@
+package com.rehan.tinyledger.core.service;
+
+import com.rehan.tinyledger.adapter.persistance.InMemoryLedgerRepository;
+import com.rehan.tinyledger.core.domain.Transfer;
+import com.rehan.tinyledger.core.domain.TransactionRequest;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import com.rehan.tinyledger.core.domain.TransferRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Transfers between random pairs out of `accounts` funded accounts. With two accounts every transfer
+// contends for the same pair; with many, most pairs are disjoint and the direct service should scale
+// with threads, while the sequenced one stays bound by its single writer either way.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferBenchmark {
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Param({"2", "1024"})
+    public int accounts;
+
+    @Param({"direct", "sequenced"})
+    public String service;
+
+    private LedgerService ledgerService;
+    private TransferRequest[] requests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryLedgerRepository repository = new InMemoryLedgerRepository();
+        ledgerService = service.equals("sequenced")
+                ? new SequencedLedgerService(repository, new SequencerProperties(65536, 1024))
+                : new LedgerServiceImpl(repository);
+        requests = new TransferRequest[accounts];
+        for (int i = 0; i < accounts; i++) {
+            ledgerService.recordTransaction("acc-" + i,
+                    new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("1000000000.00"), "Funding"));
+            requests[i] = new TransferRequest("acc-" + i, AMOUNT, "Transfer");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (ledgerService instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Transfer transfer1Thread() {
+        return transfer();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Transfer transfer4Threads() {
+        return transfer();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Transfer transfer16Threads() {
+        return transfer();
+    }
+
+    private Transfer transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(accounts);
+        int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+        return ledgerService.transfer("acc-" + from, requests[to]);
+    }
+}
@@ -1,11 +1,44 @@
 package com.rehan.tinyledger;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rehan.tinyledger.core.domain.AuditReport;
+import com.rehan.tinyledger.core.service.LedgerAuditor;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Arrays;
+import java.util.List;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class TinyLedgerApplication {
+    static final String AUDIT = "--audit";
+    static final String CHECKSUMS = "--checksums";
+
     public static void main(String[] args) {
+        if (Arrays.asList(args).contains(AUDIT)) {
+            System.exit(audit(args));
+        }
         SpringApplication.run(TinyLedgerApplication.class, args);
     }
+
+    // Opens the configured store without a web server, audits it, prints the report and exits with 0 if
+    // the ledger is consistent and 1 if it is not.
+    private static int audit(String[] args) {
+        List<String> rest = Arrays.stream(args).filter(arg -> !AUDIT.equals(arg) && !CHECKSUMS.equals(arg)).toList();
+        SpringApplication application = new SpringApplication(TinyLedgerApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        try (ConfigurableApplicationContext context = application.run(rest.toArray(String[]::new))) {
+            AuditReport report = context.getBean(LedgerAuditor.class).audit(Arrays.asList(args).contains(CHECKSUMS));
+            System.out.println(context.getBean(ObjectMapper.class).writerWithDefaultPrettyPrinter()
+                    .writeValueAsString(report));
+            return report.consistent() ? 0 : 1;
+        } catch (Exception ex) {
+            System.err.println("The audit failed: " + ex.getMessage());
+            return 2;
+        }
+    }
 }
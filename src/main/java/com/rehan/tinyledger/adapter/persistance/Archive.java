@@ -0,0 +1,100 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The archive files of the in-memory store's cold tier, oldest first, and the id lookup over all of them.
+ * The files belong to this process's ledger, which starts empty, so whatever an earlier run left in the
+ * directory is deleted on open. One archiving thread adds and merges files; lookups read the published
+ * list without locking.
+ */
+final class Archive implements SegmentIndex {
+    private static final Logger logger = LoggerFactory.getLogger(Archive.class);
+
+    private final Path directory;
+    private volatile List<ArchiveFile> files = List.of();
+    private long sequence;
+
+    private Archive(Path directory) {
+        this.directory = directory;
+    }
+
+    static Archive open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, "*" + ArchiveFile.SUFFIX + "*")) {
+            for (Path path : stale) {
+                Files.delete(path);
+            }
+        }
+        return new Archive(directory);
+    }
+
+    List<ArchiveFile> files() {
+        return files;
+    }
+
+    // Writes the spans to a new file, which lookups search from then on.
+    ArchiveFile add(Map<String, ArchiveFile.Span> spans, int blockSize) throws IOException {
+        ArchiveFile file = ArchiveFile.write(next(), spans, blockSize);
+        List<ArchiveFile> extended = new ArrayList<>(files);
+        extended.add(file);
+        files = List.copyOf(extended);
+        return file;
+    }
+
+    // Merges the oldest files into one, which lookups search instead of them. The caller moves the logs onto
+    // the merged runs before deleting the files.
+    ArchiveFile merge(List<ArchiveFile> oldest) throws IOException {
+        ArchiveFile file = ArchiveFile.merge(next(), oldest);
+        List<ArchiveFile> replaced = new ArrayList<>();
+        replaced.add(file);
+        replaced.addAll(files.subList(oldest.size(), files.size()));
+        files = List.copyOf(replaced);
+        return file;
+    }
+
+    // Readers still walking an old run keep its mapping, which outlives the file on POSIX systems.
+    void delete(List<ArchiveFile> merged) {
+        for (ArchiveFile file : merged) {
+            try {
+                Files.deleteIfExists(file.path());
+            } catch (IOException ex) {
+                logger.warn("Could not delete the merged archive file {}", file.path(), ex);
+            }
+        }
+    }
+
+    @Override
+    public Entry locate(UUID id) {
+        List<ArchiveFile> current = files;
+        for (int i = current.size() - 1; i >= 0; i--) {
+            Entry entry = current.get(i).locate(id);
+            if (entry != null) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    long transactionCount() {
+        return files.stream().mapToLong(ArchiveFile::transactionCount).sum();
+    }
+
+    long bytes() {
+        return files.stream().mapToLong(ArchiveFile::bytes).sum();
+    }
+
+    private Path next() {
+        return directory.resolve(String.format("%020d", ++sequence) + ArchiveFile.SUFFIX);
+    }
+}
@@ -0,0 +1,470 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import com.rehan.tinyledger.core.domain.ChainHash;
+import com.rehan.tinyledger.core.domain.Granularity;
+import com.rehan.tinyledger.core.domain.Transaction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable file of archived transactions: for each account one run of consecutive entries, in
+ * Deflate-compressed blocks of length-prefixed records, with the rollup buckets and hash chain checkpoints
+ * that moved off the heap along with them. Layout:
+ * <pre>
+ * header | id index (as in a snapshot) | per account: blocks, rollups, checkpoints | directory | end marker
+ * </pre>
+ * The directory, read into memory on open, gives each run's offsets, its net and where every block
+ * starts, so reading an entry inflates only its block and decodes only that entry. A run keeps the last
+ * block it inflated, which makes walking a history in either direction inflate each block once. Rollups
+ * and checkpoints are stored uncompressed and read in place.
+ */
+final class ArchiveFile implements SegmentIndex {
+    static final String SUFFIX = ".archive";
+    private static final int MAGIC = 0x544C4152;
+    private static final int VERSION = 2;
+    private static final long END_MAGIC = 0x544C4152_454E4421L;
+    private static final int HEADER_BYTES = SnapshotFile.HEADER_BYTES;
+    private static final int SLOT_BYTES = SnapshotFile.SLOT_BYTES;
+    // A run's sections: one of rollup buckets per granularity, then the hash chain seals.
+    private static final int SEALS = Granularity.values().length;
+    private static final int SECTIONS = SEALS + 1;
+
+    private final Path path;
+    private final long bytes;
+    private final long transactionCount;
+    private final String[] accountIds;
+    private final Map<String, Run> runs;
+    private final MappedFile file;
+    private final long indexCapacity;
+
+    private ArchiveFile(Path path, long bytes, long transactionCount, String[] accountIds, Map<String, Run> runs,
+                        MappedFile file, long indexCapacity) {
+        this.path = path;
+        this.bytes = bytes;
+        this.transactionCount = transactionCount;
+        this.accountIds = accountIds;
+        this.runs = runs;
+        this.file = file;
+        this.indexCapacity = indexCapacity;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long bytes() {
+        return bytes;
+    }
+
+    long transactionCount() {
+        return transactionCount;
+    }
+
+    Map<String, Run> runs() {
+        return runs;
+    }
+
+    @Override
+    public Entry locate(UUID id) {
+        long mask = indexCapacity - 1;
+        for (long slot = SnapshotFile.hash(id) & mask; ; slot = (slot + 1) & mask) {
+            long position = HEADER_BYTES + slot * SLOT_BYTES;
+            int account = file.getInt(position + 16);
+            if (account == 0) {
+                return null;
+            }
+            if (file.getLong(position) == id.getMostSignificantBits()
+                    && file.getLong(position + 8) == id.getLeastSignificantBits()) {
+                return new Entry(accountIds[account - 1], file.getInt(position + 20));
+            }
+        }
+    }
+
+    static ArchiveFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            SnapshotFile.readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a ledger archive: " + path);
+            }
+            long directoryOffset = header.getLong();
+            long indexCapacity = header.getLong();
+            int accountCount = header.getInt();
+            long transactionCount = header.getLong();
+            if (directoryOffset < HEADER_BYTES || directoryOffset > size - Long.BYTES) {
+                throw new IOException("Truncated ledger archive: " + path);
+            }
+
+            ByteBuffer directory = ByteBuffer.allocate((int) (size - directoryOffset));
+            SnapshotFile.readFully(channel, directory, directoryOffset);
+            directory.flip();
+            MappedFile file = MappedFile.map(channel, FileChannel.MapMode.READ_ONLY, 0, directoryOffset);
+
+            String[] accountIds = new String[accountCount];
+            Map<String, Run> runs = new LinkedHashMap<>();
+            for (int i = 0; i < accountCount; i++) {
+                byte[] account = new byte[directory.getShort()];
+                directory.get(account);
+                int from = directory.getInt();
+                int to = directory.getInt();
+                long balance = directory.getLong();
+                int[] starts = new int[directory.getInt()];
+                long[] positions = new long[starts.length];
+                for (int block = 0; block < starts.length; block++) {
+                    starts[block] = directory.getInt();
+                    positions[block] = directory.getLong();
+                }
+                long[] sections = new long[SECTIONS];
+                for (int section = 0; section < SECTIONS; section++) {
+                    sections[section] = directory.getLong();
+                }
+                accountIds[i] = new String(account, StandardCharsets.UTF_8);
+                runs.put(accountIds[i], new Run(file, from, to, balance, starts, positions, sections));
+            }
+            if (directory.getLong() != END_MAGIC) {
+                throw new IOException("Truncated ledger archive: " + path);
+            }
+            return new ArchiveFile(path, size, transactionCount, accountIds, runs, file, indexCapacity);
+        }
+    }
+
+    // Archives entries [from, to) of each span's log, `blockSize` to a block, with the span's rollups and seals.
+    static ArchiveFile write(Path target, Map<String, Span> spans, int blockSize) throws IOException {
+        long total = spans.values().stream().mapToLong(span -> span.to() - span.from()).sum();
+        Deflater deflater = new Deflater();
+        try (Output output = new Output(target, total)) {
+            for (Map.Entry<String, Span> entry : spans.entrySet()) {
+                Span span = entry.getValue();
+                int account = output.account();
+                List<byte[]> records = new ArrayList<>(blockSize);
+                long balance = 0;
+                for (int start = span.from(); start < span.to(); start += blockSize) {
+                    int end = Math.min(span.to(), start + blockSize);
+                    records.clear();
+                    for (int offset = start; offset < end; offset++) {
+                        Transaction transaction = span.log().get(offset);
+                        records.add(TransactionCodec.encode(transaction));
+                        balance += transaction.signedMinorUnits();
+                        output.id(transaction.id(), account, offset);
+                    }
+                    output.block(start, compress(deflater, records));
+                }
+                for (long[] buckets : span.buckets()) {
+                    ByteBuffer section = ByteBuffer.allocate(buckets.length * Long.BYTES);
+                    section.asLongBuffer().put(buckets);
+                    output.section(section.array());
+                }
+                output.section(span.seals());
+                output.run(entry.getKey(), span.from(), span.to(), balance);
+            }
+            return output.finish();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // One file holding the runs of every file given, oldest first; blocks are copied without inflating them.
+    static ArchiveFile merge(Path target, List<ArchiveFile> files) throws IOException {
+        Map<String, List<Run>> byAccount = new LinkedHashMap<>();
+        for (ArchiveFile file : files) {
+            file.runs.forEach((accountId, run) -> byAccount.computeIfAbsent(accountId, id -> new ArrayList<>()).add(run));
+        }
+        Map<String, Integer> accountIndexes = new LinkedHashMap<>();
+        long total = files.stream().mapToLong(ArchiveFile::transactionCount).sum();
+        try (Output output = new Output(target, total)) {
+            for (Map.Entry<String, List<Run>> entry : byAccount.entrySet()) {
+                accountIndexes.put(entry.getKey(), output.account());
+                List<Run> accountRuns = entry.getValue();
+                long balance = 0;
+                for (int i = 0; i < accountRuns.size(); i++) {
+                    Run run = accountRuns.get(i);
+                    if (i > 0 && run.from() != accountRuns.get(i - 1).to()) {
+                        throw new IllegalStateException("The archived runs of account " + entry.getKey() + " are not contiguous");
+                    }
+                    for (int block = 0; block < run.starts.length; block++) {
+                        output.block(run.starts[block], run.compressed(block));
+                    }
+                    balance += run.balance();
+                }
+                for (int section = 0; section < SECTIONS; section++) {
+                    ByteArrayOutputStream joined = new ByteArrayOutputStream();
+                    for (Run run : accountRuns) {
+                        joined.writeBytes(run.record(run.sections[section]));
+                    }
+                    output.section(joined.toByteArray());
+                }
+                output.run(entry.getKey(), accountRuns.get(0).from(), accountRuns.get(accountRuns.size() - 1).to(), balance);
+            }
+            for (ArchiveFile file : files) {
+                for (long slot = 0; slot < file.indexCapacity; slot++) {
+                    long position = HEADER_BYTES + slot * SLOT_BYTES;
+                    int account = file.file.getInt(position + 16);
+                    if (account != 0) {
+                        output.id(new UUID(file.file.getLong(position), file.file.getLong(position + 8)),
+                                accountIndexes.get(file.accountIds[account - 1]), file.file.getInt(position + 20));
+                    }
+                }
+            }
+            return output.finish();
+        }
+    }
+
+    // A block is its record count, the inflated length and the deflated records.
+    private static byte[] compress(Deflater deflater, List<byte[]> records) {
+        int length = 0;
+        for (byte[] record : records) {
+            length += Integer.BYTES + record.length;
+        }
+        ByteBuffer raw = ByteBuffer.allocate(length);
+        for (byte[] record : records) {
+            raw.putInt(record.length).put(record);
+        }
+        deflater.reset();
+        deflater.setInput(raw.array());
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 16);
+        out.writeBytes(ByteBuffer.allocate(8).putInt(records.size()).putInt(length).array());
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return out.toByteArray();
+    }
+
+    // Entries [from, to) of one account's log, with the rollup buckets of each granularity and the hash chain
+    // seals that move along with them.
+    record Span(TransactionLog log, int from, int to, long[][] buckets, byte[] seals) {
+    }
+
+    /**
+     * One account's entries [from, to) in this file. Thread-safe; concurrent readers of different blocks
+     * may each inflate their own.
+     */
+    static final class Run {
+        private final MappedFile file;
+        private final int from;
+        private final int to;
+        private final long balance;
+        // First offset and position of each block.
+        private final int[] starts;
+        private final long[] positions;
+        // Position of each granularity's rollup buckets, then of the hash chain seals.
+        private final long[] sections;
+        private volatile Block last;
+
+        private Run(MappedFile file, int from, int to, long balance, int[] starts, long[] positions, long[] sections) {
+            this.file = file;
+            this.from = from;
+            this.to = to;
+            this.balance = balance;
+            this.starts = starts;
+            this.positions = positions;
+            this.sections = sections;
+        }
+
+        int from() {
+            return from;
+        }
+
+        int to() {
+            return to;
+        }
+
+        // Net of the run's entries, in minor units.
+        long balance() {
+            return balance;
+        }
+
+        int buckets(Granularity granularity) {
+            return file.getInt(sections[granularity.ordinal()]) / (Rollups.STRIDE * Long.BYTES);
+        }
+
+        long bucket(Granularity granularity, int index, int field) {
+            return file.getLong(sections[granularity.ordinal()] + Integer.BYTES
+                    + ((long) index * Rollups.STRIDE + field) * Long.BYTES);
+        }
+
+        // Hash chain blocks sealed in this run.
+        int blocks() {
+            return file.getInt(sections[SEALS]) / HashChain.SEAL_BYTES;
+        }
+
+        // The root, or with `last` the last hash, of the run's `index`th block.
+        byte[] seal(int index, boolean last) {
+            byte[] hash = new byte[ChainHash.LENGTH];
+            file.get(sections[SEALS] + Integer.BYTES + (long) index * HashChain.SEAL_BYTES
+                    + (last ? ChainHash.LENGTH : 0), hash);
+            return hash;
+        }
+
+        Transaction get(int offset) {
+            if (offset < from || offset >= to) {
+                throw new IndexOutOfBoundsException(offset);
+            }
+            Block block = last;
+            if (block == null || offset < block.start() || offset >= block.start() + block.positions().length) {
+                int index = Arrays.binarySearch(starts, offset);
+                block = inflate(index >= 0 ? index : -index - 2);
+                last = block;
+            }
+            ByteBuffer records = ByteBuffer.wrap(block.records());
+            int position = block.positions()[offset - block.start()];
+            return TransactionCodec.decode(records.slice(position + Integer.BYTES, records.getInt(position)));
+        }
+
+        private byte[] compressed(int block) {
+            return record(positions[block]);
+        }
+
+        private byte[] record(long position) {
+            byte[] payload = new byte[file.getInt(position)];
+            file.get(position + Integer.BYTES, payload);
+            return payload;
+        }
+
+        private Block inflate(int index) {
+            long position = positions[index];
+            ByteBuffer payload = file.slice(position + Integer.BYTES, file.getInt(position));
+            int[] records = new int[payload.getInt()];
+            byte[] raw = new byte[payload.getInt()];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(payload);
+                int inflated = 0;
+                while (inflated < raw.length) {
+                    int read = inflater.inflate(raw, inflated, raw.length - inflated);
+                    if (read == 0 && (inflater.finished() || inflater.needsInput())) {
+                        throw new IllegalStateException("Damaged archive block at " + position);
+                    }
+                    inflated += read;
+                }
+            } catch (DataFormatException ex) {
+                throw new IllegalStateException("Damaged archive block at " + position, ex);
+            } finally {
+                inflater.end();
+            }
+            ByteBuffer lengths = ByteBuffer.wrap(raw);
+            for (int i = 0, at = 0; i < records.length; i++) {
+                records[i] = at;
+                at += Integer.BYTES + lengths.getInt(at);
+            }
+            return new Block(starts[index], raw, records);
+        }
+    }
+
+    // An inflated block: its records and where each starts.
+    private record Block(int start, byte[] records, int[] positions) {
+    }
+
+    // Writes to a temporary file and renames it into place once complete, like a snapshot.
+    private static final class Output implements AutoCloseable {
+        private final Path target;
+        private final Path temp;
+        private final FileChannel channel;
+        private final long capacity;
+        private final MappedFile head;
+        private final SnapshotFile.Writer writer;
+        private ByteBuffer directory = ByteBuffer.allocate(1024);
+        private ByteBuffer blocks = ByteBuffer.allocate(1024);
+        private int blockCount;
+        private final long[] sections = new long[SECTIONS];
+        private int sectionCount;
+        private int accounts;
+        private long transactions;
+        private boolean finished;
+
+        private Output(Path target, long expected) throws IOException {
+            this.target = target;
+            this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+            this.capacity = Long.highestOneBit(Math.max(16, expected * 2) - 1) << 1;
+            long indexEnd = HEADER_BYTES + capacity * SLOT_BYTES;
+            this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.head = MappedFile.map(channel, FileChannel.MapMode.READ_WRITE, 0, indexEnd);
+            this.writer = new SnapshotFile.Writer(channel, indexEnd);
+        }
+
+        // Starts the next account, returning its 1-based index for the id index.
+        private int account() {
+            return ++accounts;
+        }
+
+        private void id(UUID id, int account, int offset) {
+            SnapshotFile.insert(head, capacity, id, account, offset);
+            transactions++;
+        }
+
+        private void block(int start, byte[] payload) throws IOException {
+            blocks = SnapshotFile.ensureCapacity(blocks, Integer.BYTES + Long.BYTES);
+            blocks.putInt(start).putLong(writer.record(payload));
+            blockCount++;
+        }
+
+        private void section(byte[] payload) throws IOException {
+            sections[sectionCount++] = writer.record(payload);
+        }
+
+        // Ends the current account with its blocks and sections written since the previous one.
+        private void run(String accountId, int from, int to, long balance) {
+            if (sectionCount != SECTIONS) {
+                throw new IllegalStateException("The run of account " + accountId + " lacks its rollups or seals");
+            }
+            byte[] account = accountId.getBytes(StandardCharsets.UTF_8);
+            blocks.flip();
+            directory = SnapshotFile.ensureCapacity(directory,
+                    account.length + 26 + blocks.remaining() + SECTIONS * Long.BYTES);
+            directory.putShort((short) account.length).put(account)
+                    .putInt(from).putInt(to).putLong(balance).putInt(blockCount).put(blocks);
+            for (long section : sections) {
+                directory.putLong(section);
+            }
+            blocks.clear();
+            blockCount = 0;
+            sectionCount = 0;
+        }
+
+        private ArchiveFile finish() throws IOException {
+            long directoryOffset = writer.position();
+            directory = SnapshotFile.ensureCapacity(directory, Long.BYTES);
+            directory.putLong(END_MAGIC).flip();
+            writer.put(directory);
+            writer.flush();
+
+            head.slice(0, HEADER_BYTES).putInt(MAGIC).putInt(VERSION).putLong(directoryOffset)
+                    .putLong(capacity).putInt(accounts).putLong(transactions);
+            head.force();
+            channel.force(true);
+            channel.close();
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            finished = true;
+            return open(target);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+            if (!finished) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+}
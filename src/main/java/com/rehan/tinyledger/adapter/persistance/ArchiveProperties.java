@@ -0,0 +1,41 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+// Cold tier of the in-memory store. An older-than of 0 keeps every transaction in memory.
+@ConfigurationProperties(prefix = "tinyledger.archive")
+public record ArchiveProperties(
+        @DefaultValue("data/archive") Path directory,
+        @DefaultValue("0s") Duration olderThan,
+        @DefaultValue("1m") Duration interval,
+        // Entries per compressed block, the most a read inflates.
+        @DefaultValue("64") int blockSize,
+        // Archive files kept before they are compacted into one.
+        @DefaultValue("8") int maxFiles
+) {
+    static final ArchiveProperties DISABLED =
+            new ArchiveProperties(Path.of("data/archive"), Duration.ZERO, Duration.ofMinutes(1), 64, 8);
+
+    public ArchiveProperties {
+        if (olderThan.isNegative()) {
+            throw new IllegalArgumentException("The archive age must not be negative, was " + olderThan);
+        }
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("The archive interval must be positive, was " + interval);
+        }
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("The archive block size must be positive, was " + blockSize);
+        }
+        if (maxFiles <= 0) {
+            throw new IllegalArgumentException("The archive max files must be positive, was " + maxFiles);
+        }
+    }
+
+    boolean enabled() {
+        return !olderThan.isZero();
+    }
+}
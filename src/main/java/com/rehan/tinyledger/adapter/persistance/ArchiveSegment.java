@@ -0,0 +1,111 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import com.rehan.tinyledger.core.domain.Granularity;
+import com.rehan.tinyledger.core.domain.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// An account's archived history: the segment its log started on, if any, then its runs in archive files,
+// consecutive and oldest first. The opening balance of the entries kept in memory is this segment's balance.
+// It also serves the rollup buckets and hash chain seals archived with the runs, in the same order.
+record ArchiveSegment(TransactionSegment below, List<ArchiveFile.Run> runs)
+        implements TransactionSegment, Rollups.Archived, HashChain.Archived {
+
+    static ArchiveSegment of(TransactionSegment base) {
+        return base instanceof ArchiveSegment archived ? archived : new ArchiveSegment(base, List.of());
+    }
+
+    // This history followed by the next run.
+    ArchiveSegment with(ArchiveFile.Run run) {
+        if (run.from() != size()) {
+            throw new IllegalArgumentException("The run starts at " + run.from() + ", not at " + size());
+        }
+        List<ArchiveFile.Run> extended = new ArrayList<>(runs);
+        extended.add(run);
+        return new ArchiveSegment(below, List.copyOf(extended));
+    }
+
+    // The same history read from one run that compaction merged every run into.
+    ArchiveSegment merged(ArchiveFile.Run run) {
+        if (run.from() != below.size() || run.to() != size()) {
+            throw new IllegalArgumentException("The run does not cover the archived entries");
+        }
+        return new ArchiveSegment(below, List.of(run));
+    }
+
+    @Override
+    public int size() {
+        return runs.isEmpty() ? below.size() : runs.get(runs.size() - 1).to();
+    }
+
+    @Override
+    public Transaction get(int offset) {
+        // Runs are few, as compaction merges them; recent history is read most, so look from the newest.
+        for (int i = runs.size() - 1; i >= 0; i--) {
+            ArchiveFile.Run run = runs.get(i);
+            if (offset >= run.from()) {
+                return run.get(offset);
+            }
+        }
+        return below.get(offset);
+    }
+
+    @Override
+    public long balance() {
+        long balance = below.balance();
+        for (ArchiveFile.Run run : runs) {
+            balance += run.balance();
+        }
+        return balance;
+    }
+
+    @Override
+    public int buckets(Granularity granularity) {
+        int buckets = 0;
+        for (ArchiveFile.Run run : runs) {
+            buckets += run.buckets(granularity);
+        }
+        return buckets;
+    }
+
+    @Override
+    public long bucket(Granularity granularity, int index, int field) {
+        for (ArchiveFile.Run run : runs) {
+            if (index < run.buckets(granularity)) {
+                return run.bucket(granularity, index, field);
+            }
+            index -= run.buckets(granularity);
+        }
+        throw new IndexOutOfBoundsException(index);
+    }
+
+    @Override
+    public int blocks() {
+        int blocks = 0;
+        for (ArchiveFile.Run run : runs) {
+            blocks += run.blocks();
+        }
+        return blocks;
+    }
+
+    @Override
+    public byte[] root(int block) {
+        return seal(block, false);
+    }
+
+    @Override
+    public byte[] last(int block) {
+        return seal(block, true);
+    }
+
+    private byte[] seal(int block, boolean last) {
+        for (ArchiveFile.Run run : runs) {
+            if (block < run.blocks()) {
+                return run.seal(block, last);
+            }
+            block -= run.blocks();
+        }
+        throw new IndexOutOfBoundsException(block);
+    }
+}
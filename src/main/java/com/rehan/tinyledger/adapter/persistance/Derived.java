@@ -0,0 +1,71 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import java.util.concurrent.locks.Lock;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A structure derived from an account's entries in order, such as its rollups, that is built when first
+ * needed and from then on kept up to date by the owner's appends. The first build folds the entries below a
+ * cut without the owner's append lock, so a long history does not hold up writers while it is read, and
+ * takes the lock only to fold the few entries appended meanwhile. Racing first builds may each fold; the
+ * first to finish is kept.
+ */
+final class Derived<T> {
+    private final Supplier<T> empty;
+    private final Fold<T> fold;
+    private volatile T value;
+
+    Derived(Supplier<T> empty, Fold<T> fold) {
+        this.empty = empty;
+        this.fold = fold;
+    }
+
+    // An empty structure for an owner with no entries yet, kept up to date from its first append.
+    static <T> Derived<T> built(Supplier<T> empty, Fold<T> fold) {
+        Derived<T> derived = new Derived<>(empty, fold);
+        derived.value = empty.get();
+        return derived;
+    }
+
+    // Null until built. Appends fold into it under the append lock.
+    T value() {
+        return value;
+    }
+
+    // Builds the structure over the owner's entries unless it exists. `size` reads how many entries the
+    // owner has published; readers may read entries below it without the lock. The cut is read under the
+    // lock all the same, so it never splits a batch still being written, such as transfer legs the mapped
+    // store links only after storing both.
+    T build(Lock appendLock, IntSupplier size) {
+        T current = value;
+        if (current != null) {
+            return current;
+        }
+        int cut;
+        appendLock.lock();
+        try {
+            cut = size.getAsInt();
+        } finally {
+            appendLock.unlock();
+        }
+        T built = empty.get();
+        fold.into(built, 0, cut);
+        appendLock.lock();
+        try {
+            if (value == null) {
+                fold.into(built, cut, size.getAsInt());
+                value = built;
+            }
+            return value;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @FunctionalInterface
+    interface Fold<T> {
+        // Adds entries [from, to) to a structure that covers every entry before `from`.
+        void into(T target, int from, int to);
+    }
+}
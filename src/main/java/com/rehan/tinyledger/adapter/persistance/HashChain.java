@@ -0,0 +1,238 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import com.rehan.tinyledger.core.domain.ChainHash;
+import com.rehan.tinyledger.core.domain.ChainProof;
+import com.rehan.tinyledger.core.domain.Checkpoint;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionQuery;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Hash chain and Merkle checkpoints of one account, kept beside its entries: the chained hash of every
+ * entry, 32 bytes each in fixed-size blocks, and for every complete block the inner nodes of the Merkle
+ * tree over its hashes. Appending costs one hash; a block's tree is built the first time a proof or the
+ * checkpoint list needs it, and kept. Once a block's entries are archived, only its root and last hash
+ * are kept, in the archive; a proof into it rehashes the block's entries from there and checks them
+ * against that last hash. Not thread-safe: owners call it under their append lock.
+ */
+final class HashChain {
+    static final int CHECKPOINT_SHIFT = 10;
+    static final int CHECKPOINT_INTERVAL = 1 << CHECKPOINT_SHIFT;
+    private static final int CHECKPOINT_MASK = CHECKPOINT_INTERVAL - 1;
+    private static final int BLOCK_BYTES = CHECKPOINT_INTERVAL * ChainHash.LENGTH;
+    static final int SEAL_BYTES = 2 * ChainHash.LENGTH;
+
+    private final MessageDigest digest = ChainHash.digest();
+    private byte[][] leaves = new byte[4][];
+    // Level by level from the one above the leaves, the root last; null until needed.
+    private byte[][] trees = new byte[4][];
+    private byte[] head = ChainHash.genesis();
+    private int size;
+    // Blocks below archivedBlocks are read from the archive; the last one rebuilt for a proof is kept.
+    private Archived archived;
+    private int archivedBlocks;
+    private Rebuilt rebuilt;
+
+    // Hashes the first `size` entries of an existing history.
+    static HashChain of(int size, IntFunction<Transaction> entries) {
+        HashChain chain = new HashChain();
+        chain.appendAll(0, size, entries);
+        return chain;
+    }
+
+    // Hashes entries [from, to) of a history whose first `from` entries this chain already holds.
+    void appendAll(int from, int to, IntFunction<Transaction> entries) {
+        if (from != size) {
+            throw new IllegalArgumentException("The chain holds " + size + " entries, not " + from);
+        }
+        for (int offset = from; offset < to; offset++) {
+            append(entries.apply(offset));
+        }
+    }
+
+    // Throws IllegalArgumentException unless entries `from` to `to` exist and fit in one proof.
+    static void check(long from, long to, int size) {
+        if (from < 1 || to < from || to > size) {
+            throw new IllegalArgumentException("The range must lie within the account's " + size + " entries");
+        }
+        if (to - from >= TransactionQuery.MAX_LIMIT) {
+            throw new IllegalArgumentException("A proof covers at most " + TransactionQuery.MAX_LIMIT + " entries");
+        }
+    }
+
+    // Entries are appended as stored, in the account's order.
+    void append(Transaction transaction) {
+        int offset = size;
+        head = ChainHash.entry(digest, head, offset + 1L, transaction);
+        int block = offset >>> CHECKPOINT_SHIFT;
+        if (block == leaves.length) {
+            leaves = Arrays.copyOf(leaves, leaves.length * 2);
+            trees = Arrays.copyOf(trees, trees.length * 2);
+        }
+        if (leaves[block] == null) {
+            leaves[block] = new byte[BLOCK_BYTES];
+        }
+        System.arraycopy(head, 0, leaves[block], (offset & CHECKPOINT_MASK) * ChainHash.LENGTH, ChainHash.LENGTH);
+        size = offset + 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // First offset whose hash is held on the heap.
+    int residentFrom() {
+        return archivedBlocks << CHECKPOINT_SHIFT;
+    }
+
+    // The root and last hash of each block of entries [from, to), which must be whole blocks after the
+    // archived ones, to be archived with the entries.
+    byte[] seal(int from, int to) {
+        if ((from & CHECKPOINT_MASK) != 0 || (to & CHECKPOINT_MASK) != 0
+                || from >>> CHECKPOINT_SHIFT != archivedBlocks || to > size) {
+            throw new IllegalArgumentException("Only whole blocks after the archived ones can be sealed");
+        }
+        byte[] sealed = new byte[((to - from) >>> CHECKPOINT_SHIFT) * SEAL_BYTES];
+        for (int block = from >>> CHECKPOINT_SHIFT, at = 0; block < to >>> CHECKPOINT_SHIFT; block++) {
+            System.arraycopy(tree(block), (CHECKPOINT_INTERVAL - 2) * ChainHash.LENGTH, sealed, at, ChainHash.LENGTH);
+            System.arraycopy(leaves[block], BLOCK_BYTES - ChainHash.LENGTH, sealed, at + ChainHash.LENGTH, ChainHash.LENGTH);
+            at += SEAL_BYTES;
+        }
+        return sealed;
+    }
+
+    // Reads the oldest blocks' roots and last hashes from the archive from now on and drops their hashes and
+    // trees from the heap.
+    void archive(Archived archive) {
+        int blocks = archive.blocks();
+        if (blocks < archivedBlocks || blocks > size >>> CHECKPOINT_SHIFT) {
+            throw new IllegalArgumentException("The archive does not hold whole blocks of this chain");
+        }
+        for (int block = archivedBlocks; block < blocks; block++) {
+            leaves[block] = null;
+            trees[block] = null;
+        }
+        archived = archive;
+        archivedBlocks = blocks;
+    }
+
+    List<Checkpoint> checkpoints() {
+        int complete = size >>> CHECKPOINT_SHIFT;
+        List<Checkpoint> checkpoints = new ArrayList<>(complete);
+        for (int block = 0; block < complete; block++) {
+            byte[] root = block < archivedBlocks ? archived.root(block) : slice(tree(block), CHECKPOINT_INTERVAL - 2);
+            checkpoints.add(checkpoint(block, root));
+        }
+        return checkpoints;
+    }
+
+    // Entries `from` to `to` (sequences), read through `entries` by offset.
+    ChainProof proof(String accountId, long from, long to, IntFunction<Transaction> entries) {
+        check(from, to, size);
+        List<Transaction> covered = new ArrayList<>((int) (to - from + 1));
+        for (long sequence = from; sequence <= to; sequence++) {
+            covered.add(entries.apply((int) (sequence - 1)));
+        }
+        int last = (int) (to - 1);
+        byte[] previous = from == 1 ? ChainHash.genesis() : leaf((int) (from - 2), entries);
+        int block = last >>> CHECKPOINT_SHIFT;
+        Checkpoint checkpoint = null;
+        List<String> path = new ArrayList<>(CHECKPOINT_SHIFT);
+        if (block < size >>> CHECKPOINT_SHIFT) {
+            byte[] tree = block < archivedBlocks ? rebuild(block, entries).tree() : tree(block);
+            byte[] hashes = block < archivedBlocks ? rebuild(block, entries).leaves() : leaves[block];
+            int position = last & CHECKPOINT_MASK;
+            path.add(ChainHash.hex(slice(hashes, position ^ 1)));
+            int levelStart = 0;
+            for (int width = CHECKPOINT_INTERVAL >>> 1; width > 1; width >>>= 1) {
+                position >>>= 1;
+                path.add(ChainHash.hex(slice(tree, levelStart + (position ^ 1))));
+                levelStart += width;
+            }
+            checkpoint = checkpoint(block, slice(tree, CHECKPOINT_INTERVAL - 2));
+        }
+        return new ChainProof(accountId, from, to, covered, ChainHash.hex(previous),
+                ChainHash.hex(leaf(last, entries)), checkpoint, path);
+    }
+
+    private byte[] leaf(int offset, IntFunction<Transaction> entries) {
+        int block = offset >>> CHECKPOINT_SHIFT;
+        if (block >= archivedBlocks) {
+            return slice(leaves[block], offset & CHECKPOINT_MASK);
+        }
+        if ((offset & CHECKPOINT_MASK) == CHECKPOINT_MASK) {
+            return archived.last(block);
+        }
+        return slice(rebuild(block, entries).leaves(), offset & CHECKPOINT_MASK);
+    }
+
+    private byte[] tree(int block) {
+        if (trees[block] == null) {
+            trees[block] = tree(leaves[block]);
+        }
+        return trees[block];
+    }
+
+    private byte[] tree(byte[] hashes) {
+        byte[] tree = new byte[(CHECKPOINT_INTERVAL - 1) * ChainHash.LENGTH];
+        byte[] below = hashes;
+        int belowStart = 0;
+        int written = 0;
+        for (int width = CHECKPOINT_INTERVAL >>> 1; width >= 1; width >>>= 1) {
+            int levelStart = written;
+            for (int i = 0; i < width; i++) {
+                byte[] node = ChainHash.node(digest, slice(below, belowStart + 2 * i),
+                        slice(below, belowStart + 2 * i + 1));
+                System.arraycopy(node, 0, tree, written++ * ChainHash.LENGTH, ChainHash.LENGTH);
+            }
+            below = tree;
+            belowStart = levelStart;
+        }
+        return tree;
+    }
+
+    // Rehashes an archived block from the hash before it, failing unless it ends on the archived last hash.
+    private Rebuilt rebuild(int block, IntFunction<Transaction> entries) {
+        if (rebuilt != null && rebuilt.block() == block) {
+            return rebuilt;
+        }
+        byte[] hash = block == 0 ? ChainHash.genesis() : archived.last(block - 1);
+        byte[] hashes = new byte[BLOCK_BYTES];
+        for (int i = 0; i < CHECKPOINT_INTERVAL; i++) {
+            int offset = (block << CHECKPOINT_SHIFT) + i;
+            hash = ChainHash.entry(digest, hash, offset + 1L, entries.apply(offset));
+            System.arraycopy(hash, 0, hashes, i * ChainHash.LENGTH, ChainHash.LENGTH);
+        }
+        if (!Arrays.equals(hash, archived.last(block))) {
+            throw new IllegalStateException("The archived entries of block " + block + " do not match the hash chain");
+        }
+        rebuilt = new Rebuilt(block, hashes, tree(hashes));
+        return rebuilt;
+    }
+
+    private static Checkpoint checkpoint(int block, byte[] root) {
+        long from = (long) block * CHECKPOINT_INTERVAL + 1;
+        return new Checkpoint(block, from, from + CHECKPOINT_INTERVAL - 1, ChainHash.hex(root));
+    }
+
+    private static byte[] slice(byte[] hashes, int index) {
+        return Arrays.copyOfRange(hashes, index * ChainHash.LENGTH, (index + 1) * ChainHash.LENGTH);
+    }
+
+    // Roots and last hashes of the oldest blocks, moved to the archive.
+    interface Archived {
+        int blocks();
+
+        byte[] root(int block);
+
+        byte[] last(int block);
+    }
+
+    private record Rebuilt(int block, byte[] leaves, byte[] tree) {
+    }
+}
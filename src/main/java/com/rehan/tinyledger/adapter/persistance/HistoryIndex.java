@@ -0,0 +1,229 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionFilter;
+import com.rehan.tinyledger.core.domain.TransactionType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+/**
+ * Secondary indexes over one account's history, as posting lists of offsets: one per transaction type,
+ * one per distinct amount in an amount-sorted map, and one per description word. Entries are added in
+ * offset order, so every posting list is sorted and a time or cursor window is a binary search away.
+ * A filtered query walks the shortest posting list inside the window and checks each candidate's type and
+ * amount, and its words by binary search in their posting lists. Archived entries are not indexed: a
+ * query reaching below the index reads them one by one and matches each, as cold history is read rarely
+ * and is slow to read anyway. Not thread-safe; owners guard it with their append lock.
+ */
+final class HistoryIndex {
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final Slice NONE = new Slice(new int[0], 0, 0);
+
+    private final Postings[] types = new Postings[TYPES.length];
+    private final TreeMap<Long, Postings> amounts = new TreeMap<>();
+    private final Map<String, Postings> words = new HashMap<>();
+    // Entries below this offset are not indexed.
+    private int start;
+
+    HistoryIndex() {
+        this(0);
+    }
+
+    HistoryIndex(int start) {
+        this.start = start;
+        for (TransactionType type : TYPES) {
+            types[type.ordinal()] = new Postings();
+        }
+    }
+
+    int start() {
+        return start;
+    }
+
+    // Drops the postings of the entries below `offset`, which have been archived.
+    void dropBelow(int offset) {
+        if (offset <= start) {
+            return;
+        }
+        for (Postings postings : types) {
+            postings.dropBelow(offset);
+        }
+        amounts.values().removeIf(postings -> postings.dropBelow(offset));
+        words.values().removeIf(postings -> postings.dropBelow(offset));
+        start = offset;
+    }
+
+    void add(int offset, TransactionType type, long amount, String description) {
+        types[type.ordinal()].add(offset);
+        amounts.computeIfAbsent(amount, key -> new Postings()).add(offset);
+        for (String word : TransactionFilter.words(description)) {
+            words.computeIfAbsent(word, key -> new Postings()).add(offset);
+        }
+    }
+
+    // Entries in [low, high) that match the filter, newest first: the newest `limit` of them, or with
+    // `oldest` the `limit` right after `low`, for paging forward from a cursor.
+    List<Transaction> select(TransactionFilter filter, int low, int high, int limit, boolean oldest,
+                             IntFunction<Transaction> entries) {
+        List<Transaction> result = new ArrayList<>();
+        int split = Math.max(low, Math.min(high, start));
+        if (oldest) {
+            scan(filter, low, split, limit, true, entries, result);
+            indexed(filter, split, high, limit, true, entries, result);
+            Collections.reverse(result);
+        } else {
+            indexed(filter, split, high, limit, false, entries, result);
+            scan(filter, low, split, limit, false, entries, result);
+        }
+        return result;
+    }
+
+    // Adds matches in [low, high) from the index to the result until it holds `limit`, oldest first with
+    // `oldest`, else newest first.
+    private void indexed(TransactionFilter filter, int low, int high, int limit, boolean oldest,
+                         IntFunction<Transaction> entries, List<Transaction> result) {
+        Postings[] required = new Postings[filter.words().size()];
+        for (int i = 0; i < required.length; i++) {
+            required[i] = words.get(filter.words().get(i));
+            if (required[i] == null) {
+                return;
+            }
+        }
+        Slice candidates = candidates(filter, required, low, high);
+        int step = oldest ? 1 : -1;
+        for (int i = oldest ? candidates.from() : candidates.to() - 1;
+             i >= candidates.from() && i < candidates.to() && result.size() < limit; i += step) {
+            int offset = candidates.offsets()[i];
+            if (containsAll(required, offset)) {
+                Transaction transaction = entries.apply(offset);
+                if (matchesTypeAndAmount(filter, transaction)) {
+                    result.add(transaction);
+                }
+            }
+        }
+    }
+
+    // The same for entries below the index, read and matched one by one.
+    private static void scan(TransactionFilter filter, int low, int high, int limit, boolean oldest,
+                             IntFunction<Transaction> entries, List<Transaction> result) {
+        int step = oldest ? 1 : -1;
+        for (int offset = oldest ? low : high - 1; offset >= low && offset < high && result.size() < limit; offset += step) {
+            Transaction transaction = entries.apply(offset);
+            if (filter.matches(transaction)) {
+                result.add(transaction);
+            }
+        }
+    }
+
+    private static boolean containsAll(Postings[] required, int offset) {
+        for (Postings postings : required) {
+            if (!postings.contains(offset)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesTypeAndAmount(TransactionFilter filter, Transaction transaction) {
+        return (filter.type() == null || transaction.type() == filter.type())
+                && (filter.minAmount() == null || transaction.amount().compareTo(filter.minAmount()) >= 0)
+                && (filter.maxAmount() == null || transaction.amount().compareTo(filter.maxAmount()) <= 0);
+    }
+
+    // The fewest offsets in the window that every match is among.
+    private Slice candidates(TransactionFilter filter, Postings[] required, int low, int high) {
+        Slice best = null;
+        if (filter.type() != null) {
+            best = types[filter.type().ordinal()].slice(low, high);
+        }
+        for (Postings postings : required) {
+            Slice slice = postings.slice(low, high);
+            if (best == null || slice.size() < best.size()) {
+                best = slice;
+            }
+        }
+        if (filter.minAmount() != null || filter.maxAmount() != null) {
+            Slice slice = amounts(filter, low, high, best == null ? Integer.MAX_VALUE : best.size());
+            if (slice != null) {
+                best = slice;
+            }
+        }
+        return best == null ? NONE : best;
+    }
+
+    // The window's offsets of every amount in range, merged into offset order; null as soon as there
+    // turn out to be at least `budget` of them.
+    private Slice amounts(TransactionFilter filter, int low, int high, int budget) {
+        long min = filter.minAmount() == null ? Long.MIN_VALUE : filter.minAmount().minorUnits();
+        long max = filter.maxAmount() == null ? Long.MAX_VALUE : filter.maxAmount().minorUnits();
+        NavigableMap<Long, Postings> range = amounts.subMap(min, true, max, true);
+        List<Slice> slices = new ArrayList<>();
+        int count = 0;
+        for (Postings postings : range.values()) {
+            Slice slice = postings.slice(low, high);
+            if (slice.size() > 0) {
+                count += slice.size();
+                if (count >= budget) {
+                    return null;
+                }
+                slices.add(slice);
+            }
+        }
+        int[] offsets = new int[count];
+        int next = 0;
+        for (Slice slice : slices) {
+            System.arraycopy(slice.offsets(), slice.from(), offsets, next, slice.size());
+            next += slice.size();
+        }
+        Arrays.sort(offsets);
+        return new Slice(offsets, 0, count);
+    }
+
+    private record Slice(int[] offsets, int from, int to) {
+        int size() {
+            return to - from;
+        }
+    }
+
+    // Offsets in ascending order, in one growing array.
+    private static final class Postings {
+        private int[] offsets = new int[4];
+        private int size;
+
+        void add(int offset) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            offsets[size++] = offset;
+        }
+
+        Slice slice(int low, int high) {
+            return new Slice(offsets, lowerBound(low), lowerBound(high));
+        }
+
+        // Drops the offsets below `offset`, returning whether none are left.
+        boolean dropBelow(int offset) {
+            int dropped = lowerBound(offset);
+            offsets = Arrays.copyOfRange(offsets, dropped, dropped + Math.max(4, size - dropped));
+            size -= dropped;
+            return size == 0;
+        }
+
+        boolean contains(int offset) {
+            return Arrays.binarySearch(offsets, 0, size, offset) >= 0;
+        }
+
+        private int lowerBound(int offset) {
+            int index = Arrays.binarySearch(offsets, 0, size, offset);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+/**
+ * Off-heap map from transaction id to record number: an open-addressing table of 32-byte slots
+ * ({@code msb, lsb, record + 1, unused}) in a mapped file, doubled once it is half full.
+ * Single writer, lock-free readers.
+ */
+final class IdTable {
+    private static final int SLOT_BYTES = 32;
+
+    private final Path directory;
+    private volatile Table table;
+    private volatile long size;
+
+    private IdTable(Path directory, Table table) {
+        this.directory = directory;
+        this.table = table;
+    }
+
+    // Starts an empty table sized for `expected` entries, replacing any table left in the directory.
+    static IdTable create(Path directory, long expected) throws IOException {
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, "ids-*.tbl")) {
+            for (Path path : stale) {
+                Files.delete(path);
+            }
+        }
+        long capacity = Long.highestOneBit(Math.max(1024, expected * 2) - 1) << 1;
+        return new IdTable(directory, Table.create(directory, capacity));
+    }
+
+    // The record number stored for the id, or -1.
+    long get(UUID id) {
+        if (size == 0) {
+            return -1;
+        }
+        Table current = table;
+        long mask = current.capacity() - 1;
+        for (long slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+            long position = slot * SLOT_BYTES;
+            long record = current.file().getLong(position + 16);
+            if (record == 0) {
+                return -1;
+            }
+            if (current.file().getLong(position) == id.getMostSignificantBits()
+                    && current.file().getLong(position + 8) == id.getLeastSignificantBits()) {
+                return record - 1;
+            }
+        }
+    }
+
+    void put(UUID id, long record) throws IOException {
+        if ((size + 1) * 2 > table.capacity()) {
+            grow();
+        }
+        insert(table, id.getMostSignificantBits(), id.getLeastSignificantBits(), record + 1);
+        // Publishing the size makes the slot visible to readers.
+        size = size + 1;
+    }
+
+    private void grow() throws IOException {
+        Table current = table;
+        Table grown = Table.create(directory, current.capacity() * 2);
+        for (long slot = 0; slot < current.capacity(); slot++) {
+            long position = slot * SLOT_BYTES;
+            long record = current.file().getLong(position + 16);
+            if (record != 0) {
+                insert(grown, current.file().getLong(position), current.file().getLong(position + 8), record);
+            }
+        }
+        table = grown;
+        // Readers still holding the old mapping keep working; the file goes away once they let go.
+        Files.deleteIfExists(current.path());
+    }
+
+    private static void insert(Table table, long msb, long lsb, long storedRecord) {
+        long mask = table.capacity() - 1;
+        long slot = hash(msb, lsb) & mask;
+        while (table.file().getLong(slot * SLOT_BYTES + 16) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        long position = slot * SLOT_BYTES;
+        table.file().putLong(position, msb);
+        table.file().putLong(position + 8, lsb);
+        table.file().putLong(position + 16, storedRecord);
+    }
+
+    private static long hash(UUID id) {
+        return hash(id.getMostSignificantBits(), id.getLeastSignificantBits());
+    }
+
+    private static long hash(long msb, long lsb) {
+        long h = msb * 0x9E3779B97F4A7C15L ^ lsb;
+        return h ^ (h >>> 29);
+    }
+
+    private record Table(Path path, MappedFile file, long capacity) {
+        static Table create(Path directory, long capacity) throws IOException {
+            Path path = directory.resolve("ids-" + capacity + ".tbl");
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return new Table(path, MappedFile.map(channel, FileChannel.MapMode.READ_WRITE, 0, capacity * SLOT_BYTES), capacity);
+            }
+        }
+    }
+}
@@ -1,33 +1,471 @@
 package com.rehan.tinyledger.adapter.persistance;
 
+import com.rehan.tinyledger.core.domain.ChainProof;
+import com.rehan.tinyledger.core.domain.Checkpoint;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.PeriodSummary;
+import com.rehan.tinyledger.core.domain.SummaryQuery;
 import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionQuery;
+import com.rehan.tinyledger.core.port.AccountCut;
 import com.rehan.tinyledger.core.port.LedgerRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+/**
+ * Keeps every account's history in memory, or with a cold tier configured only its recent part: every
+ * interval the entries older than the configured age move, in whole chunks, into a compressed archive file
+ * that becomes the bottom of the account's log, carrying its balance forward as the opening balance of the
+ * entries left in memory. Offsets do not change, so queries, cursors and proofs span both tiers.
+ */
 @Repository
-public class InMemoryLedgerRepository implements LedgerRepository {
-    private final Map<UUID, Transaction> transactions = new ConcurrentHashMap<>();
+@ConditionalOnProperty(prefix = "tinyledger", name = "repository", havingValue = "memory", matchIfMissing = true)
+public class InMemoryLedgerRepository implements LedgerRepository, MeterBinder, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryLedgerRepository.class);
 
+    private final Map<String, TransactionLog> accounts = new ConcurrentHashMap<>();
+    private final Map<UUID, Location> index = new ConcurrentHashMap<>();
+    private volatile SegmentIndex segmentIndex = SegmentIndex.EMPTY;
+    private final ArchiveProperties properties;
+    // Null unless a cold tier is configured.
+    private final Archive archive;
+    private final ScheduledExecutorService archiver;
+
+    public InMemoryLedgerRepository() {
+        this.properties = ArchiveProperties.DISABLED;
+        this.archive = null;
+        this.archiver = null;
+    }
+
+    @Autowired
+    public InMemoryLedgerRepository(ArchiveProperties properties) throws IOException {
+        this.properties = properties;
+        if (!properties.enabled()) {
+            this.archive = null;
+            this.archiver = null;
+            return;
+        }
+        this.archive = Archive.open(properties.directory());
+        this.archiver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ledger-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Scheduled once the repository is fully constructed, so the archiver never runs against a partial one.
+    @PostConstruct
+    public void start() {
+        if (archiver != null) {
+            long interval = properties.interval().toMillis();
+            archiver.scheduleWithFixedDelay(this::archiveExpired, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
 
     @Override
     public Transaction save(Transaction transaction) {
-        transactions.put(transaction.id(), transaction);
-        return transaction;
+        if (transaction.linkedId() != null) {
+            return saveAll(List.of(transaction)).get(0);
+        }
+        TransactionLog log = accounts.computeIfAbsent(transaction.accountId(), id -> new TransactionLog());
+        TransactionLog.Appended appended = log.append(transaction);
+        index.put(transaction.id(), new Location(log, appended.offset()));
+        return appended.transaction();
+    }
+
+    // All-or-nothing: the logs of every account involved are locked in account id order and the batch is
+    // checked before anything is appended. Two batches spanning accounts (transfer legs, sequencer drains)
+    // therefore never wait on each other in a cycle, and batches on disjoint accounts never wait at all.
+    // Consecutive transactions of one account are appended in one go.
+    @Override
+    public List<Transaction> saveAll(List<Transaction> transactions) {
+        TreeMap<String, TransactionLog> logs = new TreeMap<>();
+        for (Transaction transaction : transactions) {
+            logs.computeIfAbsent(transaction.accountId(), accountId -> accounts.computeIfAbsent(accountId, id -> new TransactionLog()));
+        }
+        List<TransactionLog> locked = new ArrayList<>(logs.size());
+        try {
+            for (TransactionLog log : logs.values()) {
+                log.lock();
+                locked.add(log);
+            }
+            check(transactions, new Pending());
+            List<Transaction> saved = new ArrayList<>(transactions.size());
+            int start = 0;
+            while (start < transactions.size()) {
+                String accountId = transactions.get(start).accountId();
+                int end = start + 1;
+                while (end < transactions.size() && transactions.get(end).accountId().equals(accountId)) {
+                    end++;
+                }
+                TransactionLog log = logs.get(accountId);
+                for (TransactionLog.Appended appended : log.appendAll(transactions.subList(start, end))) {
+                    index.put(appended.transaction().id(), new Location(log, appended.offset()));
+                    saved.add(appended.transaction());
+                }
+                start = end;
+            }
+            return saved;
+        } finally {
+            for (int i = locked.size() - 1; i >= 0; i--) {
+                locked.get(i).unlock();
+            }
+        }
     }
 
     @Override
     public Optional<Transaction> findById(UUID id) {
-        return Optional.ofNullable(transactions.get(id));
+        Location location = locate(id);
+        return location == null ? Optional.empty() : Optional.of(location.log().get(location.offset()));
+    }
+
+    @Override
+    public Money balance(String accountId) {
+        TransactionLog log = accounts.get(accountId);
+        return log == null ? Money.ZERO : new Money(log.balance());
+    }
+
+    @Override
+    public Money balanceAsOf(String accountId, LocalDateTime asOf) {
+        TransactionLog log = accounts.get(accountId);
+        return log == null ? Money.ZERO : new Money(log.balanceAsOf(asOf));
+    }
+
+    @Override
+    public List<PeriodSummary> summarize(String accountId, SummaryQuery query) {
+        TransactionLog log = accounts.get(accountId);
+        return log == null ? List.of() : log.summarize(query);
+    }
+
+    @Override
+    public List<Transaction> findAll(String accountId) {
+        TransactionLog log = accounts.get(accountId);
+        return log == null ? List.of() : log.newestFirst();
+    }
+
+    @Override
+    public Stream<Transaction> streamAll(String accountId) {
+        TransactionLog log = accounts.get(accountId);
+        return log == null ? Stream.empty() : log.stream();
     }
 
     @Override
-    public List<Transaction> findAll() {
-        return transactions.values().stream()
-                .sorted(Comparator.comparing(Transaction::timestamp).reversed())
-                .toList();
+    public List<Transaction> findPage(String accountId, TransactionQuery query) {
+        TransactionLog log = accounts.get(accountId);
+        if (log == null) {
+            return List.of();
+        }
+        int end = log.size();
+        int low = 0;
+        int high = end;
+        if (query.after() != null) {
+            low = Math.max(low, cursor(log, query.after()) + 1);
+        }
+        if (query.before() != null) {
+            high = Math.min(high, cursor(log, query.before()));
+        }
+        if (query.from() != null) {
+            low = Math.max(low, log.lowerBound(query.from(), end));
+        }
+        if (query.to() != null) {
+            high = Math.min(high, log.lowerBound(query.to(), end));
+        }
+        if (low >= high) {
+            return List.of();
+        }
+        // Paging forward from an `after` cursor takes the entries right after it, otherwise the newest ones.
+        boolean forward = query.after() != null && query.before() == null;
+        if (!query.filter().isEmpty()) {
+            return log.select(query.filter(), low, high, query.limit(), forward);
+        }
+        if (forward) {
+            return log.newestFirst(low, Math.min(high, low + query.limit()));
+        }
+        return log.newestFirst(Math.max(low, high - query.limit()), high);
     }
 
-}
\ No newline at end of file
+    // Checks batches that will be saved one after another, each against what is stored plus the batches
+    // checked before it. The write-ahead log admits every record of a group commit through one of these
+    // before writing it, since a record it cannot apply afterwards would fail every replay.
+    Consumer<List<Transaction>> checker() {
+        Pending pending = new Pending();
+        return transactions -> check(transactions, pending);
+    }
+
+    // No balance may overflow and a transfer leg's other leg must be stored already or come in the same batch
+    // or one checked before it. `pending` holds what the batches checked but not stored yet leave, and takes
+    // this batch's once the whole batch passes.
+    private void check(List<Transaction> transactions, Pending pending) {
+        Map<String, Long> balances = new HashMap<>();
+        Set<UUID> batch = new HashSet<>();
+        for (Transaction transaction : transactions) {
+            batch.add(transaction.id());
+        }
+        for (Transaction transaction : transactions) {
+            String accountId = transaction.accountId();
+            Long balance = balances.get(accountId);
+            if (balance == null) {
+                balance = pending.balances().get(accountId);
+            }
+            if (balance == null) {
+                TransactionLog log = accounts.get(accountId);
+                balance = log == null ? 0 : log.balance();
+            }
+            balances.put(accountId, Math.addExact(balance, transaction.signedMinorUnits()));
+            UUID linkedId = transaction.linkedId();
+            if (linkedId != null && !batch.contains(linkedId) && !pending.ids().contains(linkedId)
+                    && locate(linkedId) == null) {
+                throw new IllegalArgumentException("Transaction " + transaction.id() + " is linked to unknown " + linkedId);
+            }
+        }
+        pending.balances().putAll(balances);
+        pending.ids().addAll(batch);
+    }
+
+    // Sizes are read when metrics are scraped, so saves pay nothing for them.
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("ledger.repository.accounts", accounts, Map::size)
+                .description("Accounts in the ledger")
+                .register(registry);
+        Gauge.builder("ledger.repository.transactions", this, InMemoryLedgerRepository::transactionCount)
+                .description("Transactions in the ledger")
+                .register(registry);
+        if (archive != null) {
+            Gauge.builder("ledger.repository.resident.transactions", this, InMemoryLedgerRepository::residentCount)
+                    .description("Transactions held in memory rather than archived")
+                    .register(registry);
+            Gauge.builder("ledger.archive.files", archive, a -> a.files().size())
+                    .description("Archive files of the cold tier")
+                    .register(registry);
+            Gauge.builder("ledger.archive.size", archive, Archive::bytes)
+                    .description("Bytes of the cold tier's archive files")
+                    .baseUnit("bytes")
+                    .register(registry);
+        }
+    }
+
+    long transactionCount() {
+        long count = 0;
+        for (TransactionLog log : accounts.values()) {
+            count += log.size();
+        }
+        return count;
+    }
+
+    // Seeds an account with a read-only segment holding its oldest transactions. Must happen before
+    // anything is saved to that account.
+    void attach(String accountId, TransactionSegment segment) {
+        if (accounts.putIfAbsent(accountId, new TransactionLog(segment)) != null) {
+            throw new IllegalStateException("Account " + accountId + " already has transactions");
+        }
+    }
+
+    void attach(SegmentIndex segmentIndex) {
+        this.segmentIndex = segmentIndex;
+    }
+
+    @Override
+    public List<AccountCut> cuts() {
+        List<AccountCut> cuts = new ArrayList<>(accounts.size());
+        cut().forEach((accountId, cut) -> cuts.add(new LogCut(accountId, cut)));
+        return cuts;
+    }
+
+    @Override
+    public List<Checkpoint> checkpoints(String accountId) {
+        TransactionLog log = accounts.get(accountId);
+        return log == null ? List.of() : log.checkpoints();
+    }
+
+    @Override
+    public Optional<ChainProof> proof(UUID id) {
+        Location location = locate(id);
+        if (location == null) {
+            return Optional.empty();
+        }
+        long sequence = location.offset() + 1L;
+        String accountId = location.log().get(location.offset()).accountId();
+        return Optional.of(location.log().proof(accountId, sequence, sequence));
+    }
+
+    @Override
+    public ChainProof proof(String accountId, long from, long to) {
+        TransactionLog log = accounts.get(accountId);
+        if (log == null) {
+            HashChain.check(from, to, 0);
+        }
+        return log.proof(accountId, from, to);
+    }
+
+    // Consistent (size, balance) per account, used to write snapshots without stopping writers.
+    Map<String, TransactionLog.Cut> cut() {
+        Map<String, TransactionLog.Cut> cuts = new LinkedHashMap<>();
+        accounts.forEach((accountId, log) -> cuts.put(accountId, log.cut()));
+        return cuts;
+    }
+
+    // Moves every account's entries stamped before `before`, in whole chunks, into one new archive file,
+    // merging the files once there are more than maxFiles. Ids are looked up in the new file before they
+    // leave the in-memory index, and entries are read from it before their chunks are dropped. Returns how
+    // many entries moved.
+    synchronized long archive(LocalDateTime before) throws IOException {
+        if (archive == null) {
+            throw new IllegalStateException("No archive is configured");
+        }
+        Map<String, ArchiveFile.Span> spans = new LinkedHashMap<>();
+        accounts.forEach((accountId, log) -> {
+            int from = log.base().size();
+            int to = log.archivableEnd(before);
+            if (to > from) {
+                spans.put(accountId, log.span(from, to));
+            }
+        });
+        if (spans.isEmpty()) {
+            return 0;
+        }
+        ArchiveFile file = archive.add(spans, properties.blockSize());
+        long moved = 0;
+        for (Map.Entry<String, ArchiveFile.Span> entry : spans.entrySet()) {
+            ArchiveFile.Span span = entry.getValue();
+            TransactionLog log = span.log();
+            for (int offset = span.from(); offset < span.to(); offset++) {
+                // Only this very entry's mapping: a duplicated id may map to a later copy.
+                index.remove(log.get(offset).id(), new Location(log, offset));
+            }
+            log.rebase(ArchiveSegment.of(log.base()).with(file.runs().get(entry.getKey())));
+            moved += span.to() - span.from();
+        }
+        if (archive.files().size() > properties.maxFiles()) {
+            List<ArchiveFile> files = archive.files();
+            ArchiveFile merged = archive.merge(files);
+            merged.runs().forEach((accountId, run) -> {
+                TransactionLog log = accounts.get(accountId);
+                log.rebase(ArchiveSegment.of(log.base()).merged(run));
+            });
+            archive.delete(files);
+        }
+        return moved;
+    }
+
+    private void archiveExpired() {
+        long start = System.nanoTime();
+        try {
+            long moved = archive(LocalDateTime.now().minus(properties.olderThan()));
+            if (moved > 0) {
+                logger.info("Archived {} transactions in {} ms, {} in {} archive files", moved,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), archive.transactionCount(),
+                        archive.files().size());
+            }
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Could not archive transactions older than {}", properties.olderThan(), ex);
+        }
+    }
+
+    // Entries that the heap still holds something of: the entry itself, its hash or its index postings.
+    long residentCount() {
+        long count = 0;
+        for (TransactionLog log : accounts.values()) {
+            count += log.size() - log.residentFrom();
+        }
+        return count;
+    }
+
+    @Override
+    public void close() {
+        if (archiver != null) {
+            archiver.shutdown();
+            try {
+                archiver.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Location locate(UUID id) {
+        Location location = index.get(id);
+        if (location == null && archive != null) {
+            SegmentIndex.Entry entry = archive.locate(id);
+            if (entry != null) {
+                location = new Location(accounts.get(entry.accountId()), entry.offset());
+            }
+        }
+        if (location == null) {
+            SegmentIndex.Entry entry = segmentIndex.locate(id);
+            if (entry != null) {
+                location = new Location(accounts.get(entry.accountId()), entry.offset());
+            }
+        }
+        return location;
+    }
+
+    private int cursor(TransactionLog log, UUID id) {
+        Location location = locate(id);
+        if (location == null || location.log() != log) {
+            throw new IllegalArgumentException("Unknown cursor " + id);
+        }
+        return location.offset();
+    }
+
+    private record Location(TransactionLog log, int offset) {
+    }
+
+    private record Pending(Map<String, Long> balances, Set<UUID> ids) {
+        private Pending() {
+            this(new HashMap<>(), new HashSet<>());
+        }
+    }
+
+    private final class LogCut implements AccountCut {
+        private final String accountId;
+        private final TransactionLog.Cut cut;
+
+        private LogCut(String accountId, TransactionLog.Cut cut) {
+            this.accountId = accountId;
+            this.cut = cut;
+        }
+
+        @Override
+        public String accountId() {
+            return accountId;
+        }
+
+        @Override
+        public int size() {
+            return cut.size();
+        }
+
+        @Override
+        public long balance() {
+            return cut.balance();
+        }
+
+        @Override
+        public Transaction get(int offset) {
+            return cut.log().get(offset);
+        }
+
+        @Override
+        public boolean indexed(int offset) {
+            return new Location(cut.log(), offset).equals(locate(get(offset).id()));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A file region mapped into memory in 1 GiB windows, so files larger than one MappedByteBuffer can be
+ * addressed with long positions. Writers lay data out so that no value or record crosses a window
+ * boundary (see {@link #fitsInWindow}); reads are absolute and safe to share between threads.
+ */
+final class MappedFile {
+    static final int WINDOW_SHIFT = 30;
+    static final long WINDOW_SIZE = 1L << WINDOW_SHIFT;
+
+    private final MappedByteBuffer[] windows;
+    private final long start;
+
+    private MappedFile(MappedByteBuffer[] windows, long start) {
+        this.windows = windows;
+        this.start = start;
+    }
+
+    static MappedFile map(FileChannel channel, FileChannel.MapMode mode, long start, long length) throws IOException {
+        int count = (int) ((length + WINDOW_SIZE - 1) >>> WINDOW_SHIFT);
+        MappedByteBuffer[] windows = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long offset = (long) i << WINDOW_SHIFT;
+            windows[i] = channel.map(mode, start + offset, Math.min(WINDOW_SIZE, length - offset));
+        }
+        return new MappedFile(windows, start);
+    }
+
+    // Whether `length` bytes written at the position (relative to the mapping start) stay inside one window.
+    static boolean fitsInWindow(long position, int length) {
+        return (position & (WINDOW_SIZE - 1)) + length <= WINDOW_SIZE;
+    }
+
+    long getLong(long position) {
+        long relative = position - start;
+        return windows[(int) (relative >>> WINDOW_SHIFT)].getLong((int) (relative & (WINDOW_SIZE - 1)));
+    }
+
+    int getInt(long position) {
+        long relative = position - start;
+        return windows[(int) (relative >>> WINDOW_SHIFT)].getInt((int) (relative & (WINDOW_SIZE - 1)));
+    }
+
+    void putLong(long position, long value) {
+        long relative = position - start;
+        windows[(int) (relative >>> WINDOW_SHIFT)].putLong((int) (relative & (WINDOW_SIZE - 1)), value);
+    }
+
+    void putInt(long position, int value) {
+        long relative = position - start;
+        windows[(int) (relative >>> WINDOW_SHIFT)].putInt((int) (relative & (WINDOW_SIZE - 1)), value);
+    }
+
+    void get(long position, byte[] target) {
+        long relative = position - start;
+        windows[(int) (relative >>> WINDOW_SHIFT)].get((int) (relative & (WINDOW_SIZE - 1)), target);
+    }
+
+    void put(long position, byte[] source) {
+        long relative = position - start;
+        windows[(int) (relative >>> WINDOW_SHIFT)].put((int) (relative & (WINDOW_SIZE - 1)), source);
+    }
+
+    ByteBuffer slice(long position, int length) {
+        long relative = position - start;
+        return windows[(int) (relative >>> WINDOW_SHIFT)].slice((int) (relative & (WINDOW_SIZE - 1)), length);
+    }
+
+    void force() {
+        for (MappedByteBuffer window : windows) {
+            window.force();
+        }
+    }
+}
@@ -0,0 +1,547 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import com.rehan.tinyledger.core.domain.ChainProof;
+import com.rehan.tinyledger.core.domain.Checkpoint;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.PeriodSummary;
+import com.rehan.tinyledger.core.domain.SummaryQuery;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionQuery;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import com.rehan.tinyledger.core.port.AccountCut;
+import com.rehan.tinyledger.core.port.LedgerRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Repository for ledgers larger than the heap: transactions are fixed-layout records in memory-mapped
+// segment files (see RecordStore) and a Transaction is only built when one is read. Per-account history
+// is a list of record numbers kept in mapped blocks, ids resolve through a mapped hash table; the heap
+// only holds one small object per account. Both indexes are rebuilt from the records at startup.
+// Each account has its own lock, held by its writers and by reads of its rollups, history index and hash
+// chain; the shared files take a second lock only while a batch is stored, so a slow read of one account
+// never holds up writers to another.
+@Repository
+@ConditionalOnProperty(prefix = "tinyledger", name = "repository", havingValue = "mapped")
+public class MappedLedgerRepository implements LedgerRepository, AutoCloseable, MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(MappedLedgerRepository.class);
+    private static final int BLOCK_SHIFT = 10;
+    private static final int BLOCK_ENTRIES = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_ENTRIES - 1;
+    private static final long BLOCK_BYTES = BLOCK_ENTRIES * 8L;
+
+    // Guards the record store, id table and block file that every account shares. Taken after account locks.
+    private final ReentrantLock storeLock = new ReentrantLock();
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private final Map<Long, Account> accountsByRef = new ConcurrentHashMap<>();
+    private final RecordStore records;
+    private final SegmentedFile blocks;
+    private final IdTable ids;
+    private long nextBlock;
+
+    public MappedLedgerRepository(MappedProperties properties) throws IOException {
+        long started = System.nanoTime();
+        this.records = RecordStore.open(properties.directory(), properties.segmentRecords(),
+                properties.stringSegmentSize().toBytes());
+        this.blocks = SegmentedFile.create(properties.directory(), "blocks", 1024 * BLOCK_BYTES);
+        this.ids = IdTable.create(properties.directory(), records.count());
+        for (long record = 0; record < records.count(); record++) {
+            long ref = records.accountRef(record);
+            Account account = accountsByRef.get(ref);
+            if (account == null) {
+                account = register(records.string(ref), ref);
+            }
+            ids.put(records.id(record), record);
+            // No history index exists yet, so the description is not needed.
+            index(account, record, records.micros(record), signed(records.type(record), records.amount(record)), null);
+        }
+        logger.info("Opened mapped ledger at {}: {} transactions in {} accounts, indexed in {} ms",
+                properties.directory(), records.count(), accounts.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    @Override
+    public Transaction save(Transaction transaction) {
+        return saveAll(List.of(transaction)).get(0);
+    }
+
+    // Checked up front, so a batch that would overflow a balance or leave a transfer leg dangling stores
+    // nothing. Transfer legs are linked once both are stored, then everything is read back. The accounts
+    // involved are locked in account id order, as in InMemoryLedgerRepository, before the shared store.
+    @Override
+    public List<Transaction> saveAll(List<Transaction> transactions) {
+        TreeMap<String, Account> involved = new TreeMap<>();
+        for (Transaction transaction : transactions) {
+            involved.computeIfAbsent(transaction.accountId(), this::account);
+        }
+        List<Account> locked = new ArrayList<>(involved.size());
+        try {
+            for (Account account : involved.values()) {
+                account.lock.lock();
+                locked.add(account);
+            }
+            return store(transactions);
+        } finally {
+            for (int i = locked.size() - 1; i >= 0; i--) {
+                locked.get(i).lock.unlock();
+            }
+        }
+    }
+
+    private List<Transaction> store(List<Transaction> transactions) {
+        storeLock.lock();
+        try {
+            check(transactions);
+            long[] stored = new long[transactions.size()];
+            for (int i = 0; i < stored.length; i++) {
+                stored[i] = store(transactions.get(i));
+            }
+            for (int i = 0; i < stored.length; i++) {
+                UUID linkedId = transactions.get(i).linkedId();
+                if (linkedId != null) {
+                    records.link(stored[i], ids.get(linkedId));
+                }
+            }
+            List<Transaction> saved = new ArrayList<>(stored.length);
+            for (long record : stored) {
+                saved.add(read(record));
+            }
+            return saved;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("The transaction could not be stored", ex);
+        } finally {
+            storeLock.unlock();
+        }
+    }
+
+    // The account, registered without entries if it is new.
+    private Account account(String accountId) {
+        Account account = accounts.get(accountId);
+        if (account != null) {
+            return account;
+        }
+        storeLock.lock();
+        try {
+            account = accounts.get(accountId);
+            return account != null ? account : register(accountId, records.appendString(accountId));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("The account could not be stored", ex);
+        } finally {
+            storeLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Transaction> findById(UUID id) {
+        long record = ids.get(id);
+        return record < 0 ? Optional.empty() : Optional.of(read(record));
+    }
+
+    @Override
+    public Money balance(String accountId) {
+        Account account = accounts.get(accountId);
+        return account == null ? Money.ZERO : new Money(account.balance);
+    }
+
+    // Same split as TransactionLog: rollups up to the minute holding `asOf`, then that minute's records.
+    @Override
+    public Money balanceAsOf(String accountId, LocalDateTime asOf) {
+        Account account = accounts.get(accountId);
+        if (account == null) {
+            return Money.ZERO;
+        }
+        long micros = RecordStore.toMicros(asOf);
+        Rollups periods = account.rollups.build(account.lock, () -> account.size);
+        Rollups.AsOf split;
+        int end;
+        account.lock.lock();
+        try {
+            split = periods.asOf(micros);
+            end = account.size;
+        } finally {
+            account.lock.unlock();
+        }
+        long result = split.balance();
+        if (split.tailFrom() != Rollups.AsOf.NO_TAIL) {
+            for (int offset = lowerBound(account, split.tailFrom(), end); offset < end; offset++) {
+                long record = record(account, offset);
+                if (records.micros(record) > micros) {
+                    break;
+                }
+                result += signed(records.type(record), records.amount(record));
+            }
+        }
+        return new Money(result);
+    }
+
+    @Override
+    public List<PeriodSummary> summarize(String accountId, SummaryQuery query) {
+        Account account = accounts.get(accountId);
+        if (account == null) {
+            return List.of();
+        }
+        Rollups periods = account.rollups.build(account.lock, () -> account.size);
+        account.lock.lock();
+        try {
+            return periods.summarize(query);
+        } finally {
+            account.lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Checkpoint> checkpoints(String accountId) {
+        Account account = accounts.get(accountId);
+        if (account == null) {
+            return List.of();
+        }
+        HashChain hashes = account.chain.build(account.lock, () -> account.size);
+        account.lock.lock();
+        try {
+            return hashes.checkpoints();
+        } finally {
+            account.lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<ChainProof> proof(UUID id) {
+        long record = ids.get(id);
+        if (record < 0) {
+            return Optional.empty();
+        }
+        long sequence = records.accountOffset(record) + 1L;
+        return Optional.of(proof(accountsByRef.get(records.accountRef(record)).id, sequence, sequence));
+    }
+
+    @Override
+    public ChainProof proof(String accountId, long from, long to) {
+        Account account = accounts.get(accountId);
+        if (account == null) {
+            HashChain.check(from, to, 0);
+        }
+        HashChain hashes = account.chain.build(account.lock, () -> account.size);
+        account.lock.lock();
+        try {
+            return hashes.proof(accountId, from, to, offset -> get(account, offset));
+        } finally {
+            account.lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> findAll(String accountId) {
+        Account account = accounts.get(accountId);
+        return account == null ? List.of() : newestFirst(account, 0, account.size);
+    }
+
+    @Override
+    public Stream<Transaction> streamAll(String accountId) {
+        Account account = accounts.get(accountId);
+        return account == null ? Stream.empty() : IntStream.range(0, account.size).mapToObj(offset -> get(account, offset));
+    }
+
+    @Override
+    public List<Transaction> findPage(String accountId, TransactionQuery query) {
+        Account account = accounts.get(accountId);
+        if (account == null) {
+            return List.of();
+        }
+        int end = account.size;
+        int low = 0;
+        int high = end;
+        if (query.after() != null) {
+            low = Math.max(low, cursor(account, query.after()) + 1);
+        }
+        if (query.before() != null) {
+            high = Math.min(high, cursor(account, query.before()));
+        }
+        if (query.from() != null) {
+            low = Math.max(low, lowerBound(account, query.from(), end));
+        }
+        if (query.to() != null) {
+            high = Math.min(high, lowerBound(account, query.to(), end));
+        }
+        if (low >= high) {
+            return List.of();
+        }
+        boolean forward = query.after() != null && query.before() == null;
+        if (!query.filter().isEmpty()) {
+            HistoryIndex index = account.historyIndex.build(account.lock, () -> account.size);
+            account.lock.lock();
+            try {
+                return index.select(query.filter(), low, high, query.limit(), forward,
+                        offset -> get(account, offset));
+            } finally {
+                account.lock.unlock();
+            }
+        }
+        if (forward) {
+            return newestFirst(account, low, Math.min(high, low + query.limit()));
+        }
+        return newestFirst(account, Math.max(low, high - query.limit()), high);
+    }
+
+    // Sizes and balances only change under the store lock, so holding it while reading them makes every
+    // cut consistent, and all of them together.
+    @Override
+    public List<AccountCut> cuts() {
+        storeLock.lock();
+        try {
+            List<AccountCut> cuts = new ArrayList<>(accounts.size());
+            for (Account account : accounts.values()) {
+                cuts.add(new RecordCut(account, account.size, account.balance));
+            }
+            return cuts;
+        } finally {
+            storeLock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("ledger.repository.accounts", accounts, Map::size)
+                .description("Accounts in the ledger")
+                .register(registry);
+        Gauge.builder("ledger.repository.transactions", records, RecordStore::count)
+                .description("Transactions in the ledger")
+                .register(registry);
+        Gauge.builder("ledger.repository.bytes", records, RecordStore::bytes)
+                .description("Bytes of ledger data on disk")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        records.force();
+    }
+
+    private void check(List<Transaction> transactions) {
+        Map<String, Long> balances = new HashMap<>();
+        Set<UUID> batch = new HashSet<>();
+        for (Transaction transaction : transactions) {
+            batch.add(transaction.id());
+        }
+        for (Transaction transaction : transactions) {
+            Account account = accounts.get(transaction.accountId());
+            long balance = balances.getOrDefault(transaction.accountId(), account == null ? 0 : account.balance);
+            balances.put(transaction.accountId(), Math.addExact(balance, transaction.signedMinorUnits()));
+            UUID linkedId = transaction.linkedId();
+            if (linkedId != null && !batch.contains(linkedId) && ids.get(linkedId) < 0) {
+                throw new IllegalArgumentException("Transaction " + transaction.id() + " is linked to unknown " + linkedId);
+            }
+        }
+    }
+
+    private long store(Transaction transaction) throws IOException {
+        Account account = accounts.get(transaction.accountId());
+        // Same ordering rule as TransactionLog: never older than the account's previous entry.
+        long micros = Math.max(RecordStore.toMicros(transaction.timestamp()), account.lastMicros);
+        long record = records.append(transaction, micros, account.ref, account.size);
+        ids.put(transaction.id(), record);
+        index(account, record, micros, transaction.signedMinorUnits(), transaction.description());
+        HashChain hashes = account.chain.value();
+        if (hashes != null) {
+            // Hashed as stored; the record of a transfer's other leg may not exist yet to read it back.
+            hashes.append(micros == RecordStore.toMicros(transaction.timestamp())
+                    ? transaction : transaction.at(RecordStore.fromMicros(micros)));
+        }
+        return record;
+    }
+
+    private Account register(String accountId, long ref) {
+        Account account = new Account(accountId, ref);
+        accountsByRef.put(ref, account);
+        accounts.put(accountId, account);
+        return account;
+    }
+
+    // Appends the record number to the account's block list. Callers hold the account's lock and the store lock.
+    private void index(Account account, long record, long micros, long signedAmount, String description)
+            throws IOException {
+        int offset = account.size;
+        long[] current = account.blocks;
+        if ((offset & BLOCK_MASK) == 0) {
+            int block = offset >>> BLOCK_SHIFT;
+            if (block == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            blocks.ensureCapacity((nextBlock + 1) * BLOCK_BYTES);
+            current[block] = nextBlock++;
+            account.blocks = current;
+        }
+        blocks.putLong(current[offset >>> BLOCK_SHIFT] * BLOCK_BYTES + (offset & BLOCK_MASK) * 8L, record);
+        account.lastMicros = micros;
+        account.balance += signedAmount;
+        Rollups periods = account.rollups.value();
+        if (periods != null) {
+            periods.add(micros, signedAmount, account.balance);
+        }
+        HistoryIndex history = account.historyIndex.value();
+        if (history != null) {
+            history.add(offset, records.type(record), records.amount(record), description);
+        }
+        // Publishing the size last makes the entry and any new block visible to readers.
+        account.size = offset + 1;
+    }
+
+    // Rollups are built from the account's records the first time it is queried, so accounts nobody reports
+    // on keep nothing on the heap. The account's lock is only held to catch up with the records stored during
+    // the build; see Derived.
+    private void foldRollups(Account account, Rollups periods, int from, int to) {
+        long running = periods.balance();
+        for (int offset = from; offset < to; offset++) {
+            long record = record(account, offset);
+            long signedAmount = signed(records.type(record), records.amount(record));
+            running += signedAmount;
+            periods.add(records.micros(record), signedAmount, running);
+        }
+    }
+
+    // Same lifecycle as the rollups.
+    private void foldHistory(Account account, HistoryIndex index, int from, int to) {
+        for (int offset = from; offset < to; offset++) {
+            Transaction transaction = get(account, offset);
+            index.add(offset, transaction.type(), transaction.amount().minorUnits(), transaction.description());
+        }
+    }
+
+    // Same lifecycle as the rollups.
+    private void foldChain(Account account, HashChain hashes, int from, int to) {
+        hashes.appendAll(from, to, offset -> get(account, offset));
+    }
+
+    private long record(Account account, int offset) {
+        return blocks.getLong(account.blocks[offset >>> BLOCK_SHIFT] * BLOCK_BYTES + (offset & BLOCK_MASK) * 8L);
+    }
+
+    private Transaction get(Account account, int offset) {
+        return records.read(record(account, offset), account.id);
+    }
+
+    private Transaction read(long record) {
+        return records.read(record, accountsByRef.get(records.accountRef(record)).id);
+    }
+
+    private List<Transaction> newestFirst(Account account, int from, int to) {
+        List<Transaction> result = new ArrayList<>(Math.max(0, to - from));
+        for (int offset = to - 1; offset >= from; offset--) {
+            result.add(get(account, offset));
+        }
+        return result;
+    }
+
+    // Binary search on the stored micros, without building any Transaction.
+    private int lowerBound(Account account, LocalDateTime timestamp, int end) {
+        return lowerBound(account, RecordStore.toMicros(timestamp), end);
+    }
+
+    private int lowerBound(Account account, long micros, int end) {
+        int low = 0;
+        int high = end;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (records.micros(record(account, mid)) < micros) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int cursor(Account account, UUID id) {
+        long record = ids.get(id);
+        if (record < 0 || records.accountRef(record) != account.ref) {
+            throw new IllegalArgumentException("Unknown cursor " + id);
+        }
+        return records.accountOffset(record);
+    }
+
+    private static long signed(TransactionType type, long amount) {
+        return type.signed(amount);
+    }
+
+    private final class RecordCut implements AccountCut {
+        private final Account account;
+        private final int size;
+        private final long balance;
+
+        private RecordCut(Account account, int size, long balance) {
+            this.account = account;
+            this.size = size;
+            this.balance = balance;
+        }
+
+        @Override
+        public String accountId() {
+            return account.id;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public long balance() {
+            return balance;
+        }
+
+        @Override
+        public Transaction get(int offset) {
+            return MappedLedgerRepository.this.get(account, offset);
+        }
+
+        @Override
+        public boolean indexed(int offset) {
+            long record = record(account, offset);
+            return ids.get(records.id(record)) == record;
+        }
+    }
+
+    private final class Account {
+        private final String id;
+        private final long ref;
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile long[] blocks = new long[4];
+        private volatile int size;
+        private volatile long balance;
+        private long lastMicros = Long.MIN_VALUE;
+        private final Derived<Rollups> rollups = new Derived<>(Rollups::new,
+                (periods, from, to) -> foldRollups(this, periods, from, to));
+        private final Derived<HistoryIndex> historyIndex = new Derived<>(HistoryIndex::new,
+                (index, from, to) -> foldHistory(this, index, from, to));
+        private final Derived<HashChain> chain = new Derived<>(HashChain::new,
+                (hashes, from, to) -> foldChain(this, hashes, from, to));
+
+        private Account(String id, long ref) {
+            this.id = id;
+            this.ref = ref;
+        }
+    }
+}
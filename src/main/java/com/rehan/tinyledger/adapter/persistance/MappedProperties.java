@@ -0,0 +1,16 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+@ConfigurationProperties(prefix = "tinyledger.mapped")
+public record MappedProperties(
+        @DefaultValue("data/mapped") Path directory,
+        // Records per segment file; 64 bytes each, at most 1 GiB per segment.
+        @DefaultValue("1048576") int segmentRecords,
+        @DefaultValue("64MB") DataSize stringSegmentSize
+) {
+}
@@ -0,0 +1,178 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionType;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Transactions as fixed 64-byte records in mapped segment files, numbered in append order:
+ * <pre>
+ * 0 id msb | 8 id lsb | 16 amount (minor units) | 24 epoch micros | 32 description ref
+ * 40 account ref | 48 type | 52 offset within the account | 56 record of the other leg (transfers only)
+ * </pre>
+ * Descriptions and account ids live in a side string area as {@code [length][utf-8]}; refs are their
+ * positions there (-1 for a null description). A small meta file records how much of both is in use.
+ * Appends are single-writer; reads are lock-free below the published count.
+ */
+final class RecordStore {
+    static final long NULL_REF = -1;
+    private static final int RECORD_BYTES = 64;
+    private static final int MAGIC = 0x544C4D53;
+    private static final int VERSION = 1;
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private final SegmentedFile records;
+    private final SegmentedFile strings;
+    private final MappedFile meta;
+    private volatile long count;
+    private volatile long stringsEnd;
+
+    private RecordStore(SegmentedFile records, SegmentedFile strings, MappedFile meta) {
+        this.records = records;
+        this.strings = strings;
+        this.meta = meta;
+        this.count = meta.getLong(8);
+        this.stringsEnd = meta.getLong(16);
+    }
+
+    static RecordStore open(Path directory, int segmentRecords, long stringSegmentBytes) throws IOException {
+        SegmentedFile records = SegmentedFile.open(directory, "records", (long) segmentRecords * RECORD_BYTES);
+        SegmentedFile strings = SegmentedFile.open(directory, "strings", stringSegmentBytes);
+        try (FileChannel channel = FileChannel.open(directory.resolve("ledger.meta"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            boolean fresh = channel.size() == 0;
+            MappedFile meta = MappedFile.map(channel, FileChannel.MapMode.READ_WRITE, 0, RECORD_BYTES);
+            if (fresh) {
+                meta.putInt(0, MAGIC);
+                meta.putInt(4, VERSION);
+            } else if (meta.getInt(0) != MAGIC || meta.getInt(4) != VERSION) {
+                throw new IOException("Not a mapped ledger: " + directory);
+            }
+            return new RecordStore(records, strings, meta);
+        }
+    }
+
+    long count() {
+        return count;
+    }
+
+    // Record and string bytes in use, not counting the unused rest of the mapped segments.
+    long bytes() {
+        return count * RECORD_BYTES + stringsEnd;
+    }
+
+    long append(Transaction transaction, long micros, long accountRef, int accountOffset) throws IOException {
+        long description = transaction.description() == null ? NULL_REF : appendString(transaction.description());
+        long record = count;
+        long position = record * RECORD_BYTES;
+        records.ensureCapacity(position + RECORD_BYTES);
+        records.putLong(position, transaction.id().getMostSignificantBits());
+        records.putLong(position + 8, transaction.id().getLeastSignificantBits());
+        records.putLong(position + 16, transaction.amount().minorUnits());
+        records.putLong(position + 24, micros);
+        records.putLong(position + 32, description);
+        records.putLong(position + 40, accountRef);
+        records.putInt(position + 48, transaction.type().ordinal());
+        records.putInt(position + 52, accountOffset);
+        meta.putLong(16, stringsEnd);
+        meta.putLong(8, record + 1);
+        count = record + 1;
+        return record;
+    }
+
+    // Strings never straddle a segment; whatever is left of the current one is skipped.
+    long appendString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long length = Integer.BYTES + (long) bytes.length;
+        long segmentBytes = strings.segmentBytes();
+        if (length > segmentBytes) {
+            throw new IllegalArgumentException("A string of " + bytes.length + " bytes does not fit a "
+                    + segmentBytes + " byte string segment");
+        }
+        long position = stringsEnd;
+        if (position % segmentBytes + length > segmentBytes) {
+            position += segmentBytes - position % segmentBytes;
+        }
+        strings.ensureCapacity(position + length);
+        strings.putInt(position, bytes.length);
+        strings.put(position + Integer.BYTES, bytes);
+        stringsEnd = position + length;
+        meta.putLong(16, stringsEnd);
+        return position;
+    }
+
+    Transaction read(long record, String accountId) {
+        long position = record * RECORD_BYTES;
+        long description = records.getLong(position + 32);
+        TransactionType type = TYPES[records.getInt(position + 48)];
+        return new Transaction(
+                new UUID(records.getLong(position), records.getLong(position + 8)),
+                accountId,
+                type,
+                new Money(records.getLong(position + 16)),
+                description == NULL_REF ? null : string(description),
+                fromMicros(records.getLong(position + 24)),
+                type.isTransfer() ? id(records.getLong(position + 56)) : null);
+    }
+
+    // Points a transfer leg at its other leg, which may have been appended after it.
+    void link(long record, long linkedRecord) {
+        records.putLong(record * RECORD_BYTES + 56, linkedRecord);
+    }
+
+    long amount(long record) {
+        return records.getLong(record * RECORD_BYTES + 16);
+    }
+
+    long micros(long record) {
+        return records.getLong(record * RECORD_BYTES + 24);
+    }
+
+    long accountRef(long record) {
+        return records.getLong(record * RECORD_BYTES + 40);
+    }
+
+    TransactionType type(long record) {
+        return TYPES[records.getInt(record * RECORD_BYTES + 48)];
+    }
+
+    int accountOffset(long record) {
+        return records.getInt(record * RECORD_BYTES + 52);
+    }
+
+    UUID id(long record) {
+        long position = record * RECORD_BYTES;
+        return new UUID(records.getLong(position), records.getLong(position + 8));
+    }
+
+    String string(long ref) {
+        byte[] bytes = new byte[strings.getInt(ref)];
+        strings.get(ref + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    void force() {
+        records.force();
+        strings.force();
+        meta.force();
+    }
+
+    static long toMicros(LocalDateTime timestamp) {
+        return Math.addExact(Math.multiplyExact(timestamp.toEpochSecond(ZoneOffset.UTC), 1_000_000L),
+                timestamp.getNano() / 1_000);
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
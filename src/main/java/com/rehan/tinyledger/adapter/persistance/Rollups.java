@@ -0,0 +1,202 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import com.rehan.tinyledger.core.domain.Granularity;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.PeriodSummary;
+import com.rehan.tinyledger.core.domain.SummaryQuery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Per-minute, per-hour and per-day rollups of one account's history. Each period with entries has a bucket
+ * of {@code start, deposits, withdrawals, count, closing balance}, in epoch micros and minor units.
+ * Entries arrive in timestamp order, so a series only ever updates its newest bucket or starts a new one.
+ * The oldest buckets can move to the archive with the entries they cover; queries read them from there.
+ * Not thread-safe; owners guard it with their append lock.
+ */
+final class Rollups {
+    static final int START = 0;
+    static final int DEPOSITS = 1;
+    static final int WITHDRAWALS = 2;
+    static final int COUNT = 3;
+    static final int CLOSING = 4;
+    static final int STRIDE = 5;
+    private static final Granularity[] GRANULARITIES = Granularity.values();
+
+    private final Series[] series = new Series[GRANULARITIES.length];
+
+    Rollups() {
+        for (Granularity granularity : GRANULARITIES) {
+            series[granularity.ordinal()] = new Series(granularity, granularity.unit().getDuration().toNanos() / 1_000);
+        }
+    }
+
+    void add(long micros, long signedAmount, long balanceAfter) {
+        for (Series periods : series) {
+            periods.add(micros, signedAmount, balanceAfter);
+        }
+    }
+
+    // Balance after the last entry added, 0 before any.
+    long balance() {
+        Series minutes = series[Granularity.MINUTE.ordinal()];
+        return minutes.size == 0 ? 0 : minutes.closing(minutes.size - 1);
+    }
+
+    // Copies of each granularity's buckets that start before the one holding `micros`, oldest first, which
+    // later entries can no longer change; those already archived are left out.
+    long[][] spill(long micros) {
+        long[][] spilled = new long[series.length][];
+        for (Series periods : series) {
+            spilled[periods.granularity.ordinal()] = periods.spill(micros);
+        }
+        return spilled;
+    }
+
+    // Reads the oldest buckets from the archive from now on and drops them from the heap.
+    void archive(Archived archived) {
+        for (Series periods : series) {
+            periods.archive(archived);
+        }
+    }
+
+    // Splits a balance-as-of query at the start of the minute holding `micros`: the returned balance covers
+    // every entry before that minute, the caller adds the entries from `tailFrom` up to the as-of time.
+    // When that minute is already over, the balance covers it too and there is no tail.
+    AsOf asOf(long micros) {
+        Series minutes = series[Granularity.MINUTE.ordinal()];
+        int bucket = minutes.lowerBound(micros + 1) - 1;
+        if (bucket < 0) {
+            return new AsOf(0, AsOf.NO_TAIL);
+        }
+        long start = minutes.start(bucket);
+        if (micros >= start + minutes.width) {
+            return new AsOf(minutes.closing(bucket), AsOf.NO_TAIL);
+        }
+        return new AsOf(bucket == 0 ? 0 : minutes.closing(bucket - 1), start);
+    }
+
+    List<PeriodSummary> summarize(SummaryQuery query) {
+        Series periods = series[query.granularity().ordinal()];
+        int low = query.from() == null ? 0 : periods.lowerBound(periods.truncate(RecordStore.toMicros(query.from())));
+        int high = query.to() == null ? periods.size : periods.lowerBound(RecordStore.toMicros(query.to()));
+        low = Math.max(low, high - query.limit());
+        List<PeriodSummary> summaries = new ArrayList<>(Math.max(0, high - low));
+        for (int bucket = high - 1; bucket >= low; bucket--) {
+            summaries.add(periods.summary(bucket));
+        }
+        return summaries;
+    }
+
+    record AsOf(long balance, long tailFrom) {
+        static final long NO_TAIL = Long.MAX_VALUE;
+    }
+
+    // Buckets moved to the archive, oldest first.
+    interface Archived {
+        int buckets(Granularity granularity);
+
+        // One of START to CLOSING of an archived bucket.
+        long bucket(Granularity granularity, int index, int field);
+    }
+
+    // Buckets of one granularity: the oldest `archivedCount` in the archive, the rest five longs each in one
+    // growing array.
+    private static final class Series {
+        private final Granularity granularity;
+        private final long width;
+        private Archived archived;
+        private int archivedCount;
+        private long[] buckets = new long[4 * STRIDE];
+        private int size;
+
+        private Series(Granularity granularity, long width) {
+            this.granularity = granularity;
+            this.width = width;
+        }
+
+        void add(long micros, long signedAmount, long balanceAfter) {
+            long start = truncate(micros);
+            // Archived buckets all start before the newest entry's, so a new entry never falls into one.
+            if (size == archivedCount || buckets[(size - 1 - archivedCount) * STRIDE + START] != start) {
+                if ((size + 1 - archivedCount) * STRIDE > buckets.length) {
+                    buckets = Arrays.copyOf(buckets, Math.max(4 * STRIDE, buckets.length * 2));
+                }
+                buckets[(size - archivedCount) * STRIDE + START] = start;
+                size++;
+            }
+            int bucket = (size - 1 - archivedCount) * STRIDE;
+            // Totals can only exceed the long range through absurd turnover; they stop at the limit
+            // rather than failing an append that the balance check already allowed.
+            if (signedAmount >= 0) {
+                buckets[bucket + DEPOSITS] = saturatedAdd(buckets[bucket + DEPOSITS], signedAmount);
+            } else {
+                buckets[bucket + WITHDRAWALS] = saturatedAdd(buckets[bucket + WITHDRAWALS], -signedAmount);
+            }
+            buckets[bucket + COUNT]++;
+            buckets[bucket + CLOSING] = balanceAfter;
+        }
+
+        long[] spill(long micros) {
+            int end = Math.max(archivedCount, lowerBound(truncate(micros)));
+            return Arrays.copyOfRange(buckets, 0, (end - archivedCount) * STRIDE);
+        }
+
+        void archive(Archived archive) {
+            int moved = archive.buckets(granularity) - archivedCount;
+            if (moved < 0 || moved > size - archivedCount || moved > 0
+                    && archive.bucket(granularity, archivedCount + moved - 1, START) != start(archivedCount + moved - 1)) {
+                throw new IllegalArgumentException("The archived " + granularity + " rollups do not continue the resident ones");
+            }
+            buckets = Arrays.copyOfRange(buckets, moved * STRIDE, buckets.length);
+            archived = archive;
+            archivedCount += moved;
+        }
+
+        long truncate(long micros) {
+            return Math.floorDiv(micros, width) * width;
+        }
+
+        // First bucket starting at or after `micros`, or the size if there is none.
+        int lowerBound(long micros) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (start(mid) < micros) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        long start(int bucket) {
+            return field(bucket, START);
+        }
+
+        long closing(int bucket) {
+            return field(bucket, CLOSING);
+        }
+
+        PeriodSummary summary(int bucket) {
+            return new PeriodSummary(RecordStore.fromMicros(field(bucket, START)),
+                    new Money(field(bucket, DEPOSITS)), new Money(field(bucket, WITHDRAWALS)),
+                    field(bucket, COUNT), new Money(field(bucket, CLOSING)));
+        }
+
+        private long field(int bucket, int field) {
+            return bucket < archivedCount
+                    ? archived.bucket(granularity, bucket, field)
+                    : buckets[(bucket - archivedCount) * STRIDE + field];
+        }
+
+        private static long saturatedAdd(long total, long amount) {
+            long sum = total + amount;
+            return sum < total ? Long.MAX_VALUE : sum;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import java.util.UUID;
+
+// Resolves ids of transactions held in attached segments, which the in-memory id index does not cover.
+interface SegmentIndex {
+    SegmentIndex EMPTY = id -> null;
+
+    Entry locate(UUID id);
+
+    record Entry(String accountId, int offset) {
+    }
+}
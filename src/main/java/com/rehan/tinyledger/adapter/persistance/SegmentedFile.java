@@ -0,0 +1,114 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Storage spread over fixed-size segment files ({@code <prefix>-00000.seg}, ...), each mapped whole.
+ * Positions are global; callers lay data out so that nothing straddles two segments. Growing maps a
+ * new segment and never moves existing ones, so readers can address any position they were handed
+ * without locking.
+ */
+final class SegmentedFile {
+    private final Path directory;
+    private final String prefix;
+    private final long segmentBytes;
+    private volatile MappedFile[] segments;
+
+    private SegmentedFile(Path directory, String prefix, long segmentBytes, MappedFile[] segments) {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.segmentBytes = segmentBytes;
+        this.segments = segments;
+    }
+
+    // Maps every existing segment of the file.
+    static SegmentedFile open(Path directory, String prefix, long segmentBytes) throws IOException {
+        if (segmentBytes <= 0 || segmentBytes > MappedFile.WINDOW_SIZE) {
+            throw new IllegalArgumentException("Segment size must be between 1 byte and 1 GiB, was " + segmentBytes);
+        }
+        Files.createDirectories(directory);
+        SegmentedFile file = new SegmentedFile(directory, prefix, segmentBytes, new MappedFile[0]);
+        while (Files.exists(file.path(file.segments.length))) {
+            file.addSegment();
+        }
+        return file;
+    }
+
+    // Starts over with no segments, discarding whatever was stored before.
+    static SegmentedFile create(Path directory, String prefix, long segmentBytes) throws IOException {
+        Files.createDirectories(directory);
+        int segment = 0;
+        while (Files.deleteIfExists(directory.resolve(name(prefix, segment)))) {
+            segment++;
+        }
+        return open(directory, prefix, segmentBytes);
+    }
+
+    long segmentBytes() {
+        return segmentBytes;
+    }
+
+    // Maps segments until `end` is addressable. Callers serialize growth.
+    void ensureCapacity(long end) throws IOException {
+        while ((long) segments.length * segmentBytes < end) {
+            addSegment();
+        }
+    }
+
+    long getLong(long position) {
+        return segment(position).getLong(position % segmentBytes);
+    }
+
+    int getInt(long position) {
+        return segment(position).getInt(position % segmentBytes);
+    }
+
+    void get(long position, byte[] target) {
+        segment(position).get(position % segmentBytes, target);
+    }
+
+    void putLong(long position, long value) {
+        segment(position).putLong(position % segmentBytes, value);
+    }
+
+    void putInt(long position, int value) {
+        segment(position).putInt(position % segmentBytes, value);
+    }
+
+    void put(long position, byte[] source) {
+        segment(position).put(position % segmentBytes, source);
+    }
+
+    void force() {
+        for (MappedFile segment : segments) {
+            segment.force();
+        }
+    }
+
+    private MappedFile segment(long position) {
+        return segments[(int) (position / segmentBytes)];
+    }
+
+    private void addSegment() throws IOException {
+        MappedFile[] current = segments;
+        try (FileChannel channel = FileChannel.open(path(current.length),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedFile[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = MappedFile.map(channel, FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            segments = grown;
+        }
+    }
+
+    private Path path(int segment) {
+        return directory.resolve(name(prefix, segment));
+    }
+
+    private static String name(String prefix, int segment) {
+        return prefix + "-" + String.format("%05d", segment) + ".seg";
+    }
+}
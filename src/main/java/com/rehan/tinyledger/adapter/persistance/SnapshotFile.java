@@ -0,0 +1,436 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import com.rehan.tinyledger.core.domain.Transaction;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Point-in-time image of the ledger tagged with the write-ahead log position it covers. Layout:
+ * <pre>
+ * header | id index (open addressing, 32-byte slots) | per account: offset table, records | directory | end marker
+ * </pre>
+ * A snapshot is incremental: it holds only each account's entries after those of the snapshot it builds on,
+ * named in its header, and the chain down to a snapshot with no parent is the whole image. Writing one merges
+ * the newest files of the chain for as long as each is no larger than the new file would hold, like carries
+ * in a binary counter, so a chain has O(log n) files and an entry is rewritten O(log n) times in all.
+ * The files are memory-mapped on recovery and transactions are decoded only when read, so opening a
+ * snapshot costs one directory read per file regardless of how many transactions it holds.
+ */
+final class SnapshotFile implements SegmentIndex {
+    private static final String SUFFIX = ".snapshot";
+    private static final int MAGIC = 0x544C534E;
+    private static final int VERSION = 3;
+    private static final long NO_PARENT = -1;
+    private static final long END_MAGIC = 0x544C534E_454E4421L;
+    static final int HEADER_BYTES = 64;
+    static final int SLOT_BYTES = 32;
+
+    private final Path path;
+    private final SnapshotFile parent;
+    private final long walPosition;
+    private final long transactionCount;
+    private final long recordCount;
+    private final String[] accountIds;
+    private final Map<String, TransactionSegment> segments;
+    private final MappedFile file;
+    private final long indexCapacity;
+
+    private SnapshotFile(Path path, SnapshotFile parent, long walPosition, long transactionCount, long recordCount,
+                         String[] accountIds, Map<String, TransactionSegment> segments, MappedFile file,
+                         long indexCapacity) {
+        this.path = path;
+        this.parent = parent;
+        this.walPosition = walPosition;
+        this.transactionCount = transactionCount;
+        this.recordCount = recordCount;
+        this.accountIds = accountIds;
+        this.segments = segments;
+        this.file = file;
+        this.indexCapacity = indexCapacity;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long walPosition() {
+        return walPosition;
+    }
+
+    // Transactions in the whole image, this file's parents included.
+    long transactionCount() {
+        return transactionCount;
+    }
+
+    // Transactions stored in this file.
+    long recordCount() {
+        return recordCount;
+    }
+
+    // Every account's history up to the snapshot, reading older entries from the parents.
+    Map<String, TransactionSegment> segments() {
+        return segments;
+    }
+
+    // This file and its parents, newest first.
+    List<SnapshotFile> chain() {
+        List<SnapshotFile> chain = new ArrayList<>();
+        for (SnapshotFile file = this; file != null; file = file.parent) {
+            chain.add(file);
+        }
+        return chain;
+    }
+
+    @Override
+    public Entry locate(UUID id) {
+        for (SnapshotFile snapshot = this; snapshot != null; snapshot = snapshot.parent) {
+            Entry entry = snapshot.locateHere(id);
+            if (entry != null) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private Entry locateHere(UUID id) {
+        long mask = indexCapacity - 1;
+        for (long slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+            long position = HEADER_BYTES + slot * SLOT_BYTES;
+            int account = file.getInt(position + 16);
+            if (account == 0) {
+                return null;
+            }
+            if (file.getLong(position) == id.getMostSignificantBits()
+                    && file.getLong(position + 8) == id.getLeastSignificantBits()) {
+                return new Entry(accountIds[account - 1], file.getInt(position + 20));
+            }
+        }
+    }
+
+    static Path pathFor(Path walPath, long walPosition) {
+        return walPath.resolveSibling(walPath.getFileName() + "." + String.format("%020d", walPosition) + SUFFIX);
+    }
+
+    // The newest snapshot that opens cleanly. Older ones are fallbacks if the newest is damaged, as long as
+    // the log segments written after them have not been deleted yet.
+    static Optional<SnapshotFile> openLatest(Path walPath) throws IOException {
+        for (Path candidate : list(walPath).sorted(Comparator.reverseOrder()).toList()) {
+            try {
+                return Optional.of(open(candidate));
+            } catch (IOException | RuntimeException ignored) {
+                // fall back to the previous snapshot
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Deletes every snapshot that is not part of `latest`'s chain.
+    static void deleteOutside(Path walPath, SnapshotFile latest) throws IOException {
+        List<Path> kept = latest.chain().stream().map(SnapshotFile::path).toList();
+        for (Path candidate : list(walPath).toList()) {
+            if (!kept.contains(candidate)) {
+                Files.deleteIfExists(candidate);
+            }
+        }
+    }
+
+    // The snapshot a new one holding `total` transactions builds on: the newest of `latest`'s chain once
+    // every file no larger than what the new one would hold has been merged into it.
+    static SnapshotFile parentFor(SnapshotFile latest, long total) {
+        SnapshotFile parent = latest;
+        while (parent != null && parent.recordCount <= total - parent.transactionCount) {
+            parent = parent.parent;
+        }
+        return parent;
+    }
+
+    private static Stream<Path> list(Path walPath) throws IOException {
+        Path directory = walPath.toAbsolutePath().getParent();
+        String prefix = walPath.getFileName() + ".";
+        if (!Files.isDirectory(directory)) {
+            return Stream.empty();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> snapshots = files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(prefix) && name.endsWith(SUFFIX);
+            }).toList();
+            return snapshots.stream();
+        }
+    }
+
+    // Opens the snapshot and, through their names, the parents it builds on.
+    static SnapshotFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a ledger snapshot: " + path);
+            }
+            long walPosition = header.getLong();
+            long directoryOffset = header.getLong();
+            long indexCapacity = header.getLong();
+            int accountCount = header.getInt();
+            long transactionCount = header.getLong();
+            long recordCount = header.getLong();
+            long parentPosition = header.getLong();
+            if (directoryOffset < HEADER_BYTES || directoryOffset > size - Long.BYTES) {
+                throw new IOException("Truncated ledger snapshot: " + path);
+            }
+            SnapshotFile parent = parentPosition == NO_PARENT ? null : open(sibling(path, parentPosition));
+
+            ByteBuffer directory = ByteBuffer.allocate((int) (size - directoryOffset));
+            readFully(channel, directory, directoryOffset);
+            directory.flip();
+            MappedFile file = MappedFile.map(channel, FileChannel.MapMode.READ_ONLY, 0, directoryOffset);
+
+            String[] accountIds = new String[accountCount];
+            Map<String, TransactionSegment> segments = new LinkedHashMap<>();
+            if (parent != null) {
+                segments.putAll(parent.segments);
+            }
+            for (int i = 0; i < accountCount; i++) {
+                byte[] account = new byte[directory.getShort()];
+                directory.get(account);
+                long balance = directory.getLong();
+                int from = directory.getInt();
+                int count = directory.getInt();
+                long table = directory.getLong();
+                accountIds[i] = new String(account, StandardCharsets.UTF_8);
+                TransactionSegment below = segments.getOrDefault(accountIds[i], TransactionSegment.EMPTY);
+                if (below.size() != from) {
+                    throw new IOException("Snapshot " + path + " does not continue its parent for " + accountIds[i]);
+                }
+                segments.put(accountIds[i], new Segment(below, file, table, from, count, balance));
+            }
+            if (directory.getLong() != END_MAGIC) {
+                throw new IOException("Truncated ledger snapshot: " + path);
+            }
+            return new SnapshotFile(path, parent, walPosition, transactionCount, recordCount, accountIds, segments,
+                    file, indexCapacity);
+        }
+    }
+
+    private static Path sibling(Path path, long walPosition) {
+        String name = path.getFileName().toString();
+        String prefix = name.substring(0, name.length() - SUFFIX.length() - 20);
+        return path.resolveSibling(prefix + String.format("%020d", walPosition) + SUFFIX);
+    }
+
+    // Writes each account's entries after those in `parent`, or all of them without one, to a temporary
+    // file and renames it into place, so a crash never leaves a partial snapshot.
+    static SnapshotFile write(Path walPath, long walPosition, Map<String, TransactionLog.Cut> cuts,
+                              SnapshotFile parent) throws IOException {
+        Path target = pathFor(walPath, walPosition);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Map<String, TransactionSegment> below = parent == null ? Map.of() : parent.segments;
+        long total = 0;
+        long records = 0;
+        for (Map.Entry<String, TransactionLog.Cut> entry : cuts.entrySet()) {
+            total += entry.getValue().size();
+            records += entry.getValue().size() - below.getOrDefault(entry.getKey(), TransactionSegment.EMPTY).size();
+        }
+        long capacity = Long.highestOneBit(Math.max(16, records * 2) - 1) << 1;
+        long indexEnd = HEADER_BYTES + capacity * SLOT_BYTES;
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedFile head = MappedFile.map(channel, FileChannel.MapMode.READ_WRITE, 0, indexEnd);
+            Writer writer = new Writer(channel, indexEnd);
+            ByteBuffer directory = ByteBuffer.allocate(1024);
+            int accountIndex = 0;
+            for (Map.Entry<String, TransactionLog.Cut> entry : cuts.entrySet()) {
+                TransactionLog.Cut cut = entry.getValue();
+                int from = below.getOrDefault(entry.getKey(), TransactionSegment.EMPTY).size();
+                if (from == cut.size()) {
+                    continue;
+                }
+                accountIndex++;
+                long table = writer.reserve(8L * (cut.size() - from));
+                OffsetTable offsets = new OffsetTable(channel, table);
+                for (int offset = from; offset < cut.size(); offset++) {
+                    Transaction transaction = cut.log().get(offset);
+                    offsets.add(writer.record(TransactionCodec.encode(transaction)));
+                    insert(head, capacity, transaction.id(), accountIndex, offset);
+                }
+                offsets.flush();
+
+                byte[] account = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                directory = ensureCapacity(directory, account.length + 32);
+                directory.putShort((short) account.length).put(account)
+                        .putLong(cut.balance()).putInt(from).putInt(cut.size() - from).putLong(table);
+            }
+            long directoryOffset = writer.position();
+            directory = ensureCapacity(directory, Long.BYTES);
+            directory.putLong(END_MAGIC).flip();
+            writer.put(directory);
+            writer.flush();
+
+            ByteBuffer header = head.slice(0, HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(walPosition).putLong(directoryOffset)
+                    .putLong(capacity).putInt(accountIndex).putLong(total).putLong(records)
+                    .putLong(parent == null ? NO_PARENT : parent.walPosition);
+            head.force();
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(target);
+    }
+
+    static void insert(MappedFile head, long capacity, UUID id, int accountIndex, int offset) {
+        long mask = capacity - 1;
+        long slot = hash(id) & mask;
+        while (head.getInt(HEADER_BYTES + slot * SLOT_BYTES + 16) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        long position = HEADER_BYTES + slot * SLOT_BYTES;
+        head.putLong(position, id.getMostSignificantBits());
+        head.putLong(position + 8, id.getLeastSignificantBits());
+        head.putInt(position + 16, accountIndex);
+        head.putInt(position + 20, offset);
+    }
+
+    static long hash(UUID id) {
+        long h = id.getMostSignificantBits() * 0x9E3779B97F4A7C15L ^ id.getLeastSignificantBits();
+        return h ^ (h >>> 29);
+    }
+
+    static ByteBuffer ensureCapacity(ByteBuffer buffer, int extra) {
+        if (buffer.remaining() >= extra) {
+            return buffer;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + extra));
+        buffer.flip();
+        return larger.put(buffer);
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        while (target.hasRemaining()) {
+            if (channel.read(target, position + target.position()) < 0) {
+                throw new IOException("Unexpected end of ledger snapshot");
+            }
+        }
+    }
+
+    // One account's entries [from, from + count) in this file, on top of the older ones in its parents.
+    private record Segment(TransactionSegment below, MappedFile file, long table, int from, int count, long balance)
+            implements TransactionSegment {
+        @Override
+        public int size() {
+            return from + count;
+        }
+
+        @Override
+        public Transaction get(int offset) {
+            if (offset < from) {
+                return below.get(offset);
+            }
+            if (offset >= from + count) {
+                throw new IndexOutOfBoundsException(offset);
+            }
+            long position = file.getLong(table + 8L * (offset - from));
+            return TransactionCodec.decode(file.slice(position + 4, file.getInt(position)));
+        }
+    }
+
+    // Sequential writer that keeps every record inside one mapping window.
+    static final class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        private long flushed;
+
+        Writer(FileChannel channel, long start) {
+            this.channel = channel;
+            this.flushed = start;
+        }
+
+        long position() {
+            return flushed + buffer.position();
+        }
+
+        // Skips an 8-byte aligned region that is filled in later with positional writes.
+        long reserve(long bytes) throws IOException {
+            flush();
+            flushed = (flushed + 7) & ~7L;
+            long start = flushed;
+            flushed += bytes;
+            return start;
+        }
+
+        long record(byte[] payload) throws IOException {
+            int length = Integer.BYTES + payload.length;
+            if (!MappedFile.fitsInWindow(position(), length)) {
+                flush();
+                flushed = (flushed + MappedFile.WINDOW_SIZE - 1) & -MappedFile.WINDOW_SIZE;
+            }
+            if (buffer.remaining() < length) {
+                flush();
+            }
+            long start = position();
+            if (length > buffer.capacity()) {
+                put(ByteBuffer.allocate(length).putInt(payload.length).put(payload).flip());
+            } else {
+                buffer.putInt(payload.length).put(payload);
+            }
+            return start;
+        }
+
+        void put(ByteBuffer source) throws IOException {
+            flush();
+            while (source.hasRemaining()) {
+                flushed += channel.write(source, flushed);
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                flushed += channel.write(buffer, flushed);
+            }
+            buffer.clear();
+        }
+    }
+
+    private static final class OffsetTable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        private long position;
+
+        OffsetTable(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        void add(long offset) throws IOException {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.putLong(offset);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+    }
+}
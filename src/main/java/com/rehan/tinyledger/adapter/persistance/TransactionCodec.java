@@ -0,0 +1,92 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionType;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+// Compact binary form of a Transaction used by the on-disk formats and the binary wire format. The amount
+// is stored as a scale and the minimal two's-complement bytes of the unscaled value, which for a Money is
+// always scale 2. Transfer legs end with the id of their other leg; other entries are encoded as before
+// transfers existed, so older files still read.
+public final class TransactionCodec {
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private TransactionCodec() {
+    }
+
+    public static byte[] encode(Transaction transaction) {
+        byte[] account = transaction.accountId().getBytes(StandardCharsets.UTF_8);
+        byte[] description = transaction.description() == null
+                ? null : transaction.description().getBytes(StandardCharsets.UTF_8);
+        long minorUnits = transaction.amount().minorUnits();
+        int unscaledLength = (64 - Long.numberOfLeadingZeros(minorUnits ^ (minorUnits >> 63)) + 8) / 8;
+
+        ByteBuffer buffer = ByteBuffer.allocate(16 + 1 + 4 + 1 + unscaledLength + 12
+                + 2 + account.length + 4 + (description == null ? 0 : description.length)
+                + (transaction.linkedId() == null ? 0 : 16));
+        buffer.putLong(transaction.id().getMostSignificantBits());
+        buffer.putLong(transaction.id().getLeastSignificantBits());
+        buffer.put((byte) transaction.type().ordinal());
+        buffer.putInt(Money.SCALE);
+        buffer.put((byte) unscaledLength);
+        for (int shift = 8 * (unscaledLength - 1); shift >= 0; shift -= 8) {
+            buffer.put((byte) (minorUnits >> shift));
+        }
+        buffer.putLong(transaction.timestamp().toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(transaction.timestamp().getNano());
+        buffer.putShort((short) account.length);
+        buffer.put(account);
+        buffer.putInt(description == null ? -1 : description.length);
+        if (description != null) {
+            buffer.put(description);
+        }
+        if (transaction.linkedId() != null) {
+            buffer.putLong(transaction.linkedId().getMostSignificantBits());
+            buffer.putLong(transaction.linkedId().getLeastSignificantBits());
+        }
+        return buffer.array();
+    }
+
+    public static Transaction decode(ByteBuffer buffer) {
+        UUID id = new UUID(buffer.getLong(), buffer.getLong());
+        TransactionType type = TYPES[buffer.get()];
+        Money amount = decodeAmount(buffer);
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+        byte[] account = new byte[buffer.getShort()];
+        buffer.get(account);
+        int descriptionLength = buffer.getInt();
+        String description = null;
+        if (descriptionLength >= 0) {
+            byte[] bytes = new byte[descriptionLength];
+            buffer.get(bytes);
+            description = new String(bytes, StandardCharsets.UTF_8);
+        }
+        UUID linkedId = type.isTransfer() ? new UUID(buffer.getLong(), buffer.getLong()) : null;
+        return new Transaction(id, new String(account, StandardCharsets.UTF_8), type,
+                amount, description, timestamp, linkedId);
+    }
+
+    private static Money decodeAmount(ByteBuffer buffer) {
+        int scale = buffer.getInt();
+        int length = buffer.get();
+        if (scale == Money.SCALE && length <= Long.BYTES) {
+            // Sign-extend the first byte, then shift in the rest.
+            long minorUnits = buffer.get();
+            for (int i = 1; i < length; i++) {
+                minorUnits = (minorUnits << 8) | (buffer.get() & 0xFF);
+            }
+            return new Money(minorUnits);
+        }
+        byte[] unscaled = new byte[length];
+        buffer.get(unscaled);
+        return Money.of(new BigDecimal(new BigInteger(unscaled), scale));
+    }
+}
@@ -0,0 +1,397 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import com.rehan.tinyledger.core.domain.ChainProof;
+import com.rehan.tinyledger.core.domain.Checkpoint;
+import com.rehan.tinyledger.core.domain.PeriodSummary;
+import com.rehan.tinyledger.core.domain.SummaryQuery;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionFilter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Append-only, timestamp-ordered log of one account's transactions, stored in fixed-size chunks
+ * so that growing never copies existing entries. Appends are serialized by a per-log lock;
+ * reads are lock-free and see every entry below the published size.
+ * A log can sit on top of a read-only segment (e.g. a snapshot), which then holds its oldest entries.
+ * Whole chunks of old entries can later be handed over to a longer segment (the archive), which frees them
+ * along with their rollup buckets, hashes and index postings; offsets do not change, so cursors, indexes and
+ * proofs stay valid.
+ * Rollups are kept up to date on append; for a log with a segment they are first built when queried,
+ * mostly outside the append lock (see Derived).
+ * The history index is built the same way on the first filtered query and kept up to date on append from
+ * then on.
+ * The hash chain follows the rollups: kept on append, and for a log with a segment first built, the same
+ * way, when a proof or the checkpoints are asked for.
+ */
+final class TransactionLog {
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private volatile TransactionSegment base;
+    // Offset of the first chunk's first slot: the size of the segment the log started on.
+    private final int chunkStart;
+    private volatile Transaction[][] chunks = new Transaction[4][];
+    private volatile int size;
+    private volatile long balance;
+    // Folded into under the append lock; unbuilt until the base segment has been folded in.
+    private final Derived<Rollups> rollups;
+    // Folded into under the append lock; unbuilt until the first filtered query. Indexes the entries above
+    // the archived ones.
+    private final Derived<HistoryIndex> historyIndex =
+            new Derived<>(() -> new HistoryIndex(archivedEnd()), this::foldHistory);
+    // Appended to under the append lock; unbuilt until the base segment has been hashed.
+    private final Derived<HashChain> chain;
+
+    TransactionLog() {
+        this(TransactionSegment.EMPTY);
+    }
+
+    TransactionLog(TransactionSegment base) {
+        this.base = base;
+        this.chunkStart = base.size();
+        this.size = chunkStart;
+        this.balance = base.balance();
+        this.rollups = chunkStart == 0
+                ? Derived.built(Rollups::new, this::foldRollups)
+                : new Derived<>(Rollups::new, this::foldRollups);
+        this.chain = chunkStart == 0
+                ? Derived.built(HashChain::new, this::foldChain)
+                : new Derived<>(HashChain::new, this::foldChain);
+    }
+
+    // Racing writers can hand in timestamps slightly out of order, so an entry older than its
+    // predecessor is stamped with the predecessor's time to keep the log sorted.
+    Appended append(Transaction transaction) {
+        appendLock.lock();
+        try {
+            return appendLocked(transaction);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Appends the whole list under one lock acquisition.
+    List<Appended> appendAll(List<Transaction> transactions) {
+        appendLock.lock();
+        try {
+            List<Appended> appended = new ArrayList<>(transactions.size());
+            for (Transaction transaction : transactions) {
+                appended.add(appendLocked(transaction));
+            }
+            return appended;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Held across appends to several logs, see InMemoryLedgerRepository.saveAll; appends reenter it.
+    void lock() {
+        appendLock.lock();
+    }
+
+    void unlock() {
+        appendLock.unlock();
+    }
+
+    private Appended appendLocked(Transaction transaction) {
+        // Checked before anything is stored, so an overflowing entry leaves the log untouched.
+        long balanceAfter = Math.addExact(balance, transaction.signedMinorUnits());
+        int offset = size;
+        if (offset > 0) {
+            Transaction last = get(offset - 1);
+            if (transaction.timestamp().isBefore(last.timestamp())) {
+                transaction = transaction.at(last.timestamp());
+            }
+        }
+        Transaction[][] current = chunks;
+        int chunk = (offset - chunkStart) >>> CHUNK_SHIFT;
+        if (chunk == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        if (current[chunk] == null) {
+            current[chunk] = new Transaction[CHUNK_SIZE];
+        }
+        current[chunk][(offset - chunkStart) & CHUNK_MASK] = transaction;
+        chunks = current;
+        balance = balanceAfter;
+        Rollups periods = rollups.value();
+        if (periods != null) {
+            periods.add(RecordStore.toMicros(transaction.timestamp()), transaction.signedMinorUnits(), balanceAfter);
+        }
+        HistoryIndex index = historyIndex.value();
+        if (index != null) {
+            index.add(offset, transaction.type(), transaction.amount().minorUnits(), transaction.description());
+        }
+        HashChain hashes = chain.value();
+        if (hashes != null) {
+            hashes.append(transaction);
+        }
+        // Publishing the size last makes the entry and any new chunk visible to readers.
+        size = offset + 1;
+        return new Appended(transaction, offset);
+    }
+
+    int size() {
+        return size;
+    }
+
+    Transaction get(int offset) {
+        TransactionSegment segment = base;
+        if (offset < segment.size()) {
+            return segment.get(offset);
+        }
+        int local = offset - chunkStart;
+        Transaction[] chunk = chunks[local >>> CHUNK_SHIFT];
+        // A missing chunk was handed over to a new base after the one read above; see rebase.
+        return chunk != null ? chunk[local & CHUNK_MASK] : base.get(offset);
+    }
+
+    TransactionSegment base() {
+        return base;
+    }
+
+    // End of the oldest entries stamped before `before` that fill whole chunks, which is as far as the log
+    // can be rebased; the size of the current base if no chunk qualifies.
+    int archivableEnd(LocalDateTime before) {
+        int archived = base.size();
+        // Searching above the base keeps archived blocks from being inflated.
+        int end = lowerBound(before, archived, size);
+        if (end <= archived) {
+            return archived;
+        }
+        return Math.max(archived, chunkStart + ((end - chunkStart) & ~CHUNK_MASK));
+    }
+
+    // Entries [from, to) to archive, which must follow the archived ones, with the rollup buckets they
+    // complete and the seals of their hash chain blocks. Only a log that started empty can be archived, so
+    // its chunks line up with the chain's blocks.
+    ArchiveFile.Span span(int from, int to) {
+        if (chunkStart != 0) {
+            throw new IllegalStateException("Only a log that started empty can be archived");
+        }
+        Rollups periods = rollups.build(appendLock, this::size);
+        HashChain hashes = chain.build(appendLock, this::size);
+        long lastArchived = RecordStore.toMicros(get(to - 1).timestamp());
+        appendLock.lock();
+        try {
+            return new ArchiveFile.Span(this, from, to, periods.spill(lastArchived), hashes.seal(from, to));
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Replaces the base with the archived segment holding the same oldest entries and possibly whole chunks
+    // more, made by span, and drops those chunks with their rollup buckets, hashes and index postings. The new
+    // base is published before the chunks go, so a reader that finds a chunk missing reads the entry from it.
+    void rebase(ArchiveSegment segment) {
+        appendLock.lock();
+        try {
+            int end = segment.size();
+            if (end < base.size() || end > size
+                    || end != base.size() && ((end - chunkStart) & CHUNK_MASK) != 0) {
+                throw new IllegalArgumentException("The segment does not hold whole chunks of the log's oldest entries");
+            }
+            Rollups periods = rollups.value();
+            HashChain hashes = chain.value();
+            if (periods == null || hashes == null) {
+                throw new IllegalStateException("The log's rollups and hash chain were not archived with it");
+            }
+            periods.archive(segment);
+            hashes.archive(segment);
+            base = segment;
+            Transaction[][] current = chunks.clone();
+            for (int chunk = 0; chunk < (end - chunkStart) >>> CHUNK_SHIFT; chunk++) {
+                current[chunk] = null;
+            }
+            chunks = current;
+            HistoryIndex index = historyIndex.value();
+            if (index != null) {
+                index.dropBelow(end);
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Offset of the first entry that is not archived.
+    private int archivedEnd() {
+        TransactionSegment segment = base;
+        return segment instanceof ArchiveSegment ? segment.size() : 0;
+    }
+
+    // Lowest offset whose entry, hash or index postings are held on the heap. Rollups keep only the buckets
+    // that the archive boundary splits.
+    int residentFrom() {
+        appendLock.lock();
+        try {
+            int from = base.size();
+            HashChain hashes = chain.value();
+            if (hashes != null) {
+                from = Math.min(from, hashes.residentFrom());
+            }
+            HistoryIndex index = historyIndex.value();
+            if (index != null) {
+                from = Math.min(from, index.start());
+            }
+            return from;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Net of every appended entry, base segment included, in minor units.
+    long balance() {
+        return balance;
+    }
+
+    // Balance after every entry stamped at or before `asOf`: rollups up to the minute holding it, then a
+    // scan of that minute's entries outside the lock.
+    long balanceAsOf(LocalDateTime asOf) {
+        Rollups periods = rollups.build(appendLock, this::size);
+        Rollups.AsOf split;
+        int end;
+        appendLock.lock();
+        try {
+            split = periods.asOf(RecordStore.toMicros(asOf));
+            end = size;
+        } finally {
+            appendLock.unlock();
+        }
+        long result = split.balance();
+        if (split.tailFrom() != Rollups.AsOf.NO_TAIL) {
+            for (int offset = lowerBound(RecordStore.fromMicros(split.tailFrom()), end); offset < end; offset++) {
+                Transaction transaction = get(offset);
+                if (transaction.timestamp().isAfter(asOf)) {
+                    break;
+                }
+                result += transaction.signedMinorUnits();
+            }
+        }
+        return result;
+    }
+
+    List<PeriodSummary> summarize(SummaryQuery query) {
+        Rollups periods = rollups.build(appendLock, this::size);
+        appendLock.lock();
+        try {
+            return periods.summarize(query);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Entries in [low, high) matching the filter, newest first; see HistoryIndex.select.
+    List<Transaction> select(TransactionFilter filter, int low, int high, int limit, boolean oldest) {
+        HistoryIndex index = historyIndex.build(appendLock, this::size);
+        appendLock.lock();
+        try {
+            // A build racing an archive move may have indexed entries that have since moved.
+            index.dropBelow(archivedEnd());
+            return index.select(filter, low, high, limit, oldest, this::get);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    List<Checkpoint> checkpoints() {
+        HashChain hashes = chain.build(appendLock, this::size);
+        appendLock.lock();
+        try {
+            return hashes.checkpoints();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    ChainProof proof(String accountId, long from, long to) {
+        HashChain hashes = chain.build(appendLock, this::size);
+        appendLock.lock();
+        try {
+            return hashes.proof(accountId, from, to, this::get);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void foldChain(HashChain hashes, int from, int to) {
+        hashes.appendAll(from, to, this::get);
+    }
+
+    private void foldRollups(Rollups periods, int from, int to) {
+        long running = periods.balance();
+        for (int offset = from; offset < to; offset++) {
+            Transaction transaction = get(offset);
+            running += transaction.signedMinorUnits();
+            periods.add(RecordStore.toMicros(transaction.timestamp()), transaction.signedMinorUnits(), running);
+        }
+    }
+
+    private void foldHistory(HistoryIndex index, int from, int to) {
+        for (int offset = Math.max(from, index.start()); offset < to; offset++) {
+            Transaction transaction = get(offset);
+            index.add(offset, transaction.type(), transaction.amount().minorUnits(), transaction.description());
+        }
+    }
+
+    Cut cut() {
+        appendLock.lock();
+        try {
+            return new Cut(this, size, balance);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    List<Transaction> newestFirst() {
+        return newestFirst(0, size);
+    }
+
+    // Entries in [from, to), newest first.
+    List<Transaction> newestFirst(int from, int to) {
+        List<Transaction> result = new ArrayList<>(Math.max(0, to - from));
+        for (int offset = to - 1; offset >= from; offset--) {
+            result.add(get(offset));
+        }
+        return result;
+    }
+
+    // Lazily walks the entries that existed when the stream was created, oldest first.
+    Stream<Transaction> stream() {
+        return IntStream.range(0, size).mapToObj(this::get);
+    }
+
+    // First offset whose timestamp is not before the given time, or the size if there is none.
+    int lowerBound(LocalDateTime timestamp, int end) {
+        return lowerBound(timestamp, 0, end);
+    }
+
+    private int lowerBound(LocalDateTime timestamp, int start, int end) {
+        int low = start;
+        int high = end;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (get(mid).timestamp().isBefore(timestamp)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    record Appended(Transaction transaction, int offset) {
+    }
+
+    // A consistent (size, balance) pair; entries below the size never change, so they can be read later.
+    record Cut(TransactionLog log, int size, long balance) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import com.rehan.tinyledger.core.domain.Transaction;
+
+// Read-only, indexed run of one account's oldest transactions that a TransactionLog builds on.
+interface TransactionSegment {
+    TransactionSegment EMPTY = new TransactionSegment() {
+        @Override
+        public int size() {
+            return 0;
+        }
+
+        @Override
+        public Transaction get(int offset) {
+            throw new IndexOutOfBoundsException(offset);
+        }
+
+        @Override
+        public long balance() {
+            return 0;
+        }
+    };
+
+    int size();
+
+    Transaction get(int offset);
+
+    // Net of the segment's entries, in minor units.
+    long balance();
+}
@@ -0,0 +1,25 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "tinyledger.wal")
+public record WalProperties(
+        @DefaultValue("data/ledger.wal") Path path,
+        @DefaultValue("BATCHED") Durability durability,
+        @DefaultValue("1024") int maxBatchSize,
+        @DefaultValue("10ms") Duration asyncFlushInterval,
+        @DefaultValue("100000") long snapshotInterval
+) {
+    public enum Durability {
+        // One fsync per save, the caller waits for it.
+        PER_COMMIT,
+        // Concurrent saves share one fsync (group commit), each caller waits for its batch.
+        BATCHED,
+        // Saves return once written to the file, the log is forced every asyncFlushInterval.
+        ASYNC
+    }
+}
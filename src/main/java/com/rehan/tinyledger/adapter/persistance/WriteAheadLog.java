@@ -0,0 +1,433 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import com.rehan.tinyledger.core.domain.Transaction;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary append-only log on a FileChannel. Each record is {@code [length][crc32c][payload]}, where the
+ * payload is one or more encoded transactions that are replayed together or not at all.
+ * A single writer thread drains queued records, writes them in one go and forces the channel once
+ * per batch, so concurrent callers share an fsync (group commit). The same thread then applies the
+ * batch in log order, so whatever has been applied always matches a prefix of the file. Before writing,
+ * it checks each record in log order against what the records before it leave, and rejects one that
+ * could not be applied instead of writing it.
+ * The log is a run of segment files named by the position they start at. A new segment is started when
+ * a snapshot is taken, so once that snapshot is durable every segment before it can be deleted.
+ */
+final class WriteAheadLog implements AutoCloseable, MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+    private static final int HEADER_BYTES = 8;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final PendingWrite SHUTDOWN = new PendingWrite(null, new byte[0], 0, null);
+
+    private final Path path;
+    private final WalProperties.Durability durability;
+    private final int maxBatchSize;
+    private final long asyncFlushNanos;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final UnaryOperator<List<Transaction>> apply;
+    private final Supplier<Consumer<List<Transaction>>> admission;
+    private final CommitListener listener;
+    private final long replayed;
+    private final Thread writer;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+    // The segment being written and where it starts. Only the writer thread touches them once it runs.
+    private FileChannel channel;
+    private long segmentStart;
+    private volatile long position;
+    // Where the oldest segment still on disk starts.
+    private volatile long oldest;
+    // Recorded on the writer thread once bound; null until then.
+    private volatile Timer forces;
+    private volatile DistributionSummary batchSizes;
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    private WriteAheadLog(Path path, FileChannel channel, long segmentStart, long oldest, WalProperties properties,
+                          UnaryOperator<List<Transaction>> apply, Supplier<Consumer<List<Transaction>>> admission,
+                          CommitListener listener, Replayed replayed) {
+        this.path = path;
+        this.channel = channel;
+        this.segmentStart = segmentStart;
+        this.oldest = oldest;
+        this.apply = apply;
+        this.admission = admission;
+        this.listener = listener;
+        this.replayed = replayed.count();
+        this.position = replayed.end();
+        this.durability = properties.durability();
+        this.maxBatchSize = properties.durability() == WalProperties.Durability.PER_COMMIT
+                ? 1 : properties.maxBatchSize();
+        this.asyncFlushNanos = properties.asyncFlushInterval().toNanos();
+        this.writer = new Thread(this::run, "wal-writer");
+        this.writer.setDaemon(true);
+    }
+
+    // Replays every intact record from `start` through `apply`, cuts off a torn tail and starts the writer.
+    // `admission` gives a check per group commit, run on each record in log order before it is written; it
+    // throws to reject the record.
+    static WriteAheadLog open(WalProperties properties, long start, UnaryOperator<List<Transaction>> apply,
+                              Supplier<Consumer<List<Transaction>>> admission, CommitListener listener)
+            throws IOException {
+        Path path = properties.path().toAbsolutePath();
+        Files.createDirectories(path.getParent());
+        // A log from before segments is a single file holding everything from position 0.
+        if (Files.isRegularFile(path)) {
+            Files.move(path, segmentPath(path, 0));
+        }
+        List<Long> starts = segments(path);
+        if (starts.isEmpty()) {
+            starts = List.of(0L);
+        }
+        if (starts.get(0) > start) {
+            throw new IllegalStateException("The write-ahead log " + path + " starts after position " + start
+                    + " recorded in its snapshot");
+        }
+        long count = 0;
+        for (int i = 0; i < starts.size(); i++) {
+            long segmentStart = starts.get(i);
+            long next = i + 1 < starts.size() ? starts.get(i + 1) : Long.MAX_VALUE;
+            if (next <= start) {
+                continue;
+            }
+            FileChannel channel = FileChannel.open(segmentPath(path, segmentStart),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long from = Math.max(start, segmentStart) - segmentStart;
+            if (channel.size() < from) {
+                channel.close();
+                throw new IllegalStateException("The write-ahead log " + path + " ends before position " + start
+                        + " recorded in its snapshot");
+            }
+            Replayed replayed = replay(channel, segmentStart, from, apply);
+            count += replayed.count();
+            // A torn tail, or a segment that does not reach the next one, ends the log: whatever follows
+            // could not be applied in order.
+            if (segmentStart + replayed.end() != next) {
+                for (long later : starts.subList(i + 1, starts.size())) {
+                    logger.warn("Deleted the write-ahead log segment at position {}: it follows a torn segment", later);
+                    Files.delete(segmentPath(path, later));
+                }
+                channel.truncate(replayed.end());
+                channel.position(replayed.end());
+                WriteAheadLog log = new WriteAheadLog(path, channel, segmentStart, starts.get(0), properties,
+                        apply, admission, listener, new Replayed(segmentStart + replayed.end(), count));
+                log.writer.start();
+                return log;
+            }
+            channel.close();
+        }
+        throw new IllegalStateException("The write-ahead log " + path + " has no segment to append to");
+    }
+
+    static Path segmentPath(Path path, long start) {
+        return path.resolveSibling(path.getFileName() + "." + String.format("%020d", start) + SEGMENT_SUFFIX);
+    }
+
+    // The start positions of the log's segments, oldest first.
+    private static List<Long> segments(Path path) throws IOException {
+        String prefix = path.getFileName() + ".";
+        try (Stream<Path> files = Files.list(path.getParent())) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name, prefix.length(), name.length() - SEGMENT_SUFFIX.length(), 10))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    // Writes the transactions as one record and completes with the applied transactions once it is
+    // written (and forced, unless the log is ASYNC).
+    CompletableFuture<List<Transaction>> append(List<Transaction> transactions) {
+        if (closed) {
+            throw new IllegalStateException("The write-ahead log is closed");
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("The write-ahead log has failed", failure);
+        }
+        byte[] payload = encode(transactions);
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        PendingWrite write = new PendingWrite(transactions, payload, (int) crc.getValue(), new CompletableFuture<>());
+        queue.add(write);
+        return write.done();
+    }
+
+    WalProperties.Durability durability() {
+        return durability;
+    }
+
+    long replayed() {
+        return replayed;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("ledger.repository.bytes", this, log -> log.position - log.oldest)
+                .description("Bytes of ledger data on disk")
+                .baseUnit("bytes")
+                .register(registry);
+        batchSizes = DistributionSummary.builder("ledger.wal.batch.size")
+                .description("Transactions written per group commit")
+                .baseUnit("transactions")
+                .register(registry);
+        forces = Timer.builder("ledger.wal.fsync")
+                .description("Time spent forcing the write-ahead log to disk")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(10_000))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(registry);
+    }
+
+    // Makes everything written so far durable, whatever the durability mode, and starts a new segment at the
+    // current position. Only from the commit listener, which runs on the writer thread between batches.
+    void roll() throws IOException {
+        channel.force(false);
+        if (position == segmentStart) {
+            return;
+        }
+        FileChannel next = FileChannel.open(segmentPath(path, position),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.close();
+        channel = next;
+        segmentStart = position;
+    }
+
+    // Deletes every segment that ends at or before `position`, once a snapshot of it is durable.
+    void deleteBelow(long position) throws IOException {
+        List<Long> starts = segments(path);
+        for (int i = 0; i + 1 < starts.size() && starts.get(i + 1) <= position; i++) {
+            Files.delete(segmentPath(path, starts.get(i)));
+            oldest = starts.get(i + 1);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.add(SHUTDOWN);
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    // Positions within the segment; `segmentStart` only places them in the log for reporting.
+    private static Replayed replay(FileChannel channel, long segmentStart, long start,
+                                   UnaryOperator<List<Transaction>> apply) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        long size = channel.size();
+        long position = start;
+        long count = 0;
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            readFully(channel, header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length <= 0 || position + HEADER_BYTES + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, position + HEADER_BYTES);
+            CRC32C crc = new CRC32C();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            payload.flip();
+            List<Transaction> transactions = new ArrayList<>(1);
+            while (payload.hasRemaining()) {
+                transactions.add(TransactionCodec.decode(payload));
+            }
+            // A record written before records were checked, or by a build with other rules, must not keep
+            // the ledger from opening: it is left out and reported.
+            try {
+                apply.apply(transactions);
+                count += transactions.size();
+            } catch (RuntimeException ex) {
+                logger.error("Skipped the write-ahead log record at position {} with {} transactions: it cannot be applied",
+                        segmentStart + position, transactions.size(), ex);
+            }
+            position += HEADER_BYTES + length;
+        }
+        return new Replayed(position, count);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position + target.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of write-ahead log");
+            }
+        }
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        boolean dirty = false;
+        long lastForce = System.nanoTime();
+        boolean running = true;
+        while (running) {
+            try {
+                PendingWrite first = durability == WalProperties.Durability.ASYNC
+                        ? queue.poll(asyncFlushNanos, TimeUnit.NANOSECONDS)
+                        : queue.take();
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, maxBatchSize - 1);
+                }
+                running = !batch.removeIf(write -> write == SHUTDOWN);
+                admit(batch);
+                if (!batch.isEmpty()) {
+                    write(batch);
+                    dirty = true;
+                }
+                boolean forceNow = durability != WalProperties.Durability.ASYNC
+                        || !running
+                        || System.nanoTime() - lastForce >= asyncFlushNanos;
+                if (dirty && forceNow) {
+                    long forceStarted = System.nanoTime();
+                    channel.force(false);
+                    Timer forces = this.forces;
+                    if (forces != null) {
+                        forces.record(System.nanoTime() - forceStarted, TimeUnit.NANOSECONDS);
+                    }
+                    dirty = false;
+                    lastForce = System.nanoTime();
+                }
+                int records = 0;
+                for (PendingWrite write : batch) {
+                    records += write.transactions().size();
+                }
+                // Recorded before the writers are released, so a caller sees its own commit in the metrics.
+                DistributionSummary batchSizes = this.batchSizes;
+                if (batchSizes != null && !batch.isEmpty()) {
+                    batchSizes.record(records);
+                }
+                batch.forEach(this::apply);
+                if (!batch.isEmpty()) {
+                    listener.committed(position, records);
+                }
+            } catch (IOException ex) {
+                failure = ex;
+                batch.forEach(write -> write.done().completeExceptionally(ex));
+                running = false;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            batch.clear();
+        }
+        // Anything that slipped in behind the shutdown marker will never be written.
+        IllegalStateException closedException = new IllegalStateException("The write-ahead log is closed");
+        for (PendingWrite write = queue.poll(); write != null; write = queue.poll()) {
+            if (write != SHUTDOWN) {
+                write.done().completeExceptionally(failure != null ? failure : closedException);
+            }
+        }
+    }
+
+    // Drops the records that fail the check from the batch, completing each with the check's exception.
+    private void admit(List<PendingWrite> batch) {
+        Consumer<List<Transaction>> check = admission.get();
+        batch.removeIf(write -> {
+            try {
+                check.accept(write.transactions());
+                return false;
+            } catch (RuntimeException ex) {
+                write.done().completeExceptionally(ex);
+                return true;
+            }
+        });
+    }
+
+    private void write(List<PendingWrite> batch) throws IOException {
+        buffer.clear();
+        for (PendingWrite write : batch) {
+            int recordBytes = HEADER_BYTES + write.payload().length;
+            if (recordBytes > buffer.remaining()) {
+                flush();
+                if (recordBytes > buffer.capacity()) {
+                    buffer = ByteBuffer.allocateDirect(recordBytes);
+                }
+            }
+            buffer.putInt(write.payload().length).putInt(write.checksum()).put(write.payload());
+        }
+        flush();
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void apply(PendingWrite write) {
+        try {
+            write.done().complete(apply.apply(write.transactions()));
+        } catch (RuntimeException ex) {
+            write.done().completeExceptionally(ex);
+        }
+    }
+
+    private static byte[] encode(List<Transaction> transactions) {
+        if (transactions.size() == 1) {
+            return TransactionCodec.encode(transactions.get(0));
+        }
+        List<byte[]> encoded = new ArrayList<>(transactions.size());
+        int length = 0;
+        for (Transaction transaction : transactions) {
+            byte[] bytes = TransactionCodec.encode(transaction);
+            encoded.add(bytes);
+            length += bytes.length;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        encoded.forEach(payload::put);
+        return payload.array();
+    }
+
+    // Called on the writer thread after a batch is applied, with the log position it ends at.
+    interface CommitListener {
+        void committed(long position, int records);
+    }
+
+    private record PendingWrite(List<Transaction> transactions, byte[] payload, int checksum,
+                                CompletableFuture<List<Transaction>> done) {
+    }
+
+    private record Replayed(long end, long count) {
+    }
+}
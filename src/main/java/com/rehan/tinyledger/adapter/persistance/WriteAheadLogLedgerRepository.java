@@ -0,0 +1,209 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import com.rehan.tinyledger.core.domain.ChainProof;
+import com.rehan.tinyledger.core.domain.Checkpoint;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.PeriodSummary;
+import com.rehan.tinyledger.core.domain.SummaryQuery;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionQuery;
+import com.rehan.tinyledger.core.port.AccountCut;
+import com.rehan.tinyledger.core.port.LedgerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Durable repository: every save is appended to a write-ahead log before it becomes visible,
+// reads are served from the in-memory logs. Every snapshotInterval transactions a snapshot of the entries
+// since the previous one is written in the background; startup maps the latest chain of them and only
+// replays the log written after it. The log starts a new segment at each snapshot, and the segments before
+// a snapshot are deleted once it is durable.
+@Repository
+@ConditionalOnProperty(prefix = "tinyledger", name = "repository", havingValue = "wal")
+public class WriteAheadLogLedgerRepository implements LedgerRepository, AutoCloseable, MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLogLedgerRepository.class);
+
+    private final InMemoryLedgerRepository memory = new InMemoryLedgerRepository();
+    private final ExecutorService snapshots = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final WalProperties properties;
+    private final long snapshotted;
+    private final WriteAheadLog log;
+    private long sinceSnapshot;
+    private volatile boolean snapshotting;
+    // The newest snapshot, which the next one builds on. Only the snapshot writer touches it after startup.
+    private SnapshotFile latest;
+
+    public WriteAheadLogLedgerRepository(WalProperties properties) throws IOException {
+        this.properties = properties;
+        long started = System.nanoTime();
+        Optional<SnapshotFile> snapshot = SnapshotFile.openLatest(properties.path());
+        snapshot.ifPresent(file -> {
+            file.segments().forEach(memory::attach);
+            memory.attach(file);
+        });
+        this.latest = snapshot.orElse(null);
+        this.snapshotted = snapshot.map(SnapshotFile::transactionCount).orElse(0L);
+        this.log = WriteAheadLog.open(properties, snapshot.map(SnapshotFile::walPosition).orElse(0L),
+                memory::saveAll, memory::checker, this::committed);
+        this.sinceSnapshot = log.replayed();
+        logger.info("Recovered ledger in {} ms: {} transactions from snapshot, {} replayed from {}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), snapshotted, log.replayed(),
+                properties.path());
+    }
+
+    @Override
+    public Transaction save(Transaction transaction) {
+        return saveAll(List.of(transaction)).get(0);
+    }
+
+    // One log record for the whole list, so a crash keeps either all of it or none.
+    @Override
+    public List<Transaction> saveAll(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return List.of();
+        }
+        // Fails fast without queueing; the writer checks again in log order, which also covers saves racing
+        // this one.
+        memory.checker().accept(transactions);
+        try {
+            return log.append(transactions).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtime && !(runtime instanceof UncheckedIOException)) {
+                throw runtime;
+            }
+            throw new UncheckedIOException("The transaction could not be persisted",
+                    ex.getCause() instanceof IOException io ? io : new IOException(ex.getCause()));
+        }
+    }
+
+    @Override
+    public List<Transaction> findAll(String accountId) {
+        return memory.findAll(accountId);
+    }
+
+    @Override
+    public List<Transaction> findPage(String accountId, TransactionQuery query) {
+        return memory.findPage(accountId, query);
+    }
+
+    @Override
+    public Stream<Transaction> streamAll(String accountId) {
+        return memory.streamAll(accountId);
+    }
+
+    @Override
+    public Optional<Transaction> findById(UUID id) {
+        return memory.findById(id);
+    }
+
+    @Override
+    public Money balance(String accountId) {
+        return memory.balance(accountId);
+    }
+
+    @Override
+    public Money balanceAsOf(String accountId, LocalDateTime asOf) {
+        return memory.balanceAsOf(accountId, asOf);
+    }
+
+    @Override
+    public List<PeriodSummary> summarize(String accountId, SummaryQuery query) {
+        return memory.summarize(accountId, query);
+    }
+
+    @Override
+    public List<AccountCut> cuts() {
+        return memory.cuts();
+    }
+
+    @Override
+    public List<Checkpoint> checkpoints(String accountId) {
+        return memory.checkpoints(accountId);
+    }
+
+    @Override
+    public Optional<ChainProof> proof(UUID id) {
+        return memory.proof(id);
+    }
+
+    @Override
+    public ChainProof proof(String accountId, long from, long to) {
+        return memory.proof(accountId, from, to);
+    }
+
+    long snapshotted() {
+        return snapshotted;
+    }
+
+    long replayed() {
+        return log.replayed();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        memory.bindTo(registry);
+        log.bindTo(registry);
+    }
+
+    // Runs on the WAL writer thread, so the cut matches exactly the log up to `position`.
+    private void committed(long position, int records) {
+        sinceSnapshot += records;
+        if (properties.snapshotInterval() <= 0 || sinceSnapshot < properties.snapshotInterval() || snapshotting) {
+            return;
+        }
+        try {
+            log.roll();
+        } catch (IOException ex) {
+            logger.warn("Could not roll the write-ahead log before a snapshot", ex);
+            return;
+        }
+        sinceSnapshot = 0;
+        snapshotting = true;
+        Map<String, TransactionLog.Cut> cut = memory.cut();
+        snapshots.execute(() -> writeSnapshot(position, cut));
+    }
+
+    private void writeSnapshot(long position, Map<String, TransactionLog.Cut> cut) {
+        try {
+            long total = cut.values().stream().mapToLong(TransactionLog.Cut::size).sum();
+            latest = SnapshotFile.write(properties.path(), position, cut, SnapshotFile.parentFor(latest, total));
+            SnapshotFile.deleteOutside(properties.path(), latest);
+            log.deleteBelow(position);
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Could not write a ledger snapshot at log position {}", position, ex);
+        } finally {
+            snapshotting = false;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+        snapshots.shutdown();
+        try {
+            snapshots.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.rehan.tinyledger.adapter.web;
+
+import com.rehan.tinyledger.core.domain.AuditReport;
+import com.rehan.tinyledger.core.service.LedgerAuditor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+// Operator endpoints, kept apart from the ledger API so they can be fenced off on their own.
+@RestController
+@RequestMapping("/api/admin")
+public class AuditController {
+    private final LedgerAuditor auditor;
+
+    public AuditController(LedgerAuditor auditor) {
+        this.auditor = auditor;
+    }
+
+    // The report says whether the ledger is consistent; the request itself succeeds either way.
+    @GetMapping("/audit")
+    public ResponseEntity<AuditReport> audit(@RequestParam(defaultValue = "false") boolean checksums) {
+        return ResponseEntity.ok(auditor.audit(checksums));
+    }
+}
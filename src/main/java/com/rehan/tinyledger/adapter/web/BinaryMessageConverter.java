@@ -0,0 +1,217 @@
+package com.rehan.tinyledger.adapter.web;
+
+import com.rehan.tinyledger.adapter.persistance.TransactionCodec;
+import com.rehan.tinyledger.core.domain.BatchItemResult;
+import com.rehan.tinyledger.core.domain.BatchMode;
+import com.rehan.tinyledger.core.domain.BatchRequest;
+import com.rehan.tinyledger.core.domain.BatchResult;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionRequest;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Binary bodies for bulk clients, chosen by Content-Type and Accept. Everything is big-endian:
+//   transaction      TransactionCodec layout, the one the write-ahead log uses
+//   request          type byte | amount | description
+//   amount           scale int | length byte | unscaled two's-complement bytes
+//   string           length int (-1 for null) | UTF-8 bytes
+//   list of T        count int | T...
+//   batch request    mode byte | list of request
+//   batch result     mode byte | committed int | rejected int | list of (index int | status byte | transaction or error string)
+// Registered after the JSON converter, so clients that do not ask for it keep getting JSON.
+public class BinaryMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    public static final String MEDIA_TYPE_VALUE = "application/vnd.tinyledger+binary";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final BatchMode[] MODES = BatchMode.values();
+    private static final BatchItemResult.Status[] STATUSES = BatchItemResult.Status.values();
+
+    public BinaryMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    // Lists are only recognised through their generic type, below.
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == TransactionRequest.class || clazz == BatchRequest.class
+                || clazz == Transaction.class || clazz == BatchResult.class;
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes(Class<?> clazz) {
+        return List.class.isAssignableFrom(clazz) ? getSupportedMediaTypes() : super.getSupportedMediaTypes(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return (type == TransactionRequest.class || type == BatchRequest.class) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        Type target = type != null ? type : clazz;
+        boolean writable = target == Transaction.class || target == BatchResult.class
+                || target instanceof ParameterizedType list && list.getRawType() == List.class
+                && list.getActualTypeArguments()[0] == Transaction.class;
+        return writable && canWrite(mediaType);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        return readInternal((Class<?>) type, inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(inputMessage.getBody().readAllBytes());
+        try {
+            Object body;
+            if (clazz == BatchRequest.class) {
+                BatchMode mode = MODES[buffer.get()];
+                int count = buffer.getInt();
+                // Not more than the body could hold, whatever the count says.
+                List<TransactionRequest> requests = new ArrayList<>(Math.min(count, buffer.remaining()));
+                for (int i = 0; i < count; i++) {
+                    requests.add(readRequest(buffer));
+                }
+                body = new BatchRequest(mode, requests);
+            } else {
+                body = readRequest(buffer);
+            }
+            if (buffer.hasRemaining()) {
+                throw new IllegalArgumentException(buffer.remaining() + " bytes left after the body");
+            }
+            return body;
+        } catch (RuntimeException ex) {
+            throw new HttpMessageNotReadableException("Malformed binary body: " + ex.getMessage(), ex, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputMessage.getBody());
+        if (body instanceof Transaction transaction) {
+            out.write(TransactionCodec.encode(transaction));
+        } else if (body instanceof BatchResult result) {
+            out.writeByte(result.mode().ordinal());
+            out.writeInt(result.committed());
+            out.writeInt(result.rejected());
+            out.writeInt(result.results().size());
+            for (BatchItemResult item : result.results()) {
+                out.writeInt(item.index());
+                out.writeByte(item.status().ordinal());
+                if (item.status() == BatchItemResult.Status.COMMITTED) {
+                    out.write(TransactionCodec.encode(item.transaction()));
+                } else {
+                    writeString(out, item.error());
+                }
+            }
+        } else {
+            List<?> transactions = (List<?>) body;
+            out.writeInt(transactions.size());
+            for (Object transaction : transactions) {
+                out.write(TransactionCodec.encode((Transaction) transaction));
+            }
+        }
+        out.flush();
+    }
+
+    // The client side of the format, for tests, benchmarks and Java clients.
+    public static byte[] encode(TransactionRequest request) {
+        ByteBuffer buffer = ByteBuffer.allocate(requestSize(request));
+        putRequest(buffer, request);
+        return buffer.array();
+    }
+
+    public static byte[] encode(BatchRequest batch) {
+        int size = 1 + 4;
+        for (TransactionRequest request : batch.transactions()) {
+            size += requestSize(request);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put((byte) batch.mode().ordinal());
+        buffer.putInt(batch.transactions().size());
+        for (TransactionRequest request : batch.transactions()) {
+            putRequest(buffer, request);
+        }
+        return buffer.array();
+    }
+
+    public static List<Transaction> decodeTransactions(byte[] body) {
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        int count = buffer.getInt();
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transactions.add(TransactionCodec.decode(buffer));
+        }
+        return transactions;
+    }
+
+    public static Transaction decodeTransaction(byte[] body) {
+        return TransactionCodec.decode(ByteBuffer.wrap(body));
+    }
+
+    private static TransactionRequest readRequest(ByteBuffer buffer) {
+        TransactionType type = TYPES[buffer.get()];
+        int scale = buffer.getInt();
+        byte[] unscaled = new byte[buffer.get()];
+        buffer.get(unscaled);
+        String description = readString(buffer);
+        return new TransactionRequest(type, new BigDecimal(new BigInteger(unscaled), scale), description);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static int requestSize(TransactionRequest request) {
+        return 1 + 4 + 1 + request.amount().unscaledValue().bitLength() / 8 + 1 + 4
+                + (request.description() == null ? 0 : request.description().getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static void putRequest(ByteBuffer buffer, TransactionRequest request) {
+        byte[] unscaled = request.amount().unscaledValue().toByteArray();
+        buffer.put((byte) request.type().ordinal());
+        buffer.putInt(request.amount().scale());
+        buffer.put((byte) unscaled.length);
+        buffer.put(unscaled);
+        if (request.description() == null) {
+            buffer.putInt(-1);
+        } else {
+            byte[] description = request.description().getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(description.length);
+            buffer.put(description);
+        }
+    }
+}
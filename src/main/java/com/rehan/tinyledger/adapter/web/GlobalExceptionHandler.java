@@ -1,16 +1,21 @@
 package com.rehan.tinyledger.adapter.web;
 
+import com.rehan.tinyledger.core.domain.exception.AuditInProgressException;
+import com.rehan.tinyledger.core.domain.exception.BatchRejectedException;
 import com.rehan.tinyledger.core.domain.exception.InsufficientFundsException;
 import com.rehan.tinyledger.core.domain.exception.TransactionFailedException;
+import com.rehan.tinyledger.core.domain.exception.TransactionNotFoundException;
 import jakarta.validation.ConstraintViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 import org.springframework.web.servlet.resource.NoResourceFoundException;
 
 import java.util.ArrayList;
@@ -32,16 +37,32 @@ public class GlobalExceptionHandler {
                 HttpStatus.BAD_REQUEST.value()),HttpStatus.BAD_REQUEST);
     }
 
-    @ExceptionHandler(HttpMessageNotReadableException.class)
+    @ExceptionHandler({HttpMessageNotReadableException.class, MethodArgumentTypeMismatchException.class,
+            MissingServletRequestParameterException.class})
     public ResponseEntity<ErrorResponse> handleInputParseError(Exception ex) {
         return new ResponseEntity<>(new ErrorResponse( ErrorMessages.INVALID_INPUT.getMessage(),
                 HttpStatus.BAD_REQUEST.value()),HttpStatus.BAD_REQUEST);
     }
-    @ExceptionHandler(TransactionFailedException.class)
+    @ExceptionHandler({TransactionFailedException.class, BatchRejectedException.class})
     public ResponseEntity<ErrorResponse> handleFailedTransaction(Exception ex) {
         return new ResponseEntity<>(new ErrorResponse(ex.getMessage(),
                 HttpStatus.BAD_REQUEST.value()),HttpStatus.BAD_REQUEST);
     }
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyReused(IdempotencyKeyReusedException ex) {
+        return new ResponseEntity<>(new ErrorResponse(ex.getMessage(),
+                HttpStatus.UNPROCESSABLE_ENTITY.value()),HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+    @ExceptionHandler(TransactionNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleTransactionNotFound(TransactionNotFoundException ex) {
+        return new ResponseEntity<>(new ErrorResponse(ex.getMessage(),
+                HttpStatus.NOT_FOUND.value()),HttpStatus.NOT_FOUND);
+    }
+    @ExceptionHandler(AuditInProgressException.class)
+    public ResponseEntity<ErrorResponse> handleAuditInProgress(AuditInProgressException ex) {
+        return new ResponseEntity<>(new ErrorResponse(ex.getMessage(),
+                HttpStatus.CONFLICT.value()),HttpStatus.CONFLICT);
+    }
     @ExceptionHandler(NoResourceFoundException.class)
     public ResponseEntity<ErrorResponse> handleNotFound(Exception ex) {
         return new ResponseEntity<>(new ErrorResponse( ErrorMessages.NOT_FOUND.getMessage(),
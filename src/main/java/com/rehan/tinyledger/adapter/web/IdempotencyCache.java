@@ -0,0 +1,130 @@
+package com.rehan.tinyledger.adapter.web;
+
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the transaction recorded for each (account, Idempotency-Key) so a retried POST gets the
+ * original result instead of posting twice. A duplicate that arrives while the first request is still
+ * running waits for it rather than executing. Entries expire after the TTL and the oldest completed ones
+ * are evicted beyond maxEntries; since every entry shares one TTL, insertion order is also expiry order,
+ * so eviction is a walk from the head of a queue that sends entries still in flight to the back. Failures are not remembered, so a failed request can be retried.
+ */
+@Component
+public class IdempotencyCache {
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    public IdempotencyCache(IdempotencyProperties properties) {
+        this.maxEntries = properties.maxEntries();
+        this.ttlNanos = properties.ttl().toNanos();
+    }
+
+    public Outcome execute(String accountId, String idempotencyKey, TransactionRequest request,
+                           Supplier<Transaction> action) {
+        Key key = new Key(accountId, idempotencyKey);
+        while (true) {
+            Entry fresh = new Entry(key, request, System.nanoTime());
+            Entry existing = entries.putIfAbsent(key, fresh);
+            if (existing == null || (existing.expired(fresh.created, ttlNanos) && entries.replace(key, existing, fresh))) {
+                insertionOrder.add(fresh);
+                queued.incrementAndGet();
+                evict(fresh.created);
+                return run(fresh, action);
+            }
+            if (existing.expired(fresh.created, ttlNanos)) {
+                continue;
+            }
+            if (!sameRequest(existing.request, request)) {
+                throw new IdempotencyKeyReusedException(idempotencyKey);
+            }
+            try {
+                return new Outcome(existing.result.join(), true);
+            } catch (CompletionException ex) {
+                throw ex.getCause() instanceof RuntimeException runtime ? runtime : ex;
+            }
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    // Amounts are compared by value, so a retry that writes 10.0 where the original wrote 10.00 is the same request.
+    private static boolean sameRequest(TransactionRequest original, TransactionRequest retry) {
+        return original.type() == retry.type()
+                && Objects.equals(original.description(), retry.description())
+                && (original.amount() == null ? retry.amount() == null
+                : retry.amount() != null && original.amount().compareTo(retry.amount()) == 0);
+    }
+
+    private Outcome run(Entry entry, Supplier<Transaction> action) {
+        try {
+            Transaction transaction = action.get();
+            entry.result.complete(transaction);
+            return new Outcome(transaction, false);
+        } catch (RuntimeException ex) {
+            entries.remove(entry.key, entry);
+            entry.result.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    // Requests still in flight are never evicted, so the cap can be exceeded by at most the number of them.
+    // One in flight at the head goes to the back of the queue rather than holding up the completed entries
+    // behind it, and a call looks at no more entries than are queued, so it ends even if all are in flight.
+    private void evict(long now) {
+        for (int budget = queued.get(); budget > 0; budget--) {
+            Entry oldest = insertionOrder.peek();
+            if (oldest == null || (queued.get() <= maxEntries && !oldest.expired(now, ttlNanos))) {
+                return;
+            }
+            if (!insertionOrder.remove(oldest)) {
+                continue;
+            }
+            if (oldest.result.isDone()) {
+                queued.decrementAndGet();
+                entries.remove(oldest.key, oldest);
+            } else {
+                insertionOrder.add(oldest);
+            }
+        }
+    }
+
+    public record Outcome(Transaction transaction, boolean replayed) {
+    }
+
+    private record Key(String accountId, String idempotencyKey) {
+    }
+
+    private static final class Entry {
+        private final Key key;
+        private final TransactionRequest request;
+        private final long created;
+        private final CompletableFuture<Transaction> result = new CompletableFuture<>();
+
+        private Entry(Key key, TransactionRequest request, long created) {
+            this.key = key;
+            this.request = request;
+            this.created = created;
+        }
+
+        private boolean expired(long now, long ttlNanos) {
+            return result.isDone() && now - created >= ttlNanos;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.rehan.tinyledger.adapter.web;
+
+// The Idempotency-Key was already used for a different request body.
+public class IdempotencyKeyReusedException extends RuntimeException {
+    public IdempotencyKeyReusedException(String key) {
+        super("The Idempotency-Key " + key + " was already used for a different request");
+    }
+}
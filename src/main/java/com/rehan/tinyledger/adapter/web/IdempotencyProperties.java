@@ -0,0 +1,13 @@
+package com.rehan.tinyledger.adapter.web;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "tinyledger.idempotency")
+public record IdempotencyProperties(
+        @DefaultValue("100000") int maxEntries,
+        @DefaultValue("24h") Duration ttl
+) {
+}
@@ -2,38 +2,244 @@ package com.rehan.tinyledger.adapter.web;
 
 
 import com.rehan.tinyledger.core.domain.BalanceResponse;
+import com.rehan.tinyledger.core.domain.BatchRequest;
+import com.rehan.tinyledger.core.domain.BatchResult;
+import com.rehan.tinyledger.core.domain.ChainProof;
+import com.rehan.tinyledger.core.domain.Checkpoint;
+import com.rehan.tinyledger.core.domain.Granularity;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.PeriodSummary;
+import com.rehan.tinyledger.core.domain.SummaryQuery;
 import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionFilter;
+import com.rehan.tinyledger.core.domain.TransactionQuery;
 import com.rehan.tinyledger.core.domain.TransactionRequest;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import com.rehan.tinyledger.core.domain.Transfer;
+import com.rehan.tinyledger.core.domain.TransferRequest;
 import com.rehan.tinyledger.core.service.LedgerService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/ledger")
 public class LedgerController {
+    static final String DEFAULT_ACCOUNT = "default";
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+    static final String LAST_EVENT_ID = "Last-Event-ID";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
     private final LedgerService ledgerService;
+    private final IdempotencyCache idempotencyCache;
+    private final TransactionStreams transactionStreams;
+    private final ReadCache readCache;
+    private final ObjectWriter exportWriter;
 
-    public LedgerController(LedgerService ledgerService) {
+    public LedgerController(LedgerService ledgerService, IdempotencyCache idempotencyCache,
+                            TransactionStreams transactionStreams, ReadCache readCache, ObjectMapper objectMapper) {
         this.ledgerService = ledgerService;
+        this.idempotencyCache = idempotencyCache;
+        this.transactionStreams = transactionStreams;
+        this.readCache = readCache;
+        this.exportWriter = objectMapper.writerFor(Transaction.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @PostMapping({"/transactions", "/accounts/{accountId}/transactions"})
+    public ResponseEntity<Transaction> recordTransaction(@PathVariable(required = false) String accountId,
+                                                         @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                         @Valid @RequestBody TransactionRequest request) {
+        String account = account(accountId);
+        if (idempotencyKey == null) {
+            return new ResponseEntity<>(ledgerService.recordTransaction(account, request), HttpStatus.CREATED);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new IllegalArgumentException("The Idempotency-Key must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
+        IdempotencyCache.Outcome outcome = idempotencyCache.execute(account, idempotencyKey, request,
+                () -> ledgerService.recordTransaction(account, request));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header(IDEMPOTENT_REPLAYED, String.valueOf(outcome.replayed()))
+                .body(outcome.transaction());
+    }
+
+    // 201 when every item was committed, 200 when a best-effort batch rejected some of them.
+    @PostMapping({"/transactions/batch", "/accounts/{accountId}/transactions/batch"})
+    public ResponseEntity<BatchResult> recordTransactions(@PathVariable(required = false) String accountId,
+                                                          @Valid @RequestBody BatchRequest request) {
+        BatchResult result = ledgerService.recordTransactions(account(accountId), request);
+        return new ResponseEntity<>(result, result.rejected() == 0 ? HttpStatus.CREATED : HttpStatus.OK);
+    }
+
+    // Moves money from the path's account to `toAccountId`; the response holds both linked legs.
+    @PostMapping({"/transfers", "/accounts/{accountId}/transfers"})
+    public ResponseEntity<Transfer> transfer(@PathVariable(required = false) String accountId,
+                                             @Valid @RequestBody TransferRequest request) {
+        return new ResponseEntity<>(ledgerService.transfer(account(accountId), request), HttpStatus.CREATED);
+    }
+
+    // With `asOf`, the balance after every transaction stamped at or before that time.
+    @GetMapping({"/balance", "/accounts/{accountId}/balance"})
+    public ResponseEntity<BalanceResponse> getBalance(
+            @PathVariable(required = false) String accountId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf) {
+        Money balance = asOf == null
+                ? ledgerService.getBalance(account(accountId))
+                : ledgerService.getBalanceAsOf(account(accountId), asOf);
+        return ResponseEntity.ok(new BalanceResponse(balance.toBigDecimal()));
+    }
+
+    @GetMapping({"/summary", "/accounts/{accountId}/summary"})
+    public ResponseEntity<List<PeriodSummary>> getSummary(
+            @PathVariable(required = false) String accountId,
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(defaultValue = "" + SummaryQuery.DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        SummaryQuery query = new SummaryQuery(granularity(granularity), from, to, limit);
+        return ResponseEntity.ok(ledgerService.getSummary(account(accountId), query));
+    }
+
+    // `type`, `minAmount`/`maxAmount` (inclusive) and `description` words narrow the page to matching transactions.
+    @GetMapping({"/transactions", "/accounts/{accountId}/transactions"})
+    public ResponseEntity<List<Transaction>> getTransactionHistory(
+            @PathVariable(required = false) String accountId,
+            @RequestParam(defaultValue = "" + TransactionQuery.DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) UUID before,
+            @RequestParam(required = false) UUID after,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(required = false) String description) {
+        TransactionFilter filter = TransactionFilter.of(type == null ? null : type(type),
+                amount(minAmount), amount(maxAmount), description);
+        TransactionQuery query = new TransactionQuery(before, after, from, to, limit, filter);
+        return ResponseEntity.ok(ledgerService.getTransactionHistory(account(accountId), query));
+    }
+
+    // The plain latest page and current balance are what dashboards poll, so their JSON comes from the read
+    // cache. A cursor, time range, filter or as-of time, or a client that does not accept JSON, falls through
+    // to the handlers above.
+    @GetMapping(value = {"/transactions", "/accounts/{accountId}/transactions"}, produces = MediaType.APPLICATION_JSON_VALUE,
+            params = {"!before", "!after", "!from", "!to", "!type", "!minAmount", "!maxAmount", "!description"})
+    public ResponseEntity<byte[]> getLatestTransactions(
+            @PathVariable(required = false) String accountId,
+            @RequestParam(defaultValue = "" + TransactionQuery.DEFAULT_LIMIT) int limit) {
+        String account = account(accountId);
+        TransactionQuery query = TransactionQuery.latest(limit);
+        return ResponseEntity.ok(readCache.latestPage(account, limit, () -> ledgerService.getTransactionHistory(account, query)));
+    }
+
+    @GetMapping(value = {"/balance", "/accounts/{accountId}/balance"}, produces = MediaType.APPLICATION_JSON_VALUE,
+            params = "!asOf")
+    public ResponseEntity<byte[]> getCurrentBalance(@PathVariable(required = false) String accountId) {
+        String account = account(accountId);
+        return ResponseEntity.ok(readCache.balance(account, ledgerService.getBalance(account)));
+    }
+
+    @GetMapping(value = {"/transactions/export", "/accounts/{accountId}/transactions/export"},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportTransactionHistory(@PathVariable(required = false) String accountId) {
+        String account = account(accountId);
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<Transaction> transactions = ledgerService.streamTransactionHistory(account);
+                 JsonGenerator generator = exportWriter.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                Iterator<Transaction> iterator = transactions.iterator();
+                boolean first = true;
+                while (iterator.hasNext()) {
+                    exportWriter.writeValue(generator, iterator.next());
+                    generator.writeRaw('\n');
+                    // Push the first record out straight away, after that the buffers decide.
+                    if (first) {
+                        generator.flush();
+                        first = false;
+                    }
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // Complete checkpoints of the account's hash chain; recorded roots are what later proofs are checked against.
+    @GetMapping({"/checkpoints", "/accounts/{accountId}/checkpoints"})
+    public ResponseEntity<List<Checkpoint>> getCheckpoints(@PathVariable(required = false) String accountId) {
+        return ResponseEntity.ok(ledgerService.getCheckpoints(account(accountId)));
+    }
+
+    // Entries `from` to `to` (1-based sequences, `to` defaulting to `from`) with their chain and Merkle proof.
+    @GetMapping({"/proof", "/accounts/{accountId}/proof"})
+    public ResponseEntity<ChainProof> getProof(@PathVariable(required = false) String accountId,
+                                               @RequestParam long from,
+                                               @RequestParam(required = false) Long to) {
+        return ResponseEntity.ok(ledgerService.getProof(account(accountId), from, to == null ? from : to));
+    }
+
+    @GetMapping({"/transactions/{transactionId}/proof", "/accounts/{accountId}/transactions/{transactionId}/proof"})
+    public ResponseEntity<ChainProof> getTransactionProof(@PathVariable(required = false) String accountId,
+                                                          @PathVariable UUID transactionId) {
+        return ResponseEntity.ok(ledgerService.getProof(account(accountId), transactionId));
+    }
+
+    // Transactions as they are committed, resuming after Last-Event-ID when the client sends one.
+    @GetMapping(value = {"/transactions/stream", "/accounts/{accountId}/transactions/stream"},
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTransactions(@PathVariable(required = false) String accountId,
+                                         @RequestHeader(name = LAST_EVENT_ID, required = false) String lastEventId) {
+        return transactionStreams.open(account(accountId), lastEventId);
+    }
+
+    private static Granularity granularity(String value) {
+        try {
+            return Granularity.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("The granularity must be one of minute, hour or day");
+        }
     }
 
-    @PostMapping("/transactions")
-    public ResponseEntity<Transaction> recordTransaction(@Valid @RequestBody TransactionRequest request) {
-        Transaction transaction = ledgerService.recordTransaction(request);
-        return new ResponseEntity<>(transaction, HttpStatus.CREATED);
+    private static TransactionType type(String value) {
+        try {
+            return TransactionType.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("The type must be one of deposit, withdrawal, transfer_out or transfer_in");
+        }
     }
 
-    @GetMapping("/balance")
-    public ResponseEntity<BalanceResponse> getBalance() {
-        return ResponseEntity.ok(new BalanceResponse(ledgerService.getBalance()));
+    private static Money amount(BigDecimal value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Money.of(value);
+        } catch (ArithmeticException ex) {
+            throw new IllegalArgumentException("Amount filters must have at most " + Money.SCALE + " decimals");
+        }
     }
 
-    @GetMapping("/transactions")
-    public ResponseEntity<List<Transaction>> getTransactionHistory() {
-        return ResponseEntity.ok(ledgerService.getTransactionHistory());
+    // The un-prefixed endpoints predate accounts and keep working against a single default account.
+    private static String account(String accountId) {
+        return accountId == null ? DEFAULT_ACCOUNT : accountId;
     }
 }
@@ -0,0 +1,172 @@
+package com.rehan.tinyledger.adapter.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.rehan.tinyledger.core.domain.BalanceResponse;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.service.TransactionFeed;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Pre-serialized JSON for the reads dashboards repeat: the latest page of an account's history and its
+ * balance. A page is tagged with the account's feed generation, read before the page is loaded, and is
+ * served while the generation stays put; a balance is served while the balance is unchanged. A hit is a
+ * map lookup and a comparison, and a body older than the last acknowledged write is never served.
+ * Entries are bounded by count and bytes and evicted oldest first, except that one read since it was last
+ * looked at goes to the back of the queue once more (second chance).
+ */
+@Component
+public class ReadCache implements MeterBinder {
+    // Page limits start at 1, so this never clashes with a page.
+    private static final int BALANCE = 0;
+    // Rough footprint of the key, entry and queue slot, on top of the body.
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    // Guards the queue and its byte count. A lock rather than a monitor, so a virtual thread that has to wait
+    // for it gives up its carrier. Superseded entries stay queued until they reach the head, and count until then.
+    private final ReentrantLock queueLock = new ReentrantLock();
+    private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+    private long bytes;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final TransactionFeed feed;
+    private final ObjectWriter pageWriter;
+    private final ObjectWriter balanceWriter;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ReadCache(ReadCacheProperties properties, TransactionFeed feed, ObjectMapper objectMapper) {
+        this.maxEntries = properties.maxEntries();
+        this.maxBytes = properties.maxSize().toBytes();
+        this.feed = feed;
+        this.pageWriter = objectMapper.writerFor(new TypeReference<List<Transaction>>() {
+        });
+        this.balanceWriter = objectMapper.writerFor(BalanceResponse.class);
+    }
+
+    public byte[] latestPage(String accountId, int limit, Supplier<List<Transaction>> loader) {
+        long generation = feed.generation(accountId);
+        Key key = new Key(accountId, limit);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.version == generation) {
+            return hit(entry);
+        }
+        misses.increment();
+        return admit(key, generation, write(pageWriter, loader.get()));
+    }
+
+    public byte[] balance(String accountId, Money balance) {
+        Key key = new Key(accountId, BALANCE);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.version == balance.minorUnits()) {
+            return hit(entry);
+        }
+        misses.increment();
+        return admit(key, balance.minorUnits(), write(balanceWriter, new BalanceResponse(balance.toBigDecimal())));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("ledger.read.cache.requests", hits, LongAdder::sum)
+                .description("Reads answered by the read cache")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("ledger.read.cache.requests", misses, LongAdder::sum)
+                .description("Reads answered by the read cache")
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("ledger.read.cache.size", this, ReadCache::size)
+                .description("Bytes held by the read cache")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    long size() {
+        queueLock.lock();
+        try {
+            return bytes;
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private byte[] hit(Entry entry) {
+        hits.increment();
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry.body;
+    }
+
+    private byte[] admit(Key key, long version, byte[] body) {
+        if (maxEntries == 0) {
+            return body;
+        }
+        Entry entry = new Entry(key, version, body);
+        entries.put(key, entry);
+        queueLock.lock();
+        try {
+            queue.addLast(entry);
+            bytes += entry.size();
+            while (queue.size() > maxEntries || bytes > maxBytes) {
+                Entry oldest = queue.pollFirst();
+                if (oldest.referenced && entries.get(oldest.key) == oldest) {
+                    oldest.referenced = false;
+                    queue.addLast(oldest);
+                } else {
+                    bytes -= oldest.size();
+                    entries.remove(oldest.key, oldest);
+                }
+            }
+        } finally {
+            queueLock.unlock();
+        }
+        return body;
+    }
+
+    private static byte[] write(ObjectWriter writer, Object value) {
+        try {
+            return writer.writeValueAsBytes(value);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private record Key(String accountId, int limit) {
+    }
+
+    private static final class Entry {
+        private final Key key;
+        // The generation a page was loaded at, or the balance itself.
+        private final long version;
+        private final byte[] body;
+        private volatile boolean referenced;
+
+        private Entry(Key key, long version, byte[] body) {
+            this.key = key;
+            this.version = version;
+            this.body = body;
+        }
+
+        private long size() {
+            return body.length + ENTRY_OVERHEAD;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.rehan.tinyledger.adapter.web;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+// A max-entries of 0 turns the cache off.
+@ConfigurationProperties(prefix = "tinyledger.read-cache")
+public record ReadCacheProperties(
+        @DefaultValue("10000") int maxEntries,
+        @DefaultValue("32MB") DataSize maxSize
+) {
+    public ReadCacheProperties {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("The read cache max entries must not be negative, was " + maxEntries);
+        }
+        if (maxSize.isNegative()) {
+            throw new IllegalArgumentException("The read cache max size must not be negative, was " + maxSize);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.rehan.tinyledger.adapter.web;
+
+import com.rehan.tinyledger.core.service.FeedProperties;
+import com.rehan.tinyledger.core.service.TransactionFeed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+// Server-sent event streams over the transaction feed. Each stream gets a virtual thread that drains its own
+// feed subscription and does the blocking writes, so a slow client only ever holds up itself. Event ids are
+// feed ids; a quiet account's heartbeats carry the current position too, so a reconnect with
+// Last-Event-ID resumes right where the stream stopped.
+@Component
+public class TransactionStreams {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionStreams.class);
+
+    private final TransactionFeed feed;
+    private final long heartbeatNanos;
+
+    public TransactionStreams(TransactionFeed feed, FeedProperties properties) {
+        this.feed = feed;
+        this.heartbeatNanos = properties.heartbeatInterval().toNanos();
+    }
+
+    public SseEmitter open(String accountId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter();
+        TransactionFeed.Subscription subscription = feed.subscribe(accountId, lastEventId);
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(error -> subscription.close());
+        Thread.ofVirtual().name("transaction-stream-" + accountId).start(() -> pump(accountId, subscription, emitter));
+        return emitter;
+    }
+
+    private void pump(String accountId, TransactionFeed.Subscription subscription, SseEmitter emitter) {
+        try (subscription) {
+            while (true) {
+                TransactionFeed.Event event = subscription.poll(heartbeatNanos);
+                if (event == null) {
+                    emitter.send(SseEmitter.event().id(feed.id(subscription.position() - 1)).comment("heartbeat"));
+                } else {
+                    emitter.send(SseEmitter.event()
+                            .id(feed.id(event.sequence()))
+                            .name("transaction")
+                            .data(event.transaction(), MediaType.APPLICATION_JSON));
+                }
+            }
+        } catch (TransactionFeed.LaggedException ex) {
+            // Dropped rather than left to fall further behind; the id makes a reconnect start at the oldest
+            // transaction still held, and the data says how many were missed.
+            try {
+                emitter.send(SseEmitter.event().id(feed.id(ex.resumeAfter())).name("lagged").data(ex.missed()));
+                emitter.complete();
+            } catch (IOException | IllegalStateException closed) {
+                logger.debug("Could not tell a lagging subscriber of {} that it was dropped", accountId);
+            }
+        } catch (IOException | IllegalStateException ex) {
+            // The client went away or the emitter completed; nothing left to send to.
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            emitter.complete();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.rehan.tinyledger.adapter.web;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+
+    // Appended rather than registered as a bean, which Boot would put ahead of Jackson: with `Accept: */*`
+    // the first converter that can write a body wins, and that has to stay JSON.
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new BinaryMessageConverter());
+    }
+}
@@ -0,0 +1,13 @@
+package com.rehan.tinyledger.core.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.UUID;
+
+// One thing the audit found wrong. `transactionId` is null for problems with the account as a whole.
+public record AuditFinding(
+        String accountId,
+        @JsonInclude(JsonInclude.Include.NON_NULL) UUID transactionId,
+        String problem
+) {
+}
@@ -0,0 +1,18 @@
+package com.rehan.tinyledger.core.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+// `findings` holds the first few of `findingCount`; `checksums` is only there when they were asked for.
+public record AuditReport(
+        int accounts,
+        long transactions,
+        int segments,
+        boolean consistent,
+        long findingCount,
+        List<AuditFinding> findings,
+        @JsonInclude(JsonInclude.Include.NON_NULL) List<SegmentChecksum> checksums,
+        long elapsedMillis
+) {
+}
@@ -0,0 +1,16 @@
+package com.rehan.tinyledger.core.domain;
+
+public record BatchItemResult(int index, Status status, Transaction transaction, String error) {
+    public enum Status {
+        COMMITTED,
+        REJECTED
+    }
+
+    public static BatchItemResult committed(int index, Transaction transaction) {
+        return new BatchItemResult(index, Status.COMMITTED, transaction, null);
+    }
+
+    public static BatchItemResult rejected(int index, String error) {
+        return new BatchItemResult(index, Status.REJECTED, null, error);
+    }
+}
@@ -0,0 +1,8 @@
+package com.rehan.tinyledger.core.domain;
+
+public enum BatchMode {
+    // The whole batch commits or none of it does.
+    ATOMIC,
+    // Every item is committed or rejected on its own.
+    BEST_EFFORT
+}
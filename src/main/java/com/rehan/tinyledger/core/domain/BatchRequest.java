@@ -0,0 +1,20 @@
+package com.rehan.tinyledger.core.domain;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+// Items are validated one by one by the service, so a best-effort batch can reject single items.
+public record BatchRequest(
+        BatchMode mode,
+        @NotEmpty @Size(max = BatchRequest.MAX_SIZE) List<TransactionRequest> transactions
+) {
+    public static final int MAX_SIZE = 10_000;
+
+    public BatchRequest {
+        if (mode == null) {
+            mode = BatchMode.ATOMIC;
+        }
+    }
+}
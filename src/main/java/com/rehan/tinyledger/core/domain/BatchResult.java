@@ -0,0 +1,6 @@
+package com.rehan.tinyledger.core.domain;
+
+import java.util.List;
+
+public record BatchResult(BatchMode mode, int committed, int rejected, List<BatchItemResult> results) {
+}
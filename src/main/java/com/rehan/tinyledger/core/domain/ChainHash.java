@@ -0,0 +1,93 @@
+package com.rehan.tinyledger.core.domain;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZoneOffset;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * SHA-256 hashes that chain each account's history and build its Merkle checkpoints. Entry number
+ * {@code sequence} (1-based) hashes the previous entry's hash together with the sequence and every field
+ * of the entry, so changing, dropping or reordering any entry changes every hash after it. Timestamps
+ * are hashed in microseconds, the precision every store keeps. A Merkle node hashes a marker byte and
+ * its two children; leaves are the entry hashes themselves, and the marker keeps a node from passing for
+ * an entry.
+ */
+public final class ChainHash {
+    public static final int LENGTH = 32;
+    private static final HexFormat HEX = HexFormat.of();
+    private static final byte[] GENESIS = new byte[LENGTH];
+    private static final byte NODE = 1;
+    private static final int FIXED_BYTES = Long.BYTES * 7 + Integer.BYTES * 3;
+
+    private ChainHash() {
+    }
+
+    public static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    // What the first entry of every account chains to.
+    public static byte[] genesis() {
+        return GENESIS.clone();
+    }
+
+    // Digests are not thread-safe; callers hand in one they own.
+    public static byte[] entry(MessageDigest digest, byte[] previous, long sequence, Transaction transaction) {
+        UUID id = transaction.id();
+        UUID linkedId = transaction.linkedId();
+        byte[] accountId = transaction.accountId().getBytes(StandardCharsets.UTF_8);
+        byte[] description = transaction.description() == null
+                ? null : transaction.description().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer fixed = ByteBuffer.allocate(FIXED_BYTES)
+                .putLong(sequence)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .putInt(transaction.type().ordinal())
+                .putLong(transaction.amount().minorUnits())
+                .putLong(micros(transaction))
+                .putLong(linkedId == null ? 0 : linkedId.getMostSignificantBits())
+                .putLong(linkedId == null ? 0 : linkedId.getLeastSignificantBits())
+                .putInt(accountId.length)
+                .putInt(description == null ? -1 : description.length);
+        digest.update(previous);
+        digest.update(fixed.array());
+        digest.update(accountId);
+        if (description != null) {
+            digest.update(description);
+        }
+        return digest.digest();
+    }
+
+    public static byte[] node(MessageDigest digest, byte[] left, byte[] right) {
+        digest.update(NODE);
+        digest.update(left);
+        digest.update(right);
+        return digest.digest();
+    }
+
+    public static String hex(byte[] hash) {
+        return HEX.formatHex(hash);
+    }
+
+    // Throws IllegalArgumentException for anything but a hash in hex.
+    public static byte[] parse(String hash) {
+        byte[] parsed = HEX.parseHex(hash);
+        if (parsed.length != LENGTH) {
+            throw new IllegalArgumentException("A hash has " + LENGTH + " bytes, was " + parsed.length);
+        }
+        return parsed;
+    }
+
+    private static long micros(Transaction transaction) {
+        return Math.addExact(Math.multiplyExact(transaction.timestamp().toEpochSecond(ZoneOffset.UTC), 1_000_000L),
+                transaction.timestamp().getNano() / 1_000);
+    }
+}
@@ -0,0 +1,55 @@
+package com.rehan.tinyledger.core.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Evidence that entries `from` to `to` (sequences, both inclusive) of an account are the ones the ledger
+ * hashed: the hash of the entry before them, the hash of the last one and, once its checkpoint is complete,
+ * the sibling hashes from that entry up to the checkpoint's root. Checking it rehashes the entries and
+ * {@code log2} of the checkpoint interval nodes, whatever the size of the ledger. Entries after the last
+ * complete checkpoint come without one and only prove that they chain up.
+ */
+public record ChainProof(
+        String accountId,
+        long from,
+        long to,
+        List<Transaction> entries,
+        String previousHash,
+        String hash,
+        @JsonInclude(JsonInclude.Include.NON_NULL) Checkpoint checkpoint,
+        List<String> path
+) {
+    // True if the entries chain from the previous hash to the hash, and the hash is the checkpoint's leaf
+    // at its position. Callers compare the checkpoint's root with one they recorded earlier.
+    public boolean verify() {
+        if (entries.size() != to - from + 1) {
+            return false;
+        }
+        MessageDigest digest = ChainHash.digest();
+        byte[] current = ChainHash.parse(previousHash);
+        for (int i = 0; i < entries.size(); i++) {
+            current = ChainHash.entry(digest, current, from + i, entries.get(i));
+        }
+        if (!Arrays.equals(current, ChainHash.parse(hash))) {
+            return false;
+        }
+        if (checkpoint == null) {
+            return path.isEmpty();
+        }
+        if (to < checkpoint.from() || to > checkpoint.to()) {
+            return false;
+        }
+        long position = to - checkpoint.from();
+        for (String sibling : path) {
+            current = (position & 1) == 0
+                    ? ChainHash.node(digest, current, ChainHash.parse(sibling))
+                    : ChainHash.node(digest, ChainHash.parse(sibling), current);
+            position >>>= 1;
+        }
+        return position == 0 && Arrays.equals(current, ChainHash.parse(checkpoint.root()));
+    }
+}
@@ -0,0 +1,11 @@
+package com.rehan.tinyledger.core.domain;
+
+// Merkle root over the entry hashes of one account's entries `from` to `to` (sequences, both inclusive).
+// The last of them chains to everything before, so a recorded root pins the account's history up to `to`.
+public record Checkpoint(
+        int index,
+        long from,
+        long to,
+        String root
+) {
+}
@@ -0,0 +1,26 @@
+package com.rehan.tinyledger.core.domain;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+// Period length of the balance rollups.
+public enum Granularity {
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    Granularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public ChronoUnit unit() {
+        return unit;
+    }
+
+    // Start of the period holding the timestamp.
+    public LocalDateTime truncate(LocalDateTime timestamp) {
+        return timestamp.truncatedTo(unit);
+    }
+}
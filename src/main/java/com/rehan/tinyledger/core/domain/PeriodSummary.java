@@ -0,0 +1,13 @@
+package com.rehan.tinyledger.core.domain;
+
+import java.time.LocalDateTime;
+
+// Totals of one account over one period starting at `start`, and its balance once the period is over.
+public record PeriodSummary(
+        LocalDateTime start,
+        Money deposits,
+        Money withdrawals,
+        long count,
+        Money closingBalance
+) {
+}
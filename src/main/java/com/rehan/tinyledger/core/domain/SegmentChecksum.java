@@ -0,0 +1,10 @@
+package com.rehan.tinyledger.core.domain;
+
+// CRC32C of the entries of one account from offset `from` up to, not including, `to`, in hex.
+public record SegmentChecksum(
+        String accountId,
+        int from,
+        int to,
+        String crc32c
+) {
+}
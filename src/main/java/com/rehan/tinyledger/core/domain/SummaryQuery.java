@@ -0,0 +1,23 @@
+package com.rehan.tinyledger.core.domain;
+
+import java.time.LocalDateTime;
+
+// Periods of one granularity that overlap [from, to), newest first. Periods without transactions are left out.
+public record SummaryQuery(
+        Granularity granularity,
+        LocalDateTime from,
+        LocalDateTime to,
+        int limit
+) {
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    public SummaryQuery {
+        if (granularity == null)
+            throw new IllegalArgumentException("A granularity is required");
+        if (limit <= 0 || limit > MAX_LIMIT)
+            throw new IllegalArgumentException("The limit must be between 1 and " + MAX_LIMIT);
+        if (from != null && to != null && from.isAfter(to))
+            throw new IllegalArgumentException("The 'from' timestamp must not be after 'to'");
+    }
+}
@@ -1,26 +1,59 @@
 package com.rehan.tinyledger.core.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+// `linkedId` is the id of the other leg of a transfer, and null for every other entry.
 public record Transaction(
         @JsonProperty("id") UUID id,
+        @JsonProperty("accountId") String accountId,
         @JsonProperty("type") TransactionType type,
-        @JsonProperty("amount") BigDecimal amount,
+        @JsonProperty("amount") Money amount,
         @JsonProperty("description") String description,
-        @JsonProperty("timestamp") LocalDateTime timestamp
+        @JsonProperty("timestamp") LocalDateTime timestamp,
+        @JsonProperty("linkedId") @JsonInclude(JsonInclude.Include.NON_NULL) UUID linkedId
 ) {
-    public static Transaction create(TransactionType type, BigDecimal amount, String description) {
+    public Transaction {
+        if (type != null && type.isTransfer() != (linkedId != null))
+            throw new IllegalArgumentException("Transfer legs, and only they, are linked to another entry");
+    }
+
+    public Transaction(UUID id, String accountId, TransactionType type, Money amount, String description,
+                       LocalDateTime timestamp) {
+        this(id, accountId, type, amount, description, timestamp, null);
+    }
+
+    // What the transaction does to the balance, in minor units.
+    public long signedMinorUnits() {
+        return type.signed(amount.minorUnits());
+    }
+
+    // The same entry at another time, for stores that keep each account's history in time order.
+    public Transaction at(LocalDateTime timestamp) {
+        return new Transaction(id, accountId, type, amount, description, timestamp, linkedId);
+    }
+
+    public static Transaction create(String accountId, TransactionType type, Money amount, String description) {
         return new Transaction(
                 UUID.randomUUID(),
+                accountId,
                 type,
-                amount.setScale(2, RoundingMode.UNNECESSARY),
+                amount,
                 description,
                 LocalDateTime.now()
         );
     }
+
+    // Both legs of a transfer, with one timestamp and linked to each other.
+    public static Transfer transfer(String fromAccountId, String toAccountId, Money amount, String description) {
+        UUID debitId = UUID.randomUUID();
+        UUID creditId = UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now();
+        return new Transfer(
+                new Transaction(debitId, fromAccountId, TransactionType.TRANSFER_OUT, amount, description, now, creditId),
+                new Transaction(creditId, toAccountId, TransactionType.TRANSFER_IN, amount, description, now, debitId));
+    }
 }
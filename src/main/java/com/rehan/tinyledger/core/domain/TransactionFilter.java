@@ -0,0 +1,65 @@
+package com.rehan.tinyledger.core.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Narrows a history query to one type, an inclusive amount range and words of the description; a transaction
+// has to match all of the ones that are set. Words are matched whole and ignoring case.
+public record TransactionFilter(
+        TransactionType type,
+        Money minAmount,
+        Money maxAmount,
+        List<String> words
+) {
+    public static final TransactionFilter NONE = new TransactionFilter(null, null, null, List.of());
+
+    public TransactionFilter {
+        words = words == null ? List.of() : List.copyOf(words);
+        if (minAmount != null && maxAmount != null && minAmount.compareTo(maxAmount) > 0)
+            throw new IllegalArgumentException("The minimum amount must not be above the maximum");
+    }
+
+    // `description` is split into words the same way stored descriptions are.
+    public static TransactionFilter of(TransactionType type, Money minAmount, Money maxAmount, String description) {
+        List<String> words = words(description);
+        if (description != null && words.isEmpty())
+            throw new IllegalArgumentException("The description filter must contain a letter or digit");
+        return new TransactionFilter(type, minAmount, maxAmount, words);
+    }
+
+    public boolean isEmpty() {
+        return type == null && minAmount == null && maxAmount == null && words.isEmpty();
+    }
+
+    public boolean matches(Transaction transaction) {
+        if (type != null && transaction.type() != type)
+            return false;
+        if (minAmount != null && transaction.amount().compareTo(minAmount) < 0)
+            return false;
+        if (maxAmount != null && transaction.amount().compareTo(maxAmount) > 0)
+            return false;
+        return words.isEmpty() || words(transaction.description()).containsAll(words);
+    }
+
+    // The distinct lower-cased runs of letters and digits, in order of first appearance.
+    public static List<String> words(String text) {
+        if (text == null)
+            return List.of();
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                String word = text.substring(start, i).toLowerCase(Locale.ROOT);
+                if (!words.contains(word)) {
+                    words.add(word);
+                }
+                start = -1;
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,35 @@
+package com.rehan.tinyledger.core.domain;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// A page of history, newest first. `before`/`after` are transaction ids used as keyset cursors,
+// `from` is inclusive and `to` exclusive. With a filter, the page holds only matching transactions.
+public record TransactionQuery(
+        UUID before,
+        UUID after,
+        LocalDateTime from,
+        LocalDateTime to,
+        int limit,
+        TransactionFilter filter
+) {
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    public TransactionQuery {
+        if (limit <= 0 || limit > MAX_LIMIT)
+            throw new IllegalArgumentException("The limit must be between 1 and " + MAX_LIMIT);
+        if (from != null && to != null && from.isAfter(to))
+            throw new IllegalArgumentException("The 'from' timestamp must not be after 'to'");
+        if (filter == null)
+            filter = TransactionFilter.NONE;
+    }
+
+    public TransactionQuery(UUID before, UUID after, LocalDateTime from, LocalDateTime to, int limit) {
+        this(before, after, from, to, limit, TransactionFilter.NONE);
+    }
+
+    public static TransactionQuery latest(int limit) {
+        return new TransactionQuery(null, null, null, null, limit);
+    }
+}
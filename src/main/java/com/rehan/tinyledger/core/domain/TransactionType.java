@@ -1,5 +1,24 @@
 package com.rehan.tinyledger.core.domain;
 
 public enum TransactionType {
-    DEPOSIT, WITHDRAWAL
+    DEPOSIT(1),
+    WITHDRAWAL(-1),
+    // The two legs of a transfer between accounts, recorded together and linked to each other.
+    TRANSFER_OUT(-1),
+    TRANSFER_IN(1);
+
+    private final int sign;
+
+    TransactionType(int sign) {
+        this.sign = sign;
+    }
+
+    // What an entry of this type and amount does to the balance.
+    public long signed(long minorUnits) {
+        return sign * minorUnits;
+    }
+
+    public boolean isTransfer() {
+        return this == TRANSFER_OUT || this == TRANSFER_IN;
+    }
 }
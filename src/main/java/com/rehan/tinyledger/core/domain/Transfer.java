@@ -0,0 +1,11 @@
+package com.rehan.tinyledger.core.domain;
+
+import java.util.List;
+
+// The two legs of one transfer: the debit on the source account and the credit on the target.
+public record Transfer(Transaction debit, Transaction credit) {
+
+    public List<Transaction> legs() {
+        return List.of(debit, credit);
+    }
+}
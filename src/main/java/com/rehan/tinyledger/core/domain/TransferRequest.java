@@ -0,0 +1,14 @@
+package com.rehan.tinyledger.core.domain;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+import java.math.BigDecimal;
+
+public record TransferRequest(
+        @NotBlank String toAccountId,
+        @NotNull @Positive BigDecimal amount,
+        String description
+) {
+}
@@ -0,0 +1,7 @@
+package com.rehan.tinyledger.core.domain.exception;
+
+public class AuditInProgressException extends RuntimeException {
+    public AuditInProgressException(String message) {
+        super(message);
+    }
+}
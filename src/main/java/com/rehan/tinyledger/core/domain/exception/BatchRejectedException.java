@@ -0,0 +1,15 @@
+package com.rehan.tinyledger.core.domain.exception;
+
+// An atomic batch was refused because of one of its items; nothing in the batch was recorded.
+public class BatchRejectedException extends RuntimeException {
+    private final int index;
+
+    public BatchRejectedException(int index, String reason) {
+        super("The batch was rejected. Item " + index + ": " + reason);
+        this.index = index;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+}
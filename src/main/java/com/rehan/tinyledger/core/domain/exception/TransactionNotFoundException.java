@@ -0,0 +1,7 @@
+package com.rehan.tinyledger.core.domain.exception;
+
+public class TransactionNotFoundException extends RuntimeException {
+    public TransactionNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+package com.rehan.tinyledger.core.port;
+
+import com.rehan.tinyledger.core.domain.Transaction;
+
+// One account's history up to a point, with the balance the repository kept for exactly that prefix.
+// Entries below the size never change, so a cut can be read at leisure while writers go on appending.
+public interface AccountCut {
+    String accountId();
+
+    int size();
+
+    // In minor units.
+    long balance();
+
+    // Oldest first, for offsets below the size.
+    Transaction get(int offset);
+
+    // Whether looking the entry's id up resolves to this very entry; false for a duplicated or unindexed id.
+    boolean indexed(int offset);
+}
@@ -1,15 +1,55 @@
 package com.rehan.tinyledger.core.port;
 
+import com.rehan.tinyledger.core.domain.ChainProof;
+import com.rehan.tinyledger.core.domain.Checkpoint;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.PeriodSummary;
+import com.rehan.tinyledger.core.domain.SummaryQuery;
 import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionQuery;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface LedgerRepository {
     Transaction save(Transaction transaction);
 
-    List<Transaction> findAll();
+    // Stores the transactions in order as one bulk write. Stores that can make it all-or-nothing do.
+    default List<Transaction> saveAll(List<Transaction> transactions) {
+        return transactions.stream().map(this::save).toList();
+    }
+
+    // Newest first, in the order transactions were appended.
+    List<Transaction> findAll(String accountId);
+
+    List<Transaction> findPage(String accountId, TransactionQuery query);
+
+    // Oldest first, evaluated lazily so callers can walk the full history without materializing it.
+    Stream<Transaction> streamAll(String accountId);
 
     Optional<Transaction> findById(UUID id);
+
+    // Net of the account's stored history, kept up to date on save so it needs no scan.
+    Money balance(String accountId);
+
+    // Balance after every transaction stamped at or before `asOf`, answered from rollups plus a short tail scan.
+    Money balanceAsOf(String accountId, LocalDateTime asOf);
+
+    List<PeriodSummary> summarize(String accountId, SummaryQuery query);
+
+    // Hash chain over each account's history; sequences are 1-based positions in it. Complete checkpoints,
+    // oldest first.
+    List<Checkpoint> checkpoints(String accountId);
+
+    Optional<ChainProof> proof(UUID id);
+
+    // Throws IllegalArgumentException unless the account has entries `from` to `to` and they fit one proof.
+    ChainProof proof(String accountId, long from, long to);
+
+    // A cut of every account, each consistent on its own, taken without holding writers up for longer than
+    // it takes to read a size and a balance.
+    List<AccountCut> cuts();
 }
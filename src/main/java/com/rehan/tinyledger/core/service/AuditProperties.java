@@ -0,0 +1,28 @@
+package com.rehan.tinyledger.core.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// A parallelism of 0 uses every available processor.
+@ConfigurationProperties(prefix = "tinyledger.audit")
+public record AuditProperties(
+        @DefaultValue("65536") int segmentSize,
+        @DefaultValue("0") int parallelism,
+        @DefaultValue("1000") int maxFindings
+) {
+    public AuditProperties {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("The audit segment size must be positive, was " + segmentSize);
+        }
+        if (parallelism < 0) {
+            throw new IllegalArgumentException("The audit parallelism must not be negative, was " + parallelism);
+        }
+        if (maxFindings < 0) {
+            throw new IllegalArgumentException("The audit max findings must not be negative, was " + maxFindings);
+        }
+    }
+
+    int threads() {
+        return parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+    }
+}
@@ -0,0 +1,110 @@
+package com.rehan.tinyledger.core.service;
+
+import com.rehan.tinyledger.core.domain.BatchRequest;
+import com.rehan.tinyledger.core.domain.BatchResult;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionRequest;
+import com.rehan.tinyledger.core.domain.Transfer;
+import com.rehan.tinyledger.core.domain.TransferRequest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated ring of commands, many producers and one consumer. A producer claims the next sequence
+ * with a single atomic increment, fills the slot and publishes it by storing the sequence in the slot's
+ * marker; the consumer reads slots in sequence order and hands them back by advancing its own cursor.
+ * No locks: a producer that laps the consumer spins, then parks briefly until the slot is free.
+ */
+final class CommandRingBuffer {
+    private final Command[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private volatile long consumed = -1;
+
+    CommandRingBuffer(int size) {
+        this.slots = new Command[size];
+        this.published = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Command();
+            published.set(i, -1);
+        }
+    }
+
+    // Claims the next sequence, waiting while its slot still holds a command the consumer has not released.
+    long claim() {
+        long sequence = claimed.incrementAndGet();
+        for (int spins = 0; sequence - slots.length > consumed; spins++) {
+            if (spins < 100) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(1_000);
+            }
+        }
+        return sequence;
+    }
+
+    Command get(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    void publish(long sequence) {
+        published.set((int) sequence & mask, sequence);
+    }
+
+    boolean isPublished(long sequence) {
+        return published.get((int) sequence & mask) == sequence;
+    }
+
+    // Hands every slot up to and including `sequence` back to the producers.
+    void release(long sequence) {
+        consumed = sequence;
+    }
+
+    // A slot's contents. Written by the producer before publishing, then owned by the consumer until released.
+    static final class Command {
+        String accountId;
+        TransactionRequest request;
+        // The request's amount in minor units, converted by the producer.
+        long amount;
+        BatchRequest batch;
+        CompletableFuture<Transaction> transaction;
+        CompletableFuture<BatchResult> batchResult;
+        TransferRequest transfer;
+        CompletableFuture<Transfer> transferResult;
+        // Consumer bookkeeping: where the command's accepted transactions start in the saved batch.
+        int first;
+        int count;
+        String[] rejections;
+
+        void clear() {
+            accountId = null;
+            request = null;
+            batch = null;
+            transaction = null;
+            batchResult = null;
+            transfer = null;
+            transferResult = null;
+            rejections = null;
+        }
+
+        boolean isDone() {
+            return result().isDone();
+        }
+
+        void fail(Throwable failure) {
+            result().completeExceptionally(failure);
+        }
+
+        private CompletableFuture<?> result() {
+            if (transaction != null) {
+                return transaction;
+            }
+            return transferResult != null ? transferResult : batchResult;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.rehan.tinyledger.core.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "tinyledger.feed")
+public record FeedProperties(
+        @DefaultValue("65536") int bufferSize,
+        @DefaultValue("15s") Duration heartbeatInterval
+) {
+    public FeedProperties {
+        if (bufferSize <= 0 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("The feed buffer size must be a power of two, was " + bufferSize);
+        }
+        if (heartbeatInterval.isNegative() || heartbeatInterval.isZero()) {
+            throw new IllegalArgumentException("The feed heartbeat interval must be positive, was " + heartbeatInterval);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.rehan.tinyledger.core.service;
+
+import com.rehan.tinyledger.core.domain.AuditFinding;
+import com.rehan.tinyledger.core.domain.AuditReport;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.SegmentChecksum;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.exception.AuditInProgressException;
+import com.rehan.tinyledger.core.port.AccountCut;
+import com.rehan.tinyledger.core.port.LedgerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Recomputes every balance from the stored history and checks it against the balance the repository
+ * keeps. The audit works on cuts, so writers go on while it runs and whatever they append after the cut
+ * is left for the next audit. Each account is split into fixed-size segments that a fork-join pool scans
+ * in parallel; a segment sums its entries and checks each on its own (owner, amount, time order, that
+ * its id resolves to it and not to a duplicate, and that a transfer leg has a matching other leg), and
+ * the segment sums of an account are then added up in order and compared with the cut's balance.
+ */
+@Component
+public class LedgerAuditor {
+    private static final Logger logger = LoggerFactory.getLogger(LedgerAuditor.class);
+
+    private final LedgerRepository repository;
+    private final AuditProperties properties;
+    // Starts its workers on the first audit and lets them go again once they idle.
+    private final ForkJoinPool pool;
+    private final ReentrantLock running = new ReentrantLock();
+
+    public LedgerAuditor(LedgerRepository repository, AuditProperties properties) {
+        this.repository = repository;
+        this.properties = properties;
+        this.pool = new ForkJoinPool(properties.threads());
+    }
+
+    // One audit at a time: a second caller is turned away rather than queued behind a full scan of the same data.
+    public AuditReport audit(boolean checksums) {
+        if (!running.tryLock()) {
+            throw new AuditInProgressException("An audit is already running");
+        }
+        try {
+            return run(checksums);
+        } finally {
+            running.unlock();
+        }
+    }
+
+    private AuditReport run(boolean checksums) {
+        long start = System.nanoTime();
+        List<AccountCut> cuts = repository.cuts();
+        List<Segment> segments = new ArrayList<>();
+        long transactions = 0;
+        for (AccountCut cut : cuts) {
+            for (int from = 0; from < cut.size(); from += properties.segmentSize()) {
+                segments.add(new Segment(cut, from, Math.min(cut.size(), from + properties.segmentSize())));
+            }
+            transactions += cut.size();
+        }
+
+        Findings findings = new Findings(properties.maxFindings());
+        Scanned[] scanned = new Scanned[segments.size()];
+        if (!segments.isEmpty()) {
+            pool.invoke(new Scan(segments, 0, segments.size(), scanned, findings, checksums));
+        }
+
+        List<SegmentChecksum> crcs = checksums ? new ArrayList<>(segments.size()) : null;
+        int next = 0;
+        for (AccountCut cut : cuts) {
+            long sum = 0;
+            boolean overflowed = false;
+            for (; next < segments.size() && segments.get(next).cut() == cut; next++) {
+                Segment segment = segments.get(next);
+                Scanned result = scanned[next];
+                try {
+                    sum = Math.addExact(sum, result.sum());
+                } catch (ArithmeticException ex) {
+                    overflowed = true;
+                }
+                overflowed |= result.overflowed();
+                if (crcs != null) {
+                    crcs.add(new SegmentChecksum(cut.accountId(), segment.from(), segment.to(), result.crc32c()));
+                }
+            }
+            if (overflowed) {
+                findings.add(cut.accountId(), null, "The sum of the account's entries overflows");
+            } else if (sum != cut.balance()) {
+                findings.add(cut.accountId(), null, "The balance " + new Money(cut.balance())
+                        + " does not match the sum of the first " + cut.size() + " entries, " + new Money(sum));
+            }
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        AuditReport report = new AuditReport(cuts.size(), transactions, segments.size(), findings.count() == 0,
+                findings.count(), findings.kept(), crcs, elapsedMillis);
+        logger.info("Audited {} transactions of {} accounts in {} segments in {} ms, {} findings",
+                transactions, cuts.size(), segments.size(), elapsedMillis, findings.count());
+        return report;
+    }
+
+    private Scanned scan(Segment segment, Findings findings, boolean checksums) {
+        AccountCut cut = segment.cut();
+        CRC32C crc = checksums ? new CRC32C() : null;
+        ByteBuffer fields = checksums ? ByteBuffer.allocate(Long.BYTES * 7 + Integer.BYTES * 2) : null;
+        // Time order is checked across segment boundaries too, against the last entry of the previous one.
+        LocalDateTime previous = segment.from() == 0 ? null : timestamp(cut.get(segment.from() - 1));
+        long sum = 0;
+        boolean overflowed = false;
+        for (int offset = segment.from(); offset < segment.to(); offset++) {
+            Transaction transaction = cut.get(offset);
+            if (transaction == null || transaction.type() == null || transaction.amount() == null) {
+                findings.add(cut.accountId(), transaction == null ? null : transaction.id(),
+                        "The entry at offset " + offset + " is incomplete");
+                continue;
+            }
+            if (!cut.accountId().equals(transaction.accountId())) {
+                findings.add(cut.accountId(), transaction.id(),
+                        "The entry at offset " + offset + " belongs to account " + transaction.accountId());
+            }
+            if (transaction.amount().signum() <= 0) {
+                findings.add(cut.accountId(), transaction.id(), "The amount " + transaction.amount() + " is not positive");
+            }
+            if (transaction.timestamp() == null
+                    || previous != null && transaction.timestamp().isBefore(previous)) {
+                findings.add(cut.accountId(), transaction.id(),
+                        "The entry at offset " + offset + " is out of time order");
+            } else {
+                previous = transaction.timestamp();
+            }
+            if (!cut.indexed(offset)) {
+                findings.add(cut.accountId(), transaction.id(), "The id is duplicated or not indexed");
+            }
+            if (transaction.type().isTransfer()) {
+                checkOtherLeg(transaction, findings);
+            }
+            try {
+                sum = Math.addExact(sum, transaction.signedMinorUnits());
+            } catch (ArithmeticException ex) {
+                overflowed = true;
+            }
+            if (crc != null) {
+                update(crc, fields, transaction);
+            }
+        }
+        return new Scanned(sum, overflowed, crc == null ? null : String.format("%08x", crc.getValue()));
+    }
+
+    private void checkOtherLeg(Transaction leg, Findings findings) {
+        Optional<Transaction> other = repository.findById(leg.linkedId());
+        if (other.isEmpty()) {
+            findings.add(leg.accountId(), leg.id(), "The other leg " + leg.linkedId() + " of the transfer is missing");
+        } else if (!leg.id().equals(other.get().linkedId())
+                || other.get().type() == leg.type()
+                || !leg.amount().equals(other.get().amount())) {
+            findings.add(leg.accountId(), leg.id(), "The other leg " + leg.linkedId() + " of the transfer does not match");
+        }
+    }
+
+    private static LocalDateTime timestamp(Transaction transaction) {
+        return transaction == null ? null : transaction.timestamp();
+    }
+
+    private static void update(CRC32C crc, ByteBuffer fields, Transaction transaction) {
+        UUID linkedId = transaction.linkedId();
+        fields.clear();
+        fields.putLong(transaction.id().getMostSignificantBits())
+                .putLong(transaction.id().getLeastSignificantBits())
+                .putInt(transaction.type().ordinal())
+                .putLong(transaction.amount().minorUnits())
+                .putLong(transaction.timestamp() == null ? 0 : transaction.timestamp().toEpochSecond(ZoneOffset.UTC))
+                .putInt(transaction.timestamp() == null ? 0 : transaction.timestamp().getNano())
+                .putLong(linkedId == null ? 0 : linkedId.getMostSignificantBits())
+                .putLong(linkedId == null ? 0 : linkedId.getLeastSignificantBits())
+                .flip();
+        crc.update(fields);
+        if (transaction.description() != null) {
+            crc.update(transaction.description().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private record Segment(AccountCut cut, int from, int to) {
+    }
+
+    private record Scanned(long sum, boolean overflowed, String crc32c) {
+    }
+
+    // Splits the segments in halves until one is left, and scans it into its slot.
+    private final class Scan extends RecursiveAction {
+        private final List<Segment> segments;
+        private final int from;
+        private final int to;
+        private final Scanned[] scanned;
+        private final Findings findings;
+        private final boolean checksums;
+
+        private Scan(List<Segment> segments, int from, int to, Scanned[] scanned, Findings findings, boolean checksums) {
+            this.segments = segments;
+            this.from = from;
+            this.to = to;
+            this.scanned = scanned;
+            this.findings = findings;
+            this.checksums = checksums;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                scanned[from] = scan(segments.get(from), findings, checksums);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Scan(segments, from, mid, scanned, findings, checksums),
+                    new Scan(segments, mid, to, scanned, findings, checksums));
+        }
+    }
+
+    // Counts every finding and keeps the first few, so a badly broken ledger does not produce a huge report.
+    private static final class Findings {
+        private final int max;
+        private final AtomicLong count = new AtomicLong();
+        private final List<AuditFinding> kept = Collections.synchronizedList(new ArrayList<>());
+
+        private Findings(int max) {
+            this.max = max;
+        }
+
+        private void add(String accountId, UUID transactionId, String problem) {
+            if (count.getAndIncrement() < max) {
+                kept.add(new AuditFinding(accountId, transactionId, problem));
+            }
+        }
+
+        private long count() {
+            return count.get();
+        }
+
+        private List<AuditFinding> kept() {
+            synchronized (kept) {
+                return List.copyOf(kept);
+            }
+        }
+    }
+}
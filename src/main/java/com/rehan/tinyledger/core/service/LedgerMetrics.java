@@ -0,0 +1,87 @@
+package com.rehan.tinyledger.core.service;
+
+import com.rehan.tinyledger.core.domain.TransactionRequest;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import com.rehan.tinyledger.core.domain.exception.BatchRejectedException;
+import com.rehan.tinyledger.core.domain.exception.InsufficientFundsException;
+import com.rehan.tinyledger.core.domain.exception.TransactionFailedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Meters of the ledger services, all registered up front. Recording takes a prebuilt meter by index
+// instead of looking one up by name and tags, so the request path allocates nothing for metrics.
+@Component
+public class LedgerMetrics {
+    private final MeterRegistry registry;
+    private final Timer[] timers = new Timer[Operation.values().length];
+    private final Counter insufficientFunds;
+    private final Counter transactionFailed;
+    private final Counter batchRejected;
+
+    public LedgerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (Operation operation : Operation.values()) {
+            // Ledger operations take microseconds; the default timer buckets start at a millisecond.
+            timers[operation.ordinal()] = Timer.builder("ledger.operation")
+                    .description("Latency of ledger service operations")
+                    .tag("operation", operation.name().toLowerCase(Locale.ROOT))
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(1_000))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(registry);
+        }
+        this.insufficientFunds = failures(registry, InsufficientFundsException.class);
+        this.transactionFailed = failures(registry, TransactionFailedException.class);
+        this.batchRejected = failures(registry, BatchRejectedException.class);
+    }
+
+    // Meters that record into nothing, for services built outside Spring.
+    public static LedgerMetrics noop() {
+        return new LedgerMetrics(new CompositeMeterRegistry());
+    }
+
+    void record(Operation operation, long startNanos) {
+        timers[operation.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void failed(RuntimeException ex) {
+        if (ex instanceof InsufficientFundsException) {
+            insufficientFunds.increment();
+        } else if (ex instanceof TransactionFailedException) {
+            transactionFailed.increment();
+        } else if (ex instanceof BatchRejectedException) {
+            batchRejected.increment();
+        }
+    }
+
+    // Only registered by the sequenced service, so the direct one does not report an empty summary.
+    DistributionSummary drainSizes() {
+        return DistributionSummary.builder("ledger.sequencer.drain.size")
+                .description("Commands applied per sequencer drain")
+                .baseUnit("commands")
+                .register(registry);
+    }
+
+    private static Counter failures(MeterRegistry registry, Class<? extends RuntimeException> exception) {
+        return Counter.builder("ledger.transactions.failed")
+                .description("Transactions and batches rejected by the ledger")
+                .tag("exception", exception.getSimpleName())
+                .register(registry);
+    }
+
+    enum Operation {
+        DEPOSIT, WITHDRAWAL, BATCH, TRANSFER, BALANCE, BALANCE_AS_OF, SUMMARY, VERIFY, HISTORY, PROOF;
+
+        static Operation of(TransactionRequest request) {
+            return request != null && request.type() == TransactionType.WITHDRAWAL ? WITHDRAWAL : DEPOSIT;
+        }
+    }
+}
@@ -1,16 +1,50 @@
 package com.rehan.tinyledger.core.service;
 
 
+import com.rehan.tinyledger.core.domain.BatchRequest;
+import com.rehan.tinyledger.core.domain.BatchResult;
+import com.rehan.tinyledger.core.domain.ChainProof;
+import com.rehan.tinyledger.core.domain.Checkpoint;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.PeriodSummary;
+import com.rehan.tinyledger.core.domain.SummaryQuery;
 import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionQuery;
 import com.rehan.tinyledger.core.domain.TransactionRequest;
+import com.rehan.tinyledger.core.domain.Transfer;
+import com.rehan.tinyledger.core.domain.TransferRequest;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface LedgerService {
-    Transaction recordTransaction(TransactionRequest request);
+    Transaction recordTransaction(String accountId, TransactionRequest request);
 
-    BigDecimal getBalance();
+    BatchResult recordTransactions(String accountId, BatchRequest request);
 
-    List<Transaction> getTransactionHistory();
+    Transfer transfer(String fromAccountId, TransferRequest request);
+
+    Money getBalance(String accountId);
+
+    Money getBalanceAsOf(String accountId, LocalDateTime asOf);
+
+    List<PeriodSummary> getSummary(String accountId, SummaryQuery query);
+
+    // Complete checkpoints of the account's hash chain, oldest first.
+    List<Checkpoint> getCheckpoints(String accountId);
+
+    ChainProof getProof(String accountId, UUID transactionId);
+
+    // Entries `from` to `to` of the account, as 1-based sequences.
+    ChainProof getProof(String accountId, long from, long to);
+
+    boolean verifyBalance(String accountId);
+
+    List<Transaction> getTransactionHistory(String accountId);
+
+    List<Transaction> getTransactionHistory(String accountId, TransactionQuery query);
+
+    Stream<Transaction> streamTransactionHistory(String accountId);
 }
@@ -1,78 +1,411 @@
 package com.rehan.tinyledger.core.service;
 
+import com.rehan.tinyledger.core.domain.BatchItemResult;
+import com.rehan.tinyledger.core.domain.BatchMode;
+import com.rehan.tinyledger.core.domain.BatchRequest;
+import com.rehan.tinyledger.core.domain.BatchResult;
+import com.rehan.tinyledger.core.domain.ChainProof;
+import com.rehan.tinyledger.core.domain.Checkpoint;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.PeriodSummary;
+import com.rehan.tinyledger.core.domain.SummaryQuery;
 import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionQuery;
 import com.rehan.tinyledger.core.domain.TransactionRequest;
 import com.rehan.tinyledger.core.domain.TransactionType;
+import com.rehan.tinyledger.core.domain.Transfer;
+import com.rehan.tinyledger.core.domain.TransferRequest;
+import com.rehan.tinyledger.core.domain.exception.BatchRejectedException;
 import com.rehan.tinyledger.core.domain.exception.InsufficientFundsException;
 import com.rehan.tinyledger.core.domain.exception.TransactionFailedException;
+import com.rehan.tinyledger.core.domain.exception.TransactionNotFoundException;
 import com.rehan.tinyledger.core.port.LedgerRepository;
+import com.rehan.tinyledger.core.service.LedgerMetrics.Operation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.Comparator;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 @Service
+@ConditionalOnProperty(prefix = "tinyledger", name = "service", havingValue = "direct", matchIfMissing = true)
 public class LedgerServiceImpl implements LedgerService {
     private final LedgerRepository ledgerRepository;
+    private final LedgerMetrics metrics;
+    private final TransactionFeed feed;
+    // One balance cell per account, in minor units, so writers on different accounts never touch the same
+    // CAS target and the write path does no BigDecimal arithmetic.
+    private final ConcurrentMap<String, AtomicLong> balances = new ConcurrentHashMap<>();
 
     public LedgerServiceImpl(LedgerRepository ledgerRepository) {
+        this(ledgerRepository, LedgerMetrics.noop(), TransactionFeed.unbuffered());
+    }
+
+    @Autowired
+    public LedgerServiceImpl(LedgerRepository ledgerRepository, LedgerMetrics metrics, TransactionFeed feed) {
         this.ledgerRepository = ledgerRepository;
+        this.metrics = metrics;
+        this.feed = feed;
+    }
+
+    @Override
+    public Transaction recordTransaction(String accountId, TransactionRequest request) {
+        long start = System.nanoTime();
+        try {
+            return record(accountId, request);
+        } catch (RuntimeException ex) {
+            metrics.failed(ex);
+            throw ex;
+        } finally {
+            metrics.record(Operation.of(request), start);
+        }
+    }
+
+    @Override
+    public BatchResult recordTransactions(String accountId, BatchRequest request) {
+        long start = System.nanoTime();
+        try {
+            return recordBatch(accountId, request);
+        } catch (RuntimeException ex) {
+            metrics.failed(ex);
+            throw ex;
+        } finally {
+            metrics.record(Operation.BATCH, start);
+        }
+    }
+
+    @Override
+    public Transfer transfer(String fromAccountId, TransferRequest request) {
+        long start = System.nanoTime();
+        try {
+            return recordTransfer(fromAccountId, request);
+        } catch (RuntimeException ex) {
+            metrics.failed(ex);
+            throw ex;
+        } finally {
+            metrics.record(Operation.TRANSFER, start);
+        }
+    }
+
+    @Override
+    public Money getBalance(String accountId) {
+        long start = System.nanoTime();
+        try {
+            return balance(accountId);
+        } finally {
+            metrics.record(Operation.BALANCE, start);
+        }
+    }
+
+    @Override
+    public Money getBalanceAsOf(String accountId, LocalDateTime asOf) {
+        long start = System.nanoTime();
+        try {
+            return ledgerRepository.balanceAsOf(accountId, asOf);
+        } finally {
+            metrics.record(Operation.BALANCE_AS_OF, start);
+        }
+    }
+
+    @Override
+    public List<PeriodSummary> getSummary(String accountId, SummaryQuery query) {
+        long start = System.nanoTime();
+        try {
+            return ledgerRepository.summarize(accountId, query);
+        } finally {
+            metrics.record(Operation.SUMMARY, start);
+        }
     }
 
     @Override
-    public Transaction recordTransaction(TransactionRequest request) {
-        if(request.amount().compareTo(new BigDecimal(0))<=0)
-            throw new TransactionFailedException("The transaction failed. Invalid amount");
+    public List<Checkpoint> getCheckpoints(String accountId) {
+        long start = System.nanoTime();
+        try {
+            return ledgerRepository.checkpoints(accountId);
+        } finally {
+            metrics.record(Operation.PROOF, start);
+        }
+    }
+
+    @Override
+    public ChainProof getProof(String accountId, UUID transactionId) {
+        long start = System.nanoTime();
+        try {
+            return proofOf(ledgerRepository, accountId, transactionId);
+        } finally {
+            metrics.record(Operation.PROOF, start);
+        }
+    }
+
+    @Override
+    public ChainProof getProof(String accountId, long from, long to) {
+        long start = System.nanoTime();
+        try {
+            return ledgerRepository.proof(accountId, from, to);
+        } finally {
+            metrics.record(Operation.PROOF, start);
+        }
+    }
+
+    @Override
+    public boolean verifyBalance(String accountId) {
+        long start = System.nanoTime();
+        try {
+            return computeBalance(ledgerRepository, accountId) == balance(accountId).minorUnits();
+        } finally {
+            metrics.record(Operation.VERIFY, start);
+        }
+    }
+
+    @Override
+    public List<Transaction> getTransactionHistory(String accountId) {
+        long start = System.nanoTime();
+        try {
+            return ledgerRepository.findAll(accountId);
+        } finally {
+            metrics.record(Operation.HISTORY, start);
+        }
+    }
+
+    @Override
+    public List<Transaction> getTransactionHistory(String accountId, TransactionQuery query) {
+        long start = System.nanoTime();
+        try {
+            return ledgerRepository.findPage(accountId, query);
+        } finally {
+            metrics.record(Operation.HISTORY, start);
+        }
+    }
+
+    @Override
+    public Stream<Transaction> streamTransactionHistory(String accountId) {
+        return ledgerRepository.streamAll(accountId);
+    }
 
+    private Transaction record(String accountId, TransactionRequest request) {
+        String error = validate(request);
+        if (error != null)
+            throw new TransactionFailedException(error);
+
+        Money amount = Money.of(request.amount());
+        AtomicLong balance = balanceOf(accountId);
         switch (request.type()) {
             case DEPOSIT -> {
                 Transaction transaction = Transaction.create(
+                        accountId,
                         request.type(),
-                        request.amount().setScale(2, RoundingMode.UNNECESSARY),
+                        amount,
                         request.description()
                 );
 
-                return ledgerRepository.save(transaction);
+                Transaction saved = ledgerRepository.save(transaction);
+                balance.accumulateAndGet(amount.minorUnits(), Math::addExact);
+                feed.publish(saved);
+                return saved;
 
             }
             case WITHDRAWAL -> {
-                if (computeBalance().compareTo(request.amount()) < 0) {
-                    throw new InsufficientFundsException("Insufficient funds for withdrawal");
+                reserve(balance, amount.minorUnits());
+                Transaction saved;
+                try {
+                    Transaction transaction = Transaction.create(
+                            accountId,
+                            request.type(),
+                            amount,
+                            request.description()
+                    );
+                    saved = ledgerRepository.save(transaction);
+                } catch (RuntimeException ex) {
+                    release(balance, amount.minorUnits());
+                    throw ex;
                 }
-                Transaction transaction = Transaction.create(
-                        request.type(),
-                        request.amount().setScale(2, RoundingMode.UNNECESSARY),
-                        request.description()
-                );
-                return ledgerRepository.save(transaction);
+                feed.publish(saved);
+                return saved;
+            }
+            default -> throw new TransactionFailedException("The transaction failed");
+        }
+    }
+
+    // One pass over the batch: items are validated and withdrawals reserved as they come, deposits earlier
+    // in the batch count towards later withdrawals, and everything accepted goes to the repository in one
+    // saveAll. An atomic batch gives back its reservations and fails on the first rejected item.
+    private BatchResult recordBatch(String accountId, BatchRequest request) {
+        List<TransactionRequest> items = request.transactions();
+        AtomicLong balance = balanceOf(accountId);
+        List<Transaction> accepted = new ArrayList<>(items.size());
+        String[] rejections = new String[items.size()];
+        long credit = 0;
+        long reserved = 0;
+        for (int i = 0; i < items.size(); i++) {
+            TransactionRequest item = items.get(i);
+            String error = validate(item);
+            if (error == null) {
+                Money amount = Money.of(item.amount());
+                if (item.type() == TransactionType.DEPOSIT) {
+                    credit = Math.addExact(credit, amount.minorUnits());
+                } else {
+                    long fromCredit = Math.min(credit, amount.minorUnits());
+                    long fromBalance = amount.minorUnits() - fromCredit;
+                    if (fromBalance > 0 && !tryReserve(balance, fromBalance)) {
+                        error = "Insufficient funds for withdrawal";
+                    } else {
+                        credit -= fromCredit;
+                        reserved += fromBalance;
+                    }
+                }
+                if (error == null) {
+                    accepted.add(Transaction.create(accountId, item.type(), amount, item.description()));
+                }
+            }
+            if (error != null) {
+                if (request.mode() == BatchMode.ATOMIC) {
+                    release(balance, reserved);
+                    throw new BatchRejectedException(i, error);
+                }
+                rejections[i] = error;
+            }
+        }
 
+        List<Transaction> saved;
+        try {
+            saved = accepted.isEmpty() ? List.of() : ledgerRepository.saveAll(accepted);
+        } catch (RuntimeException ex) {
+            release(balance, reserved);
+            throw ex;
+        }
+        release(balance, credit);
+        feed.publishAll(saved);
+
+        List<BatchItemResult> results = new ArrayList<>(items.size());
+        int next = 0;
+        for (int i = 0; i < items.size(); i++) {
+            results.add(rejections[i] == null
+                    ? BatchItemResult.committed(i, saved.get(next++))
+                    : BatchItemResult.rejected(i, rejections[i]));
+        }
+        return new BatchResult(request.mode(), saved.size(), items.size() - saved.size(), results);
+    }
 
+    // The source's funds are reserved with the same CAS as a withdrawal, the two legs are saved together
+    // and the target is credited once they are stored. Only the two accounts involved are ever contended:
+    // the repository locks just their logs, in a fixed order.
+    private Transfer recordTransfer(String fromAccountId, TransferRequest request) {
+        String error = validate(fromAccountId, request);
+        if (error != null)
+            throw new TransactionFailedException(error);
+
+        Money amount = Money.of(request.amount());
+        AtomicLong source = balanceOf(fromAccountId);
+        AtomicLong target = balanceOf(request.toAccountId());
+        if (!tryReserve(source, amount.minorUnits())) {
+            throw new InsufficientFundsException("Insufficient funds for transfer");
+        }
+        List<Transaction> saved;
+        try {
+            Transfer transfer = Transaction.transfer(fromAccountId, request.toAccountId(), amount, request.description());
+            saved = ledgerRepository.saveAll(transfer.legs());
+        } catch (RuntimeException ex) {
+            release(source, amount.minorUnits());
+            throw ex;
+        }
+        target.accumulateAndGet(amount.minorUnits(), Math::addExact);
+        feed.publishAll(saved);
+        return new Transfer(saved.get(0), saved.get(1));
+    }
+
+    // Reads do not cache: an id nobody has written to would otherwise add a balance that stays forever.
+    private Money balance(String accountId) {
+        AtomicLong balance = balances.get(accountId);
+        return balance != null ? new Money(balance.get()) : ledgerRepository.balance(accountId);
+    }
+
+    // The running balance the write paths reserve against, loaded from the repository on first use.
+    private AtomicLong balanceOf(String accountId) {
+        return balances.computeIfAbsent(accountId, id -> new AtomicLong(ledgerRepository.balance(id).minorUnits()));
+    }
+
+    // Check-and-debit in one CAS so concurrent withdrawals can never both pass the funds check.
+    // Funds are taken before the save and handed back if it fails.
+    private void reserve(AtomicLong balance, long amount) {
+        if (!tryReserve(balance, amount)) {
+            throw new InsufficientFundsException("Insufficient funds for withdrawal");
+        }
+    }
+
+    private boolean tryReserve(AtomicLong balance, long amount) {
+        long current;
+        do {
+            current = balance.get();
+            if (current < amount) {
+                return false;
             }
-            default -> throw new TransactionFailedException("The transaction failed");
+        } while (!balance.compareAndSet(current, current - amount));
+        return true;
+    }
+
+    private static void release(AtomicLong balance, long amount) {
+        if (amount > 0) {
+            balance.accumulateAndGet(amount, Math::addExact);
         }
     }
 
-    @Override
-    public BigDecimal getBalance() {
-        return computeBalance();
+    // Per-item checks for batches, where a bad item must not fail the whole request. Shared with the sequencer.
+    static String validate(TransactionRequest item) {
+        if (item == null || item.type() == null || item.amount() == null) {
+            return "The transaction failed. Type and amount are required";
+        }
+        if (item.type().isTransfer()) {
+            return "The transaction failed. Transfers are recorded through the transfers endpoint";
+        }
+        return validate(item.amount());
     }
 
-    @Override
-    public List<Transaction> getTransactionHistory() {
-        return ledgerRepository.findAll().stream()
-                .sorted(Comparator.comparing(Transaction::timestamp).reversed())
-                .toList();
-    }
-
-    private BigDecimal computeBalance() {
-        return ledgerRepository.findAll().stream()
-                .map(transaction -> switch (transaction.type()) {
-                    case DEPOSIT -> transaction.amount();
-                    case WITHDRAWAL -> transaction.amount().negate();
-                })
-                .reduce(BigDecimal.ZERO, BigDecimal::add).setScale(2, RoundingMode.UNNECESSARY);
+    // Shared with the sequencer.
+    static String validate(String fromAccountId, TransferRequest request) {
+        if (request == null || request.toAccountId() == null || request.toAccountId().isBlank() || request.amount() == null) {
+            return "The transfer failed. Target account and amount are required";
+        }
+        if (request.toAccountId().equals(fromAccountId)) {
+            return "The transfer failed. Cannot transfer to the same account";
+        }
+        return validate(request.amount());
+    }
+
+    private static String validate(BigDecimal amount) {
+        if (amount.signum() <= 0) {
+            return "The transaction failed. Invalid amount";
+        }
+        if (amount.stripTrailingZeros().scale() > Money.SCALE) {
+            return "The transaction failed. Amounts have at most 2 decimals";
+        }
+        if (amount.compareTo(Money.MAX_VALUE) > 0) {
+            return "The transaction failed. Amount is too large";
+        }
+        return null;
+    }
+
+    // Shared with the sequencer. A transaction of another account is as unknown as one that does not exist.
+    static ChainProof proofOf(LedgerRepository ledgerRepository, String accountId, UUID transactionId) {
+        return ledgerRepository.proof(transactionId)
+                .filter(proof -> proof.accountId().equals(accountId))
+                .orElseThrow(() -> new TransactionNotFoundException(
+                        "Transaction " + transactionId + " was not found in account " + accountId));
+    }
+
+    // Full recompute of the balance from history, in minor units. Shared with the sequencer.
+    static long computeBalance(LedgerRepository ledgerRepository, String accountId) {
+        long balance = 0;
+        for (Transaction transaction : ledgerRepository.findAll(accountId)) {
+            balance = Math.addExact(balance, transaction.signedMinorUnits());
+        }
+        return balance;
     }
 }
@@ -0,0 +1,477 @@
+package com.rehan.tinyledger.core.service;
+
+import com.rehan.tinyledger.core.domain.BatchItemResult;
+import com.rehan.tinyledger.core.domain.BatchMode;
+import com.rehan.tinyledger.core.domain.BatchRequest;
+import com.rehan.tinyledger.core.domain.BatchResult;
+import com.rehan.tinyledger.core.domain.ChainProof;
+import com.rehan.tinyledger.core.domain.Checkpoint;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.PeriodSummary;
+import com.rehan.tinyledger.core.domain.SummaryQuery;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionQuery;
+import com.rehan.tinyledger.core.domain.TransactionRequest;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import com.rehan.tinyledger.core.domain.Transfer;
+import com.rehan.tinyledger.core.domain.TransferRequest;
+import com.rehan.tinyledger.core.domain.exception.BatchRejectedException;
+import com.rehan.tinyledger.core.domain.exception.InsufficientFundsException;
+import com.rehan.tinyledger.core.domain.exception.TransactionFailedException;
+import com.rehan.tinyledger.core.port.LedgerRepository;
+import com.rehan.tinyledger.core.service.CommandRingBuffer.Command;
+import com.rehan.tinyledger.core.service.LedgerMetrics.Operation;
+import io.micrometer.core.instrument.DistributionSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+// Single-writer alternative to LedgerServiceImpl. Request threads publish commands into a ring buffer and
+// wait; one sequencer thread takes them in sequence order, checks funds against balances only it writes,
+// creates the transactions and appends everything it drained with one saveAll before completing the
+// callers. The ring sequence is the global order of the ledger, and the write path has no contended CAS.
+@Service
+@ConditionalOnProperty(prefix = "tinyledger", name = "service", havingValue = "sequenced")
+public class SequencedLedgerService implements LedgerService, AutoCloseable {
+    private final LedgerRepository ledgerRepository;
+    private final CommandRingBuffer ring;
+    private final int maxBatchSize;
+    private final LedgerMetrics metrics;
+    private final TransactionFeed feed;
+    private final DistributionSummary drainSizes;
+    private final ConcurrentMap<String, Balance> balances = new ConcurrentHashMap<>();
+    // Sequencer-only state: the drain being processed and the balances it has touched so far.
+    private final List<Balance> touched = new ArrayList<>();
+    private long drain;
+    private final Thread sequencer;
+    private volatile boolean sleeping;
+    private volatile boolean closed;
+
+    public SequencedLedgerService(LedgerRepository ledgerRepository, SequencerProperties properties) {
+        this(ledgerRepository, properties, LedgerMetrics.noop(), TransactionFeed.unbuffered());
+    }
+
+    @Autowired
+    public SequencedLedgerService(LedgerRepository ledgerRepository, SequencerProperties properties,
+                                  LedgerMetrics metrics, TransactionFeed feed) {
+        this.ledgerRepository = ledgerRepository;
+        this.metrics = metrics;
+        this.feed = feed;
+        this.drainSizes = metrics.drainSizes();
+        this.ring = new CommandRingBuffer(properties.bufferSize());
+        this.maxBatchSize = properties.maxBatchSize();
+        this.sequencer = new Thread(this::run, "ledger-sequencer");
+        this.sequencer.setDaemon(true);
+        this.sequencer.start();
+    }
+
+    @Override
+    public Transaction recordTransaction(String accountId, TransactionRequest request) {
+        long start = System.nanoTime();
+        try {
+            String error = LedgerServiceImpl.validate(request);
+            if (error != null)
+                throw new TransactionFailedException(error);
+
+            CompletableFuture<Transaction> done = new CompletableFuture<>();
+            long sequence = claim();
+            Command command = ring.get(sequence);
+            command.accountId = accountId;
+            command.request = request;
+            command.amount = Money.of(request.amount()).minorUnits();
+            command.transaction = done;
+            publish(sequence);
+            return await(done);
+        } catch (RuntimeException ex) {
+            metrics.failed(ex);
+            throw ex;
+        } finally {
+            metrics.record(Operation.of(request), start);
+        }
+    }
+
+    @Override
+    public BatchResult recordTransactions(String accountId, BatchRequest request) {
+        long start = System.nanoTime();
+        try {
+            CompletableFuture<BatchResult> done = new CompletableFuture<>();
+            long sequence = claim();
+            Command command = ring.get(sequence);
+            command.accountId = accountId;
+            command.batch = request;
+            command.batchResult = done;
+            publish(sequence);
+            return await(done);
+        } catch (RuntimeException ex) {
+            metrics.failed(ex);
+            throw ex;
+        } finally {
+            metrics.record(Operation.BATCH, start);
+        }
+    }
+
+    @Override
+    public Transfer transfer(String fromAccountId, TransferRequest request) {
+        long start = System.nanoTime();
+        try {
+            String error = LedgerServiceImpl.validate(fromAccountId, request);
+            if (error != null)
+                throw new TransactionFailedException(error);
+
+            CompletableFuture<Transfer> done = new CompletableFuture<>();
+            long sequence = claim();
+            Command command = ring.get(sequence);
+            command.accountId = fromAccountId;
+            command.transfer = request;
+            command.amount = Money.of(request.amount()).minorUnits();
+            command.transferResult = done;
+            publish(sequence);
+            return await(done);
+        } catch (RuntimeException ex) {
+            metrics.failed(ex);
+            throw ex;
+        } finally {
+            metrics.record(Operation.TRANSFER, start);
+        }
+    }
+
+    @Override
+    public Money getBalance(String accountId) {
+        long start = System.nanoTime();
+        try {
+            return balance(accountId);
+        } finally {
+            metrics.record(Operation.BALANCE, start);
+        }
+    }
+
+    @Override
+    public Money getBalanceAsOf(String accountId, LocalDateTime asOf) {
+        long start = System.nanoTime();
+        try {
+            return ledgerRepository.balanceAsOf(accountId, asOf);
+        } finally {
+            metrics.record(Operation.BALANCE_AS_OF, start);
+        }
+    }
+
+    @Override
+    public List<PeriodSummary> getSummary(String accountId, SummaryQuery query) {
+        long start = System.nanoTime();
+        try {
+            return ledgerRepository.summarize(accountId, query);
+        } finally {
+            metrics.record(Operation.SUMMARY, start);
+        }
+    }
+
+    @Override
+    public List<Checkpoint> getCheckpoints(String accountId) {
+        long start = System.nanoTime();
+        try {
+            return ledgerRepository.checkpoints(accountId);
+        } finally {
+            metrics.record(Operation.PROOF, start);
+        }
+    }
+
+    @Override
+    public ChainProof getProof(String accountId, UUID transactionId) {
+        long start = System.nanoTime();
+        try {
+            return LedgerServiceImpl.proofOf(ledgerRepository, accountId, transactionId);
+        } finally {
+            metrics.record(Operation.PROOF, start);
+        }
+    }
+
+    @Override
+    public ChainProof getProof(String accountId, long from, long to) {
+        long start = System.nanoTime();
+        try {
+            return ledgerRepository.proof(accountId, from, to);
+        } finally {
+            metrics.record(Operation.PROOF, start);
+        }
+    }
+
+    @Override
+    public boolean verifyBalance(String accountId) {
+        long start = System.nanoTime();
+        try {
+            return LedgerServiceImpl.computeBalance(ledgerRepository, accountId) == balance(accountId).minorUnits();
+        } finally {
+            metrics.record(Operation.VERIFY, start);
+        }
+    }
+
+    @Override
+    public List<Transaction> getTransactionHistory(String accountId) {
+        long start = System.nanoTime();
+        try {
+            return ledgerRepository.findAll(accountId);
+        } finally {
+            metrics.record(Operation.HISTORY, start);
+        }
+    }
+
+    @Override
+    public List<Transaction> getTransactionHistory(String accountId, TransactionQuery query) {
+        long start = System.nanoTime();
+        try {
+            return ledgerRepository.findPage(accountId, query);
+        } finally {
+            metrics.record(Operation.HISTORY, start);
+        }
+    }
+
+    @Override
+    public Stream<Transaction> streamTransactionHistory(String accountId) {
+        return ledgerRepository.streamAll(accountId);
+    }
+
+    // Lets the sequencer finish everything already published, then stops it.
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(sequencer);
+        try {
+            sequencer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Money balance(String accountId) {
+        Balance balance = balances.get(accountId);
+        return balance != null ? new Money(balance.committed) : ledgerRepository.balance(accountId);
+    }
+
+    // The caller fills the claimed slot, which the last command left cleared, and then publishes it.
+    private long claim() {
+        if (closed) {
+            throw new IllegalStateException("The ledger sequencer is closed");
+        }
+        return ring.claim();
+    }
+
+    private void publish(long sequence) {
+        ring.publish(sequence);
+        // Pairs with the sequencer's sleeping flag: either it sees this command or we see it asleep.
+        if (sleeping) {
+            LockSupport.unpark(sequencer);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> done) {
+        try {
+            return done.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw ex;
+        }
+    }
+
+    private void run() {
+        long next = 0;
+        for (int idle = 0; ; ) {
+            long end = next;
+            while (end - next < maxBatchSize && ring.isPublished(end)) {
+                end++;
+            }
+            if (end > next) {
+                process(next, end);
+                ring.release(end - 1);
+                drainSizes.record(end - next);
+                next = end;
+                idle = 0;
+            } else if (closed) {
+                return;
+            } else if (++idle < 100) {
+                Thread.onSpinWait();
+            } else {
+                sleeping = true;
+                if (!ring.isPublished(next) && !closed) {
+                    LockSupport.parkNanos(1_000_000);
+                }
+                sleeping = false;
+            }
+        }
+    }
+
+    // Applies the commands in sequence order against working balances, saves what was accepted in one
+    // go and only then publishes the balances and completes the callers.
+    private void process(long from, long to) {
+        drain = from;
+        touched.clear();
+        List<Transaction> accepted = new ArrayList<>();
+        try {
+            for (long sequence = from; sequence < to; sequence++) {
+                Command command = ring.get(sequence);
+                command.first = accepted.size();
+                try {
+                    if (command.request != null) {
+                        apply(command, accepted);
+                    } else if (command.transfer != null) {
+                        applyTransfer(command, accepted);
+                    } else {
+                        applyBatch(command, accepted);
+                    }
+                } catch (ArithmeticException ex) {
+                    // A balance that would overflow fails only its own command, which has changed nothing yet.
+                    command.fail(ex);
+                }
+                command.count = accepted.size() - command.first;
+            }
+            List<Transaction> saved = accepted.isEmpty() ? List.of() : ledgerRepository.saveAll(accepted);
+            for (Balance balance : touched) {
+                balance.committed = balance.working;
+            }
+            // In ring order, so the feed sees the ledger's global order.
+            feed.publishAll(saved);
+            for (long sequence = from; sequence < to; sequence++) {
+                complete(ring.get(sequence), saved);
+            }
+        } catch (RuntimeException ex) {
+            for (long sequence = from; sequence < to; sequence++) {
+                Command command = ring.get(sequence);
+                if (!command.isDone()) {
+                    command.fail(ex);
+                }
+            }
+        } finally {
+            for (long sequence = from; sequence < to; sequence++) {
+                ring.get(sequence).clear();
+            }
+        }
+    }
+
+    private void apply(Command command, List<Transaction> accepted) {
+        TransactionRequest request = command.request;
+        Balance balance = working(command.accountId);
+        if (request.type() == TransactionType.WITHDRAWAL) {
+            if (balance.working < command.amount) {
+                command.transaction.completeExceptionally(new InsufficientFundsException("Insufficient funds for withdrawal"));
+                return;
+            }
+            balance.working -= command.amount;
+        } else {
+            balance.working = Math.addExact(balance.working, command.amount);
+        }
+        accepted.add(Transaction.create(command.accountId, request.type(), new Money(command.amount), request.description()));
+    }
+
+    // Both balances move within the drain and both legs go into its one saveAll, so a transfer is never
+    // half applied; being the only writer, the sequencer needs no lock on either account.
+    private void applyTransfer(Command command, List<Transaction> accepted) {
+        TransferRequest request = command.transfer;
+        Balance source = working(command.accountId);
+        if (source.working < command.amount) {
+            command.transferResult.completeExceptionally(new InsufficientFundsException("Insufficient funds for transfer"));
+            return;
+        }
+        Balance target = working(request.toAccountId());
+        target.working = Math.addExact(target.working, command.amount);
+        source.working -= command.amount;
+        accepted.addAll(Transaction.transfer(command.accountId, request.toAccountId(), new Money(command.amount),
+                request.description()).legs());
+    }
+
+    // Items apply one after another, so deposits earlier in the batch fund later withdrawals. An atomic
+    // batch works on a copy of the balance and leaves no trace when an item is rejected.
+    private void applyBatch(Command command, List<Transaction> accepted) {
+        BatchRequest batch = command.batch;
+        List<TransactionRequest> items = batch.transactions();
+        Balance working = working(command.accountId);
+        long balance = working.working;
+        List<Transaction> created = new ArrayList<>(items.size());
+        String[] rejections = new String[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            TransactionRequest item = items.get(i);
+            String error = LedgerServiceImpl.validate(item);
+            if (error == null) {
+                Money amount = Money.of(item.amount());
+                if (item.type() == TransactionType.DEPOSIT) {
+                    balance = Math.addExact(balance, amount.minorUnits());
+                } else if (balance >= amount.minorUnits()) {
+                    balance -= amount.minorUnits();
+                } else {
+                    error = "Insufficient funds for withdrawal";
+                }
+                if (error == null) {
+                    created.add(Transaction.create(command.accountId, item.type(), amount, item.description()));
+                }
+            }
+            if (error != null) {
+                if (batch.mode() == BatchMode.ATOMIC) {
+                    command.batchResult.completeExceptionally(new BatchRejectedException(i, error));
+                    return;
+                }
+                rejections[i] = error;
+            }
+        }
+        working.working = balance;
+        accepted.addAll(created);
+        command.rejections = rejections;
+    }
+
+    // The account's balance as of the commands applied so far in this drain.
+    private Balance working(String accountId) {
+        Balance balance = balances.computeIfAbsent(accountId, id -> new Balance(ledgerRepository.balance(id).minorUnits()));
+        if (balance.drain != drain) {
+            balance.drain = drain;
+            balance.working = balance.committed;
+            touched.add(balance);
+        }
+        return balance;
+    }
+
+    private static void complete(Command command, List<Transaction> saved) {
+        if (command.isDone()) {
+            return;
+        }
+        if (command.transaction != null) {
+            command.transaction.complete(saved.get(command.first));
+            return;
+        }
+        if (command.transferResult != null) {
+            command.transferResult.complete(new Transfer(saved.get(command.first), saved.get(command.first + 1)));
+            return;
+        }
+        String[] rejections = command.rejections;
+        List<BatchItemResult> results = new ArrayList<>(rejections.length);
+        int next = command.first;
+        for (int i = 0; i < rejections.length; i++) {
+            results.add(rejections[i] == null
+                    ? BatchItemResult.committed(i, saved.get(next++))
+                    : BatchItemResult.rejected(i, rejections[i]));
+        }
+        command.batchResult.complete(new BatchResult(command.batch.mode(), command.count,
+                rejections.length - command.count, results));
+    }
+
+    // An account's balance in minor units. The committed value is published once a drain is saved and may
+    // be read by anyone; the working value and drain marker belong to the sequencer.
+    private static final class Balance {
+        private volatile long committed;
+        private long working;
+        private long drain = -1;
+
+        private Balance(long committed) {
+            this.committed = committed;
+        }
+    }
+}
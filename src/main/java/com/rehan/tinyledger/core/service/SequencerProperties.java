@@ -0,0 +1,19 @@
+package com.rehan.tinyledger.core.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "tinyledger.sequencer")
+public record SequencerProperties(
+        @DefaultValue("65536") int bufferSize,
+        @DefaultValue("1024") int maxBatchSize
+) {
+    public SequencerProperties {
+        if (bufferSize <= 0 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("The sequencer buffer size must be a power of two, was " + bufferSize);
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("The sequencer batch size must be positive, was " + maxBatchSize);
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.rehan.tinyledger.core.service;
+
+import com.rehan.tinyledger.core.domain.Transaction;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Committed transactions in commit order, numbered by a feed sequence. The services publish into a fixed
+// ring of the latest `bufferSize` transactions and never wait: a publish is a slot write and at most one
+// unpark, however many subscribers there are. A single dispatcher thread walks the ring behind them and
+// hands each transaction only to the subscribers of its account, through a bounded queue per subscriber.
+// A quiet account's subscriber is therefore never lagged by other accounts' traffic; one that falls a full
+// queue behind is told it lagged instead of holding up the dispatcher. The ring also serves resumes.
+// Sequences start at 0 on every boot, so event ids pair them with the boot's epoch, and an id from an
+// earlier boot is reported as lagged rather than resumed at an unrelated transaction.
+// Each account also has a generation, bumped for every transaction of it that is published.
+@Component
+public class TransactionFeed {
+    private static final long WRITING = -1;
+    // Queued to wake a polling subscriber that has no event coming: on close, or once it lagged.
+    private static final Event WAKE = new Event(-1, null);
+
+    private final long epoch = System.currentTimeMillis();
+    private final int mask;
+    private final AtomicReferenceArray<Transaction> entries;
+    // The sequence each slot holds, WRITING while a publisher fills it.
+    private final AtomicLongArray stamps;
+    private final AtomicLong next = new AtomicLong();
+    private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final Queue<Subscription> joining = new ConcurrentLinkedQueue<>();
+    private final Queue<Subscription> leaving = new ConcurrentLinkedQueue<>();
+    // Only the dispatcher touches the subscribers by account.
+    private final Map<String, List<Subscription>> subscribers = new HashMap<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+    // Every transaction below it has been handed to its subscribers.
+    private volatile long dispatched;
+    private volatile Thread idleDispatcher;
+
+    public TransactionFeed(FeedProperties properties) {
+        this.entries = new AtomicReferenceArray<>(properties.bufferSize());
+        this.stamps = new AtomicLongArray(properties.bufferSize());
+        this.mask = properties.bufferSize() - 1;
+        for (int i = 0; i < properties.bufferSize(); i++) {
+            stamps.set(i, WRITING);
+        }
+    }
+
+    // A one-slot feed nobody reads, for services built outside Spring.
+    public static TransactionFeed unbuffered() {
+        return new TransactionFeed(new FeedProperties(1, Duration.ofSeconds(15)));
+    }
+
+    public void publish(Transaction transaction) {
+        store(transaction);
+        wakeDispatcher();
+    }
+
+    public void publishAll(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        for (Transaction transaction : transactions) {
+            store(transaction);
+        }
+        wakeDispatcher();
+    }
+
+    // The sequence the next published transaction gets.
+    public long head() {
+        return next.get();
+    }
+
+    // Changes whenever a transaction of the account is published. Services publish only once the repository
+    // holds the transaction, so anything derived from the account's history after reading a generation is at
+    // least as new as that generation.
+    public long generation(String accountId) {
+        AtomicLong generation = generations.get(accountId);
+        return generation == null ? 0 : generation.get();
+    }
+
+    // The event id of a sequence: the boot's epoch, a dash and the sequence.
+    public String id(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    // The account's transactions after the event `lastEventId` names, or from the head when it is null. An id
+    // of another boot names no position of this feed, so the subscription reports it lagged on its first poll.
+    public Subscription subscribe(String accountId, String lastEventId) {
+        long from = lastEventId == null ? next.get() : cursorAfter(lastEventId);
+        Subscription subscription = new Subscription(accountId, from, entries.length());
+        joining.add(subscription);
+        if (!started.get() && started.compareAndSet(false, true)) {
+            Thread dispatcher = new Thread(this::dispatch, "feed-dispatcher");
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+        }
+        wakeDispatcher();
+        return subscription;
+    }
+
+    private long cursorAfter(String lastEventId) {
+        int dash = lastEventId.indexOf('-');
+        try {
+            if (dash < 0) {
+                throw new NumberFormatException();
+            }
+            long idEpoch = Long.parseLong(lastEventId.substring(0, dash));
+            long sequence = Long.parseLong(lastEventId.substring(dash + 1));
+            return idEpoch == epoch ? sequence + 1 : Long.MAX_VALUE;
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Malformed event id " + lastEventId);
+        }
+    }
+
+    private void store(Transaction transaction) {
+        AtomicLong generation = generations.get(transaction.accountId());
+        if (generation == null) {
+            generation = generations.computeIfAbsent(transaction.accountId(), id -> new AtomicLong());
+        }
+        generation.incrementAndGet();
+        long sequence = next.getAndIncrement();
+        int slot = (int) sequence & mask;
+        stamps.set(slot, WRITING);
+        entries.set(slot, transaction);
+        stamps.set(slot, sequence);
+    }
+
+    // Pairs with the dispatcher's idle check: either it sees the new work or we see it parked.
+    private void wakeDispatcher() {
+        Thread dispatcher = idleDispatcher;
+        if (dispatcher != null) {
+            LockSupport.unpark(dispatcher);
+        }
+    }
+
+    private void dispatch() {
+        long sequence = next.get();
+        while (true) {
+            admit(sequence);
+            release();
+            long oldest = next.get() - entries.length();
+            if (sequence < oldest) {
+                // Publishers lapped the dispatcher itself; nobody can tell which account the lost entries were for.
+                lagAll(sequence - 1, oldest - sequence);
+                sequence = oldest;
+                continue;
+            }
+            if (sequence == next.get()) {
+                idleDispatcher = Thread.currentThread();
+                if (sequence == next.get() && joining.isEmpty() && leaving.isEmpty()) {
+                    LockSupport.park(this);
+                }
+                idleDispatcher = null;
+                continue;
+            }
+            Transaction transaction = entry(sequence);
+            if (transaction == null) {
+                // Claimed but not stored yet, or already overwritten; the lap check above sorts out the latter.
+                Thread.onSpinWait();
+                continue;
+            }
+            route(new Event(sequence, transaction));
+            dispatched = ++sequence;
+        }
+    }
+
+    // Replays the ring from each joining subscription's start up to where the dispatcher is, then lets it
+    // follow along.
+    private void admit(long sequence) {
+        Subscription subscription;
+        while ((subscription = joining.poll()) != null) {
+            if (subscription.closed) {
+                continue;
+            }
+            long head = next.get();
+            long oldest = Math.max(0, head - entries.length());
+            // A position the feed never reached, e.g. from another boot: nothing can be said about what was missed.
+            if (subscription.from > head) {
+                subscription.lag(new LaggedException(oldest - 1, 0));
+                continue;
+            }
+            if (subscription.from < oldest) {
+                subscription.lag(new LaggedException(oldest - 1, oldest - subscription.from));
+                continue;
+            }
+            if (!replay(subscription, sequence)) {
+                continue;
+            }
+            subscribers.computeIfAbsent(subscription.accountId, id -> new ArrayList<>()).add(subscription);
+            subscription.admitted = true;
+        }
+    }
+
+    private boolean replay(Subscription subscription, long sequence) {
+        for (long cursor = subscription.from; cursor < sequence; cursor++) {
+            Transaction transaction = entry(cursor);
+            if (transaction == null) {
+                long oldest = next.get() - entries.length();
+                subscription.lag(new LaggedException(oldest - 1, oldest - cursor));
+                return false;
+            }
+            if (transaction.accountId().equals(subscription.accountId)
+                    && !subscription.offer(new Event(cursor, transaction))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void release() {
+        Subscription subscription;
+        while ((subscription = leaving.poll()) != null) {
+            List<Subscription> account = subscribers.get(subscription.accountId);
+            if (account != null && account.remove(subscription) && account.isEmpty()) {
+                subscribers.remove(subscription.accountId);
+            }
+        }
+    }
+
+    private void route(Event event) {
+        List<Subscription> account = subscribers.get(event.transaction().accountId());
+        if (account == null) {
+            return;
+        }
+        for (Iterator<Subscription> it = account.iterator(); it.hasNext(); ) {
+            Subscription subscription = it.next();
+            if (event.sequence() >= subscription.from && !subscription.offer(event)) {
+                it.remove();
+            }
+        }
+        if (account.isEmpty()) {
+            subscribers.remove(event.transaction().accountId());
+        }
+    }
+
+    private void lagAll(long resumeAfter, long missed) {
+        for (List<Subscription> account : subscribers.values()) {
+            for (Subscription subscription : account) {
+                subscription.lag(new LaggedException(resumeAfter, missed));
+            }
+        }
+        subscribers.clear();
+    }
+
+    // The entry at `sequence` once its publisher has stored it, null otherwise; rechecking the stamp after the
+    // read catches a publisher that lapped us and reused the slot meanwhile.
+    private Transaction entry(long sequence) {
+        int slot = (int) sequence & mask;
+        if (stamps.get(slot) != sequence) {
+            return null;
+        }
+        Transaction transaction = entries.get(slot);
+        return stamps.get(slot) == sequence ? transaction : null;
+    }
+
+    public record Event(long sequence, Transaction transaction) {
+    }
+
+    // The subscriber's position is older than anything the ring still holds.
+    public static class LaggedException extends RuntimeException {
+        private final long resumeAfter;
+        private final long missed;
+
+        LaggedException(long resumeAfter, long missed) {
+            super("The subscriber fell " + missed + " transactions behind the feed");
+            this.resumeAfter = resumeAfter;
+            this.missed = missed;
+        }
+
+        // Resuming after this sequence starts at the oldest transaction still held.
+        public long resumeAfter() {
+            return resumeAfter;
+        }
+
+        public long missed() {
+            return missed;
+        }
+    }
+
+    // One reader's queue of its account's events, filled by the dispatcher. Not thread-safe: each subscriber
+    // polls from one thread at a time.
+    public final class Subscription implements AutoCloseable {
+        private final String accountId;
+        private final long from;
+        private final BlockingQueue<Event> queue;
+        private long position;
+        // Dispatcher-only: the last sequence queued.
+        private long queued;
+        private volatile boolean admitted;
+        private volatile LaggedException lagged;
+        private volatile boolean closed;
+
+        private Subscription(String accountId, long from, int capacity) {
+            this.accountId = accountId;
+            this.from = from;
+            this.queue = new LinkedBlockingQueue<>(capacity);
+            this.position = from;
+            this.queued = from - 1;
+        }
+
+        // The next event, waiting up to `timeoutNanos`; null on timeout or once closed.
+        public Event poll(long timeoutNanos) throws InterruptedException {
+            long deadline = System.nanoTime() + timeoutNanos;
+            while (!closed) {
+                // Read before the queue: the dispatcher queues an event before moving past it, so once the
+                // queue is empty, everything below this of the account has been returned.
+                long reached = admitted ? Math.max(from, dispatched) : from;
+                Event event = queue.poll();
+                if (event == null) {
+                    LaggedException ex = lagged;
+                    if (ex != null) {
+                        throw ex;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        position = Math.max(position, reached);
+                        return null;
+                    }
+                    event = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                }
+                if (event != null && event != WAKE) {
+                    position = event.sequence() + 1;
+                    return event;
+                }
+            }
+            return null;
+        }
+
+        // Every event of the account below this has been returned.
+        public long position() {
+            return position;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            leaving.add(this);
+            queue.offer(WAKE);
+            wakeDispatcher();
+        }
+
+        // A full queue drops the subscriber rather than holding up the dispatcher; it can resume after the
+        // last event it was handed, and nothing is lost as long as the ring still holds the rest.
+        private boolean offer(Event event) {
+            if (queue.offer(event)) {
+                queued = event.sequence();
+                return true;
+            }
+            lag(new LaggedException(queued, 0));
+            return false;
+        }
+
+        // If the queue is full the poller is not waiting, and sees the lag once it has drained it.
+        private void lag(LaggedException ex) {
+            lagged = ex;
+            queue.offer(WAKE);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.rehan.tinyledger;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Drives the write path over HTTP at high concurrency against the durable (group-commit) repository, once on
+// Tomcat's platform-thread pool and once on virtual threads, and prints throughput and latency for both.
+// Run with `./gradlew loadTest`; it is excluded from the regular test task.
+@Tag("load")
+class VirtualThreadLoadTest {
+    private static final int REQUESTS = 20_000;
+    private static final int CONCURRENCY = 1_000;
+    private static final int ACCOUNTS = 100;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldCompareVirtualAndPlatformThreads() throws Exception {
+
+        Result platform = run(false);
+        Result virtual = run(true);
+
+
+        System.out.printf("%-10s %12s %10s %10s %10s%n", "threads", "requests/s", "p50 ms", "p99 ms", "max ms");
+        for (Result result : List.of(platform, virtual)) {
+            System.out.printf("%-10s %12.0f %10.1f %10.1f %10.1f%n", result.mode(), result.throughput(),
+                    result.p50Millis(), result.p99Millis(), result.maxMillis());
+        }
+        assertEquals(REQUESTS, platform.succeeded());
+        assertEquals(REQUESTS, virtual.succeeded());
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        String mode = virtualThreads ? "virtual" : "platform";
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(TinyLedgerApplication.class)
+                .properties("server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "tinyledger.repository=wal",
+                        "tinyledger.wal.path=" + directory.resolve(mode + ".wal"),
+                        "tinyledger.wal.durability=BATCHED")
+                .run();
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            HttpClient client = HttpClient.newBuilder().executor(clients).build();
+
+            send(client, port, 0);
+            Semaphore inFlight = new Semaphore(CONCURRENCY);
+            List<Future<Long>> latencies = new ArrayList<>(REQUESTS);
+            long started = System.nanoTime();
+            for (int i = 0; i < REQUESTS; i++) {
+                int request = i;
+                inFlight.acquire();
+                latencies.add(clients.submit(() -> {
+                    try {
+                        long sent = System.nanoTime();
+                        return send(client, port, request) == 201 ? System.nanoTime() - sent : -1L;
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+            long[] nanos = new long[REQUESTS];
+            for (int i = 0; i < REQUESTS; i++) {
+                nanos[i] = latencies.get(i).get();
+            }
+            long elapsed = System.nanoTime() - started;
+            return Result.of(mode, nanos, elapsed);
+        }
+    }
+
+    private static int send(HttpClient client, int port, int request) throws Exception {
+        HttpRequest post = HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + port + "/api/ledger/accounts/acc-" + request % ACCOUNTS + "/transactions"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"type\":\"DEPOSIT\",\"amount\":1.00,\"description\":\"Load\"}"))
+                .build();
+        return client.send(post, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private record Result(String mode, int succeeded, double throughput, double p50Millis, double p99Millis, double maxMillis) {
+        static Result of(String mode, long[] nanos, long elapsed) {
+            long[] succeeded = Arrays.stream(nanos).filter(latency -> latency >= 0).sorted().toArray();
+            return new Result(mode, succeeded.length, succeeded.length * 1e9 / elapsed,
+                    percentile(succeeded, 0.50), percentile(succeeded, 0.99), succeeded[succeeded.length - 1] / 1e6);
+        }
+
+        private static double percentile(long[] sorted, double percentile) {
+            return sorted[(int) Math.ceil(percentile * sorted.length) - 1] / 1e6;
+        }
+    }
+}
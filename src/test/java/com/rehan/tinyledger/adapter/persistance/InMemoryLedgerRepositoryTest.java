@@ -1,20 +1,35 @@
 package com.rehan.tinyledger.adapter.persistance;
 
 
+import com.rehan.tinyledger.core.domain.ChainProof;
+import com.rehan.tinyledger.core.domain.Checkpoint;
+import com.rehan.tinyledger.core.domain.Granularity;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.PeriodSummary;
+import com.rehan.tinyledger.core.domain.SummaryQuery;
 import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionFilter;
+import com.rehan.tinyledger.core.domain.TransactionQuery;
 import com.rehan.tinyledger.core.domain.TransactionType;
+import com.rehan.tinyledger.core.domain.Transfer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
-import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class InMemoryLedgerRepositoryTest {
+    private static final String ACCOUNT = "acc-1";
 
     private InMemoryLedgerRepository repository;
 
@@ -29,8 +44,9 @@ class InMemoryLedgerRepositoryTest {
         UUID id = UUID.randomUUID();
         Transaction transaction = new Transaction(
                 id,
+                ACCOUNT,
                 TransactionType.DEPOSIT,
-                new BigDecimal("100.00"),
+                Money.of("100.00"),
                 "Test deposit",
                 LocalDateTime.now()
         );
@@ -49,16 +65,18 @@ class InMemoryLedgerRepositoryTest {
        
         Transaction transaction1 = new Transaction(
                 UUID.randomUUID(),
+                ACCOUNT,
                 TransactionType.DEPOSIT,
-                new BigDecimal("100.00"),
+                Money.of("100.00"),
                 "Test deposit 1",
                 LocalDateTime.now()
         );
         
         Transaction transaction2 = new Transaction(
                 UUID.randomUUID(),
+                ACCOUNT,
                 TransactionType.WITHDRAWAL,
-                new BigDecimal("50.00"),
+                Money.of("50.00"),
                 "Test withdrawal",
                 LocalDateTime.now()
         );
@@ -67,7 +85,7 @@ class InMemoryLedgerRepositoryTest {
         repository.save(transaction2);
 
        
-        List<Transaction> transactions = repository.findAll();
+        List<Transaction> transactions = repository.findAll(ACCOUNT);
 
        
         assertEquals(2, transactions.size());
@@ -75,14 +93,382 @@ class InMemoryLedgerRepositoryTest {
         assertTrue(transactions.contains(transaction2));
     }
 
+    @Test
+    void shouldReturnTransactionsNewestFirst() {
+       
+        LocalDateTime now = LocalDateTime.now();
+        List<Transaction> saved = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            saved.add(repository.save(new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.DEPOSIT,
+                    Money.of("1.00"), "Deposit " + i, now.plusSeconds(i))));
+        }
+
+       
+        List<Transaction> transactions = repository.findAll(ACCOUNT);
+
+       
+        assertEquals(2500, transactions.size());
+        assertEquals("Deposit 2499", transactions.get(0).description());
+        assertEquals("Deposit 0", transactions.get(2499).description());
+        assertEquals(saved.get(1234), repository.findById(saved.get(1234).id()).orElseThrow());
+    }
+
+    @Test
+    void shouldKeepLogOrderedWhenTimestampsArriveOutOfOrder() {
+       
+        LocalDateTime now = LocalDateTime.now();
+        Transaction later = new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.DEPOSIT,
+                Money.of("1.00"), "Later", now);
+        Transaction earlier = new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.DEPOSIT,
+                Money.of("2.00"), "Earlier", now.minusNanos(1000));
+
+       
+        repository.save(later);
+        Transaction stored = repository.save(earlier);
+
+       
+        assertEquals(now, stored.timestamp());
+        assertEquals(earlier.id(), stored.id());
+        assertEquals("Earlier", repository.findAll(ACCOUNT).get(0).description());
+    }
+
+    @Test
+    void shouldPageBackwardsWithBeforeCursor() {
+       
+        List<Transaction> saved = saveDeposits(10);
+
+       
+        List<Transaction> firstPage = repository.findPage(ACCOUNT, TransactionQuery.latest(4));
+        List<Transaction> secondPage = repository.findPage(ACCOUNT,
+                new TransactionQuery(firstPage.get(3).id(), null, null, null, 4));
+        List<Transaction> lastPage = repository.findPage(ACCOUNT,
+                new TransactionQuery(secondPage.get(3).id(), null, null, null, 4));
+
+       
+        assertEquals(List.of(saved.get(9), saved.get(8), saved.get(7), saved.get(6)), firstPage);
+        assertEquals(List.of(saved.get(5), saved.get(4), saved.get(3), saved.get(2)), secondPage);
+        assertEquals(List.of(saved.get(1), saved.get(0)), lastPage);
+    }
+
+    @Test
+    void shouldPageForwardsWithAfterCursor() {
+       
+        List<Transaction> saved = saveDeposits(10);
+
+       
+        List<Transaction> page = repository.findPage(ACCOUNT,
+                new TransactionQuery(null, saved.get(2).id(), null, null, 3));
+        List<Transaction> between = repository.findPage(ACCOUNT,
+                new TransactionQuery(saved.get(8).id(), saved.get(2).id(), null, null, 3));
+
+       
+        assertEquals(List.of(saved.get(5), saved.get(4), saved.get(3)), page);
+        assertEquals(List.of(saved.get(7), saved.get(6), saved.get(5)), between);
+    }
+
+    @Test
+    void shouldFilterByTimeRange() {
+       
+        List<Transaction> saved = saveDeposits(10);
+        LocalDateTime from = saved.get(3).timestamp();
+        LocalDateTime to = saved.get(7).timestamp();
+
+       
+        List<Transaction> page = repository.findPage(ACCOUNT, new TransactionQuery(null, null, from, to, 100));
+        List<Transaction> limited = repository.findPage(ACCOUNT, new TransactionQuery(null, null, from, null, 2));
+
+       
+        assertEquals(List.of(saved.get(6), saved.get(5), saved.get(4), saved.get(3)), page);
+        assertEquals(List.of(saved.get(9), saved.get(8)), limited);
+    }
+
+    @Test
+    void shouldFilterByTypeAmountAndDescriptionWords() {
+
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<Transaction> saved = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            TransactionType type = i % 2 == 0 ? TransactionType.DEPOSIT : TransactionType.WITHDRAWAL;
+            String merchant = i % 3 == 0 ? "ACME Corp." : "Corner shop";
+            saved.add(repository.save(new Transaction(UUID.randomUUID(), ACCOUNT, type,
+                    new Money(i * 100), merchant + " #" + i, start.plusSeconds(i))));
+        }
+
+
+        List<Transaction> largeWithdrawals = repository.findPage(ACCOUNT, new TransactionQuery(null, null, null, null, 100,
+                TransactionFilter.of(TransactionType.WITHDRAWAL, Money.of("10.00"), null, null)));
+        List<Transaction> acme = repository.findPage(ACCOUNT, new TransactionQuery(null, null, null, null, 2,
+                TransactionFilter.of(null, null, null, "acme")));
+        List<Transaction> acmeAfter = repository.findPage(ACCOUNT, new TransactionQuery(null, saved.get(3).id(), null, null, 2,
+                TransactionFilter.of(null, null, null, "acme")));
+        List<Transaction> inRange = repository.findPage(ACCOUNT, new TransactionQuery(null, null, start.plusSeconds(4),
+                start.plusSeconds(8), 100, TransactionFilter.of(null, Money.of("3.00"), Money.of("7.00"), "shop")));
+        List<Transaction> unknownWord = repository.findPage(ACCOUNT, new TransactionQuery(null, null, null, null, 100,
+                TransactionFilter.of(null, null, null, "acme unknown")));
+        Transaction later = repository.save(new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.WITHDRAWAL,
+                Money.of("50.00"), "acme refund", start.plusSeconds(30)));
+        List<Transaction> afterSave = repository.findPage(ACCOUNT, new TransactionQuery(null, null, null, null, 1,
+                TransactionFilter.of(TransactionType.WITHDRAWAL, null, null, "ACME")));
+
+
+        assertEquals(List.of(saved.get(19), saved.get(17), saved.get(15), saved.get(13), saved.get(11)), largeWithdrawals);
+        assertEquals(List.of(saved.get(18), saved.get(15)), acme);
+        assertEquals(List.of(saved.get(9), saved.get(6)), acmeAfter);
+        assertEquals(List.of(saved.get(7), saved.get(5), saved.get(4)), inRange);
+        assertTrue(unknownWord.isEmpty());
+        assertEquals(List.of(later), afterSave);
+    }
+
+    @Test
+    void shouldRejectCursorFromAnotherAccount() {
+       
+        List<Transaction> saved = saveDeposits(2);
+
+        repository.save(new Transaction(UUID.randomUUID(), "acc-2", TransactionType.DEPOSIT,
+                Money.of("1.00"), "Other", LocalDateTime.now()));
+
+       
+        assertThrows(IllegalArgumentException.class, () -> repository.findPage("acc-2",
+                new TransactionQuery(saved.get(0).id(), null, null, null, 10)));
+        assertThrows(IllegalArgumentException.class, () -> repository.findPage(ACCOUNT,
+                new TransactionQuery(UUID.randomUUID(), null, null, null, 10)));
+    }
+
+    @Test
+    void shouldStreamTransactionsOldestFirst() {
+       
+        List<Transaction> saved = saveDeposits(3);
+
+       
+        Stream<Transaction> stream = repository.streamAll(ACCOUNT);
+        repository.save(new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.DEPOSIT,
+                Money.of("1.00"), "After stream", LocalDateTime.now().plusDays(1)));
+
+       
+        assertEquals(saved, stream.toList());
+        assertEquals(0, repository.streamAll("unknown").count());
+    }
+
+    @Test
+    void shouldPartitionTransactionsByAccount() {
+       
+        Transaction transaction1 = new Transaction(
+                UUID.randomUUID(),
+                ACCOUNT,
+                TransactionType.DEPOSIT,
+                Money.of("100.00"),
+                "Test deposit 1",
+                LocalDateTime.now()
+        );
+
+        Transaction transaction2 = new Transaction(
+                UUID.randomUUID(),
+                "acc-2",
+                TransactionType.DEPOSIT,
+                Money.of("50.00"),
+                "Test deposit 2",
+                LocalDateTime.now()
+        );
+
+        repository.save(transaction1);
+        repository.save(transaction2);
+
+       
+        assertEquals(List.of(transaction1), repository.findAll(ACCOUNT));
+        assertEquals(List.of(transaction2), repository.findAll("acc-2"));
+        assertTrue(repository.findAll("unknown").isEmpty());
+        assertEquals(transaction2, repository.findById(transaction2.id()).orElseThrow());
+    }
+
+    @Test
+    void shouldKeepRunningBalancePerAccount() {
+       
+        saveDeposits(3);
+        repository.save(new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.WITHDRAWAL,
+                Money.of("0.50"), "Withdrawal", LocalDateTime.now().plusDays(1)));
+
+       
+        assertEquals(Money.of("2.50"), repository.balance(ACCOUNT));
+        assertEquals(Money.ZERO, repository.balance("unknown"));
+    }
+
+    @Test
+    void shouldSaveBatchesAcrossAccountsAllOrNothing() {
+
+        repository.save(new Transaction(UUID.randomUUID(), "acc-2", TransactionType.DEPOSIT,
+                new Money(Long.MAX_VALUE), "Everything", LocalDateTime.now()));
+        Transfer transfer = Transaction.transfer(ACCOUNT, "acc-2", Money.of("1.00"), "Transfer");
+
+
+        assertThrows(ArithmeticException.class, () -> repository.saveAll(List.of(
+                new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.DEPOSIT, Money.of("5.00"), "Deposit", LocalDateTime.now()),
+                transfer.debit(), transfer.credit())));
+        assertThrows(IllegalArgumentException.class, () -> repository.saveAll(List.of(transfer.debit())));
+
+
+        assertTrue(repository.findAll(ACCOUNT).isEmpty());
+        assertEquals(1, repository.findAll("acc-2").size());
+        assertEquals(Money.ZERO, repository.balance(ACCOUNT));
+    }
+
+    private List<Transaction> saveDeposits(int count) {
+        LocalDateTime start = LocalDateTime.now();
+        List<Transaction> saved = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            saved.add(repository.save(new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.DEPOSIT,
+                    Money.of("1.00"), "Deposit " + i, start.plusMinutes(i))));
+        }
+        return saved;
+    }
+
+    @Test
+    void shouldAnswerBalanceAsOfAndSummariesFromRollups() {
+
+        LocalDateTime day = LocalDateTime.of(2024, 3, 1, 0, 0);
+        repository.saveAll(List.of(
+                rollupTransaction(TransactionType.DEPOSIT, "100.00", day.withHour(9).withSecond(10)),
+                rollupTransaction(TransactionType.WITHDRAWAL, "30.00", day.withHour(9).withSecond(40)),
+                rollupTransaction(TransactionType.DEPOSIT, "50.00", day.withHour(10).withMinute(15)),
+                rollupTransaction(TransactionType.WITHDRAWAL, "20.00", day.plusDays(1).withHour(8))));
+
+
+        List<PeriodSummary> days = repository.summarize(ACCOUNT, new SummaryQuery(Granularity.DAY, null, null, 10));
+        List<PeriodSummary> hours = repository.summarize(ACCOUNT,
+                new SummaryQuery(Granularity.HOUR, day.withHour(9).withMinute(30), day.plusDays(1), 10));
+
+
+        assertEquals(Money.ZERO, repository.balanceAsOf(ACCOUNT, day.withHour(9).withSecond(5)));
+        assertEquals(Money.of("100.00"), repository.balanceAsOf(ACCOUNT, day.withHour(9).withSecond(10)));
+        assertEquals(Money.of("100.00"), repository.balanceAsOf(ACCOUNT, day.withHour(9).withSecond(39)));
+        assertEquals(Money.of("70.00"), repository.balanceAsOf(ACCOUNT, day.withHour(9).withMinute(1)));
+        assertEquals(Money.of("120.00"), repository.balanceAsOf(ACCOUNT, day.withHour(23)));
+        assertEquals(Money.of("100.00"), repository.balanceAsOf(ACCOUNT, day.plusDays(7)));
+        assertEquals(Money.ZERO, repository.balanceAsOf("unknown", day));
+        assertEquals(List.of(
+                new PeriodSummary(day.plusDays(1), Money.ZERO, Money.of("20.00"), 1, Money.of("100.00")),
+                new PeriodSummary(day, Money.of("150.00"), Money.of("30.00"), 3, Money.of("120.00"))), days);
+        assertEquals(List.of(day.withHour(10), day.withHour(9)), hours.stream().map(PeriodSummary::start).toList());
+        assertEquals(List.of(hours.get(0)), repository.summarize(ACCOUNT,
+                new SummaryQuery(Granularity.HOUR, day.withHour(9).withMinute(30), day.plusDays(1), 1)));
+    }
+
+    private static Transaction rollupTransaction(TransactionType type, String amount, LocalDateTime timestamp) {
+        return new Transaction(UUID.randomUUID(), ACCOUNT, type, Money.of(amount), null, timestamp);
+    }
+
+    @Test
+    void shouldProveEntriesAgainstCheckpointsInLogarithmicSize() {
+
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<Transaction> saved = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            saved.add(repository.save(new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.DEPOSIT,
+                    Money.of("1.00"), "Deposit " + i, start.plusSeconds(i))));
+        }
+        List<Checkpoint> checkpoints = repository.checkpoints(ACCOUNT);
+
+
+        ChainProof entry = repository.proof(saved.get(1499).id()).orElseThrow();
+        ChainProof range = repository.proof(ACCOUNT, 1020, 1030);
+        ChainProof pending = repository.proof(ACCOUNT, 2401, 2401);
+        ChainProof forged = new ChainProof(ACCOUNT, entry.from(), entry.to(),
+                List.of(saved.get(1499).at(start)), entry.previousHash(), entry.hash(), entry.checkpoint(), entry.path());
+        repository.save(new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.WITHDRAWAL, Money.of("1.00"),
+                "Later", start.plusDays(1)));
+
+
+        assertEquals(2, checkpoints.size());
+        assertEquals(new Checkpoint(1, 1025, 2048, checkpoints.get(1).root()), checkpoints.get(1));
+        assertEquals(checkpoints, repository.checkpoints(ACCOUNT));
+        assertEquals(1500, entry.from());
+        assertEquals(List.of(saved.get(1499)), entry.entries());
+        assertEquals(checkpoints.get(1), entry.checkpoint());
+        assertEquals(HashChain.CHECKPOINT_SHIFT, entry.path().size());
+        assertTrue(entry.verify());
+        assertEquals(11, range.entries().size());
+        assertEquals(checkpoints.get(1), range.checkpoint());
+        assertTrue(range.verify());
+        assertNull(pending.checkpoint());
+        assertTrue(pending.verify());
+        assertFalse(forged.verify());
+        assertThrows(IllegalArgumentException.class, () -> repository.proof(ACCOUNT, 2600, 2600));
+        assertThrows(IllegalArgumentException.class, () -> repository.proof("unknown", 1, 1));
+        assertEquals(List.of(), repository.checkpoints("unknown"));
+    }
+
+    @Test
+    void shouldArchiveOldEntriesAndQueryAcrossBothTiers(@TempDir Path directory) throws Exception {
+
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 0, 0);
+        ArchiveProperties properties = new ArchiveProperties(directory, Duration.ofDays(30), Duration.ofHours(1), 100, 2);
+        try (InMemoryLedgerRepository tiered = new InMemoryLedgerRepository(properties)) {
+            List<Transaction> saved = new ArrayList<>();
+            for (int i = 0; i < 5000; i++) {
+                saved.add(tiered.save(new Transaction(UUID.randomUUID(), ACCOUNT,
+                        i % 3 == 2 ? TransactionType.WITHDRAWAL : TransactionType.DEPOSIT,
+                        Money.of(String.valueOf(1 + i % 50)), "Entry " + i % 7, start.plusMinutes(i))));
+            }
+            tiered.save(new Transaction(UUID.randomUUID(), "acc-2", TransactionType.DEPOSIT, Money.of("5.00"),
+                    "Old but few", start));
+            List<Transaction> history = tiered.findAll(ACCOUNT);
+            Money balance = tiered.balance(ACCOUNT);
+            Money balanceAsOf = tiered.balanceAsOf(ACCOUNT, start.plusMinutes(1234));
+            TransactionQuery filtered = new TransactionQuery(null, saved.get(100).id(), null, null, 20,
+                    TransactionFilter.of(TransactionType.WITHDRAWAL, null, null, "entry 3"));
+            List<Transaction> filteredPage = tiered.findPage(ACCOUNT, filtered);
+            TransactionQuery withdrawals = new TransactionQuery(null, null, null, null, 1000,
+                    TransactionFilter.of(TransactionType.WITHDRAWAL, null, null, null));
+            List<Transaction> withdrawalPage = tiered.findPage(ACCOUNT, withdrawals);
+            List<Checkpoint> checkpoints = tiered.checkpoints(ACCOUNT);
+            SummaryQuery minutes = new SummaryQuery(Granularity.MINUTE, null, start.plusMinutes(3500), 1000);
+            SummaryQuery hours = new SummaryQuery(Granularity.HOUR, null, start.plusMinutes(5000), 100);
+            List<PeriodSummary> minuteSummaries = tiered.summarize(ACCOUNT, minutes);
+            List<PeriodSummary> hourSummaries = tiered.summarize(ACCOUNT, hours);
+
+
+            long first = tiered.archive(start.plusMinutes(1500));
+            long second = tiered.archive(start.plusMinutes(2100));
+            Transaction archivedBeforeCompaction = tiered.findById(saved.get(1500).id()).orElseThrow();
+            long third = tiered.archive(start.plusMinutes(4000));
+            long nothing = tiered.archive(start.plusMinutes(4000));
+            Transaction later = tiered.save(Transaction.create(ACCOUNT, TransactionType.DEPOSIT, Money.of("1.00"), "Later"));
+
+
+            assertEquals(List.of(1024L, 1024L, 1024L, 0L), List.of(first, second, third, nothing));
+            try (Stream<Path> files = Files.list(directory)) {
+                assertEquals(1, files.count());
+            }
+            assertEquals(5000 - 3072 + 1 + 1, tiered.residentCount());
+            assertEquals(saved.get(1500), archivedBeforeCompaction);
+            assertEquals(history, tiered.findAll(ACCOUNT).subList(1, 5001));
+            assertEquals(balance.plus(Money.of("1.00")), tiered.balance(ACCOUNT));
+            assertEquals(Money.of("5.00"), tiered.balance("acc-2"));
+            assertEquals(balanceAsOf, tiered.balanceAsOf(ACCOUNT, start.plusMinutes(1234)));
+            assertEquals(filteredPage, tiered.findPage(ACCOUNT, filtered));
+            assertEquals(withdrawalPage, tiered.findPage(ACCOUNT, withdrawals));
+            assertEquals(saved.subList(10, 13), tiered.findPage(ACCOUNT,
+                    new TransactionQuery(null, saved.get(9).id(), null, null, 3)).reversed());
+            assertEquals(Optional.of(saved.get(42)), tiered.findById(saved.get(42).id()));
+            assertEquals(Optional.of(later), tiered.findById(later.id()));
+            assertEquals(checkpoints, tiered.checkpoints(ACCOUNT).subList(0, checkpoints.size()));
+            assertEquals(minuteSummaries, tiered.summarize(ACCOUNT, minutes));
+            assertEquals(hourSummaries, tiered.summarize(ACCOUNT, hours));
+            assertTrue(tiered.proof(saved.get(7).id()).orElseThrow().verify());
+            assertTrue(tiered.proof(ACCOUNT, 1024, 1025).verify());
+            assertEquals(List.of(saved.get(3071), saved.get(3072)), tiered.proof(ACCOUNT, 3072, 3073).entries());
+            assertEquals(saved, tiered.streamAll(ACCOUNT).limit(5000).toList());
+        }
+    }
+
     @Test
     void shouldFindTransactionById() {
        
         UUID id = UUID.randomUUID();
         Transaction transaction = new Transaction(
                 id,
+                ACCOUNT,
                 TransactionType.DEPOSIT,
-                new BigDecimal("100.00"),
+                Money.of("100.00"),
                 "Test deposit",
                 LocalDateTime.now()
         );
@@ -0,0 +1,335 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import com.rehan.tinyledger.core.domain.ChainProof;
+import com.rehan.tinyledger.core.domain.Checkpoint;
+import com.rehan.tinyledger.core.domain.Granularity;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.PeriodSummary;
+import com.rehan.tinyledger.core.domain.SummaryQuery;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionFilter;
+import com.rehan.tinyledger.core.domain.TransactionQuery;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import com.rehan.tinyledger.core.domain.Transfer;
+import com.rehan.tinyledger.core.port.AccountCut;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedLedgerRepositoryTest {
+    private static final String ACCOUNT = "acc-1";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldStoreAndReadBackTransactions() throws Exception {
+
+        MappedLedgerRepository repository = new MappedLedgerRepository(properties());
+        Transaction deposit = transaction(TransactionType.DEPOSIT, "100.00", "Salary — März", LocalDateTime.now());
+        Transaction withdrawal = transaction(TransactionType.WITHDRAWAL, "30.5", null, LocalDateTime.now());
+
+
+        Transaction savedDeposit = repository.save(deposit);
+        Transaction savedWithdrawal = repository.save(withdrawal);
+
+
+        assertEquals(deposit.timestamp().truncatedTo(ChronoUnit.MICROS), savedDeposit.timestamp());
+        assertEquals("Salary — März", savedDeposit.description());
+        assertNull(savedWithdrawal.description());
+        assertEquals(Money.of("30.50"), savedWithdrawal.amount());
+        assertEquals(List.of(savedWithdrawal, savedDeposit), repository.findAll(ACCOUNT));
+        assertEquals(savedDeposit, repository.findById(deposit.id()).orElseThrow());
+        assertTrue(repository.findById(UUID.randomUUID()).isEmpty());
+        assertEquals(Money.of("69.50"), repository.balance(ACCOUNT));
+        assertTrue(repository.findAll("unknown").isEmpty());
+    }
+
+    @Test
+    void shouldCutEveryAccountAtItsBalanceWhileWritesContinue() throws Exception {
+
+        MappedLedgerRepository repository = new MappedLedgerRepository(properties());
+        Transaction first = repository.save(transaction(TransactionType.DEPOSIT, "10.00", "Deposit", LocalDateTime.now()));
+        repository.save(transaction(TransactionType.WITHDRAWAL, "4.00", "Withdrawal", LocalDateTime.now()));
+
+
+        AccountCut cut = repository.cuts().get(0);
+        repository.save(transaction(TransactionType.DEPOSIT, "1.00", "Later", LocalDateTime.now()));
+
+
+        assertEquals(ACCOUNT, cut.accountId());
+        assertEquals(2, cut.size());
+        assertEquals(Money.of("6.00").minorUnits(), cut.balance());
+        assertEquals(first, cut.get(0));
+        assertTrue(cut.indexed(0) && cut.indexed(1));
+        assertEquals(3, repository.cuts().get(0).size());
+        repository.close();
+    }
+
+    @Test
+    void shouldChainLikeTheInMemoryStoreAndAcrossReopen() throws Exception {
+
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0, 0, 123_456_789);
+        InMemoryLedgerRepository memory = new InMemoryLedgerRepository();
+        MappedLedgerRepository repository = new MappedLedgerRepository(properties());
+        Transaction first = null;
+        for (int i = 0; i < 1100; i++) {
+            if (i == 10) {
+                // Builds the chain, which later saves then extend.
+                repository.checkpoints(ACCOUNT);
+            }
+            Transaction transaction = new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.DEPOSIT,
+                    Money.of("1.00"), i % 2 == 0 ? "Deposit " + i : null, start.plusSeconds(i));
+            memory.save(transaction);
+            Transaction saved = repository.save(transaction);
+            first = first == null ? saved : first;
+        }
+        List<Checkpoint> checkpoints = repository.checkpoints(ACCOUNT);
+        repository.close();
+
+
+        MappedLedgerRepository reopened = new MappedLedgerRepository(properties());
+        ChainProof proof = reopened.proof(first.id()).orElseThrow();
+
+
+        assertEquals(1, checkpoints.size());
+        assertEquals(memory.checkpoints(ACCOUNT), checkpoints);
+        assertEquals(checkpoints, reopened.checkpoints(ACCOUNT));
+        assertEquals(List.of(first), proof.entries());
+        assertEquals(checkpoints.get(0), proof.checkpoint());
+        assertTrue(proof.verify());
+        assertEquals(memory.proof(ACCOUNT, 1090, 1100).hash(), reopened.proof(ACCOUNT, 1090, 1100).hash());
+        reopened.close();
+    }
+
+    @Test
+    void shouldPageAcrossSegmentsAndReopen() throws Exception {
+
+        LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        List<Transaction> saved = new ArrayList<>();
+        MappedLedgerRepository repository = new MappedLedgerRepository(properties());
+        for (int i = 0; i < 3000; i++) {
+            String account = i % 3 == 0 ? "acc-2" : ACCOUNT;
+            saved.add(repository.save(new Transaction(UUID.randomUUID(), account, TransactionType.DEPOSIT,
+                    Money.of("1.00"), "Deposit " + i, start.plusSeconds(i))));
+        }
+        repository.close();
+
+
+        MappedLedgerRepository reopened = new MappedLedgerRepository(properties());
+        List<Transaction> history = saved.stream().filter(t -> t.accountId().equals(ACCOUNT)).toList();
+        assertEquals(2000, reopened.findAll(ACCOUNT).size());
+        assertEquals(Money.of("1000.00"), reopened.balance("acc-2"));
+        assertEquals(history, reopened.streamAll(ACCOUNT).toList());
+        for (Transaction transaction : saved) {
+            assertEquals(transaction, reopened.findById(transaction.id()).orElseThrow());
+        }
+        assertEquals(List.of(history.get(1500), history.get(1499)),
+                reopened.findPage(ACCOUNT, new TransactionQuery(history.get(1501).id(), null, null, null, 2)));
+        assertEquals(List.of(history.get(11), history.get(10)), reopened.findPage(ACCOUNT,
+                new TransactionQuery(null, null, history.get(10).timestamp(), history.get(12).timestamp(), 10)));
+        assertThrows(IllegalArgumentException.class, () -> reopened.findPage(ACCOUNT,
+                new TransactionQuery(saved.get(0).id(), null, null, null, 10)));
+
+        assertEquals(List.of(history.get(1999), history.get(1998)), reopened.findPage(ACCOUNT,
+                new TransactionQuery(null, null, null, null, 2, TransactionFilter.of(null, null, null, "deposit"))));
+        assertEquals(List.of(history.get(6)), reopened.findPage(ACCOUNT,
+                new TransactionQuery(null, null, null, null, 10, TransactionFilter.of(null, null, null, "Deposit 10"))));
+
+        assertEquals(Money.of("11.00"), reopened.balanceAsOf(ACCOUNT, history.get(10).timestamp()));
+        assertEquals(Money.of("11.00"), reopened.balanceAsOf(ACCOUNT, history.get(10).timestamp().plusNanos(1_000)));
+
+        Transaction next = reopened.save(transaction(TransactionType.WITHDRAWAL, "5.00", "After reopen", start));
+        assertEquals(history.get(1999).timestamp(), next.timestamp());
+        assertEquals(next, reopened.findAll(ACCOUNT).get(0));
+        assertEquals(List.of(next), reopened.findPage(ACCOUNT, new TransactionQuery(null, null, null, null, 10,
+                TransactionFilter.of(TransactionType.WITHDRAWAL, null, null, "reopen"))));
+        List<PeriodSummary> hours = reopened.summarize(ACCOUNT, new SummaryQuery(Granularity.HOUR, null, null, 10));
+        assertEquals(2001, hours.stream().mapToLong(PeriodSummary::count).sum());
+        assertEquals(Money.of("1995.00"), hours.get(0).closingBalance());
+        assertEquals(Money.of("5.00"), hours.get(0).withdrawals());
+    }
+
+    @Test
+    void shouldRejectTransactionsThatOverflowTheBalance() throws Exception {
+
+        MappedLedgerRepository repository = new MappedLedgerRepository(properties());
+        repository.save(new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.DEPOSIT,
+                new Money(Long.MAX_VALUE), "Everything", LocalDateTime.now()));
+
+
+        assertThrows(ArithmeticException.class, () ->
+                repository.save(transaction(TransactionType.DEPOSIT, "0.01", "One cent too many", LocalDateTime.now())));
+        assertEquals(1, repository.findAll(ACCOUNT).size());
+        assertEquals(new Money(Long.MAX_VALUE), repository.balance(ACCOUNT));
+    }
+
+    @Test
+    void shouldKeepTransferLegsLinkedAcrossReopen() throws Exception {
+
+        MappedLedgerRepository repository = new MappedLedgerRepository(properties());
+        repository.save(transaction(TransactionType.DEPOSIT, "100.00", "Salary", LocalDateTime.now()));
+        Transfer transfer = Transaction.transfer(ACCOUNT, "acc-2", Money.of("40.00"), "Rent");
+        List<Transaction> saved = repository.saveAll(transfer.legs());
+        Transfer dangling = Transaction.transfer(ACCOUNT, "acc-2", Money.of("1.00"), "Half");
+        repository.close();
+
+
+        MappedLedgerRepository reopened = new MappedLedgerRepository(properties());
+
+
+        assertEquals(transfer.credit().id(), saved.get(0).linkedId());
+        assertEquals(transfer.debit().id(), saved.get(1).linkedId());
+        assertEquals(saved.get(0), reopened.findById(transfer.debit().id()).orElseThrow());
+        assertEquals(saved.get(1), reopened.findAll("acc-2").get(0));
+        assertEquals(Money.of("60.00"), reopened.balance(ACCOUNT));
+        assertEquals(Money.of("40.00"), reopened.balance("acc-2"));
+        assertThrows(IllegalArgumentException.class, () -> reopened.save(dangling.credit()));
+        assertEquals(1, reopened.findAll("acc-2").size());
+    }
+
+    @Test
+    void shouldBuildRollupsWhileWritesContinue() throws Exception {
+
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 0, 0);
+        MappedLedgerRepository repository = new MappedLedgerRepository(properties());
+        for (int i = 0; i < 20_000; i++) {
+            repository.save(transaction(TransactionType.DEPOSIT, "1.00", "Deposit", start.plusSeconds(i)));
+        }
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 2_000; i++) {
+                repository.save(transaction(TransactionType.DEPOSIT, "1.00", "Deposit", start.plusSeconds(20_000 + i)));
+            }
+        });
+
+
+        writer.start();
+        List<PeriodSummary> hours = repository.summarize(ACCOUNT, new SummaryQuery(Granularity.HOUR, null, null, 100));
+        writer.join();
+
+
+        assertFalse(hours.isEmpty());
+        assertEquals(Money.of("22000.00"), repository.balanceAsOf(ACCOUNT, start.plusDays(1)));
+        long counted = 0;
+        for (PeriodSummary hour : repository.summarize(ACCOUNT, new SummaryQuery(Granularity.HOUR, null, null, 100))) {
+            counted += hour.count();
+        }
+        assertEquals(22_000, counted);
+    }
+
+    @Test
+    void shouldBuildTheHistoryIndexWhileWritesContinue() throws Exception {
+
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 0, 0);
+        MappedLedgerRepository repository = new MappedLedgerRepository(properties());
+        for (int i = 0; i < 20_000; i++) {
+            repository.save(transaction(TransactionType.DEPOSIT, "1.00", i % 10 == 0 ? "Coffee" : "Deposit", start.plusSeconds(i)));
+        }
+        List<Transaction> written = new ArrayList<>();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 2_000; i++) {
+                written.add(repository.save(transaction(TransactionType.DEPOSIT, "1.00", i % 10 == 0 ? "Coffee" : "Deposit",
+                        start.plusSeconds(20_000 + i))));
+            }
+        });
+        TransactionFilter coffee = TransactionFilter.of(null, null, null, "coffee");
+
+
+        writer.start();
+        List<Transaction> during = repository.findPage(ACCOUNT, new TransactionQuery(null, null, null, null, 10, coffee));
+        writer.join();
+
+
+        assertEquals(10, during.size());
+        List<Transaction> late = repository.findPage(ACCOUNT,
+                new TransactionQuery(null, null, start.plusSeconds(20_000), null, 1000, coffee));
+        assertEquals(200, late.size());
+        assertEquals(written.get(1_990), late.get(0));
+    }
+
+    @Test
+    void shouldSaveOpposingTransfersWhileAccountsAreFiltered() throws Exception {
+
+        MappedLedgerRepository repository = new MappedLedgerRepository(properties());
+        repository.save(transaction(TransactionType.DEPOSIT, "100.00", "Opening", LocalDateTime.now()));
+        repository.save(new Transaction(UUID.randomUUID(), "acc-2", TransactionType.DEPOSIT, Money.of("100.00"),
+                "Opening", LocalDateTime.now()));
+        TransactionFilter transfers = TransactionFilter.of(null, null, null, "transfer");
+        List<Thread> threads = List.of(
+                new Thread(() -> {
+                    for (int i = 0; i < 1_000; i++) {
+                        repository.saveAll(Transaction.transfer(ACCOUNT, "acc-2", Money.of("0.01"), "Transfer").legs());
+                    }
+                }),
+                new Thread(() -> {
+                    for (int i = 0; i < 1_000; i++) {
+                        repository.saveAll(Transaction.transfer("acc-2", ACCOUNT, Money.of("0.01"), "Transfer").legs());
+                    }
+                }),
+                new Thread(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        repository.findPage(i % 2 == 0 ? ACCOUNT : "acc-2", new TransactionQuery(null, null, null, null, 100, transfers));
+                    }
+                }));
+
+
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(30_000);
+            assertFalse(thread.isAlive());
+        }
+
+
+        assertEquals(Money.of("100.00"), repository.balance(ACCOUNT));
+        assertEquals(Money.of("100.00"), repository.balance("acc-2"));
+        assertEquals(2_001, repository.findAll(ACCOUNT).size());
+        assertEquals(100, repository.findPage("acc-2", new TransactionQuery(null, null, null, null, 100, transfers)).size());
+    }
+
+    @Test
+    void shouldChainTransfersSavedWhileTheChainIsBuilt() throws Exception {
+
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        MappedLedgerRepository repository = new MappedLedgerRepository(properties());
+        for (int i = 0; i < 5_000; i++) {
+            repository.save(transaction(TransactionType.DEPOSIT, "1.00", "Deposit", start.plusSeconds(i)));
+        }
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 1_500; i++) {
+                repository.saveAll(Transaction.transfer(ACCOUNT, "acc-2", Money.of("0.01"), "Transfer").legs());
+            }
+        });
+
+
+        writer.start();
+        repository.checkpoints(ACCOUNT);
+        writer.join();
+        List<Checkpoint> checkpoints = repository.checkpoints(ACCOUNT);
+        String head = repository.proof(ACCOUNT, 6_490, 6_500).hash();
+        repository.close();
+        MappedLedgerRepository reopened = new MappedLedgerRepository(properties());
+
+
+        assertEquals(6, checkpoints.size());
+        assertEquals(reopened.checkpoints(ACCOUNT), checkpoints);
+        assertEquals(reopened.proof(ACCOUNT, 6_490, 6_500).hash(), head);
+        reopened.close();
+    }
+
+    private MappedProperties properties() {
+        return new MappedProperties(directory, 256, DataSize.ofKilobytes(4));
+    }
+
+    private static Transaction transaction(TransactionType type, String amount, String description, LocalDateTime timestamp) {
+        return new Transaction(UUID.randomUUID(), ACCOUNT, type, Money.of(amount), description, timestamp);
+    }
+}
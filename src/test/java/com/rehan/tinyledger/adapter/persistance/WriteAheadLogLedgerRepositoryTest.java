@@ -0,0 +1,442 @@
+package com.rehan.tinyledger.adapter.persistance;
+
+import com.rehan.tinyledger.core.domain.Checkpoint;
+import com.rehan.tinyledger.core.domain.Granularity;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.PeriodSummary;
+import com.rehan.tinyledger.core.domain.SummaryQuery;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionQuery;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import com.rehan.tinyledger.core.domain.Transfer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogLedgerRepositoryTest {
+    private static final String ACCOUNT = "acc-1";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldReplayTransactionsAfterRestart() throws Exception {
+
+        WalProperties properties = properties(WalProperties.Durability.PER_COMMIT);
+        Transaction deposit = transaction(TransactionType.DEPOSIT, "100.00", "Salary");
+        Transaction withdrawal = new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.WITHDRAWAL,
+                Money.of("30.00"), null, LocalDateTime.now());
+
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            repository.save(deposit);
+            repository.save(withdrawal);
+        }
+
+
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+
+            assertEquals(List.of(withdrawal, deposit), repository.findAll(ACCOUNT));
+            assertEquals(deposit, repository.findById(deposit.id()).orElseThrow());
+        }
+    }
+
+    @Test
+    void shouldGroupConcurrentSavesIntoDurableBatches() throws Exception {
+
+        WalProperties properties = properties(WalProperties.Durability.BATCHED);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Transaction>> futures = new ArrayList<>();
+
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            for (int i = 0; i < 2000; i++) {
+                String account = "acc-" + (i % 8);
+                futures.add(executor.submit(() -> repository.save(new Transaction(UUID.randomUUID(), account,
+                        TransactionType.DEPOSIT, Money.of("1.00"), "Deposit", LocalDateTime.now()))));
+            }
+            for (Future<Transaction> future : futures) {
+                future.get();
+            }
+        }
+        executor.shutdown();
+
+
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            int total = 0;
+            for (int i = 0; i < 8; i++) {
+                total += repository.findAll("acc-" + i).size();
+            }
+            assertEquals(2000, total);
+            for (Future<Transaction> future : futures) {
+                assertTrue(repository.findById(future.get().id()).isPresent());
+            }
+        }
+    }
+
+    @Test
+    void shouldFlushAsyncWritesOnClose() throws Exception {
+
+        WalProperties properties = properties(WalProperties.Durability.ASYNC);
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            for (int i = 0; i < 100; i++) {
+                repository.save(transaction(TransactionType.DEPOSIT, "1.00", "Deposit " + i));
+            }
+        }
+
+
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+
+            assertEquals(100, repository.findAll(ACCOUNT).size());
+        }
+    }
+
+    @Test
+    void shouldDiscardTornTailOnReplay() throws Exception {
+
+        WalProperties properties = properties(WalProperties.Durability.PER_COMMIT);
+        Transaction deposit = transaction(TransactionType.DEPOSIT, "100.00", "Salary");
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            repository.save(deposit);
+            repository.save(transaction(TransactionType.DEPOSIT, "5.00", "Torn"));
+        }
+        try (FileChannel channel = FileChannel.open(segment(properties, 0), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+
+        Transaction next;
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            assertEquals(List.of(deposit), repository.findAll(ACCOUNT));
+            next = repository.save(transaction(TransactionType.DEPOSIT, "7.00", "After restart"));
+        }
+
+
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            assertEquals(List.of(next, deposit), repository.findAll(ACCOUNT));
+        }
+    }
+
+    @Test
+    void shouldReplayBatchWrittenAsOneRecord() throws Exception {
+
+        WalProperties properties = properties(WalProperties.Durability.BATCHED);
+        List<Transaction> batch = List.of(
+                transaction(TransactionType.DEPOSIT, "10.00", "Deposit 1"),
+                transaction(TransactionType.DEPOSIT, "20.00", "Deposit 2"),
+                new Transaction(UUID.randomUUID(), "acc-2", TransactionType.DEPOSIT, Money.of("5.00"), null, LocalDateTime.now()));
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            assertEquals(batch, repository.saveAll(batch));
+        }
+        try (FileChannel channel = FileChannel.open(segment(properties, 0), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            assertTrue(repository.findAll(ACCOUNT).isEmpty());
+            assertTrue(repository.findAll("acc-2").isEmpty());
+        }
+    }
+
+    @Test
+    void shouldRejectAnOverflowingSaveBeforeLoggingIt() throws Exception {
+
+        WalProperties properties = properties(WalProperties.Durability.BATCHED);
+        Transaction max = new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.DEPOSIT, new Money(Long.MAX_VALUE),
+                "Max", LocalDateTime.now());
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            repository.save(max);
+            long logged = Files.size(segment(properties, 0));
+
+
+            assertThrows(ArithmeticException.class, () -> repository.save(transaction(TransactionType.DEPOSIT, "1.00", "Over")));
+            assertEquals(logged, Files.size(segment(properties, 0)));
+        }
+
+
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            assertEquals(List.of(max), repository.findAll(ACCOUNT));
+        }
+    }
+
+    @Test
+    void shouldRejectATransferLegLinkedToAnUnknownLegBeforeLoggingIt() throws Exception {
+
+        WalProperties properties = properties(WalProperties.Durability.BATCHED);
+        Transaction deposit = transaction(TransactionType.DEPOSIT, "10.00", "Salary");
+        Transfer transfer = Transaction.transfer(ACCOUNT, "acc-2", Money.of("4.00"), "Rent");
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            repository.save(deposit);
+            long logged = Files.size(segment(properties, 0));
+
+
+            assertThrows(IllegalArgumentException.class, () -> repository.save(transfer.debit()));
+            assertEquals(logged, Files.size(segment(properties, 0)));
+            repository.saveAll(List.of(transfer.debit(), transfer.credit()));
+        }
+
+
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            assertEquals(List.of(transfer.debit(), deposit), repository.findAll(ACCOUNT));
+            assertEquals(List.of(transfer.credit()), repository.findAll("acc-2"));
+            assertEquals(Money.of("6.00"), repository.balance(ACCOUNT));
+        }
+    }
+
+    @Test
+    void shouldSkipARecordThatCannotBeAppliedOnReplay() throws Exception {
+
+        WalProperties properties = properties(WalProperties.Durability.PER_COMMIT);
+        Transaction max = new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.DEPOSIT, new Money(Long.MAX_VALUE),
+                "Max", LocalDateTime.now());
+        Transaction overflow = new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.DEPOSIT, Money.of("1.00"),
+                "Overflow", LocalDateTime.now());
+        Transaction withdrawal = transaction(TransactionType.WITHDRAWAL, "5.00", "After");
+        // Written without any check, as a log from before records were checked could be.
+        try (WriteAheadLog log = WriteAheadLog.open(properties, 0, transactions -> transactions,
+                () -> transactions -> { }, (position, records) -> { })) {
+            log.append(List.of(max)).join();
+            log.append(List.of(overflow)).join();
+            log.append(List.of(withdrawal)).join();
+        }
+
+
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+
+            assertEquals(List.of(withdrawal, max), repository.findAll(ACCOUNT));
+            assertEquals(2, repository.replayed());
+            assertEquals(new Money(Long.MAX_VALUE - 500), repository.balance(ACCOUNT));
+        }
+    }
+
+    @Test
+    void shouldRejectSavesAfterClose() throws Exception {
+
+        WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties(WalProperties.Durability.BATCHED));
+        repository.close();
+
+
+        assertThrows(IllegalStateException.class, () -> repository.save(transaction(TransactionType.DEPOSIT, "1.00", "Late")));
+        assertTrue(Files.exists(segment(properties(WalProperties.Durability.BATCHED), 0)));
+    }
+
+    @Test
+    void shouldRecoverFromSnapshotAndReplayOnlyTheTail() throws Exception {
+
+        WalProperties properties = new WalProperties(directory.resolve("ledger.wal"),
+                WalProperties.Durability.PER_COMMIT, 256, Duration.ofMillis(5), 100);
+        List<Transaction> saved = new ArrayList<>();
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            for (int i = 0; i < 130; i++) {
+                String account = i % 2 == 0 ? ACCOUNT : "acc-2";
+                saved.add(repository.save(new Transaction(UUID.randomUUID(), account, TransactionType.DEPOSIT,
+                        Money.of("1.00"), "Deposit " + i, LocalDateTime.now())));
+            }
+        }
+
+
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            assertEquals(100, repository.snapshotted());
+            assertEquals(30, repository.replayed());
+            assertEquals(65, repository.findAll(ACCOUNT).size());
+            assertEquals(Money.of("65.00"), repository.balance("acc-2"));
+            for (Transaction transaction : saved) {
+                assertEquals(transaction, repository.findById(transaction.id()).orElseThrow());
+            }
+            List<Transaction> page = repository.findPage(ACCOUNT, new TransactionQuery(saved.get(2).id(), null, null, null, 5));
+            assertEquals(List.of(saved.get(0)), page);
+
+            Transaction next = repository.save(transaction(TransactionType.WITHDRAWAL, "5.00", "After restart"));
+            assertEquals(next, repository.findAll(ACCOUNT).get(0));
+            assertEquals(Money.of("60.00"), repository.balance(ACCOUNT));
+            List<PeriodSummary> days = repository.summarize(ACCOUNT, new SummaryQuery(Granularity.DAY, null, null, 10));
+            assertEquals(66, days.stream().mapToLong(PeriodSummary::count).sum());
+            assertEquals(Money.of("60.00"), days.get(0).closingBalance());
+            assertEquals(Money.of("60.00"), repository.balanceAsOf(ACCOUNT, next.timestamp()));
+        }
+    }
+
+    @Test
+    void shouldWriteOnlyTheEntriesSinceTheLastSnapshot() throws Exception {
+
+        WalProperties properties = new WalProperties(directory.resolve("ledger.wal"),
+                WalProperties.Durability.PER_COMMIT, 256, Duration.ofMillis(5), 100);
+        List<Transaction> saved = new ArrayList<>();
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            for (int i = 0; i < 1000; i++) {
+                String account = i % 2 == 0 ? ACCOUNT : "acc-2";
+                saved.add(repository.save(new Transaction(UUID.randomUUID(), account, TransactionType.DEPOSIT,
+                        Money.of("1.00"), "Deposit " + i, LocalDateTime.now())));
+                if ((i + 1) % 100 == 0) {
+                    awaitSnapshot(properties, i + 1);
+                }
+            }
+        }
+
+
+        SnapshotFile latest = SnapshotFile.openLatest(properties.path()).orElseThrow();
+        assertEquals(List.of(200L, 800L), latest.chain().stream().map(SnapshotFile::recordCount).toList());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.filter(path -> path.toString().endsWith(".snapshot")).count());
+        }
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            assertEquals(1000, repository.snapshotted());
+            assertEquals(0, repository.replayed());
+            assertEquals(Money.of("500.00"), repository.balance(ACCOUNT));
+            for (Transaction transaction : saved) {
+                assertEquals(transaction, repository.findById(transaction.id()).orElseThrow());
+            }
+            assertEquals(saved.get(0), repository.findAll(ACCOUNT).get(499));
+        }
+    }
+
+    @Test
+    void shouldDeleteTheLogBelowTheLatestSnapshot() throws Exception {
+
+        WalProperties properties = new WalProperties(directory.resolve("ledger.wal"),
+                WalProperties.Durability.PER_COMMIT, 256, Duration.ofMillis(5), 100);
+        List<Transaction> saved = new ArrayList<>();
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            for (int i = 0; i < 250; i++) {
+                saved.add(repository.save(transaction(TransactionType.DEPOSIT, "1.00", "Deposit " + i)));
+                if ((i + 1) % 100 == 0) {
+                    awaitSnapshot(properties, i + 1);
+                }
+            }
+        }
+
+
+        long walPosition = SnapshotFile.openLatest(properties.path()).orElseThrow().walPosition();
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of(segment(properties, walPosition)),
+                    files.filter(path -> path.toString().endsWith(".log")).toList());
+        }
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            assertEquals(200, repository.snapshotted());
+            assertEquals(50, repository.replayed());
+            for (Transaction transaction : saved) {
+                assertEquals(transaction, repository.findById(transaction.id()).orElseThrow());
+            }
+        }
+    }
+
+    @Test
+    void shouldOpenALogWrittenAsASingleFile() throws Exception {
+
+        WalProperties properties = properties(WalProperties.Durability.PER_COMMIT);
+        Transaction deposit = transaction(TransactionType.DEPOSIT, "100.00", "Salary");
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            repository.save(deposit);
+        }
+        Files.move(segment(properties, 0), properties.path());
+
+
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+
+            assertEquals(List.of(deposit), repository.findAll(ACCOUNT));
+            assertFalse(Files.exists(properties.path()));
+        }
+    }
+
+    @Test
+    void shouldRebuildTheSameHashChainFromSnapshotAndReplay() throws Exception {
+
+        WalProperties properties = new WalProperties(directory.resolve("ledger.wal"),
+                WalProperties.Durability.BATCHED, 256, Duration.ofMillis(5), 1500);
+        List<Checkpoint> checkpoints;
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            for (int i = 0; i < 2500; i++) {
+                repository.save(transaction(TransactionType.DEPOSIT, "1.00", "Deposit " + i));
+            }
+            checkpoints = repository.checkpoints(ACCOUNT);
+        }
+
+
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            assertEquals(1500, repository.snapshotted());
+            assertEquals(2, checkpoints.size());
+            assertEquals(checkpoints, repository.checkpoints(ACCOUNT));
+            assertTrue(repository.proof(ACCOUNT, 1000, 1100).verify());
+        }
+    }
+
+    @Test
+    void shouldFailWhenLogIsMissingWhatFollowsTheSnapshot() throws Exception {
+
+        WalProperties properties = new WalProperties(directory.resolve("ledger.wal"),
+                WalProperties.Durability.PER_COMMIT, 256, Duration.ofMillis(5), 10);
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties)) {
+            for (int i = 0; i < 10; i++) {
+                repository.save(transaction(TransactionType.DEPOSIT, "1.00", "Deposit " + i));
+            }
+        }
+        awaitSnapshot(properties, 10);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(path -> path.toString().endsWith(".log")).toList()) {
+                Files.delete(file);
+            }
+        }
+
+
+        assertThrows(IllegalStateException.class, () -> new WriteAheadLogLedgerRepository(properties));
+    }
+
+    @Test
+    void shouldPublishSizeAndCommitMetrics() throws Exception {
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        try (WriteAheadLogLedgerRepository repository = new WriteAheadLogLedgerRepository(properties(WalProperties.Durability.PER_COMMIT))) {
+            repository.bindTo(registry);
+
+
+            repository.save(transaction(TransactionType.DEPOSIT, "100.00", "Salary"));
+            repository.saveAll(List.of(transaction(TransactionType.DEPOSIT, "1.00", "First"),
+                    transaction(TransactionType.WITHDRAWAL, "2.00", "Second")));
+
+
+            assertEquals(1, registry.get("ledger.repository.accounts").gauge().value());
+            assertEquals(3, registry.get("ledger.repository.transactions").gauge().value());
+            assertEquals(Files.size(segment(properties(WalProperties.Durability.PER_COMMIT), 0)),
+                    registry.get("ledger.repository.bytes").gauge().value());
+            assertEquals(2, registry.get("ledger.wal.batch.size").summary().count());
+            assertEquals(3, registry.get("ledger.wal.batch.size").summary().totalAmount());
+            assertEquals(2, registry.get("ledger.wal.fsync").timer().count());
+        }
+    }
+
+    private WalProperties properties(WalProperties.Durability durability) {
+        return new WalProperties(directory.resolve("ledger.wal"), durability, 256, Duration.ofMillis(5), 0);
+    }
+
+    // Snapshots are written in the background and skipped while one is in flight; wait for each one.
+    private static void awaitSnapshot(WalProperties properties, long transactions) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (SnapshotFile.openLatest(properties.path()).map(SnapshotFile::transactionCount).orElse(0L) < transactions) {
+            assertTrue(System.nanoTime() < deadline, "No snapshot of " + transactions + " transactions");
+            Thread.sleep(5);
+        }
+    }
+
+    private static Path segment(WalProperties properties, long start) {
+        return WriteAheadLog.segmentPath(properties.path(), start);
+    }
+
+    private static Transaction transaction(TransactionType type, String amount, String description) {
+        return new Transaction(UUID.randomUUID(), ACCOUNT, type, Money.of(amount), description, LocalDateTime.now());
+    }
+}
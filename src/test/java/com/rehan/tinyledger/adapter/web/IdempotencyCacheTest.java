@@ -0,0 +1,179 @@
+package com.rehan.tinyledger.adapter.web;
+
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionRequest;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyCacheTest {
+    private static final String ACCOUNT = "acc-1";
+    private static final TransactionRequest REQUEST =
+            new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("100.00"), "Deposit");
+
+    @Test
+    void shouldReplayOriginalResult() {
+
+        IdempotencyCache cache = new IdempotencyCache(new IdempotencyProperties(100, Duration.ofHours(1)));
+        AtomicInteger executions = new AtomicInteger();
+
+
+        IdempotencyCache.Outcome first = cache.execute(ACCOUNT, "key-1", REQUEST, () -> record(executions));
+        IdempotencyCache.Outcome retry = cache.execute(ACCOUNT, "key-1", REQUEST, () -> record(executions));
+        IdempotencyCache.Outcome otherAccount = cache.execute("acc-2", "key-1", REQUEST, () -> record(executions));
+
+
+        assertFalse(first.replayed());
+        assertTrue(retry.replayed());
+        assertEquals(first.transaction(), retry.transaction());
+        assertNotEquals(first.transaction(), otherAccount.transaction());
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void shouldCollapseConcurrentDuplicates() throws Exception {
+
+        IdempotencyCache cache = new IdempotencyCache(new IdempotencyProperties(100, Duration.ofHours(1)));
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+
+        List<Future<IdempotencyCache.Outcome>> outcomes = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            outcomes.add(executor.submit(() -> cache.execute(ACCOUNT, "key-1", REQUEST, () -> {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return record(executions);
+            })));
+        }
+        Thread.sleep(100);
+        release.countDown();
+
+
+        Transaction original = outcomes.get(0).get().transaction();
+        for (Future<IdempotencyCache.Outcome> outcome : outcomes) {
+            assertEquals(original, outcome.get().transaction());
+        }
+        assertEquals(1, executions.get());
+        executor.shutdown();
+    }
+
+    @Test
+    void shouldRejectKeyReusedForDifferentRequest() {
+
+        IdempotencyCache cache = new IdempotencyCache(new IdempotencyProperties(100, Duration.ofHours(1)));
+        cache.execute(ACCOUNT, "key-1", REQUEST, () -> record(new AtomicInteger()));
+
+
+        TransactionRequest other = new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("200.00"), "Deposit");
+        assertThrows(IdempotencyKeyReusedException.class, () ->
+                cache.execute(ACCOUNT, "key-1", other, () -> record(new AtomicInteger())));
+    }
+
+    @Test
+    void shouldReplayARetryThatWritesTheAmountWithAnotherScale() {
+
+        IdempotencyCache cache = new IdempotencyCache(new IdempotencyProperties(100, Duration.ofHours(1)));
+        AtomicInteger executions = new AtomicInteger();
+        TransactionRequest rescaled = new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("100.0"), "Deposit");
+
+
+        IdempotencyCache.Outcome first = cache.execute(ACCOUNT, "key-1", REQUEST, () -> record(executions));
+        IdempotencyCache.Outcome retry = cache.execute(ACCOUNT, "key-1", rescaled, () -> record(executions));
+
+
+        assertTrue(retry.replayed());
+        assertEquals(first.transaction(), retry.transaction());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void shouldNotRememberFailures() {
+
+        IdempotencyCache cache = new IdempotencyCache(new IdempotencyProperties(100, Duration.ofHours(1)));
+        AtomicInteger executions = new AtomicInteger();
+
+
+        assertThrows(IllegalStateException.class, () -> cache.execute(ACCOUNT, "key-1", REQUEST, () -> {
+            throw new IllegalStateException("store unavailable");
+        }));
+        IdempotencyCache.Outcome retry = cache.execute(ACCOUNT, "key-1", REQUEST, () -> record(executions));
+
+
+        assertFalse(retry.replayed());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void shouldBoundSizeAndExpireEntries() throws Exception {
+
+        IdempotencyCache bounded = new IdempotencyCache(new IdempotencyProperties(10, Duration.ofHours(1)));
+        IdempotencyCache expiring = new IdempotencyCache(new IdempotencyProperties(10, Duration.ofMillis(20)));
+        AtomicInteger executions = new AtomicInteger();
+
+
+        for (int i = 0; i < 100; i++) {
+            bounded.execute(ACCOUNT, "key-" + i, REQUEST, () -> record(executions));
+        }
+        expiring.execute(ACCOUNT, "key-1", REQUEST, () -> record(executions));
+        Thread.sleep(50);
+
+
+        assertTrue(bounded.size() <= 10);
+        assertFalse(expiring.execute(ACCOUNT, "key-1", REQUEST, () -> record(executions)).replayed());
+    }
+
+    @Test
+    void shouldEvictPastAStuckRequest() throws Exception {
+
+        IdempotencyCache cache = new IdempotencyCache(new IdempotencyProperties(10, Duration.ofHours(1)));
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<IdempotencyCache.Outcome> stuck = executor.submit(() -> cache.execute(ACCOUNT, "stuck", REQUEST, () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return record(executions);
+        }));
+        started.await();
+
+
+        for (int i = 0; i < 100; i++) {
+            cache.execute(ACCOUNT, "key-" + i, REQUEST, () -> record(executions));
+        }
+
+
+        assertTrue(cache.size() <= 11);
+        release.countDown();
+        assertFalse(stuck.get().replayed());
+        assertTrue(cache.execute(ACCOUNT, "stuck", REQUEST, () -> record(executions)).replayed());
+        executor.shutdown();
+    }
+
+    private static Transaction record(AtomicInteger executions) {
+        executions.incrementAndGet();
+        return Transaction.create(ACCOUNT, REQUEST.type(), Money.of(REQUEST.amount()), REQUEST.description());
+    }
+}
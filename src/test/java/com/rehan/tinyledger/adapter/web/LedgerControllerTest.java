@@ -4,33 +4,69 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.rehan.tinyledger.adapter.persistance.InMemoryLedgerRepository;
 import com.rehan.tinyledger.core.domain.BalanceResponse;
+import com.rehan.tinyledger.core.domain.BatchItemResult;
+import com.rehan.tinyledger.core.domain.BatchMode;
+import com.rehan.tinyledger.core.domain.BatchRequest;
+import com.rehan.tinyledger.core.domain.BatchResult;
+import com.rehan.tinyledger.core.domain.ChainProof;
+import com.rehan.tinyledger.core.domain.Granularity;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.PeriodSummary;
+import com.rehan.tinyledger.core.domain.SummaryQuery;
 import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionFilter;
+import com.rehan.tinyledger.core.domain.TransactionQuery;
 import com.rehan.tinyledger.core.domain.TransactionRequest;
 import com.rehan.tinyledger.core.domain.TransactionType;
+import com.rehan.tinyledger.core.domain.Transfer;
+import com.rehan.tinyledger.core.domain.TransferRequest;
+import com.rehan.tinyledger.core.domain.exception.BatchRejectedException;
+import com.rehan.tinyledger.core.domain.exception.TransactionNotFoundException;
+import com.rehan.tinyledger.core.service.FeedProperties;
 import com.rehan.tinyledger.core.service.LedgerService;
+import com.rehan.tinyledger.core.service.TransactionFeed;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@WebMvcTest(LedgerController.class)
+// The mocked service changes data without committing anything, so the read cache stays off here; ReadCacheTest covers it.
+@WebMvcTest(value = LedgerController.class, properties = "tinyledger.read-cache.max-entries=0")
+@Import({IdempotencyCache.class, TransactionFeed.class, TransactionStreams.class, ReadCache.class})
+@EnableConfigurationProperties({IdempotencyProperties.class, FeedProperties.class, ReadCacheProperties.class})
 class LedgerControllerTest {
     private static
     ObjectMapper objectMapper;
@@ -39,6 +75,8 @@ class LedgerControllerTest {
 
     @MockBean
     private LedgerService ledgerService;
+    @Autowired
+    private TransactionFeed transactionFeed;
     @BeforeAll
     public static void setup()
     {
@@ -59,13 +97,14 @@ class LedgerControllerTest {
         UUID fixedId = UUID.randomUUID();
         Transaction transaction = new Transaction(
                 fixedId,
+                LedgerController.DEFAULT_ACCOUNT,
                 TransactionType.DEPOSIT,
-                new BigDecimal("100.00"),
+                Money.of("100.00"),
                 "Test deposit",
                 LocalDateTime.now()
         );
         
-        when(ledgerService.recordTransaction(any(TransactionRequest.class))).thenReturn(transaction);
+        when(ledgerService.recordTransaction(eq(LedgerController.DEFAULT_ACCOUNT), any(TransactionRequest.class))).thenReturn(transaction);
 
        
         String response=mockMvc.perform(post("/api/ledger/transactions")
@@ -77,7 +116,7 @@ class LedgerControllerTest {
 
         Transaction transactionResponse = objectMapper.readValue(response, Transaction.class);
        
-        assertEquals(transactionResponse.amount(),new BigDecimal("100.00"));
+        assertEquals(transactionResponse.amount(),Money.of("100.00"));
         assertEquals(transactionResponse.type(),TransactionType.DEPOSIT);
         assertEquals(transactionResponse.description(),"Test deposit");
     }
@@ -85,7 +124,7 @@ class LedgerControllerTest {
     @Test
     void shouldGetBalance() throws Exception {
        
-        when(ledgerService.getBalance()).thenReturn(new BigDecimal("120.00"));
+        when(ledgerService.getBalance(LedgerController.DEFAULT_ACCOUNT)).thenReturn(Money.of("120.00"));
 
        
         String response=mockMvc.perform(get("/api/ledger/balance"))
@@ -103,10 +142,10 @@ class LedgerControllerTest {
        
         LocalDateTime now = LocalDateTime.now();
         List<Transaction> transactions = List.of(
-                new Transaction(UUID.randomUUID(), TransactionType.DEPOSIT, new BigDecimal("100.00"), "Deposit 1", now)
+                new Transaction(UUID.randomUUID(), LedgerController.DEFAULT_ACCOUNT, TransactionType.DEPOSIT, Money.of("100.00"), "Deposit 1", now)
         );
         
-        when(ledgerService.getTransactionHistory()).thenReturn(transactions);
+        when(ledgerService.getTransactionHistory(eq(LedgerController.DEFAULT_ACCOUNT), any(TransactionQuery.class))).thenReturn(transactions);
 
        
         String response = mockMvc.perform(get("/api/ledger/transactions"))
@@ -118,12 +157,418 @@ class LedgerControllerTest {
        
         assertEquals(transactions.size(),1);
         Transaction transaction=transactionsList.get(0);
-        assertEquals(transaction.amount(),new BigDecimal("100.00"));
+        assertEquals(transaction.amount(),Money.of("100.00"));
         assertEquals(transaction.type(),TransactionType.DEPOSIT);
         assertEquals(transaction.description(),"Deposit 1");
 
     }
 
+    @Test
+    void shouldRecordTransactionForAccount() throws Exception {
+       
+        TransactionRequest request = new TransactionRequest(
+                TransactionType.DEPOSIT,
+                new BigDecimal("100.00"),
+                "Test deposit"
+        );
+        Transaction transaction = new Transaction(
+                UUID.randomUUID(),
+                "acc-1",
+                TransactionType.DEPOSIT,
+                Money.of("100.00"),
+                "Test deposit",
+                LocalDateTime.now()
+        );
+
+        when(ledgerService.recordTransaction(eq("acc-1"), any(TransactionRequest.class))).thenReturn(transaction);
+
+       
+        String response = mockMvc.perform(post("/api/ledger/accounts/acc-1/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        Transaction transactionResponse = objectMapper.readValue(response, Transaction.class);
+       
+        assertEquals("acc-1", transactionResponse.accountId());
+        assertEquals(Money.of("100.00"), transactionResponse.amount());
+    }
+
+    @Test
+    void shouldGetBalanceForAccount() throws Exception {
+       
+        when(ledgerService.getBalance("acc-1")).thenReturn(Money.of("42.00"));
+
+       
+        String response = mockMvc.perform(get("/api/ledger/accounts/acc-1/balance"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        BalanceResponse balanceResponse = objectMapper.readValue(response, BalanceResponse.class);
+        assertEquals(new BigDecimal("42.00"), balanceResponse.balance());
+    }
+
+    @Test
+    void shouldPassPaginationParameters() throws Exception {
+       
+        UUID cursor = UUID.randomUUID();
+        when(ledgerService.getTransactionHistory(eq("acc-1"), any(TransactionQuery.class))).thenReturn(List.of());
+
+       
+        mockMvc.perform(get("/api/ledger/accounts/acc-1/transactions")
+                        .param("limit", "20")
+                        .param("before", cursor.toString())
+                        .param("from", "2024-01-01T00:00:00")
+                        .param("to", "2024-02-01T00:00:00"))
+                .andExpect(status().isOk());
+
+       
+        ArgumentCaptor<TransactionQuery> captor = ArgumentCaptor.forClass(TransactionQuery.class);
+        verify(ledgerService).getTransactionHistory(eq("acc-1"), captor.capture());
+        assertEquals(new TransactionQuery(cursor, null, LocalDateTime.of(2024, 1, 1, 0, 0),
+                LocalDateTime.of(2024, 2, 1, 0, 0), 20), captor.getValue());
+    }
+
+    @Test
+    void shouldPassFilterParameters() throws Exception {
+
+        when(ledgerService.getTransactionHistory(eq("acc-1"), any(TransactionQuery.class))).thenReturn(List.of());
+
+
+        mockMvc.perform(get("/api/ledger/accounts/acc-1/transactions")
+                        .param("type", "withdrawal")
+                        .param("minAmount", "1000")
+                        .param("description", "ACME Corp."))
+                .andExpect(status().isOk());
+
+
+        ArgumentCaptor<TransactionQuery> captor = ArgumentCaptor.forClass(TransactionQuery.class);
+        verify(ledgerService).getTransactionHistory(eq("acc-1"), captor.capture());
+        assertEquals(new TransactionFilter(TransactionType.WITHDRAWAL, Money.of("1000"), null, List.of("acme", "corp")),
+                captor.getValue().filter());
+    }
+
+    @Test
+    void shouldRejectInvalidPaginationParameters() throws Exception {
+        mockMvc.perform(get("/api/ledger/transactions").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/ledger/transactions").param("before", "not-a-uuid"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/ledger/transactions").param("type", "transfer"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/ledger/transactions").param("minAmount", "5").param("maxAmount", "1.001"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/ledger/transactions").param("description", " - "))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldGetBalanceAsOf() throws Exception {
+
+        LocalDateTime asOf = LocalDateTime.of(2024, 3, 1, 23, 59, 59);
+        when(ledgerService.getBalanceAsOf("acc-1", asOf)).thenReturn(Money.of("17.50"));
+
+
+        mockMvc.perform(get("/api/ledger/accounts/acc-1/balance").param("asOf", "2024-03-01T23:59:59"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"balance\":17.50}"));
+    }
+
+    @Test
+    void shouldPassSummaryParameters() throws Exception {
+
+        LocalDateTime day = LocalDateTime.of(2024, 3, 1, 0, 0);
+        when(ledgerService.getSummary(eq("acc-1"), any(SummaryQuery.class))).thenReturn(List.of(
+                new PeriodSummary(day, Money.of("150.00"), Money.of("30.00"), 3, Money.of("120.00"))));
+
+
+        mockMvc.perform(get("/api/ledger/accounts/acc-1/summary")
+                        .param("granularity", "hour")
+                        .param("from", "2024-03-01T00:00:00")
+                        .param("limit", "24"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"start\":\"2024-03-01T00:00:00\",\"deposits\":150.00,"
+                        + "\"withdrawals\":30.00,\"count\":3,\"closingBalance\":120.00}]"));
+        mockMvc.perform(get("/api/ledger/summary"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/ledger/summary").param("granularity", "week"))
+                .andExpect(status().isBadRequest());
+
+
+        verify(ledgerService).getSummary("acc-1", new SummaryQuery(Granularity.HOUR, day, null, 24));
+        verify(ledgerService).getSummary(LedgerController.DEFAULT_ACCOUNT,
+                new SummaryQuery(Granularity.DAY, null, null, SummaryQuery.DEFAULT_LIMIT));
+    }
+
+    @Test
+    void shouldStreamCommittedTransactionsOfTheAccount() throws Exception {
+
+        long last = transactionFeed.head() - 1;
+        Transaction deposit = new Transaction(UUID.randomUUID(), "acc-1", TransactionType.DEPOSIT,
+                Money.of("10.00"), "Streamed", LocalDateTime.of(2024, 3, 1, 9, 0));
+        transactionFeed.publish(new Transaction(UUID.randomUUID(), "acc-2", TransactionType.DEPOSIT,
+                Money.of("99.00"), "Other account", LocalDateTime.of(2024, 3, 1, 9, 0)));
+        transactionFeed.publish(deposit);
+
+
+        MvcResult result = mockMvc.perform(get("/api/ledger/accounts/acc-1/transactions/stream")
+                        .header(LedgerController.LAST_EVENT_ID, transactionFeed.id(last)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+
+        String expected = "id:" + transactionFeed.id(last + 2) + "\nevent:transaction\ndata:{\"id\":\"" + deposit.id() + "\"";
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!result.getResponse().getContentAsString().contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(result.getResponse().getContentAsString().contains(expected));
+        assertFalse(result.getResponse().getContentAsString().contains("Other account"));
+        result.getRequest().getAsyncContext().complete();
+    }
+
+    @Test
+    void shouldTellLaggingStreamsWhereToResume() throws Exception {
+
+        MvcResult result = mockMvc.perform(get("/api/ledger/transactions/stream")
+                        .header(LedgerController.LAST_EVENT_ID, transactionFeed.id(transactionFeed.head() + 100)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+        // Nothing has been evicted from the ring yet, so a reconnect would start from its first entry.
+        assertTrue(result.getResponse().getContentAsString().contains("id:" + transactionFeed.id(-1) + "\nevent:lagged\ndata:0"));
+    }
+
+    @Test
+    void shouldRejectMalformedEventIds() throws Exception {
+
+        mockMvc.perform(get("/api/ledger/transactions/stream")
+                        .header(LedgerController.LAST_EVENT_ID, "41"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldExportTransactionHistoryAsNdjson() throws Exception {
+       
+        LocalDateTime now = LocalDateTime.now();
+        Transaction deposit = new Transaction(UUID.randomUUID(), "acc-1", TransactionType.DEPOSIT, Money.of("100.00"), "Deposit 1", now);
+        Transaction withdrawal = new Transaction(UUID.randomUUID(), "acc-1", TransactionType.WITHDRAWAL, Money.of("30.00"), "Withdrawal 1", now);
+        when(ledgerService.streamTransactionHistory("acc-1")).thenReturn(Stream.of(deposit, withdrawal));
+
+       
+        MvcResult result = mockMvc.perform(get("/api/ledger/accounts/acc-1/transactions/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String response = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+       
+        String[] lines = response.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(response.endsWith("\n"));
+        assertEquals(deposit, objectMapper.readValue(lines[0], Transaction.class));
+        assertEquals(withdrawal, objectMapper.readValue(lines[1], Transaction.class));
+    }
+
+    @Test
+    void shouldReplayRequestWithSameIdempotencyKey() throws Exception {
+       
+        TransactionRequest request = new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("100.00"), "Test deposit");
+        Transaction transaction = new Transaction(UUID.randomUUID(), "acc-1", TransactionType.DEPOSIT,
+                Money.of("100.00"), "Test deposit", LocalDateTime.now());
+        when(ledgerService.recordTransaction(eq("acc-1"), any(TransactionRequest.class))).thenReturn(transaction);
+
+       
+        for (String replayed : List.of("false", "true")) {
+            String response = mockMvc.perform(post("/api/ledger/accounts/acc-1/transactions")
+                            .header(LedgerController.IDEMPOTENCY_KEY, "retry-1")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isCreated())
+                    .andExpect(header().string(LedgerController.IDEMPOTENT_REPLAYED, replayed))
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString();
+            assertEquals(transaction, objectMapper.readValue(response, Transaction.class));
+        }
+
+       
+        verify(ledgerService, times(1)).recordTransaction(eq("acc-1"), any(TransactionRequest.class));
+        mockMvc.perform(post("/api/ledger/accounts/acc-1/transactions")
+                        .header(LedgerController.IDEMPOTENCY_KEY, "retry-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("5.00"), null))))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    void shouldRecordBatchForAccount() throws Exception {
+       
+        BatchRequest request = new BatchRequest(BatchMode.BEST_EFFORT, List.of(
+                new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("100.00"), "Deposit 1"),
+                new TransactionRequest(TransactionType.WITHDRAWAL, new BigDecimal("500.00"), "Withdrawal 1")));
+        Transaction deposit = new Transaction(UUID.randomUUID(), "acc-1", TransactionType.DEPOSIT, Money.of("100.00"), "Deposit 1", LocalDateTime.now());
+        when(ledgerService.recordTransactions(eq("acc-1"), any(BatchRequest.class))).thenReturn(new BatchResult(
+                BatchMode.BEST_EFFORT, 1, 1, List.of(BatchItemResult.committed(0, deposit),
+                BatchItemResult.rejected(1, "Insufficient funds for withdrawal"))));
+
+       
+        String response = mockMvc.perform(post("/api/ledger/accounts/acc-1/transactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+       
+        BatchResult result = objectMapper.readValue(response, BatchResult.class);
+        assertEquals(deposit, result.results().get(0).transaction());
+        assertEquals(BatchItemResult.Status.REJECTED, result.results().get(1).status());
+        ArgumentCaptor<BatchRequest> captor = ArgumentCaptor.forClass(BatchRequest.class);
+        verify(ledgerService).recordTransactions(eq("acc-1"), captor.capture());
+        assertEquals(request, captor.getValue());
+    }
+
+    @Test
+    void shouldRecordTransferFromAccount() throws Exception {
+
+        TransferRequest request = new TransferRequest("acc-2", new BigDecimal("40.00"), "Rent");
+        Transfer transfer = Transaction.transfer("acc-1", "acc-2", Money.of("40.00"), "Rent");
+        when(ledgerService.transfer(eq("acc-1"), any(TransferRequest.class))).thenReturn(transfer);
+
+
+        String response = mockMvc.perform(post("/api/ledger/accounts/acc-1/transfers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+
+        assertEquals(transfer, objectMapper.readValue(response, Transfer.class));
+        verify(ledgerService).transfer("acc-1", request);
+        mockMvc.perform(post("/api/ledger/transfers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\":5}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldServeProofsThatStillVerifyAsJson() throws Exception {
+
+        InMemoryLedgerRepository repository = new InMemoryLedgerRepository();
+        Transaction saved = repository.save(Transaction.create("acc-1", TransactionType.DEPOSIT, Money.of("10.00"), "Salary"));
+        ChainProof proof = repository.proof(saved.id()).orElseThrow();
+        UUID unknown = UUID.randomUUID();
+        when(ledgerService.getProof("acc-1", saved.id())).thenReturn(proof);
+        when(ledgerService.getProof("acc-1", 1, 1)).thenReturn(proof);
+        when(ledgerService.getProof("acc-1", unknown)).thenThrow(new TransactionNotFoundException("Not here"));
+
+
+        String byId = mockMvc.perform(get("/api/ledger/accounts/acc-1/transactions/" + saved.id() + "/proof"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        String byRange = mockMvc.perform(get("/api/ledger/accounts/acc-1/proof").param("from", "1"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+
+        assertEquals(proof, objectMapper.readValue(byId, ChainProof.class));
+        assertTrue(objectMapper.readValue(byRange, ChainProof.class).verify());
+        mockMvc.perform(get("/api/ledger/accounts/acc-1/transactions/" + unknown + "/proof"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/ledger/accounts/acc-1/proof"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldRejectEmptyOrFailedBatch() throws Exception {
+        mockMvc.perform(post("/api/ledger/transactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"transactions\":[]}"))
+                .andExpect(status().isBadRequest());
+
+        when(ledgerService.recordTransactions(eq(LedgerController.DEFAULT_ACCOUNT), any(BatchRequest.class)))
+                .thenThrow(new BatchRejectedException(0, "Insufficient funds for withdrawal"));
+        mockMvc.perform(post("/api/ledger/transactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"transactions\":[{\"type\":\"WITHDRAWAL\",\"amount\":5}]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(result -> assertTrue(result.getResponse().getContentAsString().contains("Item 0")));
+    }
+
+    @Test
+    void shouldExchangeBinaryBodies() throws Exception {
+
+        TransactionRequest request = new TransactionRequest(TransactionType.WITHDRAWAL, new BigDecimal("12.50"), "Rent — März");
+        Transaction transaction = new Transaction(UUID.randomUUID(), "acc-1", TransactionType.WITHDRAWAL,
+                Money.of("12.50"), "Rent — März", LocalDateTime.now());
+        List<Transaction> page = List.of(transaction, new Transaction(UUID.randomUUID(), "acc-1",
+                TransactionType.DEPOSIT, Money.of("100.00"), null, LocalDateTime.now().minusDays(1)));
+        when(ledgerService.recordTransaction(eq("acc-1"), any(TransactionRequest.class))).thenReturn(transaction);
+        when(ledgerService.getTransactionHistory(eq("acc-1"), any(TransactionQuery.class))).thenReturn(page);
+
+
+        MvcResult recorded = mockMvc.perform(post("/api/ledger/accounts/acc-1/transactions")
+                        .contentType(BinaryMessageConverter.MEDIA_TYPE)
+                        .accept(BinaryMessageConverter.MEDIA_TYPE)
+                        .content(BinaryMessageConverter.encode(request)))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(BinaryMessageConverter.MEDIA_TYPE))
+                .andReturn();
+        MvcResult history = mockMvc.perform(get("/api/ledger/accounts/acc-1/transactions")
+                        .accept(BinaryMessageConverter.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andReturn();
+
+
+        assertEquals(transaction, BinaryMessageConverter.decodeTransaction(recorded.getResponse().getContentAsByteArray()));
+        assertEquals(page, BinaryMessageConverter.decodeTransactions(history.getResponse().getContentAsByteArray()));
+        ArgumentCaptor<TransactionRequest> captor = ArgumentCaptor.forClass(TransactionRequest.class);
+        verify(ledgerService).recordTransaction(eq("acc-1"), captor.capture());
+        assertEquals(request, captor.getValue());
+    }
+
+    @Test
+    void shouldKeepJsonAsDefaultAndRejectMalformedBinary() throws Exception {
+        when(ledgerService.getTransactionHistory(eq(LedgerController.DEFAULT_ACCOUNT), any(TransactionQuery.class)))
+                .thenReturn(List.of());
+
+        mockMvc.perform(get("/api/ledger/transactions").accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+        mockMvc.perform(post("/api/ledger/transactions")
+                        .contentType(BinaryMessageConverter.MEDIA_TYPE)
+                        .accept(BinaryMessageConverter.MEDIA_TYPE, MediaType.APPLICATION_JSON)
+                        .content(new byte[]{0, 0, 0}))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+        byte[] trailing = Arrays.copyOf(BinaryMessageConverter.encode(
+                new TransactionRequest(TransactionType.DEPOSIT, BigDecimal.ONE, null)), 20);
+        mockMvc.perform(post("/api/ledger/transactions")
+                        .contentType(BinaryMessageConverter.MEDIA_TYPE)
+                        .content(trailing))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void testNotFoundExceptionWithMessage() throws Exception {
         mockMvc.perform(get("/api/ledger/transaction"))
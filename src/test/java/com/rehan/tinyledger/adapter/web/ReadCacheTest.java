@@ -0,0 +1,105 @@
+package com.rehan.tinyledger.adapter.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.rehan.tinyledger.core.domain.BalanceResponse;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import com.rehan.tinyledger.core.service.FeedProperties;
+import com.rehan.tinyledger.core.service.TransactionFeed;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadCacheTest {
+    private static final String ACCOUNT = "acc-1";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final TransactionFeed feed = new TransactionFeed(new FeedProperties(16, Duration.ofSeconds(15)));
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void shouldServeTheLatestPageUntilTheAccountChanges() throws Exception {
+
+        ReadCache cache = new ReadCache(new ReadCacheProperties(100, DataSize.ofMegabytes(1)), feed, objectMapper);
+        List<Transaction> page = List.of(transaction(ACCOUNT, "10.00"));
+
+
+        byte[] first = cache.latestPage(ACCOUNT, 10, loader(page));
+        byte[] second = cache.latestPage(ACCOUNT, 10, loader(page));
+        feed.publish(transaction("acc-2", "1.00"));
+        byte[] otherAccountWrote = cache.latestPage(ACCOUNT, 10, loader(page));
+        byte[] otherLimit = cache.latestPage(ACCOUNT, 20, loader(page));
+        feed.publish(transaction(ACCOUNT, "2.00"));
+        byte[] afterWrite = cache.latestPage(ACCOUNT, 10, loader(List.of()));
+
+
+        assertArrayEquals(objectMapper.writeValueAsBytes(page), first);
+        assertSame(first, second);
+        assertSame(first, otherAccountWrote);
+        assertNotSame(first, otherLimit);
+        assertEquals("[]", new String(afterWrite));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void shouldServeTheBalanceWhileItIsUnchanged() throws Exception {
+
+        ReadCache cache = new ReadCache(new ReadCacheProperties(100, DataSize.ofMegabytes(1)), feed, objectMapper);
+
+
+        byte[] first = cache.balance(ACCOUNT, Money.of("5.00"));
+        byte[] second = cache.balance(ACCOUNT, Money.of("5.00"));
+        byte[] changed = cache.balance(ACCOUNT, Money.of("4.99"));
+
+
+        assertSame(first, second);
+        assertEquals(Money.of("4.99").toBigDecimal(), objectMapper.readValue(changed, BalanceResponse.class).balance());
+    }
+
+    @Test
+    void shouldEvictOldestFirstButKeepEntriesThatWereRead() {
+
+        ReadCache cache = new ReadCache(new ReadCacheProperties(2, DataSize.ofMegabytes(1)), feed, objectMapper);
+        ReadCache tiny = new ReadCache(new ReadCacheProperties(100, DataSize.ofBytes(64)), feed, objectMapper);
+        List<Transaction> page = List.of(transaction(ACCOUNT, "10.00"));
+
+
+        cache.latestPage("acc-a", 10, loader(page));
+        cache.latestPage("acc-b", 10, loader(page));
+        cache.latestPage("acc-a", 10, loader(page));
+        cache.latestPage("acc-c", 10, loader(page));
+        int beforeRereads = loads.get();
+        cache.latestPage("acc-a", 10, loader(page));
+        cache.latestPage("acc-c", 10, loader(page));
+        int afterRereads = loads.get();
+        cache.latestPage("acc-b", 10, loader(page));
+        tiny.latestPage(ACCOUNT, 10, loader(page));
+        tiny.latestPage(ACCOUNT, 10, loader(page));
+
+
+        assertEquals(3, beforeRereads);
+        assertEquals(3, afterRereads);
+        assertEquals(6, loads.get());
+        assertTrue(cache.size() > 0);
+        assertEquals(0, tiny.size());
+    }
+
+    private Supplier<List<Transaction>> loader(List<Transaction> page) {
+        return () -> {
+            loads.incrementAndGet();
+            return page;
+        };
+    }
+
+    private static Transaction transaction(String accountId, String amount) {
+        return Transaction.create(accountId, TransactionType.DEPOSIT, Money.of(amount), "Deposit");
+    }
+}
@@ -0,0 +1,142 @@
+package com.rehan.tinyledger.core.service;
+
+import com.rehan.tinyledger.adapter.persistance.InMemoryLedgerRepository;
+import com.rehan.tinyledger.core.domain.AuditReport;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionRequest;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import com.rehan.tinyledger.core.domain.TransferRequest;
+import com.rehan.tinyledger.core.domain.exception.AuditInProgressException;
+import com.rehan.tinyledger.core.port.AccountCut;
+import com.rehan.tinyledger.core.port.LedgerRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LedgerAuditorTest {
+    private static final String ACCOUNT = "acc-1";
+
+    @Test
+    void shouldFindALedgerWithTransfersConsistentAcrossSegments() {
+
+        InMemoryLedgerRepository repository = new InMemoryLedgerRepository();
+        LedgerService ledgerService = new LedgerServiceImpl(repository);
+        for (String account : List.of(ACCOUNT, "acc-2", "acc-3")) {
+            for (int i = 0; i < 20; i++) {
+                ledgerService.recordTransaction(account,
+                        new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("10.00"), "Deposit " + i));
+            }
+        }
+        for (int i = 0; i < 10; i++) {
+            ledgerService.transfer(ACCOUNT, new TransferRequest("acc-2", new BigDecimal("3.00"), "Rent " + i));
+            ledgerService.transfer("acc-3", new TransferRequest(ACCOUNT, new BigDecimal("1.50"), "Refund " + i));
+        }
+        LedgerAuditor auditor = new LedgerAuditor(repository, new AuditProperties(7, 4, 100));
+
+
+        AuditReport report = auditor.audit(true);
+        AuditReport again = auditor.audit(true);
+
+
+        assertTrue(report.consistent());
+        assertEquals(3, report.accounts());
+        assertEquals(100, report.transactions());
+        // 40 entries make 6 segments of 7 for acc-1, 30 make 5 for each of the others.
+        assertEquals(16, report.segments());
+        assertEquals(List.of(), report.findings());
+        assertEquals(16, report.checksums().size());
+        assertEquals(report.checksums(), again.checksums());
+        assertNull(auditor.audit(false).checksums());
+    }
+
+    @Test
+    void shouldReportAnEntryStoredTwice() {
+
+        InMemoryLedgerRepository repository = new InMemoryLedgerRepository();
+        Transaction deposit = Transaction.create(ACCOUNT, TransactionType.DEPOSIT, Money.of("5.00"), "Deposit");
+        repository.save(Transaction.create(ACCOUNT, TransactionType.DEPOSIT, Money.of("1.00"), "Deposit"));
+        repository.save(deposit);
+        repository.save(deposit);
+
+
+        AuditReport report = new LedgerAuditor(repository, new AuditProperties(2, 2, 100)).audit(false);
+
+
+        assertFalse(report.consistent());
+        assertEquals(1, report.findingCount());
+        assertEquals(deposit.id(), report.findings().get(0).transactionId());
+        assertEquals("The id is duplicated or not indexed", report.findings().get(0).problem());
+    }
+
+    @Test
+    void shouldReportABalanceOffItsHistoryAndATransferMissingALeg() {
+
+        Transaction deposit = Transaction.create(ACCOUNT, TransactionType.DEPOSIT, Money.of("5.00"), "Deposit");
+        Transaction leg = Transaction.transfer(ACCOUNT, "acc-2", Money.of("2.00"), "Rent").debit();
+        LedgerRepository repository = mock(LedgerRepository.class);
+        when(repository.cuts()).thenReturn(List.of(new ListCut(ACCOUNT, List.of(deposit, leg), 400)));
+        when(repository.findById(any())).thenReturn(Optional.empty());
+
+
+        AuditReport report = new LedgerAuditor(repository, new AuditProperties(1, 1, 1)).audit(false);
+
+
+        assertFalse(report.consistent());
+        assertEquals(2, report.findingCount());
+        assertEquals(1, report.findings().size());
+        assertEquals(2, report.segments());
+    }
+
+    @Test
+    void shouldTurnAwayAnAuditWhileAnotherIsRunning() throws Exception {
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        LedgerRepository repository = mock(LedgerRepository.class);
+        when(repository.cuts()).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return List.of();
+        });
+        LedgerAuditor auditor = new LedgerAuditor(repository, new AuditProperties(1, 1, 1));
+        CompletableFuture<AuditReport> first = CompletableFuture.supplyAsync(() -> auditor.audit(false));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+
+        assertThrows(AuditInProgressException.class, () -> auditor.audit(false));
+        release.countDown();
+
+
+        assertTrue(first.get(5, TimeUnit.SECONDS).consistent());
+        when(repository.cuts()).thenReturn(List.of());
+        assertTrue(auditor.audit(false).consistent());
+    }
+
+    private record ListCut(String accountId, List<Transaction> entries, long balance) implements AccountCut {
+        @Override
+        public int size() {
+            return entries.size();
+        }
+
+        @Override
+        public Transaction get(int offset) {
+            return entries.get(offset);
+        }
+
+        @Override
+        public boolean indexed(int offset) {
+            return true;
+        }
+    }
+}
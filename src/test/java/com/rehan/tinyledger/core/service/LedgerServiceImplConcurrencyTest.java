@@ -0,0 +1,161 @@
+package com.rehan.tinyledger.core.service;
+
+import com.rehan.tinyledger.adapter.persistance.InMemoryLedgerRepository;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionRequest;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import com.rehan.tinyledger.core.domain.TransferRequest;
+import com.rehan.tinyledger.core.domain.exception.InsufficientFundsException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LedgerServiceImplConcurrencyTest {
+
+    private static final String ACCOUNT = "acc-1";
+    private static final int THREADS = 16;
+
+    @Test
+    void concurrentWithdrawalsShouldNeverOverdraw() throws Exception {
+        InMemoryLedgerRepository repository = new InMemoryLedgerRepository();
+        LedgerService ledgerService = new LedgerServiceImpl(repository);
+        ledgerService.recordTransaction(ACCOUNT, new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("1000.00"), "Initial"));
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        runConcurrently(THREADS, 200, () -> {
+            try {
+                ledgerService.recordTransaction(ACCOUNT, new TransactionRequest(TransactionType.WITHDRAWAL, new BigDecimal("1.00"), "Withdrawal"));
+                succeeded.incrementAndGet();
+            } catch (InsufficientFundsException ex) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(1000, succeeded.get());
+        assertEquals(THREADS * 200 - 1000, rejected.get());
+        assertEquals(Money.of("0.00"), ledgerService.getBalance(ACCOUNT));
+        assertEquals(1001, repository.findAll(ACCOUNT).size());
+        assertTrue(ledgerService.verifyBalance(ACCOUNT));
+    }
+
+    @Test
+    void mixedLoadShouldKeepBalanceConsistent() throws Exception {
+        InMemoryLedgerRepository repository = new InMemoryLedgerRepository();
+        LedgerService ledgerService = new LedgerServiceImpl(repository);
+
+        AtomicInteger withdrawn = new AtomicInteger();
+        runConcurrently(THREADS, 500, () -> {
+            ledgerService.recordTransaction(ACCOUNT, new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("2.00"), "Deposit"));
+            try {
+                ledgerService.recordTransaction(ACCOUNT, new TransactionRequest(TransactionType.WITHDRAWAL, new BigDecimal("3.00"), "Withdrawal"));
+                withdrawn.incrementAndGet();
+            } catch (InsufficientFundsException ignored) {
+            }
+        });
+
+        Money expected = new Money(200L * THREADS * 500 - 300L * withdrawn.get());
+        assertEquals(expected, ledgerService.getBalance(ACCOUNT));
+        assertTrue(ledgerService.getBalance(ACCOUNT).signum() >= 0);
+        assertTrue(ledgerService.verifyBalance(ACCOUNT));
+    }
+
+    // Random pairs, so every pair is hit in both directions at once; with per-log locks taken in a fixed
+    // order this finishes instead of deadlocking, and not a cent is created or lost on the way.
+    @Test
+    void crossTransfersShouldConserveMoney() throws Exception {
+        InMemoryLedgerRepository repository = new InMemoryLedgerRepository();
+        LedgerService ledgerService = new LedgerServiceImpl(repository);
+        int accounts = 32;
+        for (int i = 0; i < accounts; i++) {
+            ledgerService.recordTransaction("acc-" + i, new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("100.00"), "Initial"));
+        }
+
+        AtomicInteger succeeded = new AtomicInteger();
+        runConcurrently(THREADS, 2_000, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int from = random.nextInt(accounts);
+            int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+            try {
+                ledgerService.transfer("acc-" + from, new TransferRequest("acc-" + to, BigDecimal.valueOf(random.nextInt(1, 5_000), 2), "Transfer"));
+                succeeded.incrementAndGet();
+            } catch (InsufficientFundsException ignored) {
+            }
+        });
+
+        long total = 0;
+        int out = 0;
+        int in = 0;
+        for (int i = 0; i < accounts; i++) {
+            Money balance = ledgerService.getBalance("acc-" + i);
+            assertTrue(balance.signum() >= 0);
+            assertTrue(ledgerService.verifyBalance("acc-" + i));
+            total += balance.minorUnits();
+            for (Transaction transaction : repository.findAll("acc-" + i)) {
+                if (transaction.type() == TransactionType.TRANSFER_OUT) {
+                    out++;
+                } else if (transaction.type() == TransactionType.TRANSFER_IN) {
+                    in++;
+                    assertEquals(transaction.id(), repository.findById(transaction.linkedId()).orElseThrow().linkedId());
+                }
+            }
+        }
+        assertEquals(accounts * 10_000L, total);
+        assertEquals(succeeded.get(), out);
+        assertEquals(succeeded.get(), in);
+    }
+
+    @Test
+    void concurrentAccountsShouldKeepTheirOwnBalances() throws Exception {
+        InMemoryLedgerRepository repository = new InMemoryLedgerRepository();
+        LedgerService ledgerService = new LedgerServiceImpl(repository);
+        AtomicInteger nextAccount = new AtomicInteger();
+        ThreadLocal<String> account = ThreadLocal.withInitial(() -> "acc-" + nextAccount.getAndIncrement());
+
+        runConcurrently(THREADS, 500, () -> {
+            ledgerService.recordTransaction(account.get(), new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("2.00"), "Deposit"));
+            ledgerService.recordTransaction(account.get(), new TransactionRequest(TransactionType.WITHDRAWAL, new BigDecimal("1.00"), "Withdrawal"));
+        });
+
+
+        for (int i = 0; i < THREADS; i++) {
+            assertEquals(Money.of("500.00"), ledgerService.getBalance("acc-" + i));
+            assertEquals(1000, repository.findAll("acc-" + i).size());
+            assertTrue(ledgerService.verifyBalance("acc-" + i));
+        }
+    }
+
+    private static void runConcurrently(int threads, int iterations, Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < iterations; i++) {
+                    task.run();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+    }
+}
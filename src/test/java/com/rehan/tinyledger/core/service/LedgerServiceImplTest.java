@@ -1,12 +1,24 @@
 package com.rehan.tinyledger.core.service;
 
 
+import com.rehan.tinyledger.core.domain.BatchItemResult;
+import com.rehan.tinyledger.core.domain.BatchMode;
+import com.rehan.tinyledger.core.domain.BatchRequest;
+import com.rehan.tinyledger.core.domain.BatchResult;
+import com.rehan.tinyledger.core.domain.ChainProof;
+import com.rehan.tinyledger.core.domain.Money;
 import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionQuery;
 import com.rehan.tinyledger.core.domain.TransactionRequest;
 import com.rehan.tinyledger.core.domain.TransactionType;
+import com.rehan.tinyledger.core.domain.Transfer;
+import com.rehan.tinyledger.core.domain.TransferRequest;
+import com.rehan.tinyledger.core.domain.exception.BatchRejectedException;
 import com.rehan.tinyledger.core.domain.exception.InsufficientFundsException;
 import com.rehan.tinyledger.core.domain.exception.TransactionFailedException;
+import com.rehan.tinyledger.core.domain.exception.TransactionNotFoundException;
 import com.rehan.tinyledger.core.port.LedgerRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -15,14 +27,21 @@ import org.mockito.MockitoAnnotations;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class LedgerServiceImplTest {
+    private static final String ACCOUNT = "acc-1";
 
     @Mock
     private LedgerRepository ledgerRepository;
@@ -32,6 +51,7 @@ class LedgerServiceImplTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(ledgerRepository.balance(any())).thenReturn(Money.ZERO);
         ledgerService = new LedgerServiceImpl(ledgerRepository);
     }
 
@@ -48,8 +68,9 @@ class LedgerServiceImplTest {
         LocalDateTime now = LocalDateTime.now();
         Transaction savedTransaction = new Transaction(
                 fixedId,
+                ACCOUNT,
                 TransactionType.DEPOSIT,
-                new BigDecimal("100.00"),
+                Money.of("100.00"),
                 "Test deposit",
                 now
         );
@@ -57,12 +78,12 @@ class LedgerServiceImplTest {
         when(ledgerRepository.save(any(Transaction.class))).thenReturn(savedTransaction);
 
        
-        Transaction result = ledgerService.recordTransaction(request);
+        Transaction result = ledgerService.recordTransaction(ACCOUNT, request);
 
 
         assertEquals(fixedId, result.id());
         assertEquals(TransactionType.DEPOSIT, result.type());
-        assertEquals(new BigDecimal("100.00"), result.amount());
+        assertEquals(Money.of("100.00"), result.amount());
         assertEquals("Test deposit", result.description());
     }
 
@@ -70,12 +91,7 @@ class LedgerServiceImplTest {
     void shouldRecordWithdrawalTransaction() {
        
         LocalDateTime now = LocalDateTime.now();
-        List<Transaction> transactions = List.of(
-                new Transaction(UUID.randomUUID(), TransactionType.DEPOSIT, new BigDecimal("100.00"), "Deposit 1", now),
-                new Transaction(UUID.randomUUID(), TransactionType.DEPOSIT, new BigDecimal("50.00"), "Deposit 2", now),
-                new Transaction(UUID.randomUUID(), TransactionType.WITHDRAWAL, new BigDecimal("30.00"), "Withdrawal 1", now)
-        );
-        when(ledgerRepository.findAll()).thenReturn(transactions);
+        when(ledgerRepository.balance(ACCOUNT)).thenReturn(Money.of("120.00"));
 
         TransactionRequest withdrawalRequest = new TransactionRequest(
                 TransactionType.WITHDRAWAL,
@@ -87,8 +103,9 @@ class LedgerServiceImplTest {
 
         Transaction savedTransaction = new Transaction(
                 fixedId,
+                ACCOUNT,
                 TransactionType.WITHDRAWAL,
-                new BigDecimal("100.00"),
+                Money.of("100.00"),
                 "Test Withdrawal",
                 now
         );
@@ -96,32 +113,90 @@ class LedgerServiceImplTest {
         when(ledgerRepository.save(any(Transaction.class))).thenReturn(savedTransaction);
 
        
-        Transaction result = ledgerService.recordTransaction(withdrawalRequest);
+        Transaction result = ledgerService.recordTransaction(ACCOUNT, withdrawalRequest);
 
        
         assertEquals(fixedId, result.id());
         assertEquals(TransactionType.WITHDRAWAL, result.type());
-        assertEquals(new BigDecimal("100.00"), result.amount());
+        assertEquals(Money.of("100.00"), result.amount());
         assertEquals("Test Withdrawal", result.description());
     }
 
     @Test
     void shouldCalculateBalance() {
        
-        LocalDateTime now = LocalDateTime.now();
-        List<Transaction> transactions = List.of(
-                new Transaction(UUID.randomUUID(), TransactionType.DEPOSIT, new BigDecimal("100.00"), "Deposit 1", now),
-                new Transaction(UUID.randomUUID(), TransactionType.DEPOSIT, new BigDecimal("50.00"), "Deposit 2", now),
-                new Transaction(UUID.randomUUID(), TransactionType.WITHDRAWAL, new BigDecimal("30.00"), "Withdrawal 1", now)
-        );
+        when(ledgerRepository.balance(ACCOUNT)).thenReturn(Money.of("120.00"));
+
+       
+        Money balance = ledgerService.getBalance(ACCOUNT);
+
+       
+        assertEquals(Money.of("120.00"), balance);
+        verify(ledgerRepository, never()).findAll(ACCOUNT);
+    }
+
+    @Test
+    void shouldNotCacheBalancesOfAccountsThatAreOnlyRead() {
+       
+        when(ledgerRepository.balance("unknown")).thenReturn(Money.ZERO, Money.of("5.00"));
+
+       
+        Money first = ledgerService.getBalance("unknown");
+        Money second = ledgerService.getBalance("unknown");
+
+       
+        assertEquals(Money.ZERO, first);
+        assertEquals(Money.of("5.00"), second);
+        verify(ledgerRepository, times(2)).balance("unknown");
+    }
+
+    @Test
+    void shouldMaintainRunningBalance() {
+       
+        when(ledgerRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+       
+        ledgerService.recordTransaction(ACCOUNT, new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("100.00"), "Deposit 1"));
+        ledgerService.recordTransaction(ACCOUNT, new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("50.00"), "Deposit 2"));
+        ledgerService.recordTransaction(ACCOUNT, new TransactionRequest(TransactionType.WITHDRAWAL, new BigDecimal("30.00"), "Withdrawal 1"));
+
+       
+        assertEquals(Money.of("120.00"), ledgerService.getBalance(ACCOUNT));
+        verify(ledgerRepository, times(1)).balance(ACCOUNT);
+    }
 
-        when(ledgerRepository.findAll()).thenReturn(transactions);
+    @Test
+    void shouldKeepBalancesPerAccount() {
+       
+        when(ledgerRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+       
+        ledgerService.recordTransaction(ACCOUNT, new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("100.00"), "Deposit 1"));
+        Transaction other = ledgerService.recordTransaction("acc-2", new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("20.00"), "Deposit 2"));
+
+       
+        assertEquals("acc-2", other.accountId());
+        assertEquals(Money.of("100.00"), ledgerService.getBalance(ACCOUNT));
+        assertEquals(Money.of("20.00"), ledgerService.getBalance("acc-2"));
+        assertThrows(InsufficientFundsException.class, () ->
+                ledgerService.recordTransaction("acc-2", new TransactionRequest(TransactionType.WITHDRAWAL, new BigDecimal("50.00"), "Withdrawal 1")));
+    }
 
+    @Test
+    void shouldVerifyBalanceAgainstRecompute() {
        
-        BigDecimal balance = ledgerService.getBalance();
+        LocalDateTime now = LocalDateTime.now();
+        when(ledgerRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        ledgerService.recordTransaction(ACCOUNT, new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("100.00"), "Deposit 1"));
 
        
-        assertEquals(new BigDecimal("120.00"), balance);
+        when(ledgerRepository.findAll(ACCOUNT)).thenReturn(List.of(
+                new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.DEPOSIT, Money.of("100.00"), "Deposit 1", now)
+        ));
+        assertTrue(ledgerService.verifyBalance(ACCOUNT));
+
+        when(ledgerRepository.findAll(ACCOUNT)).thenReturn(List.of());
+        assertFalse(ledgerService.verifyBalance(ACCOUNT));
     }
 
     @Test
@@ -129,15 +204,15 @@ class LedgerServiceImplTest {
        
         LocalDateTime now = LocalDateTime.now();
         List<Transaction> transactions = List.of(
-                new Transaction(UUID.randomUUID(), TransactionType.DEPOSIT, new BigDecimal("100.00"), "Deposit 1", now.minusDays(2)),
-                new Transaction(UUID.randomUUID(), TransactionType.DEPOSIT, new BigDecimal("50.00"), "Deposit 2", now.minusDays(1)),
-                new Transaction(UUID.randomUUID(), TransactionType.WITHDRAWAL, new BigDecimal("30.00"), "Withdrawal 1", now)
+                new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.WITHDRAWAL, Money.of("30.00"), "Withdrawal 1", now),
+                new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.DEPOSIT, Money.of("50.00"), "Deposit 2", now.minusDays(1)),
+                new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.DEPOSIT, Money.of("100.00"), "Deposit 1", now.minusDays(2))
         );
 
-        when(ledgerRepository.findAll()).thenReturn(transactions);
+        when(ledgerRepository.findAll(ACCOUNT)).thenReturn(transactions);
 
        
-        List<Transaction> history = ledgerService.getTransactionHistory();
+        List<Transaction> history = ledgerService.getTransactionHistory(ACCOUNT);
 
        
         assertEquals(3, history.size());
@@ -148,31 +223,208 @@ class LedgerServiceImplTest {
 
 
     @Test
-    void insufficientBalance() {
+    void shouldReturnTransactionHistoryPage() {
        
-        LocalDateTime now = LocalDateTime.now();
-        List<Transaction> transactions = List.of(
-                new Transaction(UUID.randomUUID(), TransactionType.DEPOSIT, new BigDecimal("100.00"), "Deposit 1", now.minusDays(2)),
-                new Transaction(UUID.randomUUID(), TransactionType.DEPOSIT, new BigDecimal("50.00"), "Deposit 2", now.minusDays(1))
+        TransactionQuery query = TransactionQuery.latest(1);
+        List<Transaction> page = List.of(
+                new Transaction(UUID.randomUUID(), ACCOUNT, TransactionType.DEPOSIT, Money.of("100.00"), "Deposit 1", LocalDateTime.now())
         );
-        when(ledgerRepository.findAll()).thenReturn(transactions);
+        when(ledgerRepository.findPage(ACCOUNT, query)).thenReturn(page);
+
+       
+        assertEquals(page, ledgerService.getTransactionHistory(ACCOUNT, query));
+    }
+
+    @Test
+    void insufficientBalance() {
+       
+        when(ledgerRepository.balance(ACCOUNT)).thenReturn(Money.of("150.00"));
 
 
         TransactionRequest withdrawalRequest = new TransactionRequest(TransactionType.WITHDRAWAL, new BigDecimal("200.0"), "Withdrawal 1");
         InsufficientFundsException exception = assertThrows(InsufficientFundsException.class, () -> {
-            ledgerService.recordTransaction(withdrawalRequest);
+            ledgerService.recordTransaction(ACCOUNT, withdrawalRequest);
         });
 
         assertEquals("Insufficient funds for withdrawal", exception.getMessage());
     }
 
+    @Test
+    void shouldReleaseReservedFundsWhenSaveFails() {
+       
+        when(ledgerRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        ledgerService.recordTransaction(ACCOUNT, new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("100.00"), "Deposit 1"));
+        when(ledgerRepository.save(any(Transaction.class))).thenThrow(new IllegalStateException("store unavailable"));
+
+       
+        assertThrows(IllegalStateException.class, () ->
+                ledgerService.recordTransaction(ACCOUNT, new TransactionRequest(TransactionType.WITHDRAWAL, new BigDecimal("60.00"), "Withdrawal 1")));
+
+       
+        assertEquals(Money.of("100.00"), ledgerService.getBalance(ACCOUNT));
+    }
+
+    @Test
+    void shouldRecordTransferAsTwoLinkedLegs() {
+
+        when(ledgerRepository.balance(ACCOUNT)).thenReturn(Money.of("100.00"));
+        when(ledgerRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+
+        Transfer transfer = ledgerService.transfer(ACCOUNT, new TransferRequest("acc-2", new BigDecimal("40.00"), "Rent"));
+
+
+        assertEquals(TransactionType.TRANSFER_OUT, transfer.debit().type());
+        assertEquals(TransactionType.TRANSFER_IN, transfer.credit().type());
+        assertEquals("acc-2", transfer.credit().accountId());
+        assertEquals(transfer.credit().id(), transfer.debit().linkedId());
+        assertEquals(transfer.debit().id(), transfer.credit().linkedId());
+        verify(ledgerRepository, times(1)).saveAll(transfer.legs());
+        assertEquals(Money.of("60.00"), ledgerService.getBalance(ACCOUNT));
+        assertEquals(Money.of("40.00"), ledgerService.getBalance("acc-2"));
+    }
+
+    @Test
+    void shouldRejectTransfersThatCannotBeFundedOrGoNowhere() {
+
+        when(ledgerRepository.balance(ACCOUNT)).thenReturn(Money.of("100.00"));
+
+
+        InsufficientFundsException insufficient = assertThrows(InsufficientFundsException.class, () ->
+                ledgerService.transfer(ACCOUNT, new TransferRequest("acc-2", new BigDecimal("100.01"), "Rent")));
+        TransactionFailedException self = assertThrows(TransactionFailedException.class, () ->
+                ledgerService.transfer(ACCOUNT, new TransferRequest(ACCOUNT, new BigDecimal("1.00"), "Rent")));
+        TransactionFailedException leg = assertThrows(TransactionFailedException.class, () ->
+                ledgerService.recordTransaction(ACCOUNT, new TransactionRequest(TransactionType.TRANSFER_IN, new BigDecimal("1.00"), "Rent")));
+
+
+        assertEquals("Insufficient funds for transfer", insufficient.getMessage());
+        assertEquals("The transfer failed. Cannot transfer to the same account", self.getMessage());
+        assertEquals("The transaction failed. Transfers are recorded through the transfers endpoint", leg.getMessage());
+        verify(ledgerRepository, never()).saveAll(any());
+        assertEquals(Money.of("100.00"), ledgerService.getBalance(ACCOUNT));
+    }
+
+    @Test
+    void shouldProveOnlyTheAccountsOwnTransactions() {
+
+        UUID id = UUID.randomUUID();
+        ChainProof proof = new ChainProof("acc-2", 1, 1, List.of(), "", "", null, List.of());
+        when(ledgerRepository.proof(id)).thenReturn(Optional.of(proof));
+
+
+        ChainProof own = ledgerService.getProof("acc-2", id);
+        TransactionNotFoundException other = assertThrows(TransactionNotFoundException.class,
+                () -> ledgerService.getProof(ACCOUNT, id));
+
+
+        assertEquals(proof, own);
+        assertEquals("Transaction " + id + " was not found in account " + ACCOUNT, other.getMessage());
+    }
+
+    @Test
+    void shouldRecordBatchInOneBulkWrite() {
+       
+        when(ledgerRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        BatchRequest request = new BatchRequest(BatchMode.ATOMIC, List.of(
+                new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("100.00"), "Deposit 1"),
+                new TransactionRequest(TransactionType.WITHDRAWAL, new BigDecimal("60.00"), "Withdrawal 1"),
+                new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("5"), "Deposit 2")));
+
+       
+        BatchResult result = ledgerService.recordTransactions(ACCOUNT, request);
+
+       
+        assertEquals(3, result.committed());
+        assertEquals(Money.of("45.00"), ledgerService.getBalance(ACCOUNT));
+        verify(ledgerRepository, times(1)).saveAll(any());
+        verify(ledgerRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldRejectWholeAtomicBatch() {
+       
+        BatchRequest request = new BatchRequest(BatchMode.ATOMIC, List.of(
+                new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("100.00"), "Deposit 1"),
+                new TransactionRequest(TransactionType.WITHDRAWAL, new BigDecimal("150.00"), "Withdrawal 1")));
+
+       
+        BatchRejectedException exception = assertThrows(BatchRejectedException.class, () ->
+                ledgerService.recordTransactions(ACCOUNT, request));
+
+       
+        assertEquals(1, exception.getIndex());
+        assertEquals(Money.ZERO, ledgerService.getBalance(ACCOUNT));
+        verify(ledgerRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void shouldReportEachItemOfBestEffortBatch() {
+       
+        when(ledgerRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        BatchRequest request = new BatchRequest(BatchMode.BEST_EFFORT, List.of(
+                new TransactionRequest(TransactionType.WITHDRAWAL, new BigDecimal("10.00"), "Too early"),
+                new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("100.00"), "Deposit 1"),
+                new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("-1.00"), "Negative"),
+                new TransactionRequest(TransactionType.WITHDRAWAL, new BigDecimal("40.00"), "Withdrawal 1")));
+
+       
+        BatchResult result = ledgerService.recordTransactions(ACCOUNT, request);
+
+       
+        assertEquals(2, result.committed());
+        assertEquals(2, result.rejected());
+        assertEquals(List.of(BatchItemResult.Status.REJECTED, BatchItemResult.Status.COMMITTED,
+                        BatchItemResult.Status.REJECTED, BatchItemResult.Status.COMMITTED),
+                result.results().stream().map(BatchItemResult::status).toList());
+        assertEquals("Withdrawal 1", result.results().get(3).transaction().description());
+        assertEquals(Money.of("60.00"), ledgerService.getBalance(ACCOUNT));
+    }
+
+    @Test
+    void shouldRejectAmountsThatDoNotFitMoney() {
+
+        TransactionFailedException tooPrecise = assertThrows(TransactionFailedException.class, () ->
+                ledgerService.recordTransaction(ACCOUNT, new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("1.005"), "Too precise")));
+        TransactionFailedException tooLarge = assertThrows(TransactionFailedException.class, () ->
+                ledgerService.recordTransaction(ACCOUNT, new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("1e17"), "Too large")));
+
+        assertEquals("The transaction failed. Amounts have at most 2 decimals", tooPrecise.getMessage());
+        assertEquals("The transaction failed. Amount is too large", tooLarge.getMessage());
+        verify(ledgerRepository, never()).save(any(Transaction.class));
+    }
+
+    @Test
+    void shouldRecordOperationLatenciesAndFailures() {
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        LedgerService instrumented = new LedgerServiceImpl(ledgerRepository, new LedgerMetrics(registry),
+                TransactionFeed.unbuffered());
+        when(ledgerRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        instrumented.recordTransaction(ACCOUNT, new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("50.00"), "Deposit"));
+        assertThrows(InsufficientFundsException.class, () -> instrumented.recordTransaction(ACCOUNT,
+                new TransactionRequest(TransactionType.WITHDRAWAL, new BigDecimal("80.00"), "Withdrawal")));
+        assertThrows(TransactionFailedException.class, () -> instrumented.recordTransaction(ACCOUNT,
+                new TransactionRequest(TransactionType.DEPOSIT, new BigDecimal("-1.00"), "Negative")));
+        instrumented.getBalance(ACCOUNT);
+
+        assertEquals(2, registry.get("ledger.operation").tag("operation", "deposit").timer().count());
+        assertEquals(1, registry.get("ledger.operation").tag("operation", "withdrawal").timer().count());
+        assertEquals(1, registry.get("ledger.operation").tag("operation", "balance").timer().count());
+        assertEquals(1, registry.get("ledger.transactions.failed")
+                .tag("exception", "InsufficientFundsException").counter().count());
+        assertEquals(1, registry.get("ledger.transactions.failed")
+                .tag("exception", "TransactionFailedException").counter().count());
+    }
+
     @Test
     void negativeAmount() {
 
 
         TransactionRequest withdrawalRequest = new TransactionRequest(TransactionType.WITHDRAWAL, new BigDecimal("-200.0"), "Withdrawal 1");
         TransactionFailedException exception = assertThrows(TransactionFailedException.class, () -> {
-            ledgerService.recordTransaction(withdrawalRequest);
+            ledgerService.recordTransaction(ACCOUNT, withdrawalRequest);
         });
 
         assertEquals("The transaction failed. Invalid amount", exception.getMessage());
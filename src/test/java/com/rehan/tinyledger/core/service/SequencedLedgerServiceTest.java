@@ -0,0 +1,246 @@
+package com.rehan.tinyledger.core.service;
+
+import com.rehan.tinyledger.adapter.persistance.InMemoryLedgerRepository;
+import com.rehan.tinyledger.core.domain.BatchItemResult;
+import com.rehan.tinyledger.core.domain.BatchMode;
+import com.rehan.tinyledger.core.domain.BatchRequest;
+import com.rehan.tinyledger.core.domain.BatchResult;
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionRequest;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import com.rehan.tinyledger.core.domain.TransferRequest;
+import com.rehan.tinyledger.core.domain.exception.BatchRejectedException;
+import com.rehan.tinyledger.core.domain.exception.InsufficientFundsException;
+import com.rehan.tinyledger.core.port.LedgerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SequencedLedgerServiceTest {
+    private static final String ACCOUNT = "acc-1";
+
+    private final InMemoryLedgerRepository repository = new InMemoryLedgerRepository();
+    // A small ring, so the tests wrap around it many times.
+    private SequencedLedgerService ledgerService = new SequencedLedgerService(repository, new SequencerProperties(64, 16));
+
+    @AfterEach
+    void tearDown() {
+        ledgerService.close();
+    }
+
+    @Test
+    void shouldRecordDepositsAndWithdrawals() {
+
+        Transaction deposit = ledgerService.recordTransaction(ACCOUNT, request(TransactionType.DEPOSIT, "100"));
+        Transaction withdrawal = ledgerService.recordTransaction(ACCOUNT, request(TransactionType.WITHDRAWAL, "30.50"));
+
+
+        assertEquals(Money.of("100.00"), deposit.amount());
+        assertEquals(List.of(withdrawal, deposit), repository.findAll(ACCOUNT));
+        assertEquals(Money.of("69.50"), ledgerService.getBalance(ACCOUNT));
+        assertThrows(InsufficientFundsException.class, () ->
+                ledgerService.recordTransaction(ACCOUNT, request(TransactionType.WITHDRAWAL, "69.51")));
+        assertEquals(Money.of("69.50"), ledgerService.getBalance(ACCOUNT));
+        assertEquals(Money.of("0.00"), ledgerService.getBalance("unknown"));
+        assertTrue(ledgerService.verifyBalance(ACCOUNT));
+    }
+
+    @Test
+    void shouldApplyBatchItemsInOrder() {
+        ledgerService.recordTransaction(ACCOUNT, request(TransactionType.DEPOSIT, "10"));
+
+        BatchResult bestEffort = ledgerService.recordTransactions(ACCOUNT, new BatchRequest(BatchMode.BEST_EFFORT, List.of(
+                request(TransactionType.WITHDRAWAL, "15"),
+                request(TransactionType.DEPOSIT, "10"),
+                request(TransactionType.WITHDRAWAL, "15"),
+                request(TransactionType.WITHDRAWAL, "0.001"))));
+
+
+        assertEquals(2, bestEffort.committed());
+        assertEquals(2, bestEffort.rejected());
+        assertEquals(BatchItemResult.Status.REJECTED, bestEffort.results().get(0).status());
+        assertEquals(BatchItemResult.Status.COMMITTED, bestEffort.results().get(2).status());
+        assertEquals(Money.of("5.00"), ledgerService.getBalance(ACCOUNT));
+        BatchRejectedException rejected = assertThrows(BatchRejectedException.class, () ->
+                ledgerService.recordTransactions(ACCOUNT, new BatchRequest(BatchMode.ATOMIC, List.of(
+                        request(TransactionType.DEPOSIT, "100"),
+                        request(TransactionType.WITHDRAWAL, "200")))));
+        assertEquals(1, rejected.getIndex());
+        assertEquals(Money.of("5.00"), ledgerService.getBalance(ACCOUNT));
+        assertEquals(3, repository.findAll(ACCOUNT).size());
+    }
+
+    @Test
+    void concurrentWithdrawalsShouldNeverOverdrawAndKeepOneOrder() throws Exception {
+        ledgerService.recordTransaction(ACCOUNT, request(TransactionType.DEPOSIT, "1000"));
+        AtomicInteger succeeded = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    try {
+                        ledgerService.recordTransaction(ACCOUNT, request(TransactionType.WITHDRAWAL, "1"));
+                        succeeded.incrementAndGet();
+                    } catch (InsufficientFundsException ignored) {
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+
+        assertEquals(1000, succeeded.get());
+        assertEquals(Money.of("0.00"), ledgerService.getBalance(ACCOUNT));
+        List<Transaction> history = repository.streamAll(ACCOUNT).toList();
+        assertEquals(1001, history.size());
+        for (int i = 1; i < history.size(); i++) {
+            assertFalse(history.get(i).timestamp().isBefore(history.get(i - 1).timestamp()));
+        }
+        assertTrue(ledgerService.verifyBalance(ACCOUNT));
+    }
+
+    @Test
+    void crossTransfersShouldConserveMoney() throws Exception {
+        int accounts = 16;
+        for (int i = 0; i < accounts; i++) {
+            ledgerService.recordTransaction("acc-" + i, request(TransactionType.DEPOSIT, "100"));
+        }
+        AtomicInteger succeeded = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 500; i++) {
+                    int from = random.nextInt(accounts);
+                    int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+                    try {
+                        ledgerService.transfer("acc-" + from, new TransferRequest("acc-" + to, BigDecimal.valueOf(random.nextInt(1, 5_000), 2), "Transfer"));
+                        succeeded.incrementAndGet();
+                    } catch (InsufficientFundsException ignored) {
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+
+        long total = 0;
+        int legs = 0;
+        for (int i = 0; i < accounts; i++) {
+            assertTrue(ledgerService.getBalance("acc-" + i).signum() >= 0);
+            assertTrue(ledgerService.verifyBalance("acc-" + i));
+            total += ledgerService.getBalance("acc-" + i).minorUnits();
+            legs += repository.findAll("acc-" + i).size() - 1;
+        }
+        assertEquals(accounts * 10_000L, total);
+        assertEquals(2 * succeeded.get(), legs);
+        assertThrows(InsufficientFundsException.class, () ->
+                ledgerService.transfer("acc-0", new TransferRequest("acc-1", new BigDecimal("1600.01"), "Too much")));
+    }
+
+    @Test
+    void shouldKeepBalanceWhenTheSaveFails() {
+        ledgerService.close();
+        LedgerRepository failing = mock(LedgerRepository.class);
+        when(failing.balance(any())).thenReturn(Money.ZERO);
+        when(failing.saveAll(anyList())).thenThrow(new IllegalStateException("Disk full"));
+        ledgerService = new SequencedLedgerService(failing, new SequencerProperties(64, 16));
+
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () ->
+                ledgerService.recordTransaction(ACCOUNT, request(TransactionType.DEPOSIT, "10")));
+
+
+        assertEquals("Disk full", ex.getMessage());
+        assertEquals(Money.of("0.00"), ledgerService.getBalance(ACCOUNT));
+    }
+
+    @Test
+    void shouldFailOnlyTheOverflowingCommandOfADrain() throws Exception {
+        ledgerService.close();
+        LedgerRepository repository = mock(LedgerRepository.class);
+        when(repository.balance(any())).thenReturn(Money.ZERO);
+        when(repository.balance(ACCOUNT)).thenReturn(new Money(Long.MAX_VALUE));
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            if (blocked.getCount() > 0) {
+                blocked.countDown();
+                release.await();
+            }
+            return invocation.getArgument(0);
+        });
+        ledgerService = new SequencedLedgerService(repository, new SequencerProperties(64, 16));
+        Thread first = new Thread(() -> ledgerService.recordTransaction("acc-0", request(TransactionType.DEPOSIT, "1")));
+        first.start();
+        blocked.await();
+        // Both commands are published while the sequencer is held in the first drain's save, so they share the next drain.
+        AtomicReference<Throwable> overflow = new AtomicReference<>();
+        AtomicReference<Transaction> deposit = new AtomicReference<>();
+        Thread overflowing = new Thread(() -> {
+            try {
+                ledgerService.recordTransaction(ACCOUNT, request(TransactionType.DEPOSIT, "0.01"));
+            } catch (RuntimeException ex) {
+                overflow.set(ex);
+            }
+        });
+        Thread valid = new Thread(() -> deposit.set(ledgerService.recordTransaction("acc-2", request(TransactionType.DEPOSIT, "5"))));
+        overflowing.start();
+        valid.start();
+        while (overflowing.getState() != Thread.State.WAITING || valid.getState() != Thread.State.WAITING) {
+            Thread.onSpinWait();
+        }
+
+        release.countDown();
+        first.join();
+        overflowing.join();
+        valid.join();
+
+
+        assertInstanceOf(ArithmeticException.class, overflow.get());
+        assertEquals(Money.of("5.00"), deposit.get().amount());
+        assertEquals(new Money(Long.MAX_VALUE), ledgerService.getBalance(ACCOUNT));
+        assertEquals(Money.of("5.00"), ledgerService.getBalance("acc-2"));
+    }
+
+    @Test
+    void shouldRejectCommandsOnceClosed() {
+
+        ledgerService.close();
+
+
+        assertThrows(IllegalStateException.class, () ->
+                ledgerService.recordTransaction(ACCOUNT, request(TransactionType.DEPOSIT, "10")));
+    }
+
+    private static TransactionRequest request(TransactionType type, String amount) {
+        return new TransactionRequest(type, new BigDecimal(amount), "Test");
+    }
+}
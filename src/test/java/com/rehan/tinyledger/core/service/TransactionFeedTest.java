@@ -0,0 +1,168 @@
+package com.rehan.tinyledger.core.service;
+
+import com.rehan.tinyledger.core.domain.Money;
+import com.rehan.tinyledger.core.domain.Transaction;
+import com.rehan.tinyledger.core.domain.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionFeedTest {
+    private static final String ACCOUNT = "acc-1";
+    private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(5);
+
+    // A small ring, so the tests can lap it.
+    private final TransactionFeed feed = new TransactionFeed(new FeedProperties(4, Duration.ofSeconds(15)));
+
+    @Test
+    void shouldDeliverInOrderAndResumeAfterASequence() throws Exception {
+
+        TransactionFeed.Subscription live = feed.subscribe(ACCOUNT, null);
+        List<Transaction> published = List.of(transaction("1.00"), transaction("2.00"), transaction("3.00"));
+        feed.publish(published.get(0));
+        feed.publishAll(published.subList(1, 3));
+
+
+        TransactionFeed.Subscription resumed = feed.subscribe(ACCOUNT, feed.id(0));
+
+
+        assertEquals(new TransactionFeed.Event(0, published.get(0)), live.poll(TIMEOUT));
+        assertEquals(new TransactionFeed.Event(1, published.get(1)), live.poll(TIMEOUT));
+        assertEquals(new TransactionFeed.Event(2, published.get(2)), live.poll(TIMEOUT));
+        assertNull(live.poll(TimeUnit.MILLISECONDS.toNanos(10)));
+        assertEquals(new TransactionFeed.Event(1, published.get(1)), resumed.poll(TIMEOUT));
+        assertEquals(3, feed.head());
+    }
+
+    @Test
+    void shouldReportResumesFromPositionsTheRingNoLongerHolds() throws Exception {
+
+        for (int i = 0; i < 6; i++) {
+            feed.publish(transaction("1.00"));
+        }
+
+
+        TransactionFeed.LaggedException evicted = assertThrows(TransactionFeed.LaggedException.class,
+                () -> feed.subscribe(ACCOUNT, feed.id(0)).poll(TIMEOUT));
+        TransactionFeed.LaggedException unknown = assertThrows(TransactionFeed.LaggedException.class,
+                () -> feed.subscribe(ACCOUNT, feed.id(100)).poll(TIMEOUT));
+
+
+        assertEquals(1, evicted.resumeAfter());
+        assertEquals(1, evicted.missed());
+        assertEquals(1, unknown.resumeAfter());
+        assertEquals(0, unknown.missed());
+        assertEquals(2, feed.subscribe(ACCOUNT, feed.id(evicted.resumeAfter())).poll(TIMEOUT).sequence());
+    }
+
+    @Test
+    void shouldDropSubscribersThatFallAFullQueueBehind() throws Exception {
+
+        TransactionFeed.Subscription slow = feed.subscribe(ACCOUNT, null);
+        // Subscribed after the slow one, so once it has an event the slow one was offered it too.
+        TransactionFeed.Subscription pacer = feed.subscribe(ACCOUNT, null);
+        for (int i = 0; i < 5; i++) {
+            feed.publish(transaction("1.00"));
+            pacer.poll(TIMEOUT);
+        }
+
+
+        List<Long> received = new ArrayList<>();
+        TransactionFeed.LaggedException lagged = assertThrows(TransactionFeed.LaggedException.class, () -> {
+            while (true) {
+                received.add(slow.poll(TIMEOUT).sequence());
+            }
+        });
+
+
+        assertEquals(List.of(0L, 1L, 2L, 3L), received);
+        assertEquals(3, lagged.resumeAfter());
+        assertEquals(0, lagged.missed());
+        assertEquals(4, feed.subscribe(ACCOUNT, feed.id(lagged.resumeAfter())).poll(TIMEOUT).sequence());
+    }
+
+    @Test
+    void shouldNotLagQuietAccountsBehindOtherAccountsTraffic() throws Exception {
+
+        TransactionFeed.Subscription quiet = feed.subscribe("acc-2", null);
+        TransactionFeed.Subscription busy = feed.subscribe(ACCOUNT, null);
+        for (int i = 0; i < 10; i++) {
+            feed.publish(transaction("1.00"));
+            busy.poll(TIMEOUT);
+        }
+
+
+        assertNull(quiet.poll(TimeUnit.MILLISECONDS.toNanos(10)));
+        long position = quiet.position();
+        feed.publish(Transaction.create("acc-2", TransactionType.DEPOSIT, Money.of("1.00"), "Deposit"));
+
+
+        assertEquals(10, position);
+        assertEquals(10, quiet.poll(TIMEOUT).sequence());
+    }
+
+    @Test
+    void shouldReportIdsOfAnotherBootAsLagged() throws Exception {
+
+        // Epochs are boot times, so 1 is a boot long gone.
+        feed.publish(transaction("1.00"));
+
+
+        TransactionFeed.LaggedException lagged = assertThrows(TransactionFeed.LaggedException.class,
+                () -> feed.subscribe(ACCOUNT, "1-0").poll(TIMEOUT));
+
+
+        assertEquals(-1, lagged.resumeAfter());
+        assertEquals(0, lagged.missed());
+        assertThrows(IllegalArgumentException.class, () -> feed.subscribe(ACCOUNT, "41"));
+        assertThrows(IllegalArgumentException.class, () -> feed.subscribe(ACCOUNT, "abc-41"));
+    }
+
+    @Test
+    void shouldWakeWaitingSubscribersWithoutBlockingPublishers() throws Exception {
+
+        TransactionFeed wide = new TransactionFeed(new FeedProperties(1024, Duration.ofSeconds(15)));
+        TransactionFeed.Subscription subscription = wide.subscribe(ACCOUNT, null);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CompletableFuture<List<Long>> received = CompletableFuture.supplyAsync(() -> {
+            List<Long> sequences = new ArrayList<>();
+            try {
+                while (sequences.size() < 400) {
+                    sequences.add(subscription.poll(TIMEOUT).sequence());
+                }
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+            return sequences;
+        });
+
+
+        for (int i = 0; i < 4; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < 100; j++) {
+                    wide.publish(transaction("1.00"));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+
+        List<Long> sequences = received.get(5, TimeUnit.SECONDS);
+        for (int i = 0; i < sequences.size(); i++) {
+            assertEquals(i, sequences.get(i));
+        }
+    }
+
+    private static Transaction transaction(String amount) {
+        return Transaction.create(ACCOUNT, TransactionType.DEPOSIT, Money.of(amount), "Deposit");
+    }
+}